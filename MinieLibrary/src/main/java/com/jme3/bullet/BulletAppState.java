@@ -309,6 +309,16 @@ public class BulletAppState
         return debugConfig.isEnabled();
     }
 
+    /**
+     * Test whether debug visualization renders eligible rigid bodies using
+     * hardware instancing.
+     *
+     * @return true if instancing, otherwise false
+     */
+    public boolean isDebugInstancing() {
+        return debugConfig.isInstancing();
+    }
+
     /**
      * Test whether the physics simulation is running (started but not yet
      * stopped).
@@ -377,6 +387,38 @@ public class BulletAppState
         debugConfig.setCamera(camera);
     }
 
+    /**
+     * Alter the maximum number of culled objects whose debug visualizations
+     * are refreshed per update.
+     *
+     * @param numObjects the desired number of objects (&ge;0, default=16)
+     */
+    public void setDebugCulledUpdateBudget(int numObjects) {
+        debugConfig.setCulledUpdateBudget(numObjects);
+    }
+
+    /**
+     * Alter the maximum distance from a debug camera at which objects are
+     * visualized when culling.
+     *
+     * @param distance the desired distance (in world units, &gt;0,
+     * default=+Infinity)
+     */
+    public void setDebugCullDistance(float distance) {
+        debugConfig.setCullDistance(distance);
+    }
+
+    /**
+     * Enable or disable culling of objects that no debug view port can see.
+     * Changes take effect on the next update.
+     *
+     * @param culling true &rarr; cull, false &rarr; visualize every object
+     * (default=false)
+     */
+    public void setDebugCulling(boolean culling) {
+        debugConfig.setCulling(culling);
+    }
+
     /**
      * Enable or disable debug visualization. Changes take effect on the next
      * update.
@@ -420,6 +462,17 @@ public class BulletAppState
         debugConfig.setInitListener(listener);
     }
 
+    /**
+     * Alter whether debug visualization renders eligible rigid bodies using
+     * hardware instancing. Changes take effect on the next update.
+     *
+     * @param instancing true &rarr; instance, false &rarr; render each body
+     * separately (default=false)
+     */
+    public void setDebugInstancing(boolean instancing) {
+        debugConfig.setInstancing(instancing);
+    }
+
     /**
      * Alter the line width for PhysicsJoint debug arrows.
      *
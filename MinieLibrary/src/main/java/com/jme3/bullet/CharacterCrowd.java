@@ -0,0 +1,683 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import com.jme3.bullet.collision.PhysicsCollisionObject;
+import com.jme3.bullet.collision.PhysicsRayTestResult;
+import com.jme3.bullet.collision.shapes.CapsuleCollisionShape;
+import com.jme3.bullet.collision.shapes.CompoundCollisionShape;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+import jme3utilities.math.MyBuffer;
+import jme3utilities.math.MyVector3f;
+
+/**
+ * A crowd of capsule-shaped characters that share a single CollisionShape and
+ * are simulated together, similar to many instances of BetterCharacterControl.
+ * <p>
+ * Per-character state (locations, velocities, walk directions, and on-ground
+ * flags) is stored in parallel arrays indexed by character. A single ground
+ * probe pass runs before each physics step, reusing one result list, and a
+ * single readback pass runs after each step, so that game code can read the
+ * whole crowd in bulk without JNI calls.
+ * <p>
+ * Characters are identified by dense indices. Removing a character moves the
+ * last character into the vacated index.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class CharacterCrowd implements PhysicsTickListener {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of axes in a vector
+     */
+    final private static int numAxes = 3;
+    /**
+     * extra distance probed below each character's feet (in physics-space
+     * units)
+     */
+    final private static float probeMargin = 0.1f;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(CharacterCrowd.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * true if a jump has been requested for each character
+     */
+    private boolean[] jumpRequested;
+    /**
+     * on-ground flag of each character, as of the most recent probe
+     */
+    private boolean[] onGround;
+    /**
+     * height of each character's shape (&gt;2*radius)
+     */
+    final private float height;
+    /**
+     * magnitude of the upward impulse applied by a jump
+     */
+    private float jumpImpulse;
+    /**
+     * mass of each character (&gt;0)
+     */
+    final private float mass;
+    /**
+     * horizontal motion attenuation factor (0&rarr;no damping, 1=no external
+     * forces)
+     */
+    private float physicsDamping = 0.9f;
+    /**
+     * location of each character's base (3 floats per character, in
+     * physics-space coordinates), as of the most recent readback
+     */
+    private float[] locations;
+    /**
+     * linear velocity of each character (3 floats per character, in
+     * physics-space coordinates), as of the most recent readback
+     */
+    private float[] velocities;
+    /**
+     * desired walk velocity of each character (3 floats per character, in
+     * physics-space coordinates)
+     */
+    private float[] walkDirections;
+    /**
+     * number of characters in this crowd
+     */
+    private int numCharacters = 0;
+    /**
+     * reusable list of ray-test results
+     */
+    final private List<PhysicsRayTestResult> probeResults
+            = new ArrayList<>(8);
+    /**
+     * shape shared by all characters
+     */
+    final private CompoundCollisionShape shape;
+    /**
+     * space to which the characters are added, or null if none
+     */
+    private PhysicsSpace space = null;
+    /**
+     * rigid body of each character
+     */
+    private PhysicsRigidBody[] bodies;
+    /**
+     * temporary storage for a ray's start or a location
+     */
+    final private Vector3f tmpFrom = new Vector3f();
+    /**
+     * temporary storage for a ray's end or a direction
+     */
+    final private Vector3f tmpTo = new Vector3f();
+    /**
+     * temporary storage for the up direction
+     */
+    final private Vector3f tmpUp = new Vector3f();
+    /**
+     * temporary storage for a velocity
+     */
+    final private Vector3f tmpVelocity = new Vector3f();
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an empty crowd with the specified character properties.
+     *
+     * @param radius the radius of each character's capsule (&gt;0)
+     * @param height the total height of each character (&gt;2*radius)
+     * @param mass the mass of each character (&gt;0)
+     * @param initialCapacity the number of characters to allocate storage for
+     * (&ge;0)
+     */
+    public CharacterCrowd(float radius, float height, float mass,
+            int initialCapacity) {
+        Validate.positive(radius, "radius");
+        Validate.require(height > 2f * radius, "height > 2*radius");
+        Validate.positive(mass, "mass");
+        Validate.nonNegative(initialCapacity, "initial capacity");
+
+        this.height = height;
+        this.mass = mass;
+        this.jumpImpulse = 5f * mass;
+
+        CapsuleCollisionShape capsule
+                = new CapsuleCollisionShape(radius, height - 2f * radius);
+        shape = new CompoundCollisionShape(1);
+        shape.addChildShape(capsule, 0f, height / 2f, 0f);
+
+        bodies = new PhysicsRigidBody[initialCapacity];
+        jumpRequested = new boolean[initialCapacity];
+        onGround = new boolean[initialCapacity];
+        locations = new float[numAxes * initialCapacity];
+        velocities = new float[numAxes * initialCapacity];
+        walkDirections = new float[numAxes * initialCapacity];
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Add a character to this crowd at the specified location.
+     *
+     * @param location the desired location of the character's base (in
+     * physics-space coordinates, not null, unaffected)
+     * @return the index of the new character (&ge;0)
+     */
+    public int add(Vector3f location) {
+        Validate.finite(location, "location");
+
+        int index = numCharacters;
+        ensureCapacity(index + 1);
+
+        PhysicsRigidBody body = new PhysicsRigidBody(shape, mass);
+        body.setAngularFactor(0f);
+        body.setPhysicsLocation(location);
+        bodies[index] = body;
+        jumpRequested[index] = false;
+        onGround[index] = false;
+        putVector(locations, index, location);
+        putVector(velocities, index, Vector3f.ZERO);
+        putVector(walkDirections, index, Vector3f.ZERO);
+        ++numCharacters;
+
+        if (space != null) {
+            space.addCollisionObject(body);
+        }
+
+        return index;
+    }
+
+    /**
+     * Copy the on-ground flags of all characters, as of the most recent probe.
+     *
+     * @param storeResult storage for the result (modified) or null
+     * @return a buffer containing one byte per character (1=on ground,
+     * 0=airborne, either storeResult or a new buffer)
+     */
+    public ByteBuffer copyGroundFlags(ByteBuffer storeResult) {
+        ByteBuffer result;
+        if (storeResult == null || storeResult.capacity() < numCharacters) {
+            result = ByteBuffer.allocateDirect(numCharacters);
+        } else {
+            result = storeResult;
+        }
+
+        for (int index = 0; index < numCharacters; ++index) {
+            byte flag = onGround[index] ? (byte) 1 : (byte) 0;
+            result.put(index, flag);
+        }
+
+        return result;
+    }
+
+    /**
+     * Copy the base locations of all characters, as of the most recent
+     * readback.
+     *
+     * @param storeResult storage for the result (modified) or null
+     * @return a buffer containing 3 floats per character (in physics-space
+     * coordinates, either storeResult or a new buffer)
+     */
+    public FloatBuffer copyLocations(FloatBuffer storeResult) {
+        FloatBuffer result = copyArray(locations, storeResult);
+        return result;
+    }
+
+    /**
+     * Copy the linear velocities of all characters, as of the most recent
+     * readback.
+     *
+     * @param storeResult storage for the result (modified) or null
+     * @return a buffer containing 3 floats per character (in physics-space
+     * coordinates, either storeResult or a new buffer)
+     */
+    public FloatBuffer copyVelocities(FloatBuffer storeResult) {
+        FloatBuffer result = copyArray(velocities, storeResult);
+        return result;
+    }
+
+    /**
+     * Count the characters in this crowd.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countCharacters() {
+        return numCharacters;
+    }
+
+    /**
+     * Count the characters that are on the ground, as of the most recent
+     * probe.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countOnGround() {
+        int result = 0;
+        for (int index = 0; index < numCharacters; ++index) {
+            if (onGround[index]) {
+                ++result;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Access the rigid body of the indexed character.
+     *
+     * @param index which character (&ge;0, &lt;numCharacters)
+     * @return the pre-existing instance (not null)
+     */
+    public PhysicsRigidBody getBody(int index) {
+        Validate.inRange(index, "index", 0, numCharacters - 1);
+        return bodies[index];
+    }
+
+    /**
+     * Read the magnitude of the upward impulse applied by a jump.
+     *
+     * @return the impulse magnitude (&ge;0)
+     */
+    public float getJumpImpulse() {
+        return jumpImpulse;
+    }
+
+    /**
+     * Access the space to which the characters are added.
+     *
+     * @return the pre-existing instance, or null if none
+     */
+    public PhysicsSpace getPhysicsSpace() {
+        return space;
+    }
+
+    /**
+     * Read the horizontal motion attenuation factor.
+     *
+     * @return the factor (0&rarr;no damping, 1=no external forces)
+     */
+    public float getPhysicsDamping() {
+        return physicsDamping;
+    }
+
+    /**
+     * Access the CollisionShape shared by all characters.
+     *
+     * @return the pre-existing instance (not null)
+     */
+    public CompoundCollisionShape getShape() {
+        return shape;
+    }
+
+    /**
+     * Test whether the indexed character is on the ground, as of the most
+     * recent probe.
+     *
+     * @param index which character (&ge;0, &lt;numCharacters)
+     * @return true if on the ground, otherwise false
+     */
+    public boolean isOnGround(int index) {
+        Validate.inRange(index, "index", 0, numCharacters - 1);
+        return onGround[index];
+    }
+
+    /**
+     * Request that the indexed character jump, provided it's on the ground.
+     *
+     * @param index which character (&ge;0, &lt;numCharacters)
+     */
+    public void jump(int index) {
+        Validate.inRange(index, "index", 0, numCharacters - 1);
+        if (onGround[index]) {
+            jumpRequested[index] = true;
+        }
+    }
+
+    /**
+     * Remove the indexed character from this crowd. The last character (if
+     * any) moves into the vacated index.
+     *
+     * @param index which character (&ge;0, &lt;numCharacters)
+     */
+    public void remove(int index) {
+        Validate.inRange(index, "index", 0, numCharacters - 1);
+
+        PhysicsRigidBody body = bodies[index];
+        if (space != null) {
+            space.removeCollisionObject(body);
+        }
+
+        int last = numCharacters - 1;
+        bodies[index] = bodies[last];
+        bodies[last] = null;
+        jumpRequested[index] = jumpRequested[last];
+        onGround[index] = onGround[last];
+        System.arraycopy(locations, numAxes * last, locations,
+                numAxes * index, numAxes);
+        System.arraycopy(velocities, numAxes * last, velocities,
+                numAxes * index, numAxes);
+        System.arraycopy(walkDirections, numAxes * last, walkDirections,
+                numAxes * index, numAxes);
+        numCharacters = last;
+    }
+
+    /**
+     * Alter the magnitude of the upward impulse applied by a jump.
+     *
+     * @param impulse the desired impulse magnitude (&ge;0, default=5*mass)
+     */
+    public void setJumpImpulse(float impulse) {
+        Validate.nonNegative(impulse, "impulse");
+        jumpImpulse = impulse;
+    }
+
+    /**
+     * Add all characters to the specified space, removing them from any
+     * previous space.
+     *
+     * @param newSpace the desired space, or null to remove the characters from
+     * physics
+     */
+    public void setPhysicsSpace(PhysicsSpace newSpace) {
+        if (newSpace == space) {
+            return;
+        }
+
+        if (space != null) {
+            for (int index = 0; index < numCharacters; ++index) {
+                space.removeCollisionObject(bodies[index]);
+            }
+            space.removeTickListener(this);
+        }
+        space = newSpace;
+        if (space != null) {
+            for (int index = 0; index < numCharacters; ++index) {
+                space.addCollisionObject(bodies[index]);
+            }
+            space.addTickListener(this);
+        }
+    }
+
+    /**
+     * Alter the horizontal motion attenuation factor.
+     *
+     * @param factor the desired factor (0&rarr;no damping, 1=no external
+     * forces, default=0.9)
+     */
+    public void setPhysicsDamping(float factor) {
+        Validate.fraction(factor, "factor");
+        physicsDamping = factor;
+    }
+
+    /**
+     * Alter the walk velocity of the indexed character.
+     *
+     * @param index which character (&ge;0, &lt;numCharacters)
+     * @param velocity the desired velocity (in physics-space coordinates, not
+     * null, unaffected)
+     */
+    public void setWalkDirection(int index, Vector3f velocity) {
+        Validate.inRange(index, "index", 0, numCharacters - 1);
+        Validate.finite(velocity, "velocity");
+
+        putVector(walkDirections, index, velocity);
+    }
+
+    /**
+     * Alter the walk velocities of all characters.
+     *
+     * @param directions a buffer containing 3 floats per character (in
+     * physics-space coordinates, not null, unaffected)
+     */
+    public void setWalkDirections(FloatBuffer directions) {
+        int numFloats = numAxes * numCharacters;
+        Validate.require(directions.limit() >= numFloats,
+                "limit >= " + numFloats);
+
+        for (int floatIndex = 0; floatIndex < numFloats; ++floatIndex) {
+            walkDirections[floatIndex] = directions.get(floatIndex);
+        }
+    }
+
+    /**
+     * Move the indexed character to the specified location, without altering
+     * its velocity, and refresh its cached location and velocity.
+     *
+     * @param index which character (&ge;0, &lt;numCharacters)
+     * @param location the desired location of the character's base (in
+     * physics-space coordinates, not null, unaffected)
+     */
+    public void warp(int index, Vector3f location) {
+        Validate.inRange(index, "index", 0, numCharacters - 1);
+        Validate.finite(location, "location");
+
+        PhysicsRigidBody body = bodies[index];
+        body.setPhysicsLocation(location);
+        putVector(locations, index, location);
+        body.getLinearVelocity(tmpVelocity);
+        putVector(velocities, index, tmpVelocity);
+    }
+    // *************************************************************************
+    // PhysicsTickListener methods
+
+    /**
+     * Callback from Bullet, invoked just after the physics has been stepped.
+     * Reads back the location and velocity of every character.
+     *
+     * @param space the space that was just stepped (not null)
+     * @param timeStep the time per physics step (in seconds, &ge;0)
+     */
+    @Override
+    public void physicsTick(PhysicsSpace space, float timeStep) {
+        for (int index = 0; index < numCharacters; ++index) {
+            PhysicsRigidBody body = bodies[index];
+            body.getPhysicsLocation(tmpFrom);
+            putVector(locations, index, tmpFrom);
+            body.getLinearVelocity(tmpVelocity);
+            putVector(velocities, index, tmpVelocity);
+        }
+    }
+
+    /**
+     * Callback from Bullet, invoked just before the physics is stepped. Probes
+     * for ground beneath every character and applies walk velocities and
+     * jumps.
+     * <p>
+     * Walk velocities are applied on top of each body's current velocity, read
+     * fresh from the body, so impulses and velocity changes made since the
+     * previous step are preserved (apart from the horizontal damping).
+     *
+     * @param space the space that is about to be stepped (not null)
+     * @param timeStep the time per physics step (in seconds, &ge;0)
+     */
+    @Override
+    public void prePhysicsTick(PhysicsSpace space, float timeStep) {
+        space.getGravity(tmpUp).negateLocal();
+        if (!MyVector3f.isZero(tmpUp)) {
+            tmpUp.normalizeLocal();
+        } else {
+            tmpUp.set(0f, 1f, 0f);
+        }
+
+        probeGround(space);
+
+        for (int index = 0; index < numCharacters; ++index) {
+            PhysicsRigidBody body = bodies[index];
+            body.getLinearVelocity(tmpVelocity);
+            putVector(velocities, index, tmpVelocity);
+            float oldX = tmpVelocity.x;
+            float oldY = tmpVelocity.y;
+            float oldZ = tmpVelocity.z;
+            /*
+             * Attenuate any existing horizontal motion.
+             */
+            float vertical = tmpVelocity.dot(tmpUp);
+            tmpFrom.set(tmpUp).multLocal(vertical);
+            tmpTo.set(tmpVelocity).subtractLocal(tmpFrom);
+            tmpVelocity.subtractLocal(tmpTo.multLocal(physicsDamping));
+            /*
+             * Add the walk velocity.
+             */
+            getVector(walkDirections, index, tmpTo);
+            float designatedSpeed = tmpTo.length();
+            if (designatedSpeed > 0f) {
+                tmpTo.divideLocal(designatedSpeed);
+                float existingSpeed = tmpVelocity.dot(tmpTo);
+                tmpTo.multLocal(designatedSpeed - existingSpeed);
+                tmpVelocity.addLocal(tmpTo);
+            }
+
+            float dx = tmpVelocity.x - oldX;
+            float dy = tmpVelocity.y - oldY;
+            float dz = tmpVelocity.z - oldZ;
+            if (dx * dx + dy * dy + dz * dz
+                    > FastMath.ZERO_TOLERANCE * FastMath.ZERO_TOLERANCE) {
+                body.setLinearVelocity(tmpVelocity);
+            }
+
+            if (jumpRequested[index]) {
+                tmpTo.set(tmpUp).multLocal(jumpImpulse);
+                body.applyCentralImpulse(tmpTo);
+                jumpRequested[index] = false;
+            }
+        }
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Copy per-character vectors from an array to a buffer.
+     *
+     * @param array the source array (not null, unaffected)
+     * @param storeResult storage for the result (modified) or null
+     * @return a buffer (either storeResult or a new buffer)
+     */
+    private FloatBuffer copyArray(float[] array, FloatBuffer storeResult) {
+        int numFloats = numAxes * numCharacters;
+        FloatBuffer result = MyBuffer.ensureCapacity(numFloats, storeResult);
+        for (int floatIndex = 0; floatIndex < numFloats; ++floatIndex) {
+            result.put(floatIndex, array[floatIndex]);
+        }
+
+        return result;
+    }
+
+    /**
+     * Grow the per-character arrays, if necessary.
+     *
+     * @param minCapacity the required number of characters (&ge;0)
+     */
+    private void ensureCapacity(int minCapacity) {
+        int capacity = bodies.length;
+        if (capacity >= minCapacity) {
+            return;
+        }
+
+        int newCapacity = Math.max(minCapacity, 2 * capacity);
+        bodies = Arrays.copyOf(bodies, newCapacity);
+        jumpRequested = Arrays.copyOf(jumpRequested, newCapacity);
+        onGround = Arrays.copyOf(onGround, newCapacity);
+        locations = Arrays.copyOf(locations, numAxes * newCapacity);
+        velocities = Arrays.copyOf(velocities, numAxes * newCapacity);
+        walkDirections = Arrays.copyOf(walkDirections, numAxes * newCapacity);
+    }
+
+    /**
+     * Read a per-character vector from an array.
+     *
+     * @param array the array to read (not null, unaffected)
+     * @param index which character (&ge;0)
+     * @param storeResult storage for the result (not null, modified)
+     */
+    private static void getVector(float[] array, int index,
+            Vector3f storeResult) {
+        int offset = numAxes * index;
+        storeResult.set(array[offset], array[offset + 1], array[offset + 2]);
+    }
+
+    /**
+     * Probe for ground beneath every character, using a single reused result
+     * list.
+     *
+     * @param space the space to probe (not null)
+     */
+    private void probeGround(PhysicsSpace space) {
+        for (int index = 0; index < numCharacters; ++index) {
+            getVector(locations, index, tmpFrom);
+            tmpFrom.addLocal(tmpUp.x * height, tmpUp.y * height,
+                    tmpUp.z * height);
+            float probeLength = height + probeMargin;
+            tmpTo.set(tmpUp).multLocal(-probeLength).addLocal(tmpFrom);
+            space.rayTestRaw(tmpFrom, tmpTo, probeResults);
+
+            PhysicsRigidBody body = bodies[index];
+            boolean hit = false;
+            for (PhysicsRayTestResult result : probeResults) {
+                PhysicsCollisionObject pco = result.getCollisionObject();
+                if (pco != body) {
+                    hit = true;
+                    break;
+                }
+            }
+            onGround[index] = hit;
+        }
+        probeResults.clear();
+    }
+
+    /**
+     * Write a per-character vector to an array.
+     *
+     * @param array the array to modify (not null, modified)
+     * @param index which character (&ge;0)
+     * @param vector the vector to write (not null, unaffected)
+     */
+    private static void putVector(float[] array, int index, Vector3f vector) {
+        int offset = numAxes * index;
+        array[offset] = vector.x;
+        array[offset + 1] = vector.y;
+        array[offset + 2] = vector.z;
+    }
+}
@@ -31,6 +31,9 @@
  */
 package com.jme3.bullet;
 
+import com.jme3.bounding.BoundingBox;
+import com.jme3.bullet.collision.GroupFilter;
+import com.jme3.bullet.collision.PhysicsCollisionEvent;
 import com.jme3.bullet.collision.PhysicsCollisionGroupListener;
 import com.jme3.bullet.collision.PhysicsCollisionListener;
 import com.jme3.bullet.collision.PhysicsCollisionObject;
@@ -40,16 +43,21 @@ import com.jme3.bullet.collision.shapes.ConvexShape;
 import com.jme3.bullet.objects.PhysicsGhostObject;
 import com.jme3.math.Transform;
 import com.jme3.math.Vector3f;
+import java.nio.LongBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jme3utilities.Validate;
@@ -63,6 +71,10 @@ public class CollisionSpace extends NativePhysicsObject {
     // *************************************************************************
     // constants and loggers
 
+    /**
+     * number of distinct collision groups
+     */
+    final private static int numGroups = 32;
     /**
      * message logger for this class
      */
@@ -89,15 +101,109 @@ public class CollisionSpace extends NativePhysicsObject {
             return result;
         }
     };
+    /**
+     * number of membership changes so far
+     */
+    final private AtomicLong membershipVersion = new AtomicLong(0L);
+    /**
+     * incremented whenever simulation may have moved this space's objects, to
+     * invalidate their mirrored transforms
+     */
+    final private AtomicLong transformEpoch = new AtomicLong(0L);
+    /**
+     * reusable storage for the world bounds of candidate objects
+     */
+    final private BoundingBox tmpBox = new BoundingBox();
+    /**
+     * maximum squared distance accepted by the current bounds query
+     */
+    private float boundsDistanceSquared;
+    /**
+     * number of objects found so far by the current bounds query
+     */
+    private int boundsFound;
+    /**
+     * collision groups accepted by the current overlap query
+     */
+    private int overlapGroups;
+    /**
+     * storage for the IDs found by the current bounds query, or null to
+     * count only
+     */
+    private LongBuffer boundsIds;
+    /**
+     * reusable storage for objects found by overlapShape(), in the order found
+     */
+    final private List<PhysicsCollisionObject> overlapScratch
+            = new ArrayList<>(10);
+    /**
+     * reusable listener that gathers objects for overlapShape()
+     */
+    final private PhysicsCollisionListener overlapListener
+            = new PhysicsCollisionListener() {
+        @Override
+        public void collision(PhysicsCollisionEvent event) {
+            PhysicsCollisionObject pco = event.getObjectA();
+            if (pco == queryGhost) {
+                pco = event.getObjectB();
+            }
+            if ((pco.getCollisionGroup() & overlapGroups) != 0x0
+                    && overlapSet.add(pco)) {
+                overlapScratch.add(pco);
+            }
+        }
+    };
+    /**
+     * reusable identity set of the objects found by overlapShape(), for
+     * constant-time de-duplication
+     */
+    final private Set<PhysicsCollisionObject> overlapSet
+            = Collections.newSetFromMap(
+                    new IdentityHashMap<PhysicsCollisionObject, Boolean>(16));
+    /**
+     * maximum coordinates of the current bounds query (not null)
+     */
+    final private Vector3f boundsMax = new Vector3f();
+    /**
+     * minimum coordinates of the current bounds query (not null)
+     */
+    final private Vector3f boundsMin = new Vector3f();
+    /**
+     * ghost object used by overlapShape(), or null if not yet created
+     */
+    private PhysicsGhostObject queryGhost = null;
+    /**
+     * reusable storage for the raw results of single-result ray tests
+     */
+    final private List<PhysicsRayTestResult> rayScratch = new ArrayList<>(10);
     /**
      * flags used in ray tests
      */
     private int rayTestFlags = RayTestFlag.SubSimplexRaytest;
     /**
-     * map from collision groups to registered group listeners
+     * filter action for each pair of collision groups, indexed by
+     * numGroups*bitIndexA + bitIndexB
      */
-    final private Map<Integer, PhysicsCollisionGroupListener> collisionGroupListeners
-            = new ConcurrentHashMap<>(20);
+    final private byte[] groupFilters = new byte[numGroups * numGroups];
+    /**
+     * number of registered group listeners
+     */
+    private int numGroupListeners = 0;
+    /**
+     * registered group listener for each collision group, indexed by bit
+     * index. Unlike a concurrent map, this array isn't safe for concurrent
+     * modification: listeners should be (de-)registered only while the space
+     * isn't being stepped.
+     */
+    final private PhysicsCollisionGroupListener[] collisionGroupListeners
+            = new PhysicsCollisionGroupListener[numGroups];
+    /**
+     * list of registered membership listeners: copy-on-write, so listeners
+     * can be (de-)registered from any thread while the physics thread
+     * iterates
+     */
+    final private List<CollisionSpaceListener> membershipListeners
+            = new CopyOnWriteArrayList<>();
     /**
      * map ghost IDs to added objects
      */
@@ -141,6 +247,7 @@ public class CollisionSpace extends NativePhysicsObject {
         this.worldMin.set(worldMin);
         this.worldMax.set(worldMax);
         this.broadphaseType = broadphaseType;
+        Arrays.fill(groupFilters, (byte) GroupFilter.callback);
         create();
     }
     // *************************************************************************
@@ -169,6 +276,9 @@ public class CollisionSpace extends NativePhysicsObject {
      * <p>
      * Such a listener can disable collisions when they occur. There can be only
      * one listener per collision group per space.
+     * <p>
+     * Not thread-safe: invoke only while the space isn't being stepped, for
+     * instance from the physics thread.
      *
      * @param listener the listener to register (not null, alias created)
      * @param collisionGroup which group it should listen for (bitmask with
@@ -177,11 +287,15 @@ public class CollisionSpace extends NativePhysicsObject {
     public void addCollisionGroupListener(
             PhysicsCollisionGroupListener listener, int collisionGroup) {
         Validate.nonNull(listener, "listener");
-        assert !collisionGroupListeners.containsKey(collisionGroup);
         Validate.require(Integer.bitCount(collisionGroup) == 1,
                 "exactly one bit set");
+        int bitIndex = Integer.numberOfTrailingZeros(collisionGroup);
+        assert collisionGroupListeners[bitIndex] == null;
 
-        collisionGroupListeners.put(collisionGroup, listener);
+        if (collisionGroupListeners[bitIndex] == null) {
+            ++numGroupListeners;
+        }
+        collisionGroupListeners[bitIndex] = listener;
     }
 
     /**
@@ -201,6 +315,19 @@ public class CollisionSpace extends NativePhysicsObject {
         }
     }
 
+    /**
+     * Register the specified listener for membership changes. Safe to invoke
+     * from any thread.
+     *
+     * @param listener the listener to register (not null, alias created)
+     */
+    public void addMembershipListener(CollisionSpaceListener listener) {
+        Validate.nonNull(listener, "listener");
+        assert !membershipListeners.contains(listener);
+
+        membershipListeners.add(listener);
+    }
+
     /**
      * Perform a contact test. This will not detect contacts with soft bodies.
      *
@@ -246,8 +373,7 @@ public class CollisionSpace extends NativePhysicsObject {
      * @return the count (&ge;0)
      */
     public int countCollisionGroupListeners() {
-        int count = collisionGroupListeners.size();
-        return count;
+        return numGroupListeners;
     }
 
     /**
@@ -294,6 +420,25 @@ public class CollisionSpace extends NativePhysicsObject {
         return Collections.unmodifiableCollection(result);
     }
 
+    /**
+     * Read the filter action for the specified pair of collision groups.
+     *
+     * @param groupA the first group (bitmask with exactly one bit set)
+     * @param groupB the 2nd group (bitmask with exactly one bit set)
+     * @return the action (GroupFilter.collide, GroupFilter.ignore, or
+     * GroupFilter.callback)
+     */
+    public int getGroupFilter(int groupA, int groupB) {
+        Validate.require(Integer.bitCount(groupA) == 1, "exactly one bit set");
+        Validate.require(Integer.bitCount(groupB) == 1, "exactly one bit set");
+
+        int indexA = Integer.numberOfTrailingZeros(groupA);
+        int indexB = Integer.numberOfTrailingZeros(groupB);
+        int result = groupFilters[numGroups * indexA + indexB];
+
+        return result;
+    }
+
     /**
      * Enumerate collision objects that have been added to this space and not
      * yet removed.
@@ -307,6 +452,18 @@ public class CollisionSpace extends NativePhysicsObject {
         return result;
     }
 
+    /**
+     * Read the membership version of this space, which increases each time a
+     * collision object is added or removed. Comparing versions is a cheap way
+     * to detect membership changes without enumerating objects.
+     *
+     * @return the number of changes so far (&ge;0)
+     */
+    public long getMembershipVersion() {
+        long result = membershipVersion.get();
+        return result;
+    }
+
     /**
      * Read the flags used in ray tests (native field: m_flags).
      *
@@ -368,6 +525,109 @@ public class CollisionSpace extends NativePhysicsObject {
         return result;
     }
 
+    /**
+     * Find all collision objects whose axis-aligned bounding boxes overlap the
+     * specified box, as a broadphase would. No objects are added to the space,
+     * and no simulation step is needed. Each candidate's bounds are read from
+     * Bullet, so for many queries per step, a {@link SpatialIndex} (which
+     * caches bounds) may be faster. Not re-entrant.
+     *
+     * @param aabbMin the minimum coordinates of the box (in physics-space
+     * coordinates, not null, unaffected)
+     * @param aabbMax the maximum coordinates of the box (in physics-space
+     * coordinates, not null, unaffected)
+     * @param collisionGroups the collision groups to accept, ORed together
+     * (bitmask)
+     * @param storeIds storage for the native IDs of matching objects, written
+     * starting at index 0 using absolute puts (modified) or null to count only
+     * @return the number of matching objects (&ge;0, may exceed the capacity
+     * of storeIds)
+     */
+    public int overlapAabb(Vector3f aabbMin, Vector3f aabbMax,
+            int collisionGroups, LongBuffer storeIds) {
+        Validate.nonNull(aabbMin, "AABB minima");
+        Validate.nonNull(aabbMax, "AABB maxima");
+
+        boundsMin.set(aabbMin);
+        boundsMax.set(aabbMax);
+        int result = overlapBounds(0f, collisionGroups, storeIds);
+
+        return result;
+    }
+
+    /**
+     * Find all collision objects that touch the specified convex shape at the
+     * specified location and orientation. The test is exact (narrowphase), but
+     * soft bodies are not detected. The transform's scale is ignored. Not
+     * re-entrant: don't invoke from within a contact-test callback.
+     *
+     * @param shape the shape to test (not null, unaffected)
+     * @param transform the shape's transform (in physics-space coordinates,
+     * not null, unaffected)
+     * @param collisionGroups the collision groups to accept, ORed together
+     * (bitmask)
+     * @param storeIds storage for the native IDs of matching objects, written
+     * starting at index 0 using absolute puts (modified) or null to count only
+     * @return the number of matching objects (&ge;0, may exceed the capacity
+     * of storeIds)
+     */
+    public int overlapShape(ConvexShape shape, Transform transform,
+            int collisionGroups, LongBuffer storeIds) {
+        Validate.nonNull(shape, "shape");
+        Validate.nonNull(transform, "transform");
+
+        if (queryGhost == null) {
+            queryGhost = new PhysicsGhostObject(shape);
+        } else if (queryGhost.getCollisionShape() != shape) {
+            queryGhost.setCollisionShape(shape);
+        }
+        queryGhost.setPhysicsLocation(transform.getTranslation());
+        queryGhost.setPhysicsRotation(transform.getRotation());
+
+        overlapGroups = collisionGroups;
+        contactTest(queryGhost, overlapListener);
+
+        int result = overlapScratch.size();
+        for (int index = 0; index < result; ++index) {
+            long pcoId = overlapScratch.get(index).nativeId();
+            storeId(storeIds, index, pcoId);
+        }
+        overlapScratch.clear();
+        overlapSet.clear();
+
+        return result;
+    }
+
+    /**
+     * Find all collision objects whose axis-aligned bounding boxes intersect
+     * the specified sphere, for example to apply an explosion. No objects are
+     * added to the space, and no simulation step is needed. Each candidate's
+     * bounds are read from Bullet, so for many queries per step, a
+     * {@link SpatialIndex} (which caches bounds) may be faster. Not
+     * re-entrant.
+     *
+     * @param center the center of the sphere (in physics-space coordinates,
+     * not null, unaffected)
+     * @param radius the radius of the sphere (in physics-space units, &ge;0)
+     * @param collisionGroups the collision groups to accept, ORed together
+     * (bitmask)
+     * @param storeIds storage for the native IDs of matching objects, written
+     * starting at index 0 using absolute puts (modified) or null to count only
+     * @return the number of matching objects (&ge;0, may exceed the capacity
+     * of storeIds)
+     */
+    public int overlapSphere(Vector3f center, float radius,
+            int collisionGroups, LongBuffer storeIds) {
+        Validate.finite(center, "center");
+        Validate.nonNegative(radius, "radius");
+
+        boundsMin.set(center);
+        boundsMax.set(center);
+        int result = overlapBounds(radius * radius, collisionGroups, storeIds);
+
+        return result;
+    }
+
     /**
      * Perform a ray-collision test (raycast) and sort the results by ascending
      * hitFraction.
@@ -406,6 +666,78 @@ public class CollisionSpace extends NativePhysicsObject {
         return results;
     }
 
+    /**
+     * Perform a ray-collision test (raycast) and test whether any acceptable
+     * object was hit, for example to determine line of sight. No results are
+     * sorted, and scanning stops at the first acceptable hit.
+     *
+     * @param from the starting location (in physics-space coordinates, not
+     * null, unaffected)
+     * @param to the ending location (in physics-space coordinates, not null,
+     * unaffected)
+     * @param collisionGroups the collision groups to accept, ORed together
+     * (bitmask)
+     * @param ignore an object to ignore, or null for none (unaffected)
+     * @return true if an acceptable object was hit, otherwise false
+     */
+    public boolean rayTestAny(Vector3f from, Vector3f to,
+            int collisionGroups, PhysicsCollisionObject ignore) {
+        rayScratch.clear();
+        long spaceId = nativeId();
+        rayTest_native(from, to, spaceId, rayScratch, rayTestFlags);
+
+        boolean result = false;
+        int numHits = rayScratch.size();
+        for (int hitIndex = 0; hitIndex < numHits; ++hitIndex) {
+            PhysicsRayTestResult hit = rayScratch.get(hitIndex);
+            if (isAcceptable(hit.getCollisionObject(), collisionGroups,
+                    ignore)) {
+                result = true;
+                break;
+            }
+        }
+        rayScratch.clear();
+
+        return result;
+    }
+
+    /**
+     * Perform a ray-collision test (raycast) and return only the closest
+     * acceptable hit. Unlike rayTest(), this neither sorts the results nor
+     * allocates a list.
+     *
+     * @param from the starting location (in physics-space coordinates, not
+     * null, unaffected)
+     * @param to the ending location (in physics-space coordinates, not null,
+     * unaffected)
+     * @param collisionGroups the collision groups to accept, ORed together
+     * (bitmask)
+     * @param ignore an object to ignore, or null for none (unaffected)
+     * @return the closest acceptable result, or null if none
+     */
+    public PhysicsRayTestResult rayTestClosest(Vector3f from, Vector3f to,
+            int collisionGroups, PhysicsCollisionObject ignore) {
+        rayScratch.clear();
+        long spaceId = nativeId();
+        rayTest_native(from, to, spaceId, rayScratch, rayTestFlags);
+
+        PhysicsRayTestResult result = null;
+        float minFraction = Float.POSITIVE_INFINITY;
+        int numHits = rayScratch.size();
+        for (int hitIndex = 0; hitIndex < numHits; ++hitIndex) {
+            PhysicsRayTestResult hit = rayScratch.get(hitIndex);
+            float fraction = hit.getHitFraction();
+            if (fraction < minFraction && isAcceptable(
+                    hit.getCollisionObject(), collisionGroups, ignore)) {
+                result = hit;
+                minFraction = fraction;
+            }
+        }
+        rayScratch.clear();
+
+        return result;
+    }
+
     /**
      * Perform a ray-collision test (raycast) and return the results in
      * arbitrary order.
@@ -464,6 +796,9 @@ public class CollisionSpace extends NativePhysicsObject {
 
     /**
      * De-register the specified collision-group listener.
+     * <p>
+     * Not thread-safe: invoke only while the space isn't being stepped, for
+     * instance from the physics thread.
      *
      * @see
      * #addCollisionGroupListener(com.jme3.bullet.collision.PhysicsCollisionGroupListener,
@@ -472,11 +807,15 @@ public class CollisionSpace extends NativePhysicsObject {
      * with exactly one bit set)
      */
     public void removeCollisionGroupListener(int collisionGroup) {
-        assert collisionGroupListeners.containsKey(collisionGroup);
         Validate.require(Integer.bitCount(collisionGroup) == 1,
                 "exactly one bit set");
+        int bitIndex = Integer.numberOfTrailingZeros(collisionGroup);
+        assert collisionGroupListeners[bitIndex] != null;
 
-        collisionGroupListeners.remove(collisionGroup);
+        if (collisionGroupListeners[bitIndex] != null) {
+            collisionGroupListeners[bitIndex] = null;
+            --numGroupListeners;
+        }
     }
 
     /**
@@ -496,6 +835,46 @@ public class CollisionSpace extends NativePhysicsObject {
         }
     }
 
+    /**
+     * De-register the specified membership listener. Safe to invoke from any
+     * thread.
+     *
+     * @see #addMembershipListener(com.jme3.bullet.CollisionSpaceListener)
+     * @param listener the listener to de-register (not null, unaffected)
+     */
+    public void removeMembershipListener(CollisionSpaceListener listener) {
+        Validate.nonNull(listener, "listener");
+
+        boolean success = membershipListeners.remove(listener);
+        assert success;
+    }
+
+    /**
+     * Alter the filter action for the specified pair of collision groups.
+     * Pairs are unordered, so both (A,B) and (B,A) are altered. Pairs that
+     * the broadphase rejects based on collideWithGroups are never filtered.
+     * <p>
+     * Collide and ignore actions are decided without consulting listeners and
+     * without creating any Java objects. The callback action consults the
+     * collision-group listeners of both groups, as before.
+     *
+     * @param groupA the first group (bitmask with exactly one bit set)
+     * @param groupB the 2nd group (bitmask with exactly one bit set)
+     * @param action the desired action (GroupFilter.collide,
+     * GroupFilter.ignore, or GroupFilter.callback, default=callback)
+     */
+    public void setGroupFilter(int groupA, int groupB, int action) {
+        Validate.require(Integer.bitCount(groupA) == 1, "exactly one bit set");
+        Validate.require(Integer.bitCount(groupB) == 1, "exactly one bit set");
+        Validate.inRange(action, "action", GroupFilter.collide,
+                GroupFilter.callback);
+
+        int indexA = Integer.numberOfTrailingZeros(groupA);
+        int indexB = Integer.numberOfTrailingZeros(groupB);
+        groupFilters[numGroups * indexA + indexB] = (byte) action;
+        groupFilters[numGroups * indexB + indexA] = (byte) action;
+    }
+
     /**
      * Used internally
      *
@@ -577,6 +956,18 @@ public class CollisionSpace extends NativePhysicsObject {
 
         return results;
     }
+
+    /**
+     * Determine how many times simulation may have moved this space's
+     * objects. Mirrored transforms read during an earlier epoch are stale. For
+     * internal use only.
+     *
+     * @return the epoch (&ge;0)
+     */
+    public long transformEpoch() {
+        long result = transformEpoch.get();
+        return result;
+    }
     // *************************************************************************
     // new protected methods
 
@@ -592,6 +983,20 @@ public class CollisionSpace extends NativePhysicsObject {
         loggerC.log(Level.FINE, "Created {0}.", this);
     }
 
+    /**
+     * Test the bounding box of every collision object in this space against
+     * the current bounds query. Subclasses that add other kinds of objects
+     * should override this method, invoke the superclass method, and then
+     * invoke
+     * {@link #testBounds(com.jme3.bullet.collision.PhysicsCollisionObject)}
+     * for each object they add.
+     */
+    protected void gatherBounds() {
+        for (PhysicsGhostObject ghost : ghostMap.values()) {
+            testBounds(ghost);
+        }
+    }
+
     /**
      * Must be invoked on the designated physics thread.
      *
@@ -601,6 +1006,63 @@ public class CollisionSpace extends NativePhysicsObject {
         setNativeId(spaceId);
         physicsSpaceTL.set(this);
     }
+
+    /**
+     * Invalidate the mirrored transforms of all collision objects in this
+     * space. Should be invoked whenever simulation may have moved them.
+     */
+    protected void invalidateMirroredTransforms() {
+        transformEpoch.incrementAndGet();
+    }
+
+    /**
+     * Bump the membership version and notify membership listeners that the
+     * specified object was added. Should be invoked by each add method, after
+     * the object is added.
+     *
+     * @param pco the object that was added (not null)
+     */
+    protected void reportAdded(PhysicsCollisionObject pco) {
+        membershipVersion.incrementAndGet();
+        pco.setMirrorSpace(this);
+        for (CollisionSpaceListener listener : membershipListeners) {
+            listener.objectAdded(this, pco);
+        }
+    }
+
+    /**
+     * Bump the membership version and notify membership listeners that the
+     * specified object was removed. Should be invoked by each remove method,
+     * after the object is removed.
+     *
+     * @param pco the object that was removed (not null)
+     */
+    protected void reportRemoved(PhysicsCollisionObject pco) {
+        membershipVersion.incrementAndGet();
+        pco.setMirrorSpace(null);
+        for (CollisionSpaceListener listener : membershipListeners) {
+            listener.objectRemoved(this, pco);
+        }
+    }
+
+    /**
+     * Test the bounding box of the specified object against the current
+     * bounds query, and record the object if it matches. Should be invoked
+     * only from {@link #gatherBounds()}.
+     *
+     * @param pco the object to test (not null, unaffected)
+     */
+    final protected void testBounds(PhysicsCollisionObject pco) {
+        if ((pco.getCollisionGroup() & overlapGroups) != 0x0) {
+            pco.boundingBox(tmpBox);
+            float distanceSquared = distanceSquared(tmpBox, boundsMin,
+                    boundsMax);
+            if (distanceSquared <= boundsDistanceSquared) {
+                storeId(boundsIds, boundsFound, pco.nativeId());
+                ++boundsFound;
+            }
+        }
+    }
     // *************************************************************************
     // Java private methods
 
@@ -625,6 +1087,7 @@ public class CollisionSpace extends NativePhysicsObject {
 
         long spaceId = nativeId();
         addCollisionObject(spaceId, ghostId);
+        reportAdded(ghost);
     }
 
     /**
@@ -637,23 +1100,132 @@ public class CollisionSpace extends NativePhysicsObject {
         finalizeNative(spaceId);
     }
 
+    /**
+     * Calculate the squared distance between a bounding box and another
+     * axis-aligned box (or point, if min equals max).
+     *
+     * @param box the bounding box (not null, unaffected)
+     * @param min the minimum coordinates of the other box (not null,
+     * unaffected)
+     * @param max the maximum coordinates of the other box (not null,
+     * unaffected)
+     * @return the squared distance (&ge;0, 0 if the boxes overlap)
+     */
+    private static float distanceSquared(BoundingBox box, Vector3f min,
+            Vector3f max) {
+        Vector3f boxCenter = box.getCenter();
+        float dx = gap(boxCenter.x, box.getXExtent(), min.x, max.x);
+        float dy = gap(boxCenter.y, box.getYExtent(), min.y, max.y);
+        float dz = gap(boxCenter.z, box.getZExtent(), min.z, max.z);
+        float result = dx * dx + dy * dy + dz * dz;
+
+        return result;
+    }
+
+    /**
+     * Calculate the gap between 2 intervals on a single axis.
+     *
+     * @param center the center of the first interval
+     * @param extent the half-width of the first interval (&ge;0)
+     * @param min the minimum of the 2nd interval
+     * @param max the maximum of the 2nd interval (&ge;min)
+     * @return the gap (&ge;0, 0 if the intervals overlap)
+     */
+    private static float gap(float center, float extent, float min,
+            float max) {
+        float result;
+        if (center + extent < min) {
+            result = min - center - extent;
+        } else if (center - extent > max) {
+            result = center - extent - max;
+        } else {
+            result = 0f;
+        }
+
+        return result;
+    }
+
+    /**
+     * Test whether the specified hit object is acceptable to a single-result
+     * ray test.
+     *
+     * @param pco the object that was hit (not null, unaffected)
+     * @param collisionGroups the collision groups to accept (bitmask)
+     * @param ignore the object to ignore, or null for none (unaffected)
+     * @return true if acceptable, otherwise false
+     */
+    private static boolean isAcceptable(PhysicsCollisionObject pco,
+            int collisionGroups, PhysicsCollisionObject ignore) {
+        boolean result = pco != ignore
+                && (pco.getCollisionGroup() & collisionGroups) != 0x0;
+
+        return result;
+    }
+
+    /**
+     * Perform a bounds query using the box already stored in boundsMin and
+     * boundsMax.
+     *
+     * @param maxDistanceSquared the maximum squared distance from the box
+     * (&ge;0)
+     * @param collisionGroups the collision groups to accept (bitmask)
+     * @param storeIds storage for the native IDs of matching objects
+     * (modified) or null to count only
+     * @return the number of matching objects (&ge;0)
+     */
+    private int overlapBounds(float maxDistanceSquared, int collisionGroups,
+            LongBuffer storeIds) {
+        boundsDistanceSquared = maxDistanceSquared;
+        overlapGroups = collisionGroups;
+        boundsIds = storeIds;
+        boundsFound = 0;
+
+        gatherBounds();
+        int result = boundsFound;
+        boundsIds = null;
+
+        return result;
+    }
+
+    /**
+     * Write a native ID to the specified buffer, if there's room.
+     *
+     * @param storeIds the buffer to write (modified) or null
+     * @param index the index to write (&ge;0)
+     * @param pcoId the ID to write
+     */
+    private static void storeId(LongBuffer storeIds, int index, long pcoId) {
+        if (storeIds != null && index < storeIds.capacity()) {
+            storeIds.put(index, pcoId);
+        }
+    }
+
     /**
      * This method is invoked by native code.
      */
     private boolean notifyCollisionGroupListeners_native(
             PhysicsCollisionObject pcoA, PhysicsCollisionObject pcoB) {
+        int indexA = Integer.numberOfTrailingZeros(pcoA.getCollisionGroup());
+        int indexB = Integer.numberOfTrailingZeros(pcoB.getCollisionGroup());
+        int action = groupFilters[numGroups * indexA + indexB];
+        if (action == GroupFilter.collide) {
+            return true;
+        } else if (action == GroupFilter.ignore) {
+            return false;
+        }
+
         PhysicsCollisionGroupListener listenerA
-                = collisionGroupListeners.get(pcoA.getCollisionGroup());
-        PhysicsCollisionGroupListener listenerB
-                = collisionGroupListeners.get(pcoB.getCollisionGroup());
+                = collisionGroupListeners[indexA];
         boolean result = true;
-
         if (listenerA != null) {
             result = listenerA.collide(pcoA, pcoB);
         }
-        if (listenerB != null
-                && pcoA.getCollisionGroup() != pcoB.getCollisionGroup()) {
-            result = listenerB.collide(pcoA, pcoB) && result;
+        if (indexA != indexB) {
+            PhysicsCollisionGroupListener listenerB
+                    = collisionGroupListeners[indexB];
+            if (listenerB != null) {
+                result = listenerB.collide(pcoA, pcoB) && result;
+            }
         }
 
         return result;
@@ -678,6 +1250,7 @@ public class CollisionSpace extends NativePhysicsObject {
 
         long spaceId = nativeId();
         removeCollisionObject(spaceId, ghostId);
+        reportRemoved(ghost);
     }
     // *************************************************************************
     // native private methods
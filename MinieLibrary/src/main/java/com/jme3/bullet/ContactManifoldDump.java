@@ -0,0 +1,627 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import com.jme3.bullet.collision.PhysicsCollisionEvent;
+import com.jme3.bullet.collision.PhysicsCollisionListener;
+import com.jme3.bullet.collision.PhysicsCollisionObject;
+import com.jme3.math.Vector3f;
+import com.jme3.util.BufferUtils;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Gather the contact points of a PhysicsSpace into direct buffers, grouped by
+ * manifold (pair of collision objects) in struct-of-arrays form.
+ * <p>
+ * The dump registers itself as an ongoing-collision listener, so contact
+ * points are gathered while the space distributes events, in
+ * {@link PhysicsSpace#distributeEvents()}. Each point is read from native
+ * memory exactly once per distribution, even if it was reported for several
+ * steps: its values are read at distribution time, so later reports of the
+ * same point would read identical values.
+ * {@link #capture()} then groups the gathered points into the buffers and
+ * discards them, ready for the next update.
+ * <p>
+ * Buffers are reused across captures and grow as needed, so clients should
+ * re-fetch them after each capture.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class ContactManifoldDump implements PhysicsCollisionListener {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of axes in a vector
+     */
+    final private static int numAxes = 3;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(ContactManifoldDump.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * applied impulse of each gathered point
+     */
+    private float[] gatheredImpulses = new float[16];
+    /**
+     * separation distance of each gathered point
+     */
+    private float[] gatheredDistances = new float[16];
+    /**
+     * normal on B of each gathered point (3 floats per point)
+     */
+    private float[] gatheredNormals = new float[numAxes * 16];
+    /**
+     * location on B of each gathered point (3 floats per point)
+     */
+    private float[] gatheredPositions = new float[numAxes * 16];
+    /**
+     * separation distance of each captured point
+     */
+    private FloatBuffer distances = BufferUtils.createFloatBuffer(16);
+    /**
+     * applied impulse of each captured point
+     */
+    private FloatBuffer impulses = BufferUtils.createFloatBuffer(16);
+    /**
+     * normal on B of each captured point (3 floats per point)
+     */
+    private FloatBuffer normals = BufferUtils.createFloatBuffer(numAxes * 16);
+    /**
+     * location on B of each captured point (3 floats per point)
+     */
+    private FloatBuffer positions
+            = BufferUtils.createFloatBuffer(numAxes * 16);
+    /**
+     * lifetime of each gathered point (in steps)
+     */
+    private int[] gatheredLifetimes = new int[16];
+    /**
+     * manifold index of each gathered point
+     */
+    private int[] gatheredManifolds = new int[16];
+    /**
+     * reusable index of the next point in each captured manifold
+     */
+    private int[] manifoldCursors = new int[16];
+    /**
+     * open-addressing hash table that maps gathered point IDs to point
+     * indices: each entry is a point index plus 1, or 0 if empty (length a
+     * power of 2)
+     */
+    private int[] pointTable = new int[64];
+    /**
+     * number of manifolds gathered since the previous capture
+     */
+    private int numGatheredManifolds = 0;
+    /**
+     * number of points gathered since the previous capture
+     */
+    private int numGatheredPoints = 0;
+    /**
+     * lifetime of each captured point (in steps)
+     */
+    private IntBuffer lifetimes = BufferUtils.createIntBuffer(16);
+    /**
+     * number of points in each captured manifold
+     */
+    private IntBuffer pointCounts = BufferUtils.createIntBuffer(16);
+    /**
+     * native IDs of the objects in each gathered manifold (A, B, A, B, ...)
+     */
+    private long[] gatheredBodyIds = new long[2 * 16];
+    /**
+     * native ID of each gathered point
+     */
+    private long[] gatheredPointIds = new long[16];
+    /**
+     * native IDs of the objects in each captured manifold (A, B, A, B, ...)
+     */
+    private LongBuffer bodyIds = createLongBuffer(2 * 16);
+    /**
+     * map each gathered manifold to its index
+     */
+    final private Map<Pair, Integer> manifoldMap = new HashMap<>(64);
+    /**
+     * reusable key for manifold lookups
+     */
+    final private Pair tmpPair = new Pair();
+    /**
+     * if not null, gather only contacts that involve this object
+     */
+    private PhysicsCollisionObject filter = null;
+    /**
+     * space being monitored (not null)
+     */
+    final private PhysicsSpace space;
+    /**
+     * reusable vector
+     */
+    final private Vector3f tmpVector = new Vector3f();
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a dump for the specified space and register it as an
+     * ongoing-collision listener.
+     *
+     * @param space the space to monitor (not null, alias created)
+     */
+    public ContactManifoldDump(PhysicsSpace space) {
+        Validate.nonNull(space, "space");
+
+        this.space = space;
+        capture(); // Start with empty buffers.
+        space.addOngoingCollisionListener(this);
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Group the points gathered since the previous capture into the buffers,
+     * then discard the gathered points.
+     *
+     * @return the number of manifolds captured (&ge;0)
+     */
+    public int capture() {
+        int numManifolds = numGatheredManifolds;
+        int numPoints = numGatheredPoints;
+        ensureCapacity(numManifolds, numPoints);
+        /*
+         * Count the points in each manifold and convert the counts to
+         * the index of each manifold's first point.
+         */
+        int[] next = manifoldCursors;
+        Arrays.fill(next, 0, numManifolds, 0);
+        for (int i = 0; i < numPoints; ++i) {
+            ++next[gatheredManifolds[i]];
+        }
+        int start = 0;
+        for (int manifoldIndex = 0; manifoldIndex < numManifolds;
+                ++manifoldIndex) {
+            int count = next[manifoldIndex];
+            pointCounts.put(manifoldIndex, count);
+            bodyIds.put(2 * manifoldIndex,
+                    gatheredBodyIds[2 * manifoldIndex]);
+            bodyIds.put(2 * manifoldIndex + 1,
+                    gatheredBodyIds[2 * manifoldIndex + 1]);
+            next[manifoldIndex] = start;
+            start += count;
+        }
+        /*
+         * Scatter the points.
+         */
+        for (int i = 0; i < numPoints; ++i) {
+            int manifoldIndex = gatheredManifolds[i];
+            int j = next[manifoldIndex];
+            ++next[manifoldIndex];
+
+            distances.put(j, gatheredDistances[i]);
+            impulses.put(j, gatheredImpulses[i]);
+            lifetimes.put(j, gatheredLifetimes[i]);
+            for (int axis = 0; axis < numAxes; ++axis) {
+                normals.put(numAxes * j + axis,
+                        gatheredNormals[numAxes * i + axis]);
+                positions.put(numAxes * j + axis,
+                        gatheredPositions[numAxes * i + axis]);
+            }
+        }
+
+        bodyIds.limit(2 * numManifolds);
+        pointCounts.limit(numManifolds);
+        distances.limit(numPoints);
+        impulses.limit(numPoints);
+        lifetimes.limit(numPoints);
+        normals.limit(numAxes * numPoints);
+        positions.limit(numAxes * numPoints);
+
+        manifoldMap.clear();
+        Arrays.fill(pointTable, 0);
+        numGatheredManifolds = 0;
+        numGatheredPoints = 0;
+
+        return numManifolds;
+    }
+
+    /**
+     * Count the manifolds in the most recent capture.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countManifolds() {
+        int result = pointCounts.limit();
+        return result;
+    }
+
+    /**
+     * Count the contact points in the most recent capture.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countPoints() {
+        int result = impulses.limit();
+        return result;
+    }
+
+    /**
+     * De-register this dump and discard any gathered points.
+     */
+    public void destroy() {
+        space.removeOngoingCollisionListener(this);
+        manifoldMap.clear();
+        Arrays.fill(pointTable, 0);
+        numGatheredManifolds = 0;
+        numGatheredPoints = 0;
+    }
+
+    /**
+     * Access the native IDs of the collision objects in each captured
+     * manifold.
+     *
+     * @return the pre-existing direct buffer (2 longs per manifold: A then B)
+     */
+    public LongBuffer getBodyIds() {
+        return bodyIds;
+    }
+
+    /**
+     * Access the separation distance of each captured point.
+     *
+     * @return the pre-existing direct buffer (1 float per point, grouped by
+     * manifold, negative for penetration)
+     */
+    public FloatBuffer getDistances() {
+        return distances;
+    }
+
+    /**
+     * Access the object whose contacts are gathered.
+     *
+     * @return the pre-existing object, or null if all contacts are gathered
+     */
+    public PhysicsCollisionObject getFilter() {
+        return filter;
+    }
+
+    /**
+     * Access the applied impulse of each captured point.
+     *
+     * @return the pre-existing direct buffer (1 float per point, grouped by
+     * manifold)
+     */
+    public FloatBuffer getImpulses() {
+        return impulses;
+    }
+
+    /**
+     * Access the lifetime of each captured point.
+     *
+     * @return the pre-existing direct buffer (1 int per point, grouped by
+     * manifold, in simulation steps)
+     */
+    public IntBuffer getLifetimes() {
+        return lifetimes;
+    }
+
+    /**
+     * Access the normal on object B of each captured point.
+     *
+     * @return the pre-existing direct buffer (3 floats per point, grouped by
+     * manifold, in physics-space coordinates)
+     */
+    public FloatBuffer getNormals() {
+        return normals;
+    }
+
+    /**
+     * Access the number of points in each captured manifold.
+     *
+     * @return the pre-existing direct buffer (1 int per manifold)
+     */
+    public IntBuffer getPointCounts() {
+        return pointCounts;
+    }
+
+    /**
+     * Access the location on object B of each captured point.
+     *
+     * @return the pre-existing direct buffer (3 floats per point, grouped by
+     * manifold, in physics-space coordinates)
+     */
+    public FloatBuffer getPositions() {
+        return positions;
+    }
+
+    /**
+     * Access the space being monitored.
+     *
+     * @return the pre-existing instance (not null)
+     */
+    public PhysicsSpace getSpace() {
+        return space;
+    }
+
+    /**
+     * Restrict gathering to contacts that involve the specified object.
+     *
+     * @param pco the object of interest (alias created) or null to gather all
+     * contacts
+     */
+    public void setFilter(PhysicsCollisionObject pco) {
+        this.filter = pco;
+    }
+    // *************************************************************************
+    // PhysicsCollisionListener methods
+
+    /**
+     * Gather the specified contact point. Invoked when the space distributes
+     * ongoing contacts.
+     *
+     * @param event information about the contact (not null)
+     */
+    @Override
+    public void collision(PhysicsCollisionEvent event) {
+        PhysicsCollisionObject pcoA = event.getObjectA();
+        PhysicsCollisionObject pcoB = event.getObjectB();
+        if (filter != null && filter != pcoA && filter != pcoB) {
+            return;
+        }
+
+        tmpPair.idA = pcoA.nativeId();
+        tmpPair.idB = pcoB.nativeId();
+        Integer manifoldIndex = manifoldMap.get(tmpPair);
+        if (manifoldIndex == null) {
+            manifoldIndex = numGatheredManifolds;
+            ++numGatheredManifolds;
+            if (2 * numGatheredManifolds > gatheredBodyIds.length) {
+                gatheredBodyIds = Arrays.copyOf(gatheredBodyIds,
+                        4 * numGatheredManifolds);
+                manifoldCursors = new int[2 * numGatheredManifolds];
+            }
+            gatheredBodyIds[2 * manifoldIndex] = tmpPair.idA;
+            gatheredBodyIds[2 * manifoldIndex + 1] = tmpPair.idB;
+            manifoldMap.put(new Pair(tmpPair.idA, tmpPair.idB),
+                    manifoldIndex);
+        }
+        /*
+         * A point reported by several steps has already been read.
+         */
+        long pointId = event.nativeId();
+        int slot = findPointSlot(pointId);
+        int entry = pointTable[slot];
+        if (entry != 0 && gatheredManifolds[entry - 1] == manifoldIndex) {
+            return;
+        }
+        int pointIndex = numGatheredPoints;
+        ++numGatheredPoints;
+        growGathered(numGatheredPoints);
+        gatheredPointIds[pointIndex] = pointId;
+        pointTable[slot] = pointIndex + 1;
+        if (2 * numGatheredPoints > pointTable.length) {
+            rehashPoints(2 * pointTable.length);
+        }
+
+        gatheredManifolds[pointIndex] = manifoldIndex;
+        gatheredDistances[pointIndex] = event.getDistance1();
+        gatheredImpulses[pointIndex] = event.getAppliedImpulse();
+        gatheredLifetimes[pointIndex] = event.getLifeTime();
+        event.getNormalWorldOnB(tmpVector);
+        int offset = numAxes * pointIndex;
+        gatheredNormals[offset] = tmpVector.x;
+        gatheredNormals[offset + 1] = tmpVector.y;
+        gatheredNormals[offset + 2] = tmpVector.z;
+        event.getPositionWorldOnB(tmpVector);
+        gatheredPositions[offset] = tmpVector.x;
+        gatheredPositions[offset + 1] = tmpVector.y;
+        gatheredPositions[offset + 2] = tmpVector.z;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Create a direct LongBuffer with native byte order.
+     *
+     * @param numLongs the desired capacity (in longs, &ge;0)
+     * @return a new buffer
+     */
+    private static LongBuffer createLongBuffer(int numLongs) {
+        LongBuffer result = BufferUtils.createByteBuffer(8 * numLongs)
+                .asLongBuffer();
+        return result;
+    }
+
+    /**
+     * Ensure that the capture buffers can hold the specified numbers of
+     * manifolds and points, and reset their limits to their capacities.
+     *
+     * @param numManifolds the number of manifolds (&ge;0)
+     * @param numPoints the number of points (&ge;0)
+     */
+    private void ensureCapacity(int numManifolds, int numPoints) {
+        if (pointCounts.capacity() < numManifolds) {
+            int capacity = 2 * numManifolds;
+            pointCounts = BufferUtils.createIntBuffer(capacity);
+            bodyIds = createLongBuffer(2 * capacity);
+        }
+        if (impulses.capacity() < numPoints) {
+            int capacity = 2 * numPoints;
+            distances = BufferUtils.createFloatBuffer(capacity);
+            impulses = BufferUtils.createFloatBuffer(capacity);
+            lifetimes = BufferUtils.createIntBuffer(capacity);
+            normals = BufferUtils.createFloatBuffer(numAxes * capacity);
+            positions = BufferUtils.createFloatBuffer(numAxes * capacity);
+        }
+
+        bodyIds.clear();
+        pointCounts.clear();
+        distances.clear();
+        impulses.clear();
+        lifetimes.clear();
+        normals.clear();
+        positions.clear();
+    }
+
+    /**
+     * Find the slot of the specified point ID in the point table.
+     *
+     * @param pointId the native ID of the manifold point
+     * @return the index of the slot that holds the ID, or else of the empty
+     * slot where it belongs (&ge;0)
+     */
+    private int findPointSlot(long pointId) {
+        int mask = pointTable.length - 1;
+        /*
+         * Native IDs are aligned addresses, so mix the bits before masking.
+         */
+        long mix = pointId * 0x9E3779B97F4A7C15L;
+        int slot = (int) (mix >>> 32) & mask;
+        while (true) {
+            int entry = pointTable[slot];
+            if (entry == 0 || gatheredPointIds[entry - 1] == pointId) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Ensure that the gathering arrays can hold the specified number of
+     * points.
+     *
+     * @param numPoints the number of points (&gt;0)
+     */
+    private void growGathered(int numPoints) {
+        if (numPoints <= gatheredImpulses.length) {
+            return;
+        }
+
+        int capacity = 2 * numPoints;
+        gatheredDistances = Arrays.copyOf(gatheredDistances, capacity);
+        gatheredImpulses = Arrays.copyOf(gatheredImpulses, capacity);
+        gatheredLifetimes = Arrays.copyOf(gatheredLifetimes, capacity);
+        gatheredManifolds = Arrays.copyOf(gatheredManifolds, capacity);
+        gatheredPointIds = Arrays.copyOf(gatheredPointIds, capacity);
+        gatheredNormals = Arrays.copyOf(gatheredNormals, numAxes * capacity);
+        gatheredPositions
+                = Arrays.copyOf(gatheredPositions, numAxes * capacity);
+    }
+
+    /**
+     * Replace the point table with a larger one and re-insert the gathered
+     * points. Later points replace earlier ones with the same ID.
+     *
+     * @param length the length of the new table (a power of 2,
+     * &gt;2*numGatheredPoints)
+     */
+    private void rehashPoints(int length) {
+        pointTable = new int[length];
+        for (int pointIndex = 0; pointIndex < numGatheredPoints;
+                ++pointIndex) {
+            int slot = findPointSlot(gatheredPointIds[pointIndex]);
+            pointTable[slot] = pointIndex + 1;
+        }
+    }
+    // *************************************************************************
+    // Pair
+
+    /**
+     * Key that identifies a manifold by the native IDs of its objects.
+     */
+    private static class Pair {
+        /**
+         * native ID of object A
+         */
+        long idA;
+        /**
+         * native ID of object B
+         */
+        long idB;
+
+        /**
+         * Instantiate a key with zero IDs.
+         */
+        Pair() {
+        }
+
+        /**
+         * Instantiate a key with the specified IDs.
+         *
+         * @param idA the native ID of object A
+         * @param idB the native ID of object B
+         */
+        Pair(long idA, long idB) {
+            this.idA = idA;
+            this.idB = idB;
+        }
+
+        /**
+         * Test for exact equivalence with another Object.
+         *
+         * @param otherObject the object to compare (may be null, unaffected)
+         * @return true if equivalent, otherwise false
+         */
+        @Override
+        public boolean equals(Object otherObject) {
+            boolean result = false;
+            if (otherObject instanceof Pair) {
+                Pair other = (Pair) otherObject;
+                result = other.idA == idA && other.idB == idB;
+            }
+
+            return result;
+        }
+
+        /**
+         * Generate the hash code for this key.
+         *
+         * @return the value to use for hashing
+         */
+        @Override
+        public int hashCode() {
+            long mix = 31L * idA + idB;
+            int result = (int) (mix ^ (mix >>> 32));
+
+            return result;
+        }
+    }
+}
@@ -0,0 +1,318 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import com.jme3.bullet.collision.ContactPairListener;
+import com.jme3.bullet.collision.PhysicsCollisionObject;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Track which pairs of collision objects touch during each simulation step
+ * and queue pair-level begin/persist/end notifications for a PhysicsSpace.
+ * <p>
+ * Bullet doesn't process contacts between objects that are both deactivated
+ * (or static), so a pair that falls asleep while touching is treated as
+ * persisting until one of its objects wakes up or leaves the space.
+ * <p>
+ * Pair records are recycled and notifications are queued in reusable arrays,
+ * so a steady state allocates nothing.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+class ContactPairTracker {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * notification type for a pair that began touching
+     */
+    final private static byte began = 0;
+    /**
+     * notification type for a pair that stopped touching
+     */
+    final private static byte ended = 1;
+    /**
+     * notification type for a pair that kept touching
+     */
+    final private static byte persisted = 2;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(ContactPairTracker.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * type of each queued notification
+     */
+    private byte[] queuedTypes = new byte[64];
+    /**
+     * number of queued notifications
+     */
+    private int numQueued = 0;
+    /**
+     * number of steps ended
+     */
+    private long stepCount = 0L;
+    /**
+     * recycled pair records
+     */
+    final private Deque<Pair> freePairs = new ArrayDeque<>(64);
+    /**
+     * objects of each queued notification, stored A, B, A, B, ...
+     */
+    final private List<PhysicsCollisionObject> queuedObjects
+            = new ArrayList<>(128);
+    /**
+     * map each touching pair to its record
+     */
+    final private Map<Pair, Pair> pairMap = new HashMap<>(64);
+    /**
+     * reusable key for pair lookups
+     */
+    final private Pair tmpKey = new Pair();
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Forget all pairs and discard any queued notifications.
+     */
+    void clear() {
+        for (Pair pair : pairMap.values()) {
+            recycle(pair);
+        }
+        pairMap.clear();
+        queuedObjects.clear();
+        numQueued = 0;
+    }
+
+    /**
+     * Note that a contact point between the specified objects was processed
+     * during the current step. Invoked on the physics thread during the step.
+     *
+     * @param pcoA the first object (not null)
+     * @param pcoB the 2nd object (not null)
+     */
+    void contactProcessed(PhysicsCollisionObject pcoA,
+            PhysicsCollisionObject pcoB) {
+        tmpKey.set(pcoA, pcoB);
+        Pair pair = pairMap.get(tmpKey);
+        if (pair == null) {
+            pair = freePairs.isEmpty() ? new Pair() : freePairs.pop();
+            pair.set(pcoA, pcoB);
+            pair.isNew = true;
+            pairMap.put(pair, pair);
+        }
+        pair.lastStep = stepCount;
+    }
+
+    /**
+     * Deliver the queued notifications to the specified listeners, then
+     * discard them.
+     *
+     * @param listeners the listeners to notify (not null)
+     */
+    void distribute(List<ContactPairListener> listeners) {
+        for (int i = 0; i < numQueued; ++i) {
+            PhysicsCollisionObject pcoA = queuedObjects.get(2 * i);
+            PhysicsCollisionObject pcoB = queuedObjects.get(2 * i + 1);
+            for (ContactPairListener listener : listeners) {
+                switch (queuedTypes[i]) {
+                    case began:
+                        listener.pairBegan(pcoA, pcoB);
+                        break;
+                    case ended:
+                        listener.pairEnded(pcoA, pcoB);
+                        break;
+                    default:
+                        listener.pairPersisted(pcoA, pcoB);
+                }
+            }
+        }
+
+        queuedObjects.clear();
+        numQueued = 0;
+    }
+
+    /**
+     * Compare the pairs that touched during the step just ended with those of
+     * the previous step and queue the resulting notifications. Invoked on the
+     * physics thread after each step.
+     */
+    void stepEnded() {
+        Iterator<Pair> iterator = pairMap.values().iterator();
+        while (iterator.hasNext()) {
+            Pair pair = iterator.next();
+            if (pair.lastStep != stepCount && pair.isAsleep()) {
+                pair.lastStep = stepCount;
+            }
+
+            if (pair.lastStep != stepCount) {
+                queue(ended, pair);
+                iterator.remove();
+                recycle(pair);
+            } else if (pair.isNew) {
+                queue(began, pair);
+                pair.isNew = false;
+            } else {
+                queue(persisted, pair);
+            }
+        }
+        ++stepCount;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Test whether the specified object is still in the space but can't
+     * generate contacts by itself, because it's static or deactivated.
+     *
+     * @param pco the object to test (not null, unaffected)
+     * @return true if dormant, otherwise false
+     */
+    private static boolean isDormant(PhysicsCollisionObject pco) {
+        boolean result = pco.isInWorld() && (pco.isStatic() || !pco.isActive());
+        return result;
+    }
+
+    /**
+     * Queue a notification for the specified pair.
+     *
+     * @param type the notification type
+     * @param pair the pair record (not null, unaffected)
+     */
+    private void queue(byte type, Pair pair) {
+        if (numQueued == queuedTypes.length) {
+            queuedTypes = Arrays.copyOf(queuedTypes, 2 * numQueued);
+        }
+        queuedTypes[numQueued] = type;
+        ++numQueued;
+        queuedObjects.add(pair.pcoA);
+        queuedObjects.add(pair.pcoB);
+    }
+
+    /**
+     * Return the specified record to the free list.
+     *
+     * @param pair the record to recycle (not null, modified)
+     */
+    private void recycle(Pair pair) {
+        pair.set(null, null);
+        freePairs.push(pair);
+    }
+    // *************************************************************************
+    // Pair
+
+    /**
+     * Record of a touching pair, also used as its own key. Objects are
+     * compared by identity, without regard to order.
+     */
+    private static class Pair {
+        /**
+         * true if the pair began touching during the current step
+         */
+        boolean isNew;
+        /**
+         * number of the last step during which the pair touched
+         */
+        long lastStep;
+        /**
+         * first object of the pair
+         */
+        PhysicsCollisionObject pcoA;
+        /**
+         * 2nd object of the pair
+         */
+        PhysicsCollisionObject pcoB;
+
+        /**
+         * Test for equivalence with another Object.
+         *
+         * @param otherObject the object to compare (may be null, unaffected)
+         * @return true if the same 2 objects, otherwise false
+         */
+        @Override
+        public boolean equals(Object otherObject) {
+            boolean result = false;
+            if (otherObject instanceof Pair) {
+                Pair other = (Pair) otherObject;
+                result = (other.pcoA == pcoA && other.pcoB == pcoB)
+                        || (other.pcoA == pcoB && other.pcoB == pcoA);
+            }
+
+            return result;
+        }
+
+        /**
+         * Generate the hash code for this pair.
+         *
+         * @return a value that doesn't depend on the order of the objects
+         */
+        @Override
+        public int hashCode() {
+            int result = System.identityHashCode(pcoA)
+                    + System.identityHashCode(pcoB);
+            return result;
+        }
+
+        /**
+         * Test whether both objects of this pair are dormant, so that Bullet
+         * no longer processes their contacts.
+         *
+         * @return true if asleep, otherwise false
+         */
+        boolean isAsleep() {
+            boolean result = isDormant(pcoA) && isDormant(pcoB);
+            return result;
+        }
+
+        /**
+         * Alter the objects of this pair.
+         *
+         * @param pcoA the first object (may be null)
+         * @param pcoB the 2nd object (may be null)
+         */
+        void set(PhysicsCollisionObject pcoA, PhysicsCollisionObject pcoB) {
+            this.pcoA = pcoA;
+            this.pcoB = pcoB;
+        }
+    }
+}
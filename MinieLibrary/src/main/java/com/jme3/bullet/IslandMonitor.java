@@ -0,0 +1,520 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import com.jme3.bullet.collision.PhysicsCollisionEvent;
+import com.jme3.bullet.collision.PhysicsCollisionListener;
+import com.jme3.bullet.collision.PhysicsCollisionObject;
+import com.jme3.bullet.joints.Constraint;
+import com.jme3.bullet.joints.PhysicsJoint;
+import com.jme3.bullet.objects.PhysicsBody;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Partition the bodies of a PhysicsSpace into simulation islands and gather
+ * statistics about them: bodies, contact points, and constraints per island,
+ * and whether each island is awake or sleeping.
+ * <p>
+ * Islands are computed the way Bullet's island manager computes them: mobile
+ * bodies are merged when they touch or when an enabled Constraint connects
+ * them, while static and kinematic objects never merge islands. Contacts are
+ * gathered from ongoing-collision events.
+ * <p>
+ * Bullet doesn't process contacts between bodies that are both deactivated,
+ * so a sleeping island generates no events. To keep such an island intact,
+ * deactivated bodies that shared an island in the previous analysis are
+ * merged again, and they stay merged until one of them wakes up. For this to
+ * work, bodies must be analyzed at least once while they're settling, before
+ * they fall asleep. The monitor is also a tick listener
+ * and discards its gathered contacts before each step, so an analysis covers
+ * only the events distributed since the most recent step began, and each
+ * contact point is counted once no matter how many steps it persisted for.
+ * <p>
+ * Typical usage is to invoke {@link #analyze()} once per frame, after
+ * {@link PhysicsSpace#distributeEvents()}.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class IslandMonitor
+        implements PhysicsCollisionListener, PhysicsTickListener {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(IslandMonitor.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * true for each island whose bodies are all deactivated
+     */
+    private boolean[] isSleeping = new boolean[0];
+    /**
+     * number of bodies in each island
+     */
+    private int[] islandBodies = new int[0];
+    /**
+     * number of constraints in each island
+     */
+    private int[] islandConstraints = new int[0];
+    /**
+     * number of contact points in each island
+     */
+    private int[] islandContacts = new int[0];
+    /**
+     * number of islands found by the most recent analysis
+     */
+    private int numIslands = 0;
+    /**
+     * number of islands found by the analysis before the most recent one
+     */
+    private int previousNumIslands = 0;
+    /**
+     * objects of each contact point gathered since the current step began,
+     * stored A, B, A, B, ...
+     */
+    final private List<PhysicsCollisionObject> contactObjects
+            = new ArrayList<>(64);
+    /**
+     * map each body to its island index, as of the most recent analysis
+     */
+    private Map<PhysicsCollisionObject, Integer> islandMap
+            = new HashMap<>(64);
+    /**
+     * map each body to its island index, as of the analysis before the most
+     * recent one
+     */
+    private Map<PhysicsCollisionObject, Integer> previousMap
+            = new HashMap<>(64);
+    /**
+     * native IDs of the contact points gathered since the current step began
+     */
+    final private Set<Long> contactIds = new HashSet<>(64);
+    /**
+     * space being monitored (not null)
+     */
+    final private PhysicsSpace space;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a monitor for the specified space and register it as an
+     * ongoing-collision listener and a tick listener.
+     *
+     * @param space the space to monitor (not null, alias created)
+     */
+    public IslandMonitor(PhysicsSpace space) {
+        Validate.nonNull(space, "space");
+
+        this.space = space;
+        space.addOngoingCollisionListener(this);
+        space.addTickListener(this);
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Partition the space's bodies into islands using the contacts gathered
+     * during the most recent update, the constraints currently in the space,
+     * and the sleeping islands of the previous analysis.
+     */
+    public void analyze() {
+        /*
+         * Retain the previous analysis, then assign a provisional index
+         * to each body that can join an island.
+         */
+        Map<PhysicsCollisionObject, Integer> swap = previousMap;
+        previousMap = islandMap;
+        islandMap = swap;
+        islandMap.clear();
+        previousNumIslands = numIslands;
+        List<PhysicsCollisionObject> bodies = new ArrayList<>(64);
+        for (PhysicsCollisionObject pco : space.getPcoList()) {
+            if (isMobile(pco)) {
+                islandMap.put(pco, bodies.size());
+                bodies.add(pco);
+            }
+        }
+        int numBodies = bodies.size();
+        int[] parent = new int[numBodies];
+        for (int bodyIndex = 0; bodyIndex < numBodies; ++bodyIndex) {
+            parent[bodyIndex] = bodyIndex;
+        }
+        /*
+         * Merge bodies that touch or are constrained together.
+         */
+        int numContactObjects = contactObjects.size();
+        for (int i = 0; i < numContactObjects; i += 2) {
+            union(parent, islandMap.get(contactObjects.get(i)),
+                    islandMap.get(contactObjects.get(i + 1)));
+        }
+        Collection<PhysicsJoint> joints = space.getJointList();
+        for (PhysicsJoint joint : joints) {
+            if (joint instanceof Constraint && joint.isEnabled()) {
+                union(parent, islandMap.get(joint.getBodyA()),
+                        islandMap.get(joint.getBodyB()));
+            }
+        }
+        /*
+         * Merge deactivated bodies that shared an island in the previous
+         * analysis, since Bullet no longer reports their contacts.
+         */
+        int[] firstSleeper = new int[previousNumIslands];
+        Arrays.fill(firstSleeper, -1);
+        for (int bodyIndex = 0; bodyIndex < numBodies; ++bodyIndex) {
+            PhysicsCollisionObject body = bodies.get(bodyIndex);
+            Integer previousIsland = previousMap.get(body);
+            if (previousIsland != null && !body.isActive()) {
+                int first = firstSleeper[previousIsland];
+                if (first == -1) {
+                    firstSleeper[previousIsland] = bodyIndex;
+                } else {
+                    union(parent, first, bodyIndex);
+                }
+            }
+        }
+        /*
+         * Number the islands and count their bodies.
+         */
+        int[] rootIsland = new int[numBodies];
+        numIslands = 0;
+        for (int bodyIndex = 0; bodyIndex < numBodies; ++bodyIndex) {
+            if (find(parent, bodyIndex) == bodyIndex) {
+                rootIsland[bodyIndex] = numIslands;
+                ++numIslands;
+            }
+        }
+        if (islandBodies.length < numIslands) {
+            isSleeping = new boolean[numIslands];
+            islandBodies = new int[numIslands];
+            islandConstraints = new int[numIslands];
+            islandContacts = new int[numIslands];
+        }
+        for (int islandIndex = 0; islandIndex < numIslands; ++islandIndex) {
+            isSleeping[islandIndex] = true;
+            islandBodies[islandIndex] = 0;
+            islandConstraints[islandIndex] = 0;
+            islandContacts[islandIndex] = 0;
+        }
+        for (int bodyIndex = 0; bodyIndex < numBodies; ++bodyIndex) {
+            int islandIndex = rootIsland[find(parent, bodyIndex)];
+            PhysicsCollisionObject body = bodies.get(bodyIndex);
+            islandMap.put(body, islandIndex);
+            ++islandBodies[islandIndex];
+            if (isSleeping[islandIndex] && body.isActive()) {
+                isSleeping[islandIndex] = false;
+            }
+        }
+        /*
+         * Attribute each contact and constraint to an island.
+         */
+        for (int i = 0; i < numContactObjects; i += 2) {
+            int islandIndex = findIsland(contactObjects.get(i));
+            if (islandIndex == -1) {
+                islandIndex = findIsland(contactObjects.get(i + 1));
+            }
+            if (islandIndex != -1) {
+                ++islandContacts[islandIndex];
+            }
+        }
+
+        for (PhysicsJoint joint : joints) {
+            if (joint instanceof Constraint && joint.isEnabled()) {
+                int islandIndex = findIsland(joint.getBodyA());
+                if (islandIndex == -1) {
+                    islandIndex = findIsland(joint.getBodyB());
+                }
+                if (islandIndex != -1) {
+                    ++islandConstraints[islandIndex];
+                }
+            }
+        }
+    }
+
+    /**
+     * Count the bodies in the indexed island, as of the most recent analysis.
+     *
+     * @param islandIndex which island (&ge;0, &lt;numIslands)
+     * @return the count (&gt;0)
+     */
+    public int countBodies(int islandIndex) {
+        Validate.inRange(islandIndex, "island index", 0, numIslands - 1);
+        int result = islandBodies[islandIndex];
+
+        return result;
+    }
+
+    /**
+     * Count the enabled constraints in the indexed island, as of the most
+     * recent analysis.
+     *
+     * @param islandIndex which island (&ge;0, &lt;numIslands)
+     * @return the count (&ge;0)
+     */
+    public int countConstraints(int islandIndex) {
+        Validate.inRange(islandIndex, "island index", 0, numIslands - 1);
+        int result = islandConstraints[islandIndex];
+
+        return result;
+    }
+
+    /**
+     * Count the distinct contact points processed in the indexed island during
+     * the update covered by the most recent analysis.
+     *
+     * @param islandIndex which island (&ge;0, &lt;numIslands)
+     * @return the count (&ge;0)
+     */
+    public int countContacts(int islandIndex) {
+        Validate.inRange(islandIndex, "island index", 0, numIslands - 1);
+        int result = islandContacts[islandIndex];
+
+        return result;
+    }
+
+    /**
+     * Count the islands found by the most recent analysis.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countIslands() {
+        return numIslands;
+    }
+
+    /**
+     * Count the sleeping islands found by the most recent analysis.
+     *
+     * @return the count (&ge;0, &le;numIslands)
+     */
+    public int countSleepingIslands() {
+        int result = 0;
+        for (int islandIndex = 0; islandIndex < numIslands; ++islandIndex) {
+            if (isSleeping[islandIndex]) {
+                ++result;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Stop monitoring the space. The monitor becomes useless.
+     */
+    public void destroy() {
+        space.removeOngoingCollisionListener(this);
+        space.removeTickListener(this);
+        contactIds.clear();
+        contactObjects.clear();
+        islandMap.clear();
+        previousMap.clear();
+        numIslands = 0;
+        previousNumIslands = 0;
+    }
+
+    /**
+     * Find the island of the specified object, as of the most recent analysis.
+     *
+     * @param pco the object to find (may be null, unaffected)
+     * @return the island index (&ge;0, &lt;numIslands) or -1 if the object
+     * didn't belong to any island (static, kinematic, or not in the space)
+     */
+    public int findIsland(PhysicsCollisionObject pco) {
+        Integer islandIndex = islandMap.get(pco);
+        int result = (islandIndex == null) ? -1 : islandIndex;
+
+        return result;
+    }
+
+    /**
+     * Access the monitored space.
+     *
+     * @return the pre-existing instance (not null)
+     */
+    public PhysicsSpace getSpace() {
+        return space;
+    }
+
+    /**
+     * Test whether all bodies in the indexed island were deactivated, as of
+     * the most recent analysis.
+     *
+     * @param islandIndex which island (&ge;0, &lt;numIslands)
+     * @return true if sleeping, false if awake
+     */
+    public boolean isSleeping(int islandIndex) {
+        Validate.inRange(islandIndex, "island index", 0, numIslands - 1);
+        boolean result = isSleeping[islandIndex];
+
+        return result;
+    }
+
+    /**
+     * Enumerate the bodies in the indexed island, as of the most recent
+     * analysis.
+     *
+     * @param islandIndex which island (&ge;0, &lt;numIslands)
+     * @return a new list of pre-existing objects
+     */
+    public List<PhysicsCollisionObject> listBodies(int islandIndex) {
+        Validate.inRange(islandIndex, "island index", 0, numIslands - 1);
+
+        int numBodies = islandBodies[islandIndex];
+        List<PhysicsCollisionObject> result = new ArrayList<>(numBodies);
+        for (Map.Entry<PhysicsCollisionObject, Integer> entry
+                : islandMap.entrySet()) {
+            if (entry.getValue() == islandIndex) {
+                result.add(entry.getKey());
+            }
+        }
+
+        return result;
+    }
+    // *************************************************************************
+    // PhysicsCollisionListener methods
+
+    /**
+     * Gather an ongoing contact point for the next analysis, unless it was
+     * already gathered.
+     *
+     * @param event the event that occurred (not null, unaffected)
+     */
+    @Override
+    public void collision(PhysicsCollisionEvent event) {
+        boolean isNew = contactIds.add(event.nativeId());
+        if (isNew) {
+            contactObjects.add(event.getObjectA());
+            contactObjects.add(event.getObjectB());
+        }
+    }
+    // *************************************************************************
+    // PhysicsTickListener methods
+
+    /**
+     * Callback from Bullet, invoked just before the physics is stepped.
+     * Discards the contacts gathered so far, so they can't accumulate across
+     * updates.
+     *
+     * @param space the space that's about to be stepped (not null)
+     * @param timeStep the time per physics step (in seconds, &ge;0)
+     */
+    @Override
+    public void prePhysicsTick(PhysicsSpace space, float timeStep) {
+        contactIds.clear();
+        contactObjects.clear();
+    }
+
+    /**
+     * Callback from Bullet, invoked just after the physics has been stepped.
+     *
+     * @param space the space that was just stepped (not null)
+     * @param timeStep the time per physics step (in seconds, &ge;0)
+     */
+    @Override
+    public void physicsTick(PhysicsSpace space, float timeStep) {
+        // do nothing
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Find the root of the indexed body's set, compressing the path.
+     *
+     * @param parent the parent of each body (not null, modified)
+     * @param bodyIndex which body (&ge;0)
+     * @return the index of the root body (&ge;0)
+     */
+    private static int find(int[] parent, int bodyIndex) {
+        int root = bodyIndex;
+        while (parent[root] != root) {
+            root = parent[root];
+        }
+        int index = bodyIndex;
+        while (parent[index] != root) {
+            int next = parent[index];
+            parent[index] = root;
+            index = next;
+        }
+
+        return root;
+    }
+
+    /**
+     * Test whether the specified object can join an island: a body that's
+     * neither static nor kinematic.
+     *
+     * @param pco the object to test (not null, unaffected)
+     * @return true if it can join, otherwise false
+     */
+    private static boolean isMobile(PhysicsCollisionObject pco) {
+        boolean result;
+        if (!(pco instanceof PhysicsBody) || pco.isStatic()) {
+            result = false;
+        } else if (pco instanceof PhysicsRigidBody) {
+            result = !((PhysicsRigidBody) pco).isKinematic();
+        } else {
+            result = true;
+        }
+
+        return result;
+    }
+
+    /**
+     * Merge the sets containing the indexed bodies. Objects that can't join
+     * an island are ignored.
+     *
+     * @param parent the parent of each body (not null, modified)
+     * @param indexA the index of the first body, or null if not mobile
+     * @param indexB the index of the 2nd body, or null if not mobile
+     */
+    private static void union(int[] parent, Integer indexA, Integer indexB) {
+        if (indexA != null && indexB != null) {
+            int rootA = find(parent, indexA);
+            int rootB = find(parent, indexB);
+            if (rootA != rootB) {
+                parent[rootB] = rootA;
+            }
+        }
+    }
+}
@@ -214,6 +214,29 @@ public class MultiBodySpace extends PhysicsSpace {
         logger2.log(Level.FINE, "Created {0}.", this);
     }
 
+    /**
+     * Test the bounding box of every collision object in this space against
+     * the current bounds query.
+     */
+    @Override
+    protected void gatherBounds() {
+        super.gatherBounds();
+        for (MultiBody multiBody : multiBodyMap.values()) {
+            MultiBodyCollider baseCollider = multiBody.getBaseCollider();
+            if (baseCollider != null) {
+                testBounds(baseCollider);
+            }
+            int numLinks = multiBody.countConfiguredLinks();
+            for (int linkIndex = 0; linkIndex < numLinks; ++linkIndex) {
+                MultiBodyCollider collider
+                        = multiBody.getLink(linkIndex).getCollider();
+                if (collider != null) {
+                    testBounds(collider);
+                }
+            }
+        }
+    }
+
     /**
      * Enumerate collision objects that have been added to this space and not
      * yet removed.
@@ -292,6 +315,9 @@ public class MultiBodySpace extends PhysicsSpace {
 
         long spaceId = nativeId();
         addMultiBody(spaceId, multiBodyId);
+        for (MultiBodyCollider collider : multiBody.listColliders()) {
+            reportAdded(collider);
+        }
     }
 
     /**
@@ -311,6 +337,9 @@ public class MultiBodySpace extends PhysicsSpace {
         multiBodyMap.remove(multiBodyId);
         long spaceId = nativeId();
         removeMultiBody(spaceId, multiBodyId);
+        for (MultiBodyCollider collider : multiBody.listColliders()) {
+            reportRemoved(collider);
+        }
     }
     // *************************************************************************
     // native private methods
@@ -33,6 +33,7 @@ package com.jme3.bullet;
 
 import java.lang.ref.ReferenceQueue;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 import jme3utilities.Validate;
@@ -83,6 +84,23 @@ abstract public class NativePhysicsObject {
         return result;
     }
 
+    /**
+     * Count the tracked native objects of each type.
+     *
+     * @return a new map from simple class names to counts (sorted by name)
+     */
+    final public static Map<String, Integer> countTrackersByType() {
+        Map<String, Integer> result = new TreeMap<>();
+        for (NpoTracker tracker : map.values()) {
+            String typeName = tracker.referentClass().getSimpleName();
+            Integer count = result.get(typeName);
+            int newCount = (count == null) ? 1 : count + 1;
+            result.put(typeName, newCount);
+        }
+
+        return result;
+    }
+
     /**
      * Dump all native-object trackers to System.out .
      */
@@ -114,6 +114,15 @@ class NpoTracker extends WeakReference<NativePhysicsObject> {
 
         assert invocationCount > 0 : invocationCount;
     }
+
+    /**
+     * Access the type of the referent.
+     *
+     * @return the pre-existing class (not null)
+     */
+    Class<? extends NativePhysicsObject> referentClass() {
+        return referentClass;
+    }
     // *************************************************************************
     // Object methods
 
@@ -0,0 +1,498 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import com.jme3.app.AppTask;
+import com.jme3.bullet.collision.PhysicsRayTestResult;
+import com.jme3.bullet.collision.PhysicsSweepTestResult;
+import com.jme3.bullet.collision.shapes.ConvexShape;
+import com.jme3.math.Transform;
+import com.jme3.math.Vector3f;
+import com.jme3.util.BufferUtils;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Accept ray, sweep, and overlap queries from any thread and execute them in
+ * batches on the physics thread, returning results via futures.
+ * <p>
+ * Pending queries are drained after each simulation step and again at the end
+ * of each {@link PhysicsSpace#update(float)}, so they're answered within one
+ * update even when the update simulates no steps. Each batch runs while the
+ * space isn't being stepped, so every query in a batch sees the same world.
+ * <p>
+ * Queries are executed serially on the physics thread, not concurrently with
+ * each other or with the simulation: the executor only makes it safe to
+ * submit them from other threads (for instance render or AI threads while
+ * using BulletAppState.ThreadingType.PARALLEL) and avoids enqueueing a
+ * separate task for each one.
+ * <p>
+ * Arguments are copied when a query is submitted, so callers may reuse them
+ * right away. Queries are executed in submission order.
+ * <p>
+ * Don't block on a future from the physics thread (for example in a tick
+ * listener): only that thread executes queries, so {@code get()} would wait
+ * forever. On the physics thread, invoke {@link #drain()} first or poll
+ * {@code isDone()} instead.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class PhysicsQueryExecutor implements PhysicsTickListener {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(PhysicsQueryExecutor.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * number of queries executed
+     */
+    private volatile long numExecuted = 0L;
+    /**
+     * number of steps completed since this executor was registered
+     */
+    private volatile long numSteps = 0L;
+    /**
+     * reusable storage for the IDs found by overlap queries
+     */
+    private LongBuffer idBuffer = createIdBuffer(64);
+    /**
+     * space being queried (not null)
+     */
+    final private PhysicsSpace space;
+    /**
+     * first-in/first-out (FIFO) queue of pending queries
+     */
+    final private Queue<AppTask<?>> pending = new ConcurrentLinkedQueue<>();
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an executor for the specified space and register it as a
+     * tick listener and to be drained after each update.
+     *
+     * @param space the space to query (not null, alias created)
+     */
+    public PhysicsQueryExecutor(PhysicsSpace space) {
+        Validate.nonNull(space, "space");
+
+        this.space = space;
+        space.addTickListener(this);
+        space.addQueryExecutor(this);
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Count the queries executed so far.
+     *
+     * @return the count (&ge;0)
+     */
+    public long countExecuted() {
+        return numExecuted;
+    }
+
+    /**
+     * Count the queries waiting to be executed.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countPending() {
+        int result = pending.size();
+        return result;
+    }
+
+    /**
+     * Count the simulation steps completed since this executor was
+     * registered.
+     *
+     * @return the count (&ge;0)
+     */
+    public long countSteps() {
+        return numSteps;
+    }
+
+    /**
+     * De-register this executor and cancel any pending queries.
+     */
+    public void destroy() {
+        space.removeTickListener(this);
+        space.removeQueryExecutor(this);
+
+        AppTask<?> task;
+        while ((task = pending.poll()) != null) {
+            task.cancel(false);
+        }
+    }
+
+    /**
+     * Execute all pending queries immediately. Invoked automatically after
+     * each step and at the end of each update. Must be invoked on the physics
+     * thread, while the space isn't being stepped.
+     *
+     * @return the number of queries executed (&ge;0)
+     */
+    public int drain() {
+        int result = 0;
+        AppTask<?> task;
+        while ((task = pending.poll()) != null) {
+            if (task.isCancelled()) {
+                continue;
+            }
+            ++result;
+            try {
+                task.invoke();
+            } catch (Exception exception) {
+                logger.log(Level.SEVERE, null, exception);
+            }
+        }
+        numExecuted += result;
+
+        return result;
+    }
+
+    /**
+     * Access the space being queried.
+     *
+     * @return the pre-existing instance (not null)
+     */
+    public PhysicsSpace getSpace() {
+        return space;
+    }
+
+    /**
+     * Submit a query for the native IDs of all collision objects in the
+     * specified groups whose bounding boxes overlap the specified box. May be
+     * invoked from any thread.
+     *
+     * @param aabbMin the minimum corner of the box (in physics-space
+     * coordinates, not null, unaffected)
+     * @param aabbMax the maximum corner of the box (in physics-space
+     * coordinates, not null, unaffected)
+     * @param collisionGroups a bitmask of the collision groups to accept
+     * @return a future for a new array of IDs
+     * @see CollisionSpace#overlapAabb(com.jme3.math.Vector3f,
+     * com.jme3.math.Vector3f, int, java.nio.LongBuffer)
+     */
+    public Future<long[]> overlapAabb(Vector3f aabbMin, Vector3f aabbMax,
+            final int collisionGroups) {
+        Validate.finite(aabbMin, "aabb min");
+        Validate.finite(aabbMax, "aabb max");
+
+        final Vector3f min = aabbMin.clone();
+        final Vector3f max = aabbMax.clone();
+        Future<long[]> result = submit(new Callable<long[]>() {
+            @Override
+            public long[] call() {
+                int count;
+                do {
+                    idBuffer.clear();
+                    count = space.overlapAabb(min, max, collisionGroups,
+                            idBuffer);
+                } while (growIdBuffer(count));
+
+                return copyIds(count);
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * Submit an exact query for the native IDs of all collision objects in the
+     * specified groups that overlap the specified convex shape. May be invoked
+     * from any thread.
+     *
+     * @param shape the query shape (not null, alias created)
+     * @param transform the transform of the shape (in physics-space
+     * coordinates, not null, unaffected)
+     * @param collisionGroups a bitmask of the collision groups to accept
+     * @return a future for a new array of IDs
+     * @see CollisionSpace#overlapShape(
+     * com.jme3.bullet.collision.shapes.ConvexShape, com.jme3.math.Transform,
+     * int, java.nio.LongBuffer)
+     */
+    public Future<long[]> overlapShape(final ConvexShape shape,
+            Transform transform, final int collisionGroups) {
+        Validate.nonNull(shape, "shape");
+        Validate.nonNull(transform, "transform");
+
+        final Transform copy = transform.clone();
+        Future<long[]> result = submit(new Callable<long[]>() {
+            @Override
+            public long[] call() {
+                int count;
+                do {
+                    idBuffer.clear();
+                    count = space.overlapShape(shape, copy, collisionGroups,
+                            idBuffer);
+                } while (growIdBuffer(count));
+
+                return copyIds(count);
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * Submit a query for the native IDs of all collision objects in the
+     * specified groups whose bounding boxes intersect the specified sphere.
+     * May be invoked from any thread.
+     *
+     * @param center the center of the sphere (in physics-space coordinates,
+     * not null, unaffected)
+     * @param radius the radius of the sphere (in physics-space units, &ge;0)
+     * @param collisionGroups a bitmask of the collision groups to accept
+     * @return a future for a new array of IDs
+     * @see CollisionSpace#overlapSphere(com.jme3.math.Vector3f, float, int,
+     * java.nio.LongBuffer)
+     */
+    public Future<long[]> overlapSphere(Vector3f center, final float radius,
+            final int collisionGroups) {
+        Validate.finite(center, "center");
+        Validate.nonNegative(radius, "radius");
+
+        final Vector3f copy = center.clone();
+        Future<long[]> result = submit(new Callable<long[]>() {
+            @Override
+            public long[] call() {
+                int count;
+                do {
+                    idBuffer.clear();
+                    count = space.overlapSphere(copy, radius, collisionGroups,
+                            idBuffer);
+                } while (growIdBuffer(count));
+
+                return copyIds(count);
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * Submit a ray test. May be invoked from any thread.
+     *
+     * @param from the starting location (in physics-space coordinates, not
+     * null, unaffected)
+     * @param to the ending location (in physics-space coordinates, not null,
+     * unaffected)
+     * @return a future for a new list of results, sorted by hit fraction
+     * @see CollisionSpace#rayTest(com.jme3.math.Vector3f,
+     * com.jme3.math.Vector3f)
+     */
+    public Future<List<PhysicsRayTestResult>> rayTest(Vector3f from,
+            Vector3f to) {
+        Validate.finite(from, "from");
+        Validate.finite(to, "to");
+
+        final Vector3f fromCopy = from.clone();
+        final Vector3f toCopy = to.clone();
+        Future<List<PhysicsRayTestResult>> result = submit(
+                new Callable<List<PhysicsRayTestResult>>() {
+            @Override
+            public List<PhysicsRayTestResult> call() {
+                return space.rayTest(fromCopy, toCopy);
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * Submit a test for the closest ray hit on a collision object in the
+     * specified groups. May be invoked from any thread.
+     *
+     * @param from the starting location (in physics-space coordinates, not
+     * null, unaffected)
+     * @param to the ending location (in physics-space coordinates, not null,
+     * unaffected)
+     * @param collisionGroups a bitmask of the collision groups to accept
+     * @return a future for the closest result, or null if none
+     * @see CollisionSpace#rayTestClosest(com.jme3.math.Vector3f,
+     * com.jme3.math.Vector3f, int,
+     * com.jme3.bullet.collision.PhysicsCollisionObject)
+     */
+    public Future<PhysicsRayTestResult> rayTestClosest(Vector3f from,
+            Vector3f to, final int collisionGroups) {
+        Validate.finite(from, "from");
+        Validate.finite(to, "to");
+
+        final Vector3f fromCopy = from.clone();
+        final Vector3f toCopy = to.clone();
+        Future<PhysicsRayTestResult> result = submit(
+                new Callable<PhysicsRayTestResult>() {
+            @Override
+            public PhysicsRayTestResult call() {
+                return space.rayTestClosest(fromCopy, toCopy,
+                        collisionGroups, null);
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * Submit a convex sweep test. May be invoked from any thread.
+     *
+     * @param shape the shape to sweep (not null, alias created)
+     * @param start the starting transform (in physics-space coordinates, not
+     * null, unaffected)
+     * @param end the ending transform (in physics-space coordinates, not null,
+     * unaffected)
+     * @param allowedCcdPenetration (in physics-space units)
+     * @return a future for a new list of results
+     * @see CollisionSpace#sweepTest(
+     * com.jme3.bullet.collision.shapes.ConvexShape, com.jme3.math.Transform,
+     * com.jme3.math.Transform, java.util.List, float)
+     */
+    public Future<List<PhysicsSweepTestResult>> sweepTest(
+            final ConvexShape shape, Transform start, Transform end,
+            final float allowedCcdPenetration) {
+        Validate.nonNull(shape, "shape");
+        Validate.nonNull(start, "start");
+        Validate.nonNull(end, "end");
+
+        final Transform startCopy = start.clone();
+        final Transform endCopy = end.clone();
+        Future<List<PhysicsSweepTestResult>> result = submit(
+                new Callable<List<PhysicsSweepTestResult>>() {
+            @Override
+            public List<PhysicsSweepTestResult> call() {
+                List<PhysicsSweepTestResult> results = new ArrayList<>(8);
+                space.sweepTest(shape, startCopy, endCopy, results,
+                        allowedCcdPenetration);
+                return results;
+            }
+        });
+
+        return result;
+    }
+    // *************************************************************************
+    // PhysicsTickListener methods
+
+    /**
+     * Callback from Bullet, invoked just before the physics is stepped.
+     *
+     * @param space the space that is about to be stepped (not null)
+     * @param timeStep the time per physics step (in seconds, &ge;0)
+     */
+    @Override
+    public void prePhysicsTick(PhysicsSpace space, float timeStep) {
+        // do nothing
+    }
+
+    /**
+     * Execute the pending queries against the step just completed.
+     *
+     * @param space the space that was just stepped (not null)
+     * @param timeStep the time per physics step (in seconds, &ge;0)
+     */
+    @Override
+    public void physicsTick(PhysicsSpace space, float timeStep) {
+        ++numSteps;
+        drain();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Copy IDs from the reusable buffer to a new array.
+     *
+     * @param count the number of IDs to copy (&ge;0)
+     * @return a new array
+     */
+    private long[] copyIds(int count) {
+        long[] result = new long[count];
+        for (int i = 0; i < count; ++i) {
+            result[i] = idBuffer.get(i);
+        }
+
+        return result;
+    }
+
+    /**
+     * Create a direct buffer for IDs.
+     *
+     * @param capacity the desired capacity (in longs, &ge;0)
+     * @return a new buffer
+     */
+    private static LongBuffer createIdBuffer(int capacity) {
+        LongBuffer result
+                = BufferUtils.createByteBuffer(8 * capacity).asLongBuffer();
+        return result;
+    }
+
+    /**
+     * Grow the reusable ID buffer if it couldn't hold all the IDs found.
+     *
+     * @param count the number of IDs found (&ge;0)
+     * @return true if the buffer was replaced and the query must be repeated,
+     * otherwise false
+     */
+    private boolean growIdBuffer(int count) {
+        if (count <= idBuffer.capacity()) {
+            return false;
+        }
+
+        idBuffer = createIdBuffer(2 * count);
+        return true;
+    }
+
+    /**
+     * Add a query to the pending queue.
+     *
+     * @param <V> the query's result type
+     * @param query the query to execute (not null)
+     * @return a new future (not null)
+     */
+    private <V> Future<V> submit(Callable<V> query) {
+        AppTask<V> task = new AppTask<>(query);
+        pending.add(task);
+
+        return task;
+    }
+}
@@ -0,0 +1,352 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.util.BufferUtils;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * A compact, reusable binary copy of the dynamic state of the rigid bodies in
+ * a PhysicsSpace, for rollback: location, orientation, linear and angular
+ * velocities, deactivation time, and activation state.
+ * <p>
+ * Each record occupies a fixed number of bytes in a direct buffer that grows
+ * as needed and is reused by later captures, so steady-state capture and
+ * restore allocate nothing. A delta snapshot records only the bodies whose
+ * state differs from a full base snapshot; restoring a delta restores its
+ * base first.
+ * <p>
+ * Static bodies are skipped. Kinematic bodies record only their transforms.
+ * Constraint impulses, contact manifolds, soft bodies, and characters are not
+ * captured. Capture and restore should be invoked only on the physics thread,
+ * while the space isn't being stepped.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class PhysicsSnapshot {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of bytes per body record: 14 floats plus one int
+     */
+    final private static int recordBytes = 60;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(PhysicsSnapshot.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * buffer holding the records (direct)
+     */
+    private ByteBuffer buffer;
+    /**
+     * map each recorded body to its record index
+     */
+    final private Map<PhysicsRigidBody, Integer> indexMap
+            = new IdentityHashMap<>(64);
+    /**
+     * recorded bodies, in record order
+     */
+    final private List<PhysicsRigidBody> bodies = new ArrayList<>(64);
+    /**
+     * base snapshot of a delta, or null for a full snapshot
+     */
+    private PhysicsSnapshot base = null;
+    /**
+     * reusable orientation for capture and restore
+     */
+    final private Quaternion tmpRotation = new Quaternion();
+    /**
+     * reusable vector for capture and restore
+     */
+    final private Vector3f tmpVector = new Vector3f();
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an empty snapshot with room for the specified number of
+     * bodies.
+     *
+     * @param initialBodies the initial capacity (in bodies, &ge;0)
+     */
+    public PhysicsSnapshot(int initialBodies) {
+        Validate.nonNegative(initialBodies, "initial bodies");
+        buffer = BufferUtils.createByteBuffer(recordBytes * initialBodies);
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Capture the state of every non-static rigid body in the specified space,
+     * replacing any previous contents.
+     *
+     * @param space the space to capture (not null, unaffected)
+     */
+    public void capture(PhysicsSpace space) {
+        Validate.nonNull(space, "space");
+
+        clear();
+        for (PhysicsRigidBody body : space.getRigidBodyList()) {
+            if (isCaptured(body)) {
+                int offset = writeRecord(body);
+                addRecord(body, offset);
+            }
+        }
+    }
+
+    /**
+     * Capture only the rigid bodies whose states differ from the specified
+     * full snapshot, replacing any previous contents. Bodies missing from the
+     * base are always recorded.
+     *
+     * @param space the space to capture (not null, unaffected)
+     * @param baseSnapshot the full snapshot to compare against (not null, not
+     * a delta, not this, alias created)
+     */
+    public void captureDelta(PhysicsSpace space, PhysicsSnapshot baseSnapshot) {
+        Validate.nonNull(space, "space");
+        Validate.nonNull(baseSnapshot, "base snapshot");
+        Validate.require(baseSnapshot.base == null, "a full snapshot");
+        Validate.require(baseSnapshot != this, "a different snapshot");
+
+        clear();
+        base = baseSnapshot;
+        for (PhysicsRigidBody body : space.getRigidBodyList()) {
+            if (isCaptured(body)) {
+                int offset = writeRecord(body);
+                Integer baseIndex = baseSnapshot.indexMap.get(body);
+                if (baseIndex == null || !baseSnapshot.recordEquals(
+                        baseIndex, buffer, offset)) {
+                    addRecord(body, offset);
+                }
+            }
+        }
+    }
+
+    /**
+     * Count the bodies recorded in this snapshot, excluding any base.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countBodies() {
+        int result = bodies.size();
+        return result;
+    }
+
+    /**
+     * Access the base of this delta snapshot.
+     *
+     * @return the pre-existing instance, or null if this is a full snapshot
+     */
+    public PhysicsSnapshot getBase() {
+        return base;
+    }
+
+    /**
+     * Restore the recorded state to every recorded body (after first restoring
+     * the base, if this is a delta). Bodies that have since been removed from
+     * their space are skipped.
+     */
+    public void restore() {
+        if (base != null) {
+            base.restore();
+        }
+
+        int numBodies = bodies.size();
+        for (int index = 0; index < numBodies; ++index) {
+            PhysicsRigidBody body = bodies.get(index);
+            if (body.isInWorld()) {
+                readRecord(index, body);
+            }
+        }
+    }
+
+    /**
+     * Determine the number of bytes used by the records in this snapshot,
+     * excluding any base.
+     *
+     * @return the size (in bytes, &ge;0)
+     */
+    public int sizeInBytes() {
+        int result = recordBytes * bodies.size();
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Append a record that's already been written at the end of the buffer.
+     *
+     * @param body the recorded body (not null)
+     * @param offset the byte offset of the record
+     */
+    private void addRecord(PhysicsRigidBody body, int offset) {
+        assert offset == sizeInBytes() : offset;
+
+        indexMap.put(body, bodies.size());
+        bodies.add(body);
+    }
+
+    /**
+     * Discard all records.
+     */
+    private void clear() {
+        base = null;
+        bodies.clear();
+        indexMap.clear();
+    }
+
+    /**
+     * Test whether the specified body should be captured.
+     *
+     * @param body the body to test (not null, unaffected)
+     * @return true if dynamic or kinematic, otherwise false
+     */
+    private static boolean isCaptured(PhysicsRigidBody body) {
+        boolean result = body.isDynamic() || body.isKinematic();
+        return result;
+    }
+
+    /**
+     * Restore the indexed record to the specified body.
+     *
+     * @param index the index of the record (&ge;0)
+     * @param body the body to modify (not null)
+     */
+    private void readRecord(int index, PhysicsRigidBody body) {
+        int offset = recordBytes * index;
+        buffer.position(offset);
+
+        tmpVector.set(buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
+        body.setPhysicsLocation(tmpVector);
+        tmpRotation.set(buffer.getFloat(), buffer.getFloat(),
+                buffer.getFloat(), buffer.getFloat());
+        body.setPhysicsRotation(tmpRotation);
+
+        tmpVector.set(buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
+        boolean isDynamic = body.isDynamic();
+        if (isDynamic) {
+            body.setLinearVelocity(tmpVector);
+        }
+        tmpVector.set(buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
+        if (isDynamic) {
+            body.setAngularVelocity(tmpVector);
+        }
+
+        body.setDeactivationTime(buffer.getFloat());
+        body.setActivationState(buffer.getInt());
+    }
+
+    /**
+     * Test whether the indexed record matches a record in another buffer.
+     *
+     * @param index the index of the record in this snapshot (&ge;0)
+     * @param other the buffer containing the other record (not null,
+     * unaffected)
+     * @param otherOffset the byte offset of the other record (&ge;0)
+     * @return true if the records are bitwise identical, otherwise false
+     */
+    private boolean recordEquals(int index, ByteBuffer other,
+            int otherOffset) {
+        int offset = recordBytes * index;
+        for (int i = 0; i < recordBytes; i += 4) {
+            if (buffer.getInt(offset + i) != other.getInt(otherOffset + i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Write a record for the specified body at the end of the buffer, growing
+     * the buffer if necessary.
+     *
+     * @param body the body to record (not null, unaffected)
+     * @return the byte offset of the new record
+     */
+    private int writeRecord(PhysicsRigidBody body) {
+        int offset = sizeInBytes();
+        if (buffer.capacity() < offset + recordBytes) {
+            int newCapacity = Math.max(2 * buffer.capacity(),
+                    offset + recordBytes);
+            ByteBuffer newBuffer = BufferUtils.createByteBuffer(newCapacity);
+            buffer.position(0);
+            buffer.limit(offset);
+            newBuffer.put(buffer);
+            buffer = newBuffer;
+        }
+        buffer.limit(buffer.capacity());
+        buffer.position(offset);
+
+        body.getPhysicsLocation(tmpVector);
+        buffer.putFloat(tmpVector.x).putFloat(tmpVector.y)
+                .putFloat(tmpVector.z);
+        body.getPhysicsRotation(tmpRotation);
+        buffer.putFloat(tmpRotation.getX()).putFloat(tmpRotation.getY())
+                .putFloat(tmpRotation.getZ()).putFloat(tmpRotation.getW());
+
+        if (body.isDynamic()) {
+            body.getLinearVelocity(tmpVector);
+        } else {
+            tmpVector.zero();
+        }
+        buffer.putFloat(tmpVector.x).putFloat(tmpVector.y)
+                .putFloat(tmpVector.z);
+        if (body.isDynamic()) {
+            body.getAngularVelocity(tmpVector);
+        } else {
+            tmpVector.zero();
+        }
+        buffer.putFloat(tmpVector.x).putFloat(tmpVector.y)
+                .putFloat(tmpVector.z);
+
+        buffer.putFloat(body.getDeactivationTime());
+        buffer.putInt(body.getActivationState());
+        assert buffer.position() == offset + recordBytes;
+
+        return offset;
+    }
+}
@@ -34,6 +34,7 @@ package com.jme3.bullet;
 import com.jme3.bullet.collision.PhysicsCollisionObject;
 import com.jme3.bullet.joints.PhysicsJoint;
 import com.jme3.bullet.objects.PhysicsSoftBody;
+import com.jme3.bullet.objects.infos.SoftBodySnapshot;
 import com.jme3.math.Vector3f;
 import java.util.Collection;
 import java.util.Collections;
@@ -210,6 +211,18 @@ public class PhysicsSoftSpace extends PhysicsSpace {
         logger2.log(Level.FINE, "Created {0}.", this);
     }
 
+    /**
+     * Test the bounding box of every collision object in this space against
+     * the current bounds query.
+     */
+    @Override
+    protected void gatherBounds() {
+        super.gatherBounds();
+        for (PhysicsSoftBody softBody : softBodyMap.values()) {
+            testBounds(softBody);
+        }
+    }
+
     /**
      * Enumerate collision objects that have been added to this space and not
      * yet removed.
@@ -266,6 +279,33 @@ public class PhysicsSoftSpace extends PhysicsSpace {
         super.setGravity(gravity);
         worldInfo.setGravity(gravity);
     }
+
+    /**
+     * Update this space, then capture snapshots of any soft bodies that have
+     * snapshots enabled.
+     *
+     * @param timeInterval time-per-frame multiplied by speed (in seconds,
+     * &ge;0)
+     */
+    @Override
+    public void update(float timeInterval) {
+        super.update(timeInterval);
+        captureSnapshots();
+    }
+
+    /**
+     * Update this space, then capture snapshots of any soft bodies that have
+     * snapshots enabled.
+     *
+     * @param timeInterval the time interval to simulate (in seconds, &ge;0)
+     * @param maxSteps the maximum number of steps of size accuracy (&ge;1) or 0
+     * for a single step of size timeInterval
+     */
+    @Override
+    public void update(float timeInterval, int maxSteps) {
+        super.update(timeInterval, maxSteps);
+        captureSnapshots();
+    }
     // *************************************************************************
     // Java private methods
 
@@ -294,6 +334,19 @@ public class PhysicsSoftSpace extends PhysicsSpace {
         if (!softBody.isWorldInfoProtected()) { // replace the world info
             softBody.setWorldInfo(getWorldInfo());
         }
+        reportAdded(softBody);
+    }
+
+    /**
+     * Capture the snapshots of all soft bodies that have snapshots enabled.
+     */
+    private void captureSnapshots() {
+        for (PhysicsSoftBody softBody : softBodyMap.values()) {
+            SoftBodySnapshot snapshot = softBody.getSnapshot();
+            if (snapshot != null) {
+                snapshot.capture();
+            }
+        }
     }
 
     private void removeSoftBody(PhysicsSoftBody softBody) {
@@ -308,6 +361,7 @@ public class PhysicsSoftSpace extends PhysicsSpace {
         softBodyMap.remove(softBodyId);
         long spaceId = nativeId();
         removeSoftBody(spaceId, softBodyId);
+        reportRemoved(softBody);
     }
     // *************************************************************************
     // native private methods
@@ -32,6 +32,7 @@
 package com.jme3.bullet;
 
 import com.jme3.app.AppTask;
+import com.jme3.bullet.collision.ContactPairListener;
 import com.jme3.bullet.collision.PhysicsCollisionEvent;
 import com.jme3.bullet.collision.PhysicsCollisionListener;
 import com.jme3.bullet.collision.PhysicsCollisionObject;
@@ -137,11 +138,28 @@ public class PhysicsSpace extends CollisionSpace {
      * maximum time step (in seconds, &gt;0) ignored when maxSubSteps>0
      */
     private float maxTimeStep = 0.1f;
+    /**
+     * true if deterministic mode is enabled, otherwise false
+     */
+    private boolean isDeterministic = false;
+    /**
+     * true if the solver's RandomOrder mode was set before deterministic mode
+     * was enabled
+     */
+    private boolean savedRandomOrder = false;
     /**
      * maximum number of time steps per frame, or 0 for a variable time step
      * (&ge;0)
      */
     private int maxSubSteps = 4;
+    /**
+     * value of maxSubSteps before deterministic mode was enabled (&ge;0)
+     */
+    private int savedMaxSubSteps = 4;
+    /**
+     * per-step metrics, or null if not collected
+     */
+    private PhysicsSpaceMetrics metrics = null;
     /**
      * list of registered listeners for ongoing contacts
      */
@@ -152,6 +170,20 @@ public class PhysicsSpace extends CollisionSpace {
      */
     final private List<PhysicsCollisionListener> contactStartedListeners
             = new SafeArrayList<>(PhysicsCollisionListener.class);
+    /**
+     * list of registered listeners for pair-level contact notifications
+     */
+    final private List<ContactPairListener> contactPairListeners
+            = new SafeArrayList<>(ContactPairListener.class);
+    /**
+     * track touching pairs for contactPairListeners
+     */
+    final private ContactPairTracker pairTracker = new ContactPairTracker();
+    /**
+     * query executors to drain at the end of each update
+     */
+    final private List<PhysicsQueryExecutor> queryExecutors
+            = new SafeArrayList<>(PhysicsQueryExecutor.class);
     /**
      * list of registered tick listeners
      */
@@ -318,6 +350,25 @@ public class PhysicsSpace extends CollisionSpace {
         contactStartedListeners.add(listener);
     }
 
+    /**
+     * Register the specified listener for pair-level contact notifications.
+     * <p>
+     * While at least one such listener is registered, the space tracks which
+     * pairs of objects touch during each step. During distributeEvents(),
+     * registered listeners are notified of each pair that began touching,
+     * kept touching, or stopped touching during the steps since the previous
+     * distributeEvents(). Like ongoing contacts, Sphere-Sphere contacts aren't
+     * tracked.
+     *
+     * @param listener the listener to register (not null, alias created)
+     */
+    public void addContactPairListener(ContactPairListener listener) {
+        Validate.nonNull(listener, "listener");
+        assert !contactPairListeners.contains(listener);
+
+        contactPairListeners.add(listener);
+    }
+
     /**
      * Add the specified PhysicsJoint to this space.
      *
@@ -360,6 +411,20 @@ public class PhysicsSpace extends CollisionSpace {
         }
     }
 
+    /**
+     * Register the specified query executor to be drained at the end of each
+     * update, even an update that simulates no steps.
+     *
+     * @param executor the executor to register (not null, not already
+     * registered, alias created)
+     */
+    void addQueryExecutor(PhysicsQueryExecutor executor) {
+        assert executor != null;
+        assert !queryExecutors.contains(executor);
+
+        queryExecutors.add(executor);
+    }
+
     /**
      * Register the specified tick listener with this space.
      * <p>
@@ -461,6 +526,14 @@ public class PhysicsSpace extends CollisionSpace {
      * Distribute each collision event to registered listeners.
      */
     public void distributeEvents() {
+        long startNanos = 0L;
+        int numEvents = 0;
+        if (metrics != null) {
+            startNanos = System.nanoTime();
+            numEvents = contactStartedEvents.size()
+                    + contactProcessedEvents.size();
+        }
+
         while (!contactStartedEvents.isEmpty()) {
             PhysicsCollisionEvent event = contactStartedEvents.pop();
             for (PhysicsCollisionListener listener : contactStartedListeners) {
@@ -474,6 +547,14 @@ public class PhysicsSpace extends CollisionSpace {
                 listener.collision(event);
             }
         }
+
+        if (!contactPairListeners.isEmpty()) {
+            pairTracker.distribute(contactPairListeners);
+        }
+
+        if (metrics != null) {
+            metrics.distributeEnded(startNanos, numEvents);
+        }
      }
 
     /**
@@ -553,6 +634,15 @@ public class PhysicsSpace extends CollisionSpace {
         return Collections.unmodifiableCollection(result);
     }
 
+    /**
+     * Access the metrics collected for this space.
+     *
+     * @return the pre-existing instance, or null if none
+     */
+    public PhysicsSpaceMetrics getMetrics() {
+        return metrics;
+    }
+
     /**
      * Access the PhysicsSpace <b>running on this thread</b>. For parallel
      * physics, this may be invoked from the OpenGL thread.
@@ -615,6 +705,16 @@ public class PhysicsSpace extends CollisionSpace {
         return Collections.unmodifiableCollection(result);
     }
 
+    /**
+     * Test whether deterministic mode is enabled.
+     *
+     * @return true if enabled, otherwise false
+     * @see #setDeterministic(boolean)
+     */
+    public boolean isDeterministic() {
+        return isDeterministic;
+    }
+
     /**
      * Test whether this space uses Speculative Contact Restitution.
      *
@@ -682,6 +782,25 @@ public class PhysicsSpace extends CollisionSpace {
         assert success;
     }
 
+    /**
+     * De-register the specified listener for pair-level contact
+     * notifications. When the last one is de-registered, the space stops
+     * tracking pairs.
+     *
+     * @see
+     * #addContactPairListener(com.jme3.bullet.collision.ContactPairListener)
+     * @param listener the listener to de-register (not null)
+     */
+    public void removeContactPairListener(ContactPairListener listener) {
+        Validate.nonNull(listener, "listener");
+
+        boolean success = contactPairListeners.remove(listener);
+        assert success;
+        if (contactPairListeners.isEmpty()) {
+            pairTracker.clear();
+        }
+    }
+
     /**
      * Remove the specified PhysicsJoint from this space.
      *
@@ -722,6 +841,16 @@ public class PhysicsSpace extends CollisionSpace {
         assert success;
     }
 
+    /**
+     * De-register the specified query executor.
+     *
+     * @param executor the executor to de-register (not null, unaffected)
+     */
+    void removeQueryExecutor(PhysicsQueryExecutor executor) {
+        boolean success = queryExecutors.remove(executor);
+        assert success;
+    }
+
     /**
      * De-register the specified tick listener.
      *
@@ -748,6 +877,43 @@ public class PhysicsSpace extends CollisionSpace {
         this.accuracy = accuracy;
     }
 
+    /**
+     * Enable or disable deterministic mode. While enabled, the solver's
+     * randomized constraint ordering is disabled and update(float) always
+     * simulates fixed steps of size accuracy, so identical inputs applied in
+     * the same order produce bit-identical results on the same platform.
+     * <p>
+     * Bullet processes bodies, constraints, and pairs in the order they were
+     * added, so objects must also be added in a reproducible order.
+     * <p>
+     * Disabling deterministic mode restores the RandomOrder setting and the
+     * maxSubSteps value that were in effect when it was enabled.
+     *
+     * @param enable true to enable, false to disable (default=false)
+     * @see com.jme3.bullet.util.StateHashRecorder
+     */
+    public void setDeterministic(boolean enable) {
+        if (enable == isDeterministic) {
+            return;
+        }
+
+        int mode = solverInfo.mode();
+        if (enable) {
+            savedRandomOrder = (mode & SolverMode.RandomOrder) != 0x0;
+            savedMaxSubSteps = maxSubSteps;
+            solverInfo.setMode(mode & ~SolverMode.RandomOrder);
+            if (maxSubSteps == 0) {
+                maxSubSteps = 4;
+            }
+        } else {
+            if (savedRandomOrder) {
+                solverInfo.setMode(mode | SolverMode.RandomOrder);
+            }
+            maxSubSteps = savedMaxSubSteps;
+        }
+        isDeterministic = enable;
+    }
+
     /**
      * Alter the gravitational acceleration acting on newly-added bodies.
      * <p>
@@ -764,6 +930,17 @@ public class PhysicsSpace extends CollisionSpace {
         setGravity(spaceId, gravity);
     }
 
+    /**
+     * Start or stop collecting timing and count metrics for this space. Must
+     * be invoked on the physics thread, while the space isn't being stepped.
+     *
+     * @param newMetrics the metrics object to update (alias created) or null
+     * to stop collecting (default=null)
+     */
+    public void setMetrics(PhysicsSpaceMetrics newMetrics) {
+        metrics = newMetrics;
+    }
+
     /**
      * Alter the maximum number of time steps per frame.
      * <p>
@@ -778,6 +955,12 @@ public class PhysicsSpace extends CollisionSpace {
      */
     public void setMaxSubSteps(int steps) {
         Validate.nonNegative(steps, "steps");
+        if (isDeterministic && steps == 0) {
+            throw new IllegalStateException(
+                    "Variable time steps aren't allowed in deterministic"
+                    + " mode.");
+        }
+
         maxSubSteps = steps;
     }
 
@@ -827,7 +1010,17 @@ public class PhysicsSpace extends CollisionSpace {
         if (maxSubSteps == 0) {
             interval = Math.min(interval, maxTimeStep);
         }
+        if (metrics != null) {
+            metrics.updateStarted();
+        }
         stepSimulation(spaceId, interval, maxSubSteps, accuracy);
+        invalidateMirroredTransforms();
+        if (metrics != null) {
+            metrics.updateEnded();
+        }
+        for (PhysicsQueryExecutor executor : queryExecutors) {
+            executor.drain();
+        }
     }
 
     /**
@@ -835,15 +1028,31 @@ public class PhysicsSpace extends CollisionSpace {
      *
      * @param timeInterval the time interval to simulate (in seconds, &ge;0)
      * @param maxSteps the maximum number of steps of size accuracy (&ge;1) or 0
-     * for a single step of size timeInterval
+     * for a single step of size timeInterval (not allowed in deterministic
+     * mode)
      */
     public void update(float timeInterval, int maxSteps) {
         Validate.nonNegative(timeInterval, "time interval");
         Validate.nonNegative(maxSteps, "max steps");
+        if (isDeterministic && maxSteps == 0) {
+            throw new IllegalStateException(
+                    "Variable time steps aren't allowed in deterministic"
+                    + " mode.");
+        }
 
         long spaceId = nativeId();
         assert accuracy > 0f : accuracy;
+        if (metrics != null) {
+            metrics.updateStarted();
+        }
         stepSimulation(spaceId, timeInterval, maxSteps, accuracy);
+        invalidateMirroredTransforms();
+        if (metrics != null) {
+            metrics.updateEnded();
+        }
+        for (PhysicsQueryExecutor executor : queryExecutors) {
+            executor.drain();
+        }
     }
 
     /**
@@ -980,6 +1189,21 @@ public class PhysicsSpace extends CollisionSpace {
         logger.log(Level.FINE, "Created {0}.", this);
     }
 
+    /**
+     * Test the bounding box of every collision object in this space against
+     * the current bounds query.
+     */
+    @Override
+    protected void gatherBounds() {
+        super.gatherBounds();
+        for (PhysicsRigidBody rigidBody : rigidMap.values()) {
+            testBounds(rigidBody);
+        }
+        for (PhysicsCharacter character : characterMap.values()) {
+            testBounds(character);
+        }
+    }
+
     /**
      * Enumerate collision objects that have been added to this space and not
      * yet removed.
@@ -1077,6 +1301,7 @@ public class PhysicsSpace extends CollisionSpace {
 
         long actionId = character.getControllerId();
         addAction(spaceId, actionId);
+        reportAdded(character);
     }
 
     /**
@@ -1084,6 +1309,9 @@ public class PhysicsSpace extends CollisionSpace {
      */
     private void addCollisionEvent_native(PhysicsCollisionObject pcoA,
             PhysicsCollisionObject pcoB, long manifoldPointId) {
+        if (metrics != null) {
+            metrics.contactStarted();
+        }
         if (!contactStartedListeners.isEmpty()) {
             PhysicsCollisionEvent event
                     = new PhysicsCollisionEvent(pcoA, pcoB, manifoldPointId);
@@ -1096,6 +1324,12 @@ public class PhysicsSpace extends CollisionSpace {
      */
     private void addContactProcessed(PhysicsCollisionObject pcoA,
             PhysicsCollisionObject pcoB, long manifoldPointId) {
+        if (metrics != null) {
+            metrics.contactProcessed();
+        }
+        if (!contactPairListeners.isEmpty()) {
+            pairTracker.contactProcessed(pcoA, pcoB);
+        }
         if (!contactProcessedListeners.isEmpty()) {
             PhysicsCollisionEvent event
                     = new PhysicsCollisionEvent(pcoA, pcoB, manifoldPointId);
@@ -1154,6 +1388,7 @@ public class PhysicsSpace extends CollisionSpace {
             vehicleMap.put(actionId, vehicle);
             addAction(spaceId, actionId);
         }
+        reportAdded(rigidBody);
     }
 
     /**
@@ -1178,9 +1413,23 @@ public class PhysicsSpace extends CollisionSpace {
      * @param timeStep the time per physics step (in seconds, &ge;0)
      */
     private void postTick_native(float timeStep) {
+        PhysicsSpaceMetrics stepMetrics = metrics;
+        long startNanos = 0L;
+        if (stepMetrics != null) {
+            startNanos = stepMetrics.postTickStarted();
+        }
+
+        invalidateMirroredTransforms();
+        if (!contactPairListeners.isEmpty()) {
+            pairTracker.stepEnded();
+        }
         for (PhysicsTickListener listener : tickListeners) {
             listener.physicsTick(this, timeStep);
         }
+
+        if (stepMetrics != null) {
+            stepMetrics.postTickEnded(startNanos);
+        }
     }
 
     /**
@@ -1189,11 +1438,19 @@ public class PhysicsSpace extends CollisionSpace {
      * @param timeStep the time per physics step (in seconds, &ge;0)
      */
     private void preTick_native(float timeStep) {
+        PhysicsSpaceMetrics stepMetrics = metrics;
+        long startNanos = 0L;
+        if (stepMetrics != null) {
+            startNanos = System.nanoTime();
+        }
+
+        int numTasks = 0;
         AppTask task;
         while ((task = pQueue.poll()) != null) {
             if (task.isCancelled()) {
                 continue;
             }
+            ++numTasks;
             try {
                 task.invoke();
             } catch (Exception exception) {
@@ -1201,9 +1458,17 @@ public class PhysicsSpace extends CollisionSpace {
             }
         }
 
+        long tasksEndNanos = 0L;
+        if (stepMetrics != null) {
+            tasksEndNanos = System.nanoTime();
+        }
         for (PhysicsTickListener listener : tickListeners) {
             listener.prePhysicsTick(this, timeStep);
         }
+
+        if (stepMetrics != null) {
+            stepMetrics.preTickEnded(startNanos, tasksEndNanos, numTasks);
+        }
     }
 
     /**
@@ -1228,6 +1493,7 @@ public class PhysicsSpace extends CollisionSpace {
         removeAction(spaceId, actionId);
 
         removeCharacterObject(spaceId, characterId);
+        reportRemoved(character);
     }
 
     /**
@@ -1260,6 +1526,7 @@ public class PhysicsSpace extends CollisionSpace {
         rigidMap.remove(rigidBodyId);
 
         removeRigidBody(spaceId, rigidBodyId);
+        reportRemoved(rigidBody);
     }
     // *************************************************************************
     // native private methods
@@ -0,0 +1,394 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import java.util.logging.Logger;
+
+/**
+ * Timing and count metrics for the steps and updates of a PhysicsSpace.
+ * <p>
+ * Attach an instance using {@link PhysicsSpace#setMetrics(
+ * com.jme3.bullet.PhysicsSpaceMetrics)}. Bullet's internal phases
+ * (broadphase, narrowphase, solver, and integration) run in a single native
+ * call, so they're timed together as "native step" time, measured from the
+ * end of the pre-tick callback to the start of the post-tick callback. The
+ * Java phases (task draining, tick listeners, and event distribution) are
+ * timed individually.
+ * <p>
+ * Broadphase pair counts and contact-manifold counts aren't recorded, because
+ * the native library provides no way to read them. The contact callbacks are
+ * counted instead. To inspect manifolds, use a {@link ContactManifoldDump}.
+ * <p>
+ * Metrics are recorded on the physics thread. Sampled values are volatile, so
+ * other threads may read them at any time, though values from different
+ * getters might describe different steps.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class PhysicsSpaceMetrics {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(PhysicsSpaceMetrics.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * number of contact-processed callbacks in the step in progress
+     */
+    private int pendingProcessed = 0;
+    /**
+     * number of contact-started callbacks in the step in progress
+     */
+    private int pendingStarted = 0;
+    /**
+     * number of steps in the update in progress
+     */
+    private int pendingSteps = 0;
+    /**
+     * number of contact-processed callbacks in the most recent step
+     */
+    private volatile int stepContactsProcessed = 0;
+    /**
+     * number of contact-started callbacks in the most recent step
+     */
+    private volatile int stepContactsStarted = 0;
+    /**
+     * number of tasks drained before the most recent step
+     */
+    private volatile int stepTasksDrained = 0;
+    /**
+     * number of steps in the most recent update
+     */
+    private volatile int updateSteps = 0;
+    /**
+     * number of events distributed by the most recent distribution
+     */
+    private volatile int eventsDistributed = 0;
+    /**
+     * value of System.nanoTime() when the native step in progress began
+     */
+    private long nativeStartNanos = 0L;
+    /**
+     * value of System.nanoTime() when the update in progress began
+     */
+    private long updateStartNanos = 0L;
+    /**
+     * duration of the most recent event distribution (in nanoseconds)
+     */
+    private volatile long distributeNanos = 0L;
+    /**
+     * duration of the most recent native step (in nanoseconds)
+     */
+    private volatile long stepNativeNanos = 0L;
+    /**
+     * duration of the post-tick listeners of the most recent step (in
+     * nanoseconds)
+     */
+    private volatile long stepPostTickNanos = 0L;
+    /**
+     * duration of the pre-tick listeners of the most recent step (in
+     * nanoseconds)
+     */
+    private volatile long stepPreTickNanos = 0L;
+    /**
+     * duration of task draining before the most recent step (in nanoseconds)
+     */
+    private volatile long stepTaskNanos = 0L;
+    /**
+     * total native-step time since the last reset (in nanoseconds)
+     */
+    private volatile long totalNativeNanos = 0L;
+    /**
+     * total steps since the last reset
+     */
+    private volatile long totalSteps = 0L;
+    /**
+     * total updates since the last reset
+     */
+    private volatile long totalUpdates = 0L;
+    /**
+     * duration of the most recent update (in nanoseconds)
+     */
+    private volatile long updateNanos = 0L;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Record a contact-processed callback.
+     */
+    void contactProcessed() {
+        ++pendingProcessed;
+    }
+
+    /**
+     * Record a contact-started callback.
+     */
+    void contactStarted() {
+        ++pendingStarted;
+    }
+
+    /**
+     * Record the completion of an event distribution.
+     *
+     * @param startNanos the value of System.nanoTime() when the distribution
+     * began
+     * @param numEvents the number of events distributed (&ge;0)
+     */
+    void distributeEnded(long startNanos, int numEvents) {
+        distributeNanos = System.nanoTime() - startNanos;
+        eventsDistributed = numEvents;
+    }
+
+    /**
+     * Read the duration of the most recent event distribution.
+     *
+     * @return the duration (in nanoseconds, &ge;0)
+     */
+    public long distributeNanos() {
+        return distributeNanos;
+    }
+
+    /**
+     * Count the events distributed by the most recent event distribution.
+     *
+     * @return the count (&ge;0)
+     */
+    public int eventsDistributed() {
+        return eventsDistributed;
+    }
+
+    /**
+     * Record the completion of the post-tick listeners.
+     *
+     * @param startNanos the value returned by the matching postTickStarted()
+     */
+    void postTickEnded(long startNanos) {
+        stepPostTickNanos = System.nanoTime() - startNanos;
+    }
+
+    /**
+     * Record the end of a native step and the start of its post-tick
+     * listeners.
+     *
+     * @return the value of System.nanoTime()
+     */
+    long postTickStarted() {
+        long now = System.nanoTime();
+        long nativeNanos = now - nativeStartNanos;
+        stepNativeNanos = nativeNanos;
+        totalNativeNanos += nativeNanos;
+        stepContactsProcessed = pendingProcessed;
+        stepContactsStarted = pendingStarted;
+        pendingProcessed = 0;
+        pendingStarted = 0;
+        ++pendingSteps;
+        ++totalSteps;
+
+        return now;
+    }
+
+    /**
+     * Record the completion of the pre-tick phase and the start of a native
+     * step.
+     *
+     * @param startNanos the value of System.nanoTime() when the pre-tick
+     * phase began
+     * @param tasksEndNanos the value of System.nanoTime() when task draining
+     * ended
+     * @param numTasks the number of tasks drained (&ge;0)
+     */
+    void preTickEnded(long startNanos, long tasksEndNanos, int numTasks) {
+        long now = System.nanoTime();
+        stepTaskNanos = tasksEndNanos - startNanos;
+        stepPreTickNanos = now - tasksEndNanos;
+        stepTasksDrained = numTasks;
+        nativeStartNanos = now;
+    }
+
+    /**
+     * Reset all metrics to zero.
+     */
+    public void reset() {
+        pendingProcessed = 0;
+        pendingStarted = 0;
+        pendingSteps = 0;
+        stepContactsProcessed = 0;
+        stepContactsStarted = 0;
+        stepTasksDrained = 0;
+        updateSteps = 0;
+        eventsDistributed = 0;
+        distributeNanos = 0L;
+        stepNativeNanos = 0L;
+        stepPostTickNanos = 0L;
+        stepPreTickNanos = 0L;
+        stepTaskNanos = 0L;
+        totalNativeNanos = 0L;
+        totalSteps = 0L;
+        totalUpdates = 0L;
+        updateNanos = 0L;
+    }
+
+    /**
+     * Count the contact-processed callbacks (from native code) during the most
+     * recent step.
+     *
+     * @return the count (&ge;0)
+     */
+    public int stepContactsProcessed() {
+        return stepContactsProcessed;
+    }
+
+    /**
+     * Count the contact-started callbacks (from native code) during the most
+     * recent step.
+     *
+     * @return the count (&ge;0)
+     */
+    public int stepContactsStarted() {
+        return stepContactsStarted;
+    }
+
+    /**
+     * Read the native duration of the most recent step, which includes
+     * collision detection, solving, and integration, plus any contact
+     * callbacks.
+     *
+     * @return the duration (in nanoseconds, &ge;0)
+     */
+    public long stepNativeNanos() {
+        return stepNativeNanos;
+    }
+
+    /**
+     * Read the duration of the post-tick listeners of the most recent step.
+     *
+     * @return the duration (in nanoseconds, &ge;0)
+     */
+    public long stepPostTickNanos() {
+        return stepPostTickNanos;
+    }
+
+    /**
+     * Read the duration of the pre-tick listeners of the most recent step.
+     *
+     * @return the duration (in nanoseconds, &ge;0)
+     */
+    public long stepPreTickNanos() {
+        return stepPreTickNanos;
+    }
+
+    /**
+     * Read the duration of task draining before the most recent step.
+     *
+     * @return the duration (in nanoseconds, &ge;0)
+     */
+    public long stepTaskNanos() {
+        return stepTaskNanos;
+    }
+
+    /**
+     * Count the physics tasks drained before the most recent step.
+     *
+     * @return the count (&ge;0)
+     */
+    public int stepTasksDrained() {
+        return stepTasksDrained;
+    }
+
+    /**
+     * Read the total native-step time since the last reset.
+     *
+     * @return the total (in nanoseconds, &ge;0)
+     */
+    public long totalNativeNanos() {
+        return totalNativeNanos;
+    }
+
+    /**
+     * Count the steps since the last reset.
+     *
+     * @return the count (&ge;0)
+     */
+    public long totalSteps() {
+        return totalSteps;
+    }
+
+    /**
+     * Count the updates since the last reset.
+     *
+     * @return the count (&ge;0)
+     */
+    public long totalUpdates() {
+        return totalUpdates;
+    }
+
+    /**
+     * Record the completion of an update.
+     */
+    void updateEnded() {
+        updateNanos = System.nanoTime() - updateStartNanos;
+        updateSteps = pendingSteps;
+        ++totalUpdates;
+    }
+
+    /**
+     * Read the duration of the most recent update, including all its steps
+     * and callbacks.
+     *
+     * @return the duration (in nanoseconds, &ge;0)
+     */
+    public long updateNanos() {
+        return updateNanos;
+    }
+
+    /**
+     * Record the start of an update.
+     */
+    void updateStarted() {
+        pendingSteps = 0;
+        updateStartNanos = System.nanoTime();
+    }
+
+    /**
+     * Count the steps in the most recent update.
+     *
+     * @return the count (&ge;0)
+     */
+    public int updateSteps() {
+        return updateSteps;
+    }
+}
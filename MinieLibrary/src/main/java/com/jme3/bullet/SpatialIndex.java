@@ -0,0 +1,849 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import com.jme3.bounding.BoundingBox;
+import com.jme3.bullet.collision.PcoType;
+import com.jme3.bullet.collision.PhysicsCollisionObject;
+import com.jme3.bullet.objects.MultiBodyCollider;
+import com.jme3.bullet.objects.PhysicsCharacter;
+import com.jme3.bullet.objects.PhysicsGhostObject;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.bullet.objects.PhysicsSoftBody;
+import com.jme3.math.Matrix3f;
+import com.jme3.math.Vector3f;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * A Java-side spatial index of the collision objects in a PhysicsSpace, for
+ * nearest-neighbor, radius, and bounding-box queries that don't involve JNI.
+ * <p>
+ * Each object is hashed into a uniform grid by its location. The locations
+ * and axis-aligned bounding boxes of all objects are read once after each
+ * simulation step; queries then use only the cached values, so they reflect
+ * the space as of the most recent step (or {@link #refresh()}). Objects whose
+ * bounding boxes extend more than one cell from their locations are also kept
+ * in a separate list that's scanned by every bounding-box query.
+ * <p>
+ * Queries filter by object type (a bitmask of {@link PcoType} values) and by
+ * collision group (a bitmask of groups, at least one of which must match).
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class SpatialIndex
+        implements CollisionSpaceListener, PhysicsTickListener {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of axes in a vector
+     */
+    final private static int numAxes = 3;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(SpatialIndex.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * true if the grid needs to be rebuilt before the next query
+     */
+    private boolean isGridStale = true;
+    /**
+     * cell size (in physics-space units, &gt;0)
+     */
+    final private float cellSize;
+    /**
+     * bounding box of each object (6 floats per object: min xyz, then max xyz)
+     */
+    private float[] bounds = new float[0];
+    /**
+     * squared distance of each candidate, for nearest-neighbor queries
+     */
+    private float[] candidateDistances = new float[0];
+    /**
+     * location of each object (3 floats per object)
+     */
+    private float[] locations = new float[0];
+    /**
+     * index of the first entry in sortedObjects for each bucket (one extra
+     * element at the end)
+     */
+    private int[] bucketStart = new int[1];
+    /**
+     * object index of each candidate, for nearest-neighbor queries
+     */
+    private int[] candidates = new int[0];
+    /**
+     * grid cell of each object (3 ints per object)
+     */
+    private int[] cells = new int[0];
+    /**
+     * minimum and maximum occupied cell on each axis: min xyz, then max xyz
+     */
+    final private int[] occupied = new int[2 * numAxes];
+    /**
+     * indices of oversized objects
+     */
+    private int[] oversized = new int[0];
+    /**
+     * object indices sorted by bucket
+     */
+    private int[] sortedObjects = new int[0];
+    /**
+     * PcoType of each object
+     */
+    private int[] types = new int[0];
+    /**
+     * number of objects in the index
+     */
+    private int numObjects = 0;
+    /**
+     * number of oversized objects
+     */
+    private int numOversized = 0;
+    /**
+     * indexed objects
+     */
+    private PhysicsCollisionObject[] objects = new PhysicsCollisionObject[0];
+    /**
+     * space being indexed (not null)
+     */
+    final private PhysicsSpace space;
+    /**
+     * reusable bounding box
+     */
+    final private BoundingBox tmpBox = new BoundingBox();
+    /**
+     * reusable rotation matrix
+     */
+    final private Matrix3f tmpRotation = new Matrix3f();
+    /**
+     * reusable location
+     */
+    final private Vector3f tmpLocation = new Vector3f();
+    /**
+     * reusable vector
+     */
+    final private Vector3f tmpVector = new Vector3f();
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an index of the specified space and register it as a
+     * membership listener and tick listener. The space's current objects are
+     * indexed immediately.
+     *
+     * @param space the space to index (not null, alias created)
+     * @param cellSize the size of each grid cell (in physics-space units,
+     * &gt;0, typically about the size of a typical object or query radius)
+     */
+    public SpatialIndex(PhysicsSpace space, float cellSize) {
+        Validate.nonNull(space, "space");
+        Validate.positive(cellSize, "cell size");
+
+        this.space = space;
+        this.cellSize = cellSize;
+        for (PhysicsCollisionObject pco : space.getPcoList()) {
+            add(pco);
+        }
+        space.addMembershipListener(this);
+        space.addTickListener(this);
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Count the objects in the index.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countObjects() {
+        return numObjects;
+    }
+
+    /**
+     * Unregister this index from its space and forget all objects.
+     */
+    public void destroy() {
+        space.removeMembershipListener(this);
+        space.removeTickListener(this);
+        Arrays.fill(objects, 0, numObjects, null);
+        numObjects = 0;
+        isGridStale = true;
+    }
+
+    /**
+     * Find the objects nearest to the specified location, based on their
+     * cached locations.
+     *
+     * @param location the query location (in physics-space coordinates, not
+     * null, unaffected)
+     * @param maxResults the maximum number of objects to find (&ge;0)
+     * @param pcoTypes a bitmask of the PcoType values to accept
+     * @param collisionGroups a bitmask of the collision groups to accept
+     * @param storeResult storage for the objects found, nearest first (not
+     * null, cleared, then added to)
+     * @return the number of objects found (&ge;0, &le;maxResults)
+     */
+    public int findNearest(Vector3f location, int maxResults, int pcoTypes,
+            int collisionGroups, List<PhysicsCollisionObject> storeResult) {
+        Validate.finite(location, "location");
+        Validate.nonNegative(maxResults, "maximum number of results");
+        Validate.nonNull(storeResult, "storage for results");
+
+        storeResult.clear();
+        updateGrid();
+        if (maxResults == 0 || numObjects == 0) {
+            return 0;
+        }
+        if (candidates.length < maxResults) {
+            candidates = new int[maxResults];
+            candidateDistances = new float[maxResults];
+        }
+
+        int cx = cellOf(location.x);
+        int cy = cellOf(location.y);
+        int cz = cellOf(location.z);
+        /*
+         * Skip rings that contain no occupied cells.
+         */
+        int firstRing = 0;
+        int[] queryCell = {cx, cy, cz};
+        for (int axis = 0; axis < numAxes; ++axis) {
+            int gap = Math.max(occupied[axis] - queryCell[axis],
+                    queryCell[axis] - occupied[axis + numAxes]);
+            firstRing = Math.max(firstRing, gap);
+        }
+
+        int numFound = 0;
+        for (int ring = firstRing;; ++ring) {
+            int xMin = Math.max(cx - ring, occupied[0]);
+            int xMax = Math.min(cx + ring, occupied[3]);
+            int yMin = Math.max(cy - ring, occupied[1]);
+            int yMax = Math.min(cy + ring, occupied[4]);
+            int zMin = Math.max(cz - ring, occupied[2]);
+            int zMax = Math.min(cz + ring, occupied[5]);
+            for (int x = xMin; x <= xMax; ++x) {
+                boolean xEdge = Math.abs(x - cx) == ring;
+                for (int y = yMin; y <= yMax; ++y) {
+                    boolean onShell = xEdge || Math.abs(y - cy) == ring;
+                    int zStep = onShell ? 1 : 2 * ring;
+                    for (int z = cz - ring; z <= cz + ring; z += zStep) {
+                        if (z >= zMin && z <= zMax) {
+                            numFound = nearestInCell(x, y, z, location,
+                                    maxResults, pcoTypes, collisionGroups,
+                                    numFound);
+                        }
+                    }
+                }
+            }
+            /*
+             * Unvisited cells are at least ring*cellSize from the location.
+             */
+            float reach = ring * cellSize;
+            if (numFound == maxResults
+                    && candidateDistances[numFound - 1] <= reach * reach) {
+                break;
+            }
+            if (cx - ring <= occupied[0] && cx + ring >= occupied[3]
+                    && cy - ring <= occupied[1] && cy + ring >= occupied[4]
+                    && cz - ring <= occupied[2] && cz + ring >= occupied[5]) {
+                break;
+            }
+        }
+
+        for (int i = 0; i < numFound; ++i) {
+            storeResult.add(objects[candidates[i]]);
+        }
+
+        return numFound;
+    }
+
+    /**
+     * Find the objects whose cached bounding boxes overlap the specified
+     * axis-aligned box.
+     *
+     * @param min the minimum corner of the box (in physics-space coordinates,
+     * not null, unaffected)
+     * @param max the maximum corner of the box (in physics-space coordinates,
+     * not null, unaffected)
+     * @param pcoTypes a bitmask of the PcoType values to accept
+     * @param collisionGroups a bitmask of the collision groups to accept
+     * @param storeResult storage for the objects found (not null, cleared,
+     * then added to)
+     * @return the number of objects found (&ge;0)
+     */
+    public int findOverlapping(Vector3f min, Vector3f max, int pcoTypes,
+            int collisionGroups, List<PhysicsCollisionObject> storeResult) {
+        Validate.finite(min, "min");
+        Validate.finite(max, "max");
+        Validate.nonNull(storeResult, "storage for results");
+
+        storeResult.clear();
+        updateGrid();
+        /*
+         * Objects that aren't oversized extend at most one cell
+         * from their locations.
+         */
+        int[] range = {
+            cellOf(min.x - cellSize), cellOf(min.y - cellSize),
+            cellOf(min.z - cellSize), cellOf(max.x + cellSize),
+            cellOf(max.y + cellSize), cellOf(max.z + cellSize)
+        };
+        if (clampRange(range)) {
+            for (int x = range[0]; x <= range[3]; ++x) {
+                for (int y = range[1]; y <= range[4]; ++y) {
+                    for (int z = range[2]; z <= range[5]; ++z) {
+                        int bucket = bucketOf(x, y, z);
+                        int end = bucketStart[bucket + 1];
+                        for (int j = bucketStart[bucket]; j < end; ++j) {
+                            int i = sortedObjects[j];
+                            if (isInCell(i, x, y, z) && !isOversized(i)) {
+                                addIfOverlapping(i, min, max, pcoTypes,
+                                        collisionGroups, storeResult);
+                            }
+                        }
+                    }
+                }
+            }
+        } else {
+            for (int i = 0; i < numObjects; ++i) {
+                if (!isOversized(i)) {
+                    addIfOverlapping(i, min, max, pcoTypes, collisionGroups,
+                            storeResult);
+                }
+            }
+        }
+
+        for (int j = 0; j < numOversized; ++j) {
+            addIfOverlapping(oversized[j], min, max, pcoTypes,
+                    collisionGroups, storeResult);
+        }
+
+        int result = storeResult.size();
+        return result;
+    }
+
+    /**
+     * Find the objects whose cached locations lie within the specified
+     * distance of the specified location.
+     *
+     * @param center the query location (in physics-space coordinates, not
+     * null, unaffected)
+     * @param radius the maximum distance (in physics-space units, &ge;0)
+     * @param pcoTypes a bitmask of the PcoType values to accept
+     * @param collisionGroups a bitmask of the collision groups to accept
+     * @param storeResult storage for the objects found (not null, cleared,
+     * then added to)
+     * @return the number of objects found (&ge;0)
+     */
+    public int findWithinRadius(Vector3f center, float radius, int pcoTypes,
+            int collisionGroups, List<PhysicsCollisionObject> storeResult) {
+        Validate.finite(center, "center");
+        Validate.nonNegative(radius, "radius");
+        Validate.nonNull(storeResult, "storage for results");
+
+        storeResult.clear();
+        updateGrid();
+
+        float radiusSquared = radius * radius;
+        int[] range = {
+            cellOf(center.x - radius), cellOf(center.y - radius),
+            cellOf(center.z - radius), cellOf(center.x + radius),
+            cellOf(center.y + radius), cellOf(center.z + radius)
+        };
+        if (clampRange(range)) {
+            for (int x = range[0]; x <= range[3]; ++x) {
+                for (int y = range[1]; y <= range[4]; ++y) {
+                    for (int z = range[2]; z <= range[5]; ++z) {
+                        int bucket = bucketOf(x, y, z);
+                        int end = bucketStart[bucket + 1];
+                        for (int j = bucketStart[bucket]; j < end; ++j) {
+                            int i = sortedObjects[j];
+                            if (isInCell(i, x, y, z)
+                                    && isAccepted(i, pcoTypes, collisionGroups)
+                                    && distanceSquared(i, center)
+                                    <= radiusSquared) {
+                                storeResult.add(objects[i]);
+                            }
+                        }
+                    }
+                }
+            }
+        } else {
+            for (int i = 0; i < numObjects; ++i) {
+                if (isAccepted(i, pcoTypes, collisionGroups)
+                        && distanceSquared(i, center) <= radiusSquared) {
+                    storeResult.add(objects[i]);
+                }
+            }
+        }
+
+        int result = storeResult.size();
+        return result;
+    }
+
+    /**
+     * Determine the size of each grid cell.
+     *
+     * @return the size (in physics-space units, &gt;0)
+     */
+    public float getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * Access the space being indexed.
+     *
+     * @return the pre-existing instance (not null)
+     */
+    public PhysicsSpace getSpace() {
+        return space;
+    }
+
+    /**
+     * Re-read the location and bounding box of every object. This happens
+     * automatically after each simulation step; invoke it explicitly after
+     * moving objects between steps.
+     */
+    public void refresh() {
+        for (int i = 0; i < numObjects; ++i) {
+            readObject(i);
+        }
+        isGridStale = true;
+    }
+    // *************************************************************************
+    // CollisionSpaceListener methods
+
+    /**
+     * Index an object added to the space.
+     *
+     * @param space the space that was modified (not null)
+     * @param pco the object that was added (not null)
+     */
+    @Override
+    public void objectAdded(CollisionSpace space, PhysicsCollisionObject pco) {
+        add(pco);
+    }
+
+    /**
+     * Remove an object from the index.
+     *
+     * @param space the space that was modified (not null)
+     * @param pco the object that was removed (not null)
+     */
+    @Override
+    public void objectRemoved(CollisionSpace space,
+            PhysicsCollisionObject pco) {
+        for (int i = 0; i < numObjects; ++i) {
+            if (objects[i] == pco) {
+                /*
+                 * Move the last object into the vacated slot.
+                 */
+                int last = numObjects - 1;
+                objects[i] = objects[last];
+                objects[last] = null;
+                types[i] = types[last];
+                System.arraycopy(locations, numAxes * last, locations,
+                        numAxes * i, numAxes);
+                System.arraycopy(cells, numAxes * last, cells, numAxes * i,
+                        numAxes);
+                System.arraycopy(bounds, 2 * numAxes * last, bounds,
+                        2 * numAxes * i, 2 * numAxes);
+                numObjects = last;
+                isGridStale = true;
+                break;
+            }
+        }
+    }
+    // *************************************************************************
+    // PhysicsTickListener methods
+
+    /**
+     * Callback from Bullet, invoked just before the physics is stepped.
+     *
+     * @param space the space that is about to be stepped (not null)
+     * @param timeStep the time per physics step (in seconds, &ge;0)
+     */
+    @Override
+    public void prePhysicsTick(PhysicsSpace space, float timeStep) {
+        // do nothing
+    }
+
+    /**
+     * Re-read every object after a simulation step.
+     *
+     * @param space the space that was just stepped (not null)
+     * @param timeStep the time per physics step (in seconds, &ge;0)
+     */
+    @Override
+    public void physicsTick(PhysicsSpace space, float timeStep) {
+        refresh();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Append the specified object to the index.
+     *
+     * @param pco the object to add (not null)
+     */
+    private void add(PhysicsCollisionObject pco) {
+        if (numObjects == objects.length) {
+            int capacity = Math.max(16, 2 * numObjects);
+            objects = Arrays.copyOf(objects, capacity);
+            types = Arrays.copyOf(types, capacity);
+            locations = Arrays.copyOf(locations, numAxes * capacity);
+            cells = Arrays.copyOf(cells, numAxes * capacity);
+            bounds = Arrays.copyOf(bounds, 2 * numAxes * capacity);
+        }
+
+        int index = numObjects;
+        ++numObjects;
+        objects[index] = pco;
+        types[index] = typeOf(pco);
+        readObject(index);
+        isGridStale = true;
+    }
+
+    /**
+     * Add the indexed object to the specified list if it's accepted and its
+     * bounding box overlaps the specified box.
+     *
+     * @param i the object index (&ge;0, &lt;numObjects)
+     * @param min the minimum corner of the box (not null, unaffected)
+     * @param max the maximum corner of the box (not null, unaffected)
+     * @param pcoTypes a bitmask of the PcoType values to accept
+     * @param collisionGroups a bitmask of the collision groups to accept
+     * @param storeResult the list to add to (not null, modified)
+     */
+    private void addIfOverlapping(int i, Vector3f min, Vector3f max,
+            int pcoTypes, int collisionGroups,
+            List<PhysicsCollisionObject> storeResult) {
+        int offset = 2 * numAxes * i;
+        if (bounds[offset] <= max.x && bounds[offset + 3] >= min.x
+                && bounds[offset + 1] <= max.y && bounds[offset + 4] >= min.y
+                && bounds[offset + 2] <= max.z && bounds[offset + 5] >= min.z
+                && isAccepted(i, pcoTypes, collisionGroups)) {
+            storeResult.add(objects[i]);
+        }
+    }
+
+    /**
+     * Determine which hash bucket contains the specified cell.
+     *
+     * @param x the cell's X index
+     * @param y the cell's Y index
+     * @param z the cell's Z index
+     * @return the bucket index (&ge;0, &lt;number of buckets)
+     */
+    private int bucketOf(int x, int y, int z) {
+        int hash = (x * 73856093) ^ (y * 19349663) ^ (z * 83492791);
+        int numBuckets = bucketStart.length - 1;
+        int result = hash & (numBuckets - 1);
+
+        return result;
+    }
+
+    /**
+     * Determine the cell index of the specified coordinate.
+     *
+     * @param coordinate the coordinate (in physics-space units)
+     * @return the cell index
+     */
+    private int cellOf(float coordinate) {
+        int result = (int) Math.floor(coordinate / cellSize);
+        return result;
+    }
+
+    /**
+     * Clamp the specified cell range to the occupied cells and decide whether
+     * visiting the range is cheaper than scanning every object.
+     *
+     * @param range the cell range: min xyz, then max xyz (not null, modified)
+     * @return true to visit the range, false to scan every object
+     */
+    private boolean clampRange(int[] range) {
+        long numCells = 1L;
+        for (int axis = 0; axis < numAxes; ++axis) {
+            range[axis] = Math.max(range[axis], occupied[axis]);
+            range[axis + numAxes]
+                    = Math.min(range[axis + numAxes], occupied[axis + numAxes]);
+            long width = range[axis + numAxes] - range[axis] + 1L;
+            numCells *= Math.max(width, 0L);
+        }
+        boolean result = numCells <= numObjects;
+
+        return result;
+    }
+
+    /**
+     * Calculate the squared distance from the cached location of the indexed
+     * object to the specified location.
+     *
+     * @param i the object index (&ge;0, &lt;numObjects)
+     * @param location the location (not null, unaffected)
+     * @return the squared distance (&ge;0)
+     */
+    private float distanceSquared(int i, Vector3f location) {
+        int offset = numAxes * i;
+        float dx = locations[offset] - location.x;
+        float dy = locations[offset + 1] - location.y;
+        float dz = locations[offset + 2] - location.z;
+        float result = dx * dx + dy * dy + dz * dz;
+
+        return result;
+    }
+
+    /**
+     * Test whether the indexed object passes the specified filters.
+     *
+     * @param i the object index (&ge;0, &lt;numObjects)
+     * @param pcoTypes a bitmask of the PcoType values to accept
+     * @param collisionGroups a bitmask of the collision groups to accept
+     * @return true if accepted, otherwise false
+     */
+    private boolean isAccepted(int i, int pcoTypes, int collisionGroups) {
+        boolean result = (types[i] & pcoTypes) != 0x0
+                && (objects[i].getCollisionGroup() & collisionGroups) != 0x0;
+        return result;
+    }
+
+    /**
+     * Test whether the indexed object lies in the specified cell.
+     *
+     * @param i the object index (&ge;0, &lt;numObjects)
+     * @param x the cell's X index
+     * @param y the cell's Y index
+     * @param z the cell's Z index
+     * @return true if it does, otherwise false
+     */
+    private boolean isInCell(int i, int x, int y, int z) {
+        int offset = numAxes * i;
+        boolean result = cells[offset] == x && cells[offset + 1] == y
+                && cells[offset + 2] == z;
+
+        return result;
+    }
+
+    /**
+     * Test whether the bounding box of the indexed object extends more than
+     * one cell from its location.
+     *
+     * @param i the object index (&ge;0, &lt;numObjects)
+     * @return true if oversized, otherwise false
+     */
+    private boolean isOversized(int i) {
+        int boundsOffset = 2 * numAxes * i;
+        int locationOffset = numAxes * i;
+        for (int axis = 0; axis < numAxes; ++axis) {
+            float location = locations[locationOffset + axis];
+            if (location - bounds[boundsOffset + axis] > cellSize
+                    || bounds[boundsOffset + numAxes + axis] - location
+                    > cellSize) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Consider the accepted objects in the specified cell as candidates for a
+     * nearest-neighbor query.
+     *
+     * @param x the cell's X index
+     * @param y the cell's Y index
+     * @param z the cell's Z index
+     * @param location the query location (not null, unaffected)
+     * @param maxResults the maximum number of candidates (&gt;0)
+     * @param pcoTypes a bitmask of the PcoType values to accept
+     * @param collisionGroups a bitmask of the collision groups to accept
+     * @param numFound the number of candidates so far (&ge;0)
+     * @return the new number of candidates
+     */
+    private int nearestInCell(int x, int y, int z, Vector3f location,
+            int maxResults, int pcoTypes, int collisionGroups, int numFound) {
+        int result = numFound;
+        int bucket = bucketOf(x, y, z);
+        int end = bucketStart[bucket + 1];
+        for (int j = bucketStart[bucket]; j < end; ++j) {
+            int i = sortedObjects[j];
+            if (!isInCell(i, x, y, z)
+                    || !isAccepted(i, pcoTypes, collisionGroups)) {
+                continue;
+            }
+            float distanceSquared = distanceSquared(i, location);
+            if (result == maxResults) {
+                if (distanceSquared >= candidateDistances[result - 1]) {
+                    continue;
+                }
+                --result; // discard the farthest candidate
+            }
+            /*
+             * Insert the new candidate, keeping the candidates sorted.
+             */
+            int slot = result;
+            while (slot > 0 && candidateDistances[slot - 1] > distanceSquared) {
+                candidates[slot] = candidates[slot - 1];
+                candidateDistances[slot] = candidateDistances[slot - 1];
+                --slot;
+            }
+            candidates[slot] = i;
+            candidateDistances[slot] = distanceSquared;
+            ++result;
+        }
+
+        return result;
+    }
+
+    /**
+     * Read the location and bounding box of the indexed object.
+     *
+     * @param i the object index (&ge;0, &lt;numObjects)
+     */
+    private void readObject(int i) {
+        PhysicsCollisionObject pco = objects[i];
+        pco.getPhysicsLocation(tmpLocation);
+        pco.getPhysicsRotationMatrix(tmpRotation);
+        pco.getCollisionShape()
+                .boundingBox(tmpLocation, tmpRotation, tmpBox);
+
+        int offset = numAxes * i;
+        locations[offset] = tmpLocation.x;
+        locations[offset + 1] = tmpLocation.y;
+        locations[offset + 2] = tmpLocation.z;
+        cells[offset] = cellOf(tmpLocation.x);
+        cells[offset + 1] = cellOf(tmpLocation.y);
+        cells[offset + 2] = cellOf(tmpLocation.z);
+
+        offset = 2 * numAxes * i;
+        tmpBox.getMin(tmpVector);
+        bounds[offset] = tmpVector.x;
+        bounds[offset + 1] = tmpVector.y;
+        bounds[offset + 2] = tmpVector.z;
+        tmpBox.getMax(tmpVector);
+        bounds[offset + 3] = tmpVector.x;
+        bounds[offset + 4] = tmpVector.y;
+        bounds[offset + 5] = tmpVector.z;
+    }
+
+    /**
+     * Determine the PcoType of the specified object.
+     *
+     * @param pco the object to classify (not null, unaffected)
+     * @return a PcoType value
+     */
+    private static int typeOf(PhysicsCollisionObject pco) {
+        int result;
+        if (pco instanceof PhysicsRigidBody) {
+            result = PcoType.rigid;
+        } else if (pco instanceof PhysicsGhostObject
+                || pco instanceof PhysicsCharacter) {
+            result = PcoType.ghost;
+        } else if (pco instanceof PhysicsSoftBody) {
+            result = PcoType.soft;
+        } else if (pco instanceof MultiBodyCollider) {
+            result = PcoType.collider;
+        } else {
+            result = PcoType.generic;
+        }
+
+        return result;
+    }
+
+    /**
+     * Rebuild the grid from the cached locations, if it's stale.
+     */
+    private void updateGrid() {
+        if (!isGridStale) {
+            return;
+        }
+        isGridStale = false;
+
+        int numBuckets = 64;
+        while (numBuckets < numObjects) {
+            numBuckets <<= 1;
+        }
+        if (bucketStart.length != numBuckets + 1) {
+            bucketStart = new int[numBuckets + 1];
+        } else {
+            Arrays.fill(bucketStart, 0);
+        }
+        if (sortedObjects.length < numObjects) {
+            sortedObjects = new int[objects.length];
+            oversized = new int[objects.length];
+        }
+        Arrays.fill(occupied, 0, numAxes, Integer.MAX_VALUE);
+        Arrays.fill(occupied, numAxes, 2 * numAxes, Integer.MIN_VALUE);
+        /*
+         * Count the objects in each bucket and find the occupied range.
+         */
+        numOversized = 0;
+        for (int i = 0; i < numObjects; ++i) {
+            int offset = numAxes * i;
+            for (int axis = 0; axis < numAxes; ++axis) {
+                int cell = cells[offset + axis];
+                occupied[axis] = Math.min(occupied[axis], cell);
+                occupied[axis + numAxes]
+                        = Math.max(occupied[axis + numAxes], cell);
+            }
+            int bucket = bucketOf(cells[offset], cells[offset + 1],
+                    cells[offset + 2]);
+            ++bucketStart[bucket + 1];
+            if (isOversized(i)) {
+                oversized[numOversized] = i;
+                ++numOversized;
+            }
+        }
+        /*
+         * Convert counts to start indices, then distribute the objects.
+         */
+        for (int bucket = 0; bucket < numBuckets; ++bucket) {
+            bucketStart[bucket + 1] += bucketStart[bucket];
+        }
+        int[] fill = Arrays.copyOf(bucketStart, numBuckets);
+        for (int i = 0; i < numObjects; ++i) {
+            int offset = numAxes * i;
+            int bucket = bucketOf(cells[offset], cells[offset + 1],
+                    cells[offset + 2]);
+            sortedObjects[fill[bucket]] = i;
+            ++fill[bucket];
+        }
+    }
+}
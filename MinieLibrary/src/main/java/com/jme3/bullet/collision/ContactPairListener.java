@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.collision;
+
+/**
+ * Interface to receive pair-level notifications when 2 collision objects in a
+ * PhysicsSpace start touching, keep touching, or stop touching.
+ * <p>
+ * A pair touches during a simulation step if the step processes at least one
+ * contact point between its objects. A touching pair whose objects are both
+ * deactivated (or static) keeps touching, even though Bullet skips its
+ * contacts, until one of them is activated or removed. Notifications are
+ * queued after each step and delivered in bulk during distributeEvents(), in
+ * the order the steps occurred.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ * @see
+ * com.jme3.bullet.PhysicsSpace#addContactPairListener(ContactPairListener)
+ */
+public interface ContactPairListener {
+    /**
+     * Callback to report a pair that touched during a step but not during the
+     * preceding step.
+     *
+     * @param pcoA the first object of the pair (not null)
+     * @param pcoB the 2nd object of the pair (not null)
+     */
+    void pairBegan(PhysicsCollisionObject pcoA, PhysicsCollisionObject pcoB);
+
+    /**
+     * Callback to report a pair that touched during the preceding step but
+     * not during the most recent one. Also invoked after an object of the pair
+     * is removed from the space.
+     *
+     * @param pcoA the first object of the pair (not null)
+     * @param pcoB the 2nd object of the pair (not null)
+     */
+    void pairEnded(PhysicsCollisionObject pcoA, PhysicsCollisionObject pcoB);
+
+    /**
+     * Callback to report a pair that touched during both a step and the
+     * preceding step.
+     *
+     * @param pcoA the first object of the pair (not null)
+     * @param pcoB the 2nd object of the pair (not null)
+     */
+    void pairPersisted(PhysicsCollisionObject pcoA,
+            PhysicsCollisionObject pcoB);
+}
@@ -173,9 +173,34 @@ abstract public class PhysicsCollisionObject
     final private static String tagRollingFriction = "rollingFriction";
     final private static String tagSpinningFriction = "spinningFriction";
     final private static String tagUserObject = "userObject";
+    /**
+     * indices of mirrored scalar properties
+     */
+    final private static int mirrorCcdMotionThreshold = 0;
+    final private static int mirrorCcdSweptSphereRadius = 1;
+    final private static int mirrorContactDamping = 2;
+    final private static int mirrorContactProcessingThreshold = 3;
+    final private static int mirrorContactStiffness = 4;
+    final private static int mirrorFriction = 5;
+    final private static int mirrorRestitution = 6;
+    final private static int mirrorRollingFriction = 7;
+    final private static int mirrorSpinningFriction = 8;
+    /**
+     * number of mirrored scalar properties
+     */
+    final private static int numMirroredScalars = 9;
     // *************************************************************************
     // fields
 
+    /**
+     * true if mirrored properties are verified against native state on each
+     * read, otherwise false
+     */
+    private static volatile boolean strictMirroring = false;
+    /**
+     * space whose simulation may move this object, or null if none
+     */
+    private CollisionSpace mirrorSpace = null;
     /**
      * shape of this object, or null if none
      */
@@ -204,6 +229,15 @@ abstract public class PhysicsCollisionObject
      * number of visible sides for default debug materials (&ge;0, &le;2)
      */
     private int debugNumSides = 1;
+    /**
+     * mirrored scalar properties, or null if mirroring is disabled
+     */
+    private float[] mirroredScalars = null;
+    /**
+     * transform epoch of mirrorSpace (or 0 if none) when the mirrored
+     * transform was read, or -1 if it's stale
+     */
+    private long mirroredEpoch = -1L;
     /**
      * custom material for the debug shape, or null to use the default material
      */
@@ -219,6 +253,16 @@ abstract public class PhysicsCollisionObject
      * controls.
      */
     private Object userObject = null;
+    /**
+     * mirrored orientation (in physics-space coordinates), or null if
+     * mirroring is disabled
+     */
+    private Quaternion mirroredRotation = null;
+    /**
+     * mirrored location of the center (in physics-space coordinates), or null
+     * if mirroring is disabled
+     */
+    private Vector3f mirroredLocation = null;
     // *************************************************************************
     // new methods exposed
 
@@ -448,6 +492,10 @@ abstract public class PhysicsCollisionObject
      * physics-space units, &ge;0)
      */
     public float getCcdMotionThreshold() {
+        if (mirroredScalars != null) {
+            return mirroredScalar(mirrorCcdMotionThreshold);
+        }
+
         long objectId = nativeId();
         float distance = getCcdMotionThreshold(objectId);
 
@@ -474,6 +522,10 @@ abstract public class PhysicsCollisionObject
      * @return the radius (in physics-space units, &ge;0)
      */
     public float getCcdSweptSphereRadius() {
+        if (mirroredScalars != null) {
+            return mirroredScalar(mirrorCcdSweptSphereRadius);
+        }
+
         long objectId = nativeId();
         float radius = getCcdSweptSphereRadius(objectId);
 
@@ -532,6 +584,10 @@ abstract public class PhysicsCollisionObject
      * @return the damping
      */
     public float getContactDamping() {
+        if (mirroredScalars != null) {
+            return mirroredScalar(mirrorContactDamping);
+        }
+
         long objectId = nativeId();
         float damping = getContactDamping(objectId);
 
@@ -545,6 +601,10 @@ abstract public class PhysicsCollisionObject
      * @return the threshold distance (in physics-space units)
      */
     public float getContactProcessingThreshold() {
+        if (mirroredScalars != null) {
+            return mirroredScalar(mirrorContactProcessingThreshold);
+        }
+
         long objectId = nativeId();
         float distance = getContactProcessingThreshold(objectId);
 
@@ -557,6 +617,10 @@ abstract public class PhysicsCollisionObject
      * @return the stiffness
      */
     public float getContactStiffness() {
+        if (mirroredScalars != null) {
+            return mirroredScalar(mirrorContactStiffness);
+        }
+
         long objectId = nativeId();
         float stiffness = getContactStiffness(objectId);
 
@@ -590,6 +654,10 @@ abstract public class PhysicsCollisionObject
      * @return the parameter value (&ge;0)
      */
     public float getFriction() {
+        if (mirroredScalars != null) {
+            return mirroredScalar(mirrorFriction);
+        }
+
         long objectId = nativeId();
         float result = getFriction(objectId);
 
@@ -625,8 +693,13 @@ abstract public class PhysicsCollisionObject
     public Vector3f getPhysicsLocation(Vector3f storeResult) {
         Vector3f result = (storeResult == null) ? new Vector3f() : storeResult;
 
-        long objectId = nativeId();
-        getLocation(objectId, result);
+        if (mirroredLocation != null) {
+            updateMirroredTransform();
+            result.set(mirroredLocation);
+        } else {
+            long objectId = nativeId();
+            getLocation(objectId, result);
+        }
 
         assert Vector3f.isValidVector(result);
         return result;
@@ -643,8 +716,13 @@ abstract public class PhysicsCollisionObject
         Quaternion result
                 = (storeResult == null) ? new Quaternion() : storeResult;
 
-        long objectId = nativeId();
-        getOrientation(objectId, result);
+        if (mirroredRotation != null) {
+            updateMirroredTransform();
+            result.set(mirroredRotation);
+        } else {
+            long objectId = nativeId();
+            getOrientation(objectId, result);
+        }
 
         return result;
     }
@@ -673,6 +751,10 @@ abstract public class PhysicsCollisionObject
      * @return restitution value
      */
     public float getRestitution() {
+        if (mirroredScalars != null) {
+            return mirroredScalar(mirrorRestitution);
+        }
+
         long objectId = nativeId();
         float result = getRestitution(objectId);
 
@@ -685,6 +767,10 @@ abstract public class PhysicsCollisionObject
      * @return friction value
      */
     public float getRollingFriction() {
+        if (mirroredScalars != null) {
+            return mirroredScalar(mirrorRollingFriction);
+        }
+
         long objectId = nativeId();
         float result = getRollingFriction(objectId);
 
@@ -709,6 +795,10 @@ abstract public class PhysicsCollisionObject
      * @return friction value
      */
     public float getSpinningFriction() {
+        if (mirroredScalars != null) {
+            return mirroredScalar(mirrorSpinningFriction);
+        }
+
         long objectId = nativeId();
         float result = getSpinningFriction(objectId);
 
@@ -824,6 +914,17 @@ abstract public class PhysicsCollisionObject
         return result;
     }
 
+    /**
+     * Test whether this object mirrors its properties in Java.
+     *
+     * @return true if mirroring, otherwise false
+     * @see #setMirroring(boolean)
+     */
+    public boolean isMirroring() {
+        boolean result = (mirroredScalars != null);
+        return result;
+    }
+
     /**
      * Test whether this object is static (immobile).
      *
@@ -837,6 +938,16 @@ abstract public class PhysicsCollisionObject
         return result;
     }
 
+    /**
+     * Test whether mirrored properties are verified against native state on
+     * each read.
+     *
+     * @return true if strict, otherwise false
+     */
+    public static boolean isStrictMirroring() {
+        return strictMirroring;
+    }
+
     /**
      * Enumerate the native IDs of all collision objects in this object's ignore
      * list.
@@ -921,6 +1032,23 @@ abstract public class PhysicsCollisionObject
         }
     }
 
+    /**
+     * Alter this object's activation state (native field: m_activationState1).
+     * Bullet ignores the request if the object is exempt from deactivation or
+     * disabled.
+     *
+     * @param state the desired state (&ge;Activation.firstValue,
+     * &le;Activation.lastValue)
+     * @see Activation
+     */
+    public void setActivationState(int state) {
+        Validate.inRange(state, "state", Activation.firstValue,
+                Activation.lastValue);
+
+        long objectId = nativeId();
+        setActivationState(objectId, state);
+    }
+
     /**
      * Alter this object's anisotropic friction (native field:
      * m_anisotropicFriction).
@@ -963,6 +1091,7 @@ abstract public class PhysicsCollisionObject
     public void setCcdMotionThreshold(float threshold) {
         long objectId = nativeId();
         setCcdMotionThreshold(objectId, threshold);
+        refreshMirror(mirrorCcdMotionThreshold);
     }
 
     /**
@@ -974,6 +1103,7 @@ abstract public class PhysicsCollisionObject
     public void setCcdSweptSphereRadius(float radius) {
         long objectId = nativeId();
         setCcdSweptSphereRadius(objectId, radius);
+        refreshMirror(mirrorCcdSweptSphereRadius);
     }
 
     /**
@@ -1029,6 +1159,8 @@ abstract public class PhysicsCollisionObject
         long objectId = nativeId();
         float stiffness = getContactStiffness(objectId);
         setContactStiffnessAndDamping(objectId, stiffness, damping);
+        refreshMirror(mirrorContactDamping);
+        refreshMirror(mirrorContactStiffness);
     }
 
     /**
@@ -1041,6 +1173,7 @@ abstract public class PhysicsCollisionObject
     public void setContactProcessingThreshold(float distance) {
         long objectId = nativeId();
         setContactProcessingThreshold(objectId, distance);
+        refreshMirror(mirrorContactProcessingThreshold);
     }
 
     /**
@@ -1053,6 +1186,8 @@ abstract public class PhysicsCollisionObject
         long objectId = nativeId();
         float damping = getContactDamping(objectId);
         setContactStiffnessAndDamping(objectId, stiffness, damping);
+        refreshMirror(mirrorContactDamping);
+        refreshMirror(mirrorContactStiffness);
     }
 
     /**
@@ -1130,6 +1265,41 @@ abstract public class PhysicsCollisionObject
 
         long objectId = nativeId();
         setFriction(objectId, friction);
+        refreshMirror(mirrorFriction);
+    }
+
+    /**
+     * Alter whether this object mirrors its properties in Java, to avoid
+     * native calls when they are read.
+     * <p>
+     * Mirrored scalar properties (CCD parameters, contact parameters,
+     * friction, and restitution) are cached when set. The location and
+     * orientation are cached on first read after each simulation step, so
+     * repeated reads between steps don't query the native object. Soft bodies
+     * compute their location and orientation in Java and don't use the mirror.
+     * <p>
+     * Transforms altered by means other than simulation and this object's own
+     * setters (for instance, by a MultiBody) can't be detected. Enable strict
+     * mirroring in tests to catch such cases.
+     *
+     * @param enable true to mirror, false to always read native state
+     * (default=false)
+     */
+    public void setMirroring(boolean enable) {
+        if (enable && mirroredScalars == null) {
+            mirroredScalars = new float[numMirroredScalars];
+            for (int index = 0; index < numMirroredScalars; ++index) {
+                refreshMirror(index);
+            }
+            mirroredLocation = new Vector3f();
+            mirroredRotation = new Quaternion();
+            mirroredEpoch = -1L;
+
+        } else if (!enable) {
+            mirroredScalars = null;
+            mirroredLocation = null;
+            mirroredRotation = null;
+        }
     }
 
     /**
@@ -1141,6 +1311,7 @@ abstract public class PhysicsCollisionObject
     public void setRestitution(float restitution) {
         long objectId = nativeId();
         setRestitution(objectId, restitution);
+        refreshMirror(mirrorRestitution);
     }
 
     /**
@@ -1153,6 +1324,7 @@ abstract public class PhysicsCollisionObject
     public void setRollingFriction(float friction) {
         long objectId = nativeId();
         setRollingFriction(objectId, friction);
+        refreshMirror(mirrorRollingFriction);
     }
 
     /**
@@ -1164,6 +1336,32 @@ abstract public class PhysicsCollisionObject
     public void setSpinningFriction(float friction) {
         long objectId = nativeId();
         setSpinningFriction(objectId, friction);
+        refreshMirror(mirrorSpinningFriction);
+    }
+
+    /**
+     * Alter which space's simulation may move this object, and discard its
+     * mirrored transform. Invoked by CollisionSpace after this object is added
+     * to or removed from a space. For internal use only.
+     *
+     * @param space the space that now contains this object, or null if none
+     */
+    public void setMirrorSpace(CollisionSpace space) {
+        assert space == null || space.contains(this);
+
+        mirrorSpace = space;
+        mirroredEpoch = -1L;
+    }
+
+    /**
+     * Alter whether mirrored properties are verified against native state on
+     * each read. A mismatch causes an IllegalStateException. Strict mode
+     * negates the performance benefit of mirroring and is intended for tests.
+     *
+     * @param strict true to verify, false to trust the mirror (default=false)
+     */
+    public static void setStrictMirroring(boolean strict) {
+        strictMirroring = strict;
     }
 
     /**
@@ -1218,6 +1416,15 @@ abstract public class PhysicsCollisionObject
         }
     }
 
+    /**
+     * Discard this object's mirrored transform, if any, so the next read will
+     * consult the native object. Subclasses must invoke this after directly
+     * altering the location or orientation of the btCollisionObject.
+     */
+    protected void discardMirroredTransform() {
+        mirroredEpoch = -1L;
+    }
+
     /**
      * Finalize the identified btCollisionObject. Native method.
      *
@@ -1257,6 +1464,13 @@ abstract public class PhysicsCollisionObject
         assert getCollisionGroup(objectId) == collisionGroup;
         assert getCollideWithGroups(objectId) == collideWithGroups;
         assert getSpaceId(objectId) == 0L;
+
+        if (mirroredScalars != null) {
+            for (int index = 0; index < numMirroredScalars; ++index) {
+                refreshMirror(index);
+            }
+        }
+        discardMirroredTransform();
     }
 
     /**
@@ -1335,6 +1549,7 @@ abstract public class PhysicsCollisionObject
 
         long objectId = nativeId();
         setLocationAndBasis(objectId, centerLocation, orientation);
+        discardMirroredTransform();
     }
     // *************************************************************************
     // Comparable methods
@@ -1377,6 +1592,13 @@ abstract public class PhysicsCollisionObject
 
         collisionShape = cloner.clone(collisionShape);
         debugMaterial = cloner.clone(debugMaterial);
+        if (mirroredScalars != null) {
+            mirroredScalars = mirroredScalars.clone();
+            mirroredLocation = mirroredLocation.clone();
+            mirroredRotation = mirroredRotation.clone();
+            mirroredEpoch = -1L;
+        }
+        mirrorSpace = null;
         /*
          * The caller should unassign the old native object and invoke
          * cloneIgnoreList() and copyPcoProperties().
@@ -1512,6 +1734,99 @@ abstract public class PhysicsCollisionObject
     // *************************************************************************
     // Java private methods
 
+    /**
+     * Read a mirrored scalar property, verifying it in strict mode.
+     *
+     * @param index which property (&ge;0, &lt;numMirroredScalars)
+     * @return the cached value
+     */
+    private float mirroredScalar(int index) {
+        float result = mirroredScalars[index];
+        if (strictMirroring) {
+            float actual = readNativeScalar(index);
+            if (Float.compare(result, actual) != 0) {
+                String message = String.format(
+                        "Mirrored property #%d of %s is %s but should be %s.",
+                        index, this, result, actual);
+                throw new IllegalStateException(message);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Read a mirrorable scalar property from the native object.
+     *
+     * @param index which property (&ge;0, &lt;numMirroredScalars)
+     * @return the property value
+     */
+    private float readNativeScalar(int index) {
+        long objectId = nativeId();
+        switch (index) {
+            case mirrorCcdMotionThreshold:
+                return getCcdMotionThreshold(objectId);
+            case mirrorCcdSweptSphereRadius:
+                return getCcdSweptSphereRadius(objectId);
+            case mirrorContactDamping:
+                return getContactDamping(objectId);
+            case mirrorContactProcessingThreshold:
+                return getContactProcessingThreshold(objectId);
+            case mirrorContactStiffness:
+                return getContactStiffness(objectId);
+            case mirrorFriction:
+                return getFriction(objectId);
+            case mirrorRestitution:
+                return getRestitution(objectId);
+            case mirrorRollingFriction:
+                return getRollingFriction(objectId);
+            case mirrorSpinningFriction:
+                return getSpinningFriction(objectId);
+            default:
+                throw new IllegalArgumentException("index = " + index);
+        }
+    }
+
+    /**
+     * Re-read a mirrored scalar property from the native object. Invoked after
+     * each setter, so that clamping by native code is reflected.
+     *
+     * @param index which property (&ge;0, &lt;numMirroredScalars)
+     */
+    private void refreshMirror(int index) {
+        if (mirroredScalars != null) {
+            mirroredScalars[index] = readNativeScalar(index);
+        }
+    }
+
+    /**
+     * Re-read the mirrored transform if simulation may have moved this object
+     * since it was last read. In strict mode, verify a current mirror against
+     * the native object.
+     */
+    private void updateMirroredTransform() {
+        long objectId = nativeId();
+        CollisionSpace space = mirrorSpace;
+        long epoch = (space == null) ? 0L : space.transformEpoch();
+        if (mirroredEpoch != epoch) {
+            getLocation(objectId, mirroredLocation);
+            getOrientation(objectId, mirroredRotation);
+            mirroredEpoch = epoch;
+
+        } else if (strictMirroring) {
+            Vector3f actualLocation = new Vector3f();
+            getLocation(objectId, actualLocation);
+            Quaternion actualRotation = new Quaternion();
+            getOrientation(objectId, actualRotation);
+            if (!actualLocation.equals(mirroredLocation)
+                    || !actualRotation.equals(mirroredRotation)) {
+                String message = String.format(
+                        "Mirrored transform of %s is stale.", this);
+                throw new IllegalStateException(message);
+            }
+        }
+    }
+
     /**
      * Free the identified tracked native object. Invoked by reflection.
      *
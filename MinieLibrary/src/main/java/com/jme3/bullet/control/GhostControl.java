@@ -38,6 +38,7 @@ import com.jme3.export.InputCapsule;
 import com.jme3.export.JmeExporter;
 import com.jme3.export.JmeImporter;
 import com.jme3.export.OutputCapsule;
+import com.jme3.math.Matrix3f;
 import com.jme3.math.Quaternion;
 import com.jme3.math.Vector3f;
 import com.jme3.renderer.RenderManager;
@@ -111,14 +112,36 @@ public class GhostControl
      * true&rarr;Control is enabled, false&rarr;Control is disabled
      */
     private boolean enabled = true;
+    /**
+     * true if the ghost's transform matches the most recently pushed spatial
+     * transform, false if the spatial transform must be pushed during the
+     * next update
+     */
+    private boolean isSynced = false;
     /**
      * space to which the ghost object is (or would be) added
      */
     private PhysicsSpace space = null;
+    /**
+     * spatial rotation most recently pushed to the ghost
+     */
+    private Quaternion lastRotation = new Quaternion();
     /**
      * Spatial to which this Control is added, or null if none
      */
     private Spatial spatial;
+    /**
+     * spatial scale most recently pushed to the ghost
+     */
+    private Vector3f lastScale = new Vector3f();
+    /**
+     * spatial translation most recently pushed to the ghost
+     */
+    private Vector3f lastTranslation = new Vector3f();
+    /**
+     * temporary storage for the spatial scale
+     */
+    private Vector3f tmpScale = new Vector3f();
     // *************************************************************************
     // constructors
 
@@ -177,6 +200,7 @@ public class GhostControl
      */
     public void setApplyPhysicsLocal(boolean applyPhysicsLocal) {
         applyLocal = applyPhysicsLocal;
+        isSynced = false;
     }
 
     /**
@@ -192,6 +216,7 @@ public class GhostControl
      */
     public void setApplyScale(boolean setting) {
         applyScale = setting;
+        isSynced = false;
     }
     // *************************************************************************
     // PhysicsControl methods
@@ -330,22 +355,7 @@ public class GhostControl
             return;
         }
 
-        setPhysicsLocation(getSpatialTranslation());
-        setPhysicsRotation(getSpatialRotation());
-        if (applyScale) {
-            Vector3f newScale = copySpatialScale(null);
-            CollisionShape shape = getCollisionShape();
-            if (!shape.canScale(newScale)) {
-                float factor = MyMath.cubeRoot(
-                        newScale.x * newScale.y * newScale.z);
-                newScale.set(factor, factor, factor);
-            }
-            Vector3f oldScale = shape.getScale(null);
-            if (MyVector3f.ne(oldScale, newScale) && shape.canScale(newScale)) {
-                shape.setScale(newScale);
-                setCollisionShape(shape);
-            }
-        }
+        pushSpatialTransform();
     }
     // *************************************************************************
     // PhysicsGhostObject methods
@@ -363,6 +373,12 @@ public class GhostControl
     public void cloneFields(Cloner cloner, Object original) {
         super.cloneFields(cloner, original);
         spatial = cloner.clone(spatial);
+
+        isSynced = false;
+        lastRotation = lastRotation.clone();
+        lastScale = lastScale.clone();
+        lastTranslation = lastTranslation.clone();
+        tmpScale = tmpScale.clone();
     }
 
     /**
@@ -400,6 +416,42 @@ public class GhostControl
         setUserObject(spatial);
     }
 
+    /**
+     * Directly alter the location of this object's center.
+     *
+     * @param location the desired location (in physics-space coordinates, not
+     * null, unaffected)
+     */
+    @Override
+    public void setPhysicsLocation(Vector3f location) {
+        super.setPhysicsLocation(location);
+        isSynced = false;
+    }
+
+    /**
+     * Directly alter this object's orientation.
+     *
+     * @param rotation the desired orientation (a rotation matrix in
+     * physics-space coordinates, not null, unaffected)
+     */
+    @Override
+    public void setPhysicsRotation(Matrix3f rotation) {
+        super.setPhysicsRotation(rotation);
+        isSynced = false;
+    }
+
+    /**
+     * Directly alter this object's orientation.
+     *
+     * @param rotation the desired orientation (a rotation quaternion in
+     * physics-space coordinates, not null, unaffected)
+     */
+    @Override
+    public void setPhysicsRotation(Quaternion rotation) {
+        super.setPhysicsRotation(rotation);
+        isSynced = false;
+    }
+
     /**
      * Serialize this Control to the specified exporter, for example when saving
      * to a J3O file.
@@ -472,4 +524,47 @@ public class GhostControl
             return spatial.getWorldTranslation();
         }
     }
+
+    /**
+     * Push the spatial's transform to the ghost, skipping components that
+     * haven't changed since the previous push. Stationary trigger volumes thus
+     * cost no native calls.
+     */
+    private void pushSpatialTransform() {
+        Vector3f translation = getSpatialTranslation();
+        Quaternion rotation = getSpatialRotation();
+        boolean moved = !isSynced || !translation.equals(lastTranslation);
+        boolean rotated = !isSynced || !rotation.equals(lastRotation);
+        boolean rescaled = false;
+        if (applyScale) {
+            copySpatialScale(tmpScale);
+            rescaled = !isSynced || !tmpScale.equals(lastScale);
+        }
+
+        if (moved) {
+            setPhysicsLocation(translation);
+            lastTranslation.set(translation);
+        }
+        if (rotated) {
+            setPhysicsRotation(rotation);
+            lastRotation.set(rotation);
+        }
+        if (rescaled) {
+            lastScale.set(tmpScale);
+            CollisionShape shape = getCollisionShape();
+            if (!shape.canScale(tmpScale)) {
+                float factor = MyMath.cubeRoot(
+                        tmpScale.x * tmpScale.y * tmpScale.z);
+                tmpScale.set(factor, factor, factor);
+            }
+            Vector3f oldScale = shape.getScale(null);
+            if (MyVector3f.ne(oldScale, tmpScale)
+                    && shape.canScale(tmpScale)) {
+                shape.setScale(tmpScale);
+                setCollisionShape(shape);
+            }
+        }
+
+        isSynced = true;
+    }
 }
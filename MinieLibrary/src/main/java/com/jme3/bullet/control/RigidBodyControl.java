@@ -42,6 +42,7 @@ import com.jme3.export.InputCapsule;
 import com.jme3.export.JmeExporter;
 import com.jme3.export.JmeImporter;
 import com.jme3.export.OutputCapsule;
+import com.jme3.math.Matrix3f;
 import com.jme3.math.Quaternion;
 import com.jme3.math.Vector3f;
 import com.jme3.renderer.RenderManager;
@@ -111,6 +112,12 @@ public class RigidBodyControl
      * true&rarr;Control is enabled, false&rarr;Control is disabled
      */
     private boolean enabled = true;
+    /**
+     * true if the body's transform matches the most recently pushed spatial
+     * transform, false if the spatial transform must be pushed during the next
+     * update
+     */
+    private boolean isSynced = false;
     /**
      * true&rarr; kinematic body follows Spatial, false&rarr;Spatial follows
      * kinematic body
@@ -120,10 +127,26 @@ public class RigidBodyControl
      * space to which the body is (or would be) added
      */
     private PhysicsSpace space = null;
+    /**
+     * spatial rotation most recently pushed to the kinematic body
+     */
+    private Quaternion lastRotation = new Quaternion();
     /**
      * Spatial to which this Control is added, or null if none
      */
     private Spatial spatial;
+    /**
+     * spatial scale most recently pushed to the kinematic body
+     */
+    private Vector3f lastScale = new Vector3f();
+    /**
+     * spatial translation most recently pushed to the kinematic body
+     */
+    private Vector3f lastTranslation = new Vector3f();
+    /**
+     * temporary storage for the spatial scale
+     */
+    private Vector3f tmpScale = new Vector3f();
     // *************************************************************************
     // constructors
 
@@ -222,6 +245,7 @@ public class RigidBodyControl
     public void setApplyPhysicsLocal(boolean applyPhysicsLocal) {
         RigidBodyMotionState ms = getMotionState();
         ms.setApplyPhysicsLocal(applyPhysicsLocal);
+        isSynced = false;
     }
 
     /**
@@ -237,6 +261,7 @@ public class RigidBodyControl
      */
     public void setApplyScale(boolean setting) {
         applyScale = setting;
+        isSynced = false;
     }
 
     /**
@@ -250,6 +275,7 @@ public class RigidBodyControl
      */
     public void setKinematicSpatial(boolean kinematicSpatial) {
         this.kinematicSpatial = kinematicSpatial;
+        isSynced = false;
     }
     // *************************************************************************
     // new protected methods
@@ -432,20 +458,7 @@ public class RigidBodyControl
         }
 
         if (isKinematic() && kinematicSpatial) {
-            setPhysicsLocation(getSpatialTranslation());
-            setPhysicsRotation(getSpatialRotation()); // TODO garbage
-            if (applyScale) {
-                CollisionShape shape = getCollisionShape();
-                Vector3f newScale = copySpatialScale(null);
-                if (!shape.canScale(newScale)) {
-                    float factor = MyMath.cubeRoot(
-                            newScale.x * newScale.y * newScale.z);
-                    newScale.set(factor, factor, factor);
-                }
-                if (shape.canScale(newScale)) {
-                    setPhysicsScale(newScale);
-                }
-            }
+            pushSpatialTransform();
 
         } else if (!MySpatial.isIgnoringTransforms(spatial)) {
             getMotionState().applyTransform(spatial);
@@ -470,6 +483,12 @@ public class RigidBodyControl
     public void cloneFields(Cloner cloner, Object original) {
         super.cloneFields(cloner, original);
         spatial = cloner.clone(spatial);
+
+        isSynced = false;
+        lastRotation = lastRotation.clone();
+        lastScale = lastScale.clone();
+        lastTranslation = lastTranslation.clone();
+        tmpScale = tmpScale.clone();
     }
 
     /**
@@ -510,6 +529,54 @@ public class RigidBodyControl
         setUserObject(spatial);
     }
 
+    /**
+     * Put this body into kinematic mode or take it out of kinematic mode.
+     *
+     * @param kinematic true&rarr;set kinematic mode, false&rarr;set dynamic
+     * (default=false)
+     */
+    @Override
+    public void setKinematic(boolean kinematic) {
+        super.setKinematic(kinematic);
+        isSynced = false;
+    }
+
+    /**
+     * Directly relocate this body's center of mass.
+     *
+     * @param location the desired location (in physics-space coordinates, not
+     * null, unaffected)
+     */
+    @Override
+    public void setPhysicsLocation(Vector3f location) {
+        super.setPhysicsLocation(location);
+        isSynced = false;
+    }
+
+    /**
+     * Directly reorient this body.
+     *
+     * @param orientation the desired orientation (rotation matrix relative to
+     * physics-space coordinates, not null, unaffected)
+     */
+    @Override
+    public void setPhysicsRotation(Matrix3f orientation) {
+        super.setPhysicsRotation(orientation);
+        isSynced = false;
+    }
+
+    /**
+     * Directly reorient this body.
+     *
+     * @param orientation the desired orientation (relative to physics-space
+     * coordinates, not null, unaffected)
+     */
+    @Override
+    public void setPhysicsRotation(Quaternion orientation) {
+        super.setPhysicsRotation(orientation);
+        isSynced = false;
+    }
+
     /**
      * Serialize this Control to the specified exporter, for example when saving
      * to a J3O file.
@@ -612,4 +679,43 @@ public class RigidBodyControl
 
         return result;
     }
+
+    /**
+     * Push the spatial's transform to the kinematic body, skipping components
+     * that haven't changed since the previous push.
+     */
+    private void pushSpatialTransform() {
+        Vector3f translation = getSpatialTranslation();
+        Quaternion rotation = getSpatialRotation();
+        boolean moved = !isSynced || !translation.equals(lastTranslation);
+        boolean rotated = !isSynced || !rotation.equals(lastRotation);
+        boolean rescaled = false;
+        if (applyScale) {
+            copySpatialScale(tmpScale);
+            rescaled = !isSynced || !tmpScale.equals(lastScale);
+        }
+
+        if (moved) {
+            setPhysicsLocation(translation);
+            lastTranslation.set(translation);
+        }
+        if (rotated) {
+            setPhysicsRotation(rotation);
+            lastRotation.set(rotation);
+        }
+        if (rescaled) {
+            lastScale.set(tmpScale);
+            CollisionShape shape = getCollisionShape();
+            if (!shape.canScale(tmpScale)) {
+                float factor = MyMath.cubeRoot(
+                        tmpScale.x * tmpScale.y * tmpScale.z);
+                tmpScale.set(factor, factor, factor);
+            }
+            if (shape.canScale(tmpScale)) {
+                setPhysicsScale(tmpScale);
+            }
+        }
+
+        isSynced = true;
+    }
 }
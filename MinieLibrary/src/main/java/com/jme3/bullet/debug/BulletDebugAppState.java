@@ -35,6 +35,10 @@ import com.jme3.app.Application;
 import com.jme3.app.state.AbstractAppState;
 import com.jme3.app.state.AppStateManager;
 import com.jme3.asset.AssetManager;
+import com.jme3.bounding.BoundingBox;
+import com.jme3.bounding.BoundingVolume;
+import com.jme3.bullet.CollisionSpace;
+import com.jme3.bullet.CollisionSpaceListener;
 import com.jme3.bullet.PhysicsSpace;
 import com.jme3.bullet.collision.PhysicsCollisionObject;
 import com.jme3.bullet.joints.Anchor;
@@ -51,15 +55,22 @@ import com.jme3.material.Material;
 import com.jme3.material.RenderState;
 import com.jme3.math.ColorRGBA;
 import com.jme3.math.Transform;
+import com.jme3.renderer.Camera;
 import com.jme3.renderer.RenderManager;
 import com.jme3.renderer.ViewPort;
 import com.jme3.renderer.queue.RenderQueue;
+import com.jme3.scene.Geometry;
 import com.jme3.scene.Node;
 import com.jme3.scene.Spatial;
 import com.jme3.scene.control.Control;
+import com.jme3.scene.instancing.InstancedNode;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jme3utilities.MyAsset;
@@ -139,6 +150,11 @@ public class BulletDebugAppState extends AbstractAppState {
      * application's asset manager: set by initialize()
      */
     private AssetManager assetManager;
+    /**
+     * true if geometries were added to instancedNode since it was last
+     * instanced, otherwise false
+     */
+    private boolean instancesDirty = false;
     /**
      * configuration
      */
@@ -147,6 +163,45 @@ public class BulletDebugAppState extends AbstractAppState {
      * map collision objects to transformed visualization nodes
      */
     private HashMap<PhysicsCollisionObject, Node> pcoMap = new HashMap<>(64);
+    /**
+     * membership listener registered with the tracked space
+     */
+    final private MembershipTracker tracker = new MembershipTracker();
+    /**
+     * space whose membership changes are being tracked, or null if none
+     */
+    private PhysicsSpace trackedSpace = null;
+    /**
+     * membership changes not yet applied to pcoMap, in the order they occurred
+     */
+    final private Queue<MembershipChange> pendingChanges
+            = new ConcurrentLinkedQueue<>();
+    /**
+     * parent nodes of the objects culled during the current update
+     */
+    final private ArrayList<Node> culledParents = new ArrayList<>(64);
+    /**
+     * temporary storage for an object's bounding box in physics-space
+     * coordinates
+     */
+    final private BoundingBox tmpBox = new BoundingBox();
+    /**
+     * temporary storage for an object's bounding box in world coordinates
+     */
+    final private BoundingBox tmpWorldBox = new BoundingBox();
+    /**
+     * choose which culled objects to refresh during each update
+     */
+    final private RefreshRotation refreshRotation = new RefreshRotation();
+    /**
+     * map default materials to their instancing clones
+     */
+    final private IdentityHashMap<Material, Material> instancedMaterials
+            = new IdentityHashMap<>(8);
+    /**
+     * parent for instanced debug geometries: created on first use
+     */
+    private InstancedNode instancedNode = null;
     /**
      * map physics joints to visualization nodes
      */
@@ -209,6 +264,23 @@ public class BulletDebugAppState extends AbstractAppState {
     // *************************************************************************
     // new methods exposed
 
+    /**
+     * Attach the specified Geometry to the InstancedNode, creating the node if
+     * necessary. The Geometry will be instanced during the next update.
+     *
+     * @param geometry the Geometry to attach (not null, instancing material)
+     */
+    void addInstance(Geometry geometry) {
+        assert geometry != null;
+
+        if (instancedNode == null) {
+            instancedNode = new InstancedNode("Physics Debug Instances");
+            attachChild(instancedNode);
+        }
+        instancedNode.attachChild(geometry);
+        instancesDirty = true;
+    }
+
     /**
      * Access a Material for visualizing active, responsive rigid bodies.
      *
@@ -306,6 +378,33 @@ public class BulletDebugAppState extends AbstractAppState {
         return result;
     }
 
+    /**
+     * Access the instancing clone of the specified default Material, creating
+     * it if necessary.
+     *
+     * @param material the default Material (not null, unaffected)
+     * @return a clone with instancing enabled, or null if the default Material
+     * is invisible or its definition doesn't support instancing
+     */
+    Material getInstancedMaterial(Material material) {
+        assert material != null;
+        if (material == blues[0]) { // shared by all invisible visualizations
+            return null;
+        }
+
+        Material result = instancedMaterials.get(material);
+        if (result == null
+                && material.getMaterialDef().getMaterialParam("UseInstancing")
+                != null) {
+            result = material.clone();
+            result.setBoolean("UseInstancing", true);
+            result.setName(material.getName() + " instanced");
+            instancedMaterials.put(material, result);
+        }
+
+        return result;
+    }
+
     /**
      * Access a Material for visualizing PhysicsJoints.
      *
@@ -495,6 +594,7 @@ public class BulletDebugAppState extends AbstractAppState {
     protected void setupMaterials(AssetManager am) {
         assert am != null;
 
+        instancedMaterials.clear();
         Material invisible = MyAsset.createInvisibleMaterial(am);
         blues[0] = invisible;
         blues[1] = createWireMaterial(am, blueColor, "debug blue ss", 1);
@@ -611,14 +711,30 @@ public class BulletDebugAppState extends AbstractAppState {
                 updateAxes(node, displayShape);
 
             } else if (pco instanceof PhysicsRigidBody) {
+                PhysicsRigidBody body = (PhysicsRigidBody) pco;
+                boolean instance = configuration.isInstancing()
+                        && InstancedRigidBodyDebugControl.canInstance(body);
+                boolean displayPlain = displayShape && !instance;
+                boolean displayInstanced = displayShape && instance;
+
                 control = node.getControl(BulletRigidBodyDebugControl.class);
-                if (control == null && displayShape) {
+                if (control == null && displayPlain) {
                     logger.log(Level.FINE,
                             "Create new BulletRigidBodyDebugControl");
-                    control = new BulletRigidBodyDebugControl(this,
-                            (PhysicsRigidBody) pco);
+                    control = new BulletRigidBodyDebugControl(this, body);
                     node.addControl(control);
-                } else if (control != null && !displayShape) {
+                } else if (control != null && !displayPlain) {
+                    node.removeControl(control);
+                }
+
+                control = node.getControl(
+                        InstancedRigidBodyDebugControl.class);
+                if (control == null && displayInstanced) {
+                    logger.log(Level.FINE,
+                            "Create new InstancedRigidBodyDebugControl");
+                    control = new InstancedRigidBodyDebugControl(this, body);
+                    node.addControl(control);
+                } else if (control != null && !displayInstanced) {
                     node.removeControl(control);
                 }
                 updateAxes(node, displayShape);
@@ -640,6 +756,7 @@ public class BulletDebugAppState extends AbstractAppState {
         for (ViewPort viewPort : viewPorts) {
             viewPort.detachScene(root);
         }
+        trackSpace(null);
         super.cleanup();
     }
 
@@ -705,7 +822,6 @@ public class BulletDebugAppState extends AbstractAppState {
         updateJoints();
 
         // Update the (debug) root node.
-        root.updateLogicalState(tpf);
         Spatial transformSpatial = configuration.getTransformSpatial();
         if (transformSpatial == null) {
             root.setLocalTransform(transformIdentity);
@@ -713,11 +829,114 @@ public class BulletDebugAppState extends AbstractAppState {
             Transform transform = transformSpatial.getWorldTransform();
             root.setLocalTransform(transform);
         }
+        cullObjects(tpf);
+        root.updateLogicalState(tpf);
+        if (instancesDirty) {
+            // Group any newly attached instanced geometries.
+            instancedNode.instance();
+            instancesDirty = false;
+        }
         root.updateGeometricState();
     }
     // *************************************************************************
     // private methods
 
+    /**
+     * Detach the visualizations of collision objects that no camera can see,
+     * re-attach those that have come back into view, and refresh a limited
+     * number of the detached ones.
+     *
+     * @param tpf the time interval between frames (in seconds, &ge;0)
+     */
+    private void cullObjects(float tpf) {
+        boolean culling = configuration.isCulling();
+        ViewPort[] viewPorts = configuration.listViewPorts();
+        if (viewPorts.length == 0) {
+            culling = false;
+        }
+
+        culledParents.clear();
+        for (Map.Entry<PhysicsCollisionObject, Node> entry
+                : pcoMap.entrySet()) {
+            PhysicsCollisionObject pco = entry.getKey();
+            boolean visible = !culling || isVisible(pco, viewPorts);
+
+            Node transformedNode = entry.getValue();
+            Node parent = transformedNode.getParent();
+            if (visible) {
+                if (parent.getParent() == null) {
+                    attachChild(parent);
+                }
+            } else {
+                if (parent.getParent() != null) {
+                    parent.removeFromParent();
+                }
+                culledParents.add(parent);
+            }
+            /*
+             * An instanced geometry isn't a descendant of the parent node,
+             * so it must be withdrawn from the InstancedNode separately.
+             */
+            InstancedRigidBodyDebugControl control = transformedNode
+                    .getControl(InstancedRigidBodyDebugControl.class);
+            if (control != null) {
+                control.setCulled(!visible);
+            }
+        }
+        /*
+         * Refresh culled objects in rotation, within the budget.
+         */
+        int numCulled = culledParents.size();
+        int budget = configuration.culledUpdateBudget();
+        int numRefresh = Math.min(budget, numCulled);
+        int first = refreshRotation.advance(numCulled, numRefresh);
+        for (int i = 0; i < numRefresh; ++i) {
+            int index = (first + i) % numCulled;
+            Node parent = culledParents.get(index);
+            parent.updateLogicalState(tpf);
+        }
+    }
+
+    /**
+     * Test whether any of the specified view ports might see the specified
+     * collision object within the cull distance.
+     *
+     * @param pco the collision object to test (not null, unaffected)
+     * @param viewPorts the view ports to test (not null, unaffected)
+     * @return true if possibly visible, false if definitely culled
+     */
+    private boolean isVisible(PhysicsCollisionObject pco,
+            ViewPort[] viewPorts) {
+        pco.boundingBox(tmpBox);
+        Transform physicsToWorld = root.getLocalTransform();
+        BoundingVolume worldBox = tmpBox.transform(physicsToWorld, tmpWorldBox);
+        float cullDistance = configuration.cullDistance();
+
+        for (ViewPort viewPort : viewPorts) {
+            if (!viewPort.isEnabled()) {
+                continue;
+            }
+            Camera camera = viewPort.getCamera();
+            float distance = worldBox.distanceToEdge(camera.getLocation());
+            if (distance > cullDistance) {
+                continue;
+            }
+            /*
+             * Test against all frustum planes, preserving the camera's
+             * plane state for the renderer.
+             */
+            int planeState = camera.getPlaneState();
+            camera.setPlaneState(0);
+            Camera.FrustumIntersect intersect = camera.contains(worldBox);
+            camera.setPlaneState(planeState);
+            if (intersect != Camera.FrustumIntersect.Outside) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     /**
      * Synchronize the bounding-box debug controls with the collision objects in
      * the PhysicsSpace.
@@ -830,34 +1049,114 @@ public class BulletDebugAppState extends AbstractAppState {
     }
 
     /**
-     * Synchronize the visualization nodes with the collision objects in the
-     * PhysicsSpace.
+     * Create visualization nodes for the specified collision object and add
+     * them to pcoMap.
+     *
+     * @param pco the collision object to visualize (not null)
      */
-    private void updatePcoMap() {
-        /*
-         * Create visualization nodes for PCOs that have been added.
-         */
+    private void createPcoNodes(PhysicsCollisionObject pco) {
+        // 2 nodes for each PCO
+        Node parent = new Node(pco.toString());
+        attachChild(parent);
+        Node node = new Node(pco + " transformed");
+        parent.attachChild(node);
+        pcoMap.put(pco, node);
+    }
+
+    /**
+     * Rebuild pcoMap from scratch, re-using any existing nodes. Invoked only
+     * when the visualized space changes.
+     *
+     * @param space the space to visualize, or null for none
+     */
+    private void rebuildPcoMap(PhysicsSpace space) {
         HashMap<PhysicsCollisionObject, Node> oldMap = pcoMap;
         pcoMap = new HashMap<>(oldMap.size());
-        PhysicsSpace space = configuration.getSpace();
-        Collection<PhysicsCollisionObject> list = space.getPcoList();
-        for (PhysicsCollisionObject pco : list) {
-            Node node = oldMap.remove(pco);
-            if (node == null) {
-                // 2 nodes for each PCO
-                Node parent = new Node(pco.toString());
-                attachChild(parent);
-                node = new Node(pco + " transformed");
-                parent.attachChild(node);
+        if (space != null) {
+            Collection<PhysicsCollisionObject> list = space.getPcoList();
+            for (PhysicsCollisionObject pco : list) {
+                Node node = oldMap.remove(pco);
+                if (node == null) {
+                    createPcoNodes(pco);
+                } else {
+                    pcoMap.put(pco, node);
+                }
             }
-            pcoMap.put(pco, node);
         }
         /*
-         * Detach nodes of PCOs that have been removed from the space.
+         * Detach nodes of PCOs that aren't in the space.
          */
         for (Node transformedNode : oldMap.values()) {
-            Node parent = transformedNode.getParent();
-            parent.removeFromParent();
+            removePcoNodes(transformedNode);
+        }
+    }
+
+    /**
+     * Detach the visualization nodes of a collision object that's no longer
+     * visualized.
+     *
+     * @param transformedNode the object's transformed Node (not null)
+     */
+    private void removePcoNodes(Node transformedNode) {
+        /*
+         * An instanced geometry isn't a descendant of the transformed node,
+         * so it must be detached by removing its control.
+         */
+        Control control = transformedNode.getControl(
+                InstancedRigidBodyDebugControl.class);
+        if (control != null) {
+            transformedNode.removeControl(control);
+        }
+
+        Node parent = transformedNode.getParent();
+        parent.removeFromParent();
+    }
+
+    /**
+     * Alter which space's membership changes are tracked.
+     *
+     * @param space the space to track, or null for none
+     */
+    private void trackSpace(PhysicsSpace space) {
+        if (trackedSpace != null) {
+            trackedSpace.removeMembershipListener(tracker);
+        }
+        pendingChanges.clear();
+        trackedSpace = space;
+        if (space != null) {
+            space.addMembershipListener(tracker);
+        }
+    }
+
+    /**
+     * Synchronize the visualization nodes with the collision objects in the
+     * PhysicsSpace. Only objects that were added or removed since the previous
+     * update are processed, unless the visualized space has changed.
+     */
+    private void updatePcoMap() {
+        PhysicsSpace space = configuration.getSpace();
+        if (space != trackedSpace) {
+            /*
+             * Start listening before enumerating, so that no change is missed.
+             */
+            trackSpace(space);
+            rebuildPcoMap(space);
+            return;
+        }
+
+        MembershipChange change;
+        while ((change = pendingChanges.poll()) != null) {
+            PhysicsCollisionObject pco = change.pco;
+            if (change.added) {
+                if (!pcoMap.containsKey(pco)) {
+                    createPcoNodes(pco);
+                }
+            } else {
+                Node transformedNode = pcoMap.remove(pco);
+                if (transformedNode != null) {
+                    removePcoNodes(transformedNode);
+                }
+            }
         }
     }
 
@@ -950,6 +1249,61 @@ public class BulletDebugAppState extends AbstractAppState {
         }
     }
 
+    /**
+     * A pending change to the membership of the tracked space.
+     */
+    private static class MembershipChange {
+        /**
+         * true if the object was added, false if it was removed
+         */
+        final boolean added;
+        /**
+         * the object that was added or removed (not null)
+         */
+        final PhysicsCollisionObject pco;
+
+        /**
+         * Instantiate a change.
+         *
+         * @param pco the object that was added or removed (not null)
+         * @param added true if the object was added, false if removed
+         */
+        MembershipChange(PhysicsCollisionObject pco, boolean added) {
+            this.pco = pco;
+            this.added = added;
+        }
+    }
+
+    /**
+     * Queue the membership changes of the tracked space. The callbacks may be
+     * invoked on the physics thread, so they only enqueue changes.
+     */
+    private class MembershipTracker implements CollisionSpaceListener {
+        /**
+         * Callback invoked after a collision object is added to a space.
+         *
+         * @param space the space that was modified (not null)
+         * @param pco the object that was added (not null)
+         */
+        @Override
+        public void objectAdded(CollisionSpace space,
+                PhysicsCollisionObject pco) {
+            pendingChanges.add(new MembershipChange(pco, true));
+        }
+
+        /**
+         * Callback invoked after a collision object is removed from a space.
+         *
+         * @param space the space that was modified (not null)
+         * @param pco the object that was removed (not null)
+         */
+        @Override
+        public void objectRemoved(CollisionSpace space,
+                PhysicsCollisionObject pco) {
+            pendingChanges.add(new MembershipChange(pco, false));
+        }
+    }
+
     /**
      * Interface to restrict which physics objects are visualized.
      */
@@ -58,10 +58,20 @@ public class DebugConfiguration {
     // *************************************************************************
     // fields
 
+    /**
+     * true if objects outside the view frustums or beyond cullDistance are
+     * culled, otherwise false
+     */
+    private boolean isCulling = false;
     /**
      * true if-and-only-if (debug) visualization is enabled
      */
     private boolean isEnabled = false;
+    /**
+     * true if eligible rigid bodies are rendered using hardware instancing,
+     * otherwise false
+     */
+    private boolean isInstancing = false;
     /**
      * limit which bounding boxes are visualized, or null to visualize no
      * bounding boxes
@@ -105,10 +115,20 @@ public class DebugConfiguration {
      * axis arrows
      */
     private float axisLineWidth = 1f;
+    /**
+     * maximum distance from a camera at which objects are visualized when
+     * culling (in world units, &gt;0)
+     */
+    private float cullDistance = Float.POSITIVE_INFINITY;
     /**
      * line width for PhysicsJoint arrows (in pixels, &ge;1)
      */
     private float jointLineWidth = 1f;
+    /**
+     * maximum number of culled objects whose visualizations are refreshed per
+     * update (&ge;0)
+     */
+    private int culledUpdateBudget = 16;
     /**
      * PhysicsSpace, or null if none
      */
@@ -148,6 +168,28 @@ public class DebugConfiguration {
         return axisLineWidth;
     }
 
+    /**
+     * Determine the maximum number of culled objects whose visualizations are
+     * refreshed per update.
+     *
+     * @return the number of objects (&ge;0)
+     */
+    public int culledUpdateBudget() {
+        assert culledUpdateBudget >= 0 : culledUpdateBudget;
+        return culledUpdateBudget;
+    }
+
+    /**
+     * Determine the maximum distance from a camera at which objects are
+     * visualized when culling.
+     *
+     * @return the distance (in world units, &gt;0)
+     */
+    public float cullDistance() {
+        assert cullDistance > 0f : cullDistance;
+        return cullDistance;
+    }
+
     /**
      * Access the filter that limits which bounding boxes are visualized.
      *
@@ -250,6 +292,16 @@ public class DebugConfiguration {
         }
     }
 
+    /**
+     * Test whether objects outside the view frustums or beyond the cull
+     * distance are culled.
+     *
+     * @return true if culling, otherwise false
+     */
+    public boolean isCulling() {
+        return isCulling;
+    }
+
     /**
      * Test whether (debug) visualization is enabled.
      *
@@ -259,6 +311,16 @@ public class DebugConfiguration {
         return isEnabled;
     }
 
+    /**
+     * Test whether eligible rigid bodies are rendered using hardware
+     * instancing.
+     *
+     * @return true if instancing, otherwise false
+     */
+    public boolean isInstancing() {
+        return isInstancing;
+    }
+
     /**
      * Determine the line width of joint arrows.
      *
@@ -338,6 +400,44 @@ public class DebugConfiguration {
         this.camera = camera;
     }
 
+    /**
+     * Alter the maximum number of culled objects whose visualizations are
+     * refreshed per update. Culled objects are refreshed in rotation, so
+     * their visualizations are reasonably current when they come back into
+     * view.
+     *
+     * @param numObjects the desired number of objects (&ge;0, default=16)
+     */
+    public void setCulledUpdateBudget(int numObjects) {
+        Validate.nonNegative(numObjects, "number of objects");
+        culledUpdateBudget = numObjects;
+    }
+
+    /**
+     * Alter whether objects outside the view frustums or beyond the cull
+     * distance are culled. A culled object isn't rendered, and its debug
+     * controls aren't updated except within the culled-update budget. Changes
+     * take effect on the next update.
+     *
+     * @param enable true &rarr; cull, false &rarr; visualize every object
+     * (default=false)
+     */
+    public void setCulling(boolean enable) {
+        isCulling = enable;
+    }
+
+    /**
+     * Alter the maximum distance from a camera at which objects are
+     * visualized when culling.
+     *
+     * @param distance the desired distance (in world units, &gt;0,
+     * default=+Infinity)
+     */
+    public void setCullDistance(float distance) {
+        Validate.positive(distance, "distance");
+        cullDistance = distance;
+    }
+
     /**
      * Alter whether (debug) visualization is enabled. Changes take effect on
      * the next update.
@@ -348,6 +448,20 @@ public class DebugConfiguration {
         isEnabled = enable;
     }
 
+    /**
+     * Alter whether eligible rigid bodies are rendered using hardware
+     * instancing. A body is eligible if its shape isn't compound and it has no
+     * custom debug material. Instancing combines bodies that share a debug
+     * mesh and a material into a single draw call. Changes take effect on the
+     * next update.
+     *
+     * @param enable true &rarr; instance, false &rarr; render each body
+     * separately (default=false)
+     */
+    public void setInstancing(boolean enable) {
+        isInstancing = enable;
+    }
+
     /**
      * Alter which physics objects are included in the visualization.
      *
@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.debug;
+
+import com.jme3.bullet.collision.shapes.CollisionShape;
+import com.jme3.bullet.collision.shapes.CompoundCollisionShape;
+import com.jme3.bullet.collision.shapes.infos.DebugMeshNormals;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.bullet.util.DebugShapeFactory;
+import com.jme3.material.Material;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Spatial;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A physics-debug control used to visualize a PhysicsRigidBody using hardware
+ * instancing.
+ * <p>
+ * The debug geometry is attached to an InstancedNode shared by all instanced
+ * bodies, rather than to the controlled Node. Geometries that share a debug
+ * mesh and a material are drawn in a single batch.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+class InstancedRigidBodyDebugControl extends CollisionShapeDebugControl {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(InstancedRigidBodyDebugControl.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * true if the body is culled, so its debug geometry shouldn't be rendered,
+     * otherwise false
+     */
+    private boolean isCulled = false;
+    /**
+     * true if the debug geometry is attached to the InstancedNode, otherwise
+     * false
+     */
+    private boolean isInstanced = false;
+    /**
+     * debug-mesh normals option for which debugSpatial was generated
+     */
+    private DebugMeshNormals oldNormals;
+    /**
+     * debug-mesh resolution for which debugSpatial was generated
+     */
+    private int oldResolution;
+    /**
+     * rigid body to visualize (not null)
+     */
+    final private PhysicsRigidBody body;
+    /**
+     * temporary storage for physics rotation
+     */
+    final private Quaternion rotation = new Quaternion();
+    /**
+     * temporary storage for physics location
+     */
+    final private Vector3f location = new Vector3f();
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an enabled control to visualize the specified body.
+     *
+     * @param debugAppState which app state (not null, alias created)
+     * @param body which body to visualize (not null, alias created,
+     * instanceable)
+     */
+    InstancedRigidBodyDebugControl(BulletDebugAppState debugAppState,
+            PhysicsRigidBody body) {
+        super(debugAppState);
+        assert canInstance(body);
+        this.body = body;
+
+        super.setShape(body.getCollisionShape());
+        oldNormals = body.debugMeshNormals();
+        oldResolution = body.debugMeshResolution();
+
+        debugSpatial = DebugShapeFactory.getDebugShape(body);
+        debugSpatial.setName(body.toString());
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test whether the specified body can be visualized using instancing.
+     *
+     * @param body the body to test (not null, unaffected)
+     * @return true if instanceable, otherwise false
+     */
+    static boolean canInstance(PhysicsRigidBody body) {
+        CollisionShape shape = body.getCollisionShape();
+        boolean result = !(shape instanceof CompoundCollisionShape)
+                && body.getDebugMaterial() == null;
+
+        return result;
+    }
+
+    /**
+     * Alter whether the body is culled. While culled, the debug geometry is
+     * detached from the InstancedNode, though its transform may still be
+     * refreshed.
+     *
+     * @param culled true &rarr; culled, false &rarr; visible
+     */
+    void setCulled(boolean culled) {
+        isCulled = culled;
+        if (culled) {
+            removeInstance();
+        }
+    }
+    // *************************************************************************
+    // CollisionShapeDebugControl methods
+
+    /**
+     * Update this control. Invoked once per frame during the logical-state
+     * update, provided the control is enabled and added to a scene. Should be
+     * invoked only by a subclass or by AbstractControl.
+     *
+     * @param tpf the time interval between frames (in seconds, &ge;0)
+     */
+    @Override
+    protected void controlUpdate(float tpf) {
+        CollisionShape newShape = body.getCollisionShape();
+        DebugMeshNormals newNormals = body.debugMeshNormals();
+        int newResolution = body.debugMeshResolution();
+
+        boolean rebuild;
+        if (hasShapeChanged(newShape)) {
+            rebuild = true;
+        } else if (oldNormals != newNormals) {
+            rebuild = true;
+        } else if (oldResolution != newResolution) {
+            rebuild = true;
+        } else {
+            rebuild = false;
+        }
+
+        if (rebuild) {
+            logger.log(Level.INFO, "Rebuild debugSpatial for {0}.", body);
+
+            setShape(newShape);
+            oldNormals = newNormals;
+            oldResolution = newResolution;
+
+            removeInstance();
+            debugSpatial = DebugShapeFactory.getDebugShape(body);
+            debugSpatial.setName(body.toString());
+        }
+
+        body.getPhysicsLocation(location);
+        body.getPhysicsRotation(rotation);
+        /*
+         * The controlled Node still carries the transform, for the sake of
+         * any axes visualizer.
+         */
+        applyPhysicsTransform(location, rotation);
+        debugSpatial.setLocalTranslation(location);
+        debugSpatial.setLocalRotation(rotation);
+        updateMaterial();
+    }
+
+    /**
+     * Alter which Spatial is controlled. Invoked when the Control is added to
+     * or removed from a Spatial. Should be invoked only by a subclass or from
+     * Spatial. Do not invoke directly from user code.
+     *
+     * @param spatial the Spatial to control (or null)
+     */
+    @Override
+    public void setSpatial(Spatial spatial) {
+        super.setSpatial(spatial);
+        /*
+         * The superclass attaches debugSpatial to the controlled Node,
+         * so detach it again. If the control remains added,
+         * debugSpatial will join the InstancedNode during the next update.
+         */
+        debugSpatial.removeFromParent();
+        isInstanced = false;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Detach the debug geometry from the InstancedNode, if it's attached.
+     */
+    private void removeInstance() {
+        if (isInstanced) {
+            debugSpatial.removeFromParent();
+            isInstanced = false;
+        }
+    }
+
+    /**
+     * Update the Material applied to the debug geometry, based on properties
+     * of the rigid body, and attach or detach the geometry accordingly.
+     */
+    private void updateMaterial() {
+        int numSides = body.debugNumSides();
+        Material material;
+        if (!body.isContactResponse()) {
+            material = debugAppState.getGhostMaterial(numSides);
+        } else if (body.isDynamic() && body.isActive()) {
+            material = debugAppState.getActiveMaterial(numSides);
+        } else {
+            material = debugAppState.getInactiveMaterial(numSides);
+        }
+        material = debugAppState.getInstancedMaterial(material);
+
+        if (material == null || isCulled) {
+            // not visible, not instanceable, or culled
+            removeInstance();
+        } else {
+            Geometry geometry = (Geometry) debugSpatial;
+            if (geometry.getMaterial() != material) {
+                geometry.setMaterial(material);
+            }
+            if (!isInstanced && spatial != null) {
+                debugAppState.addInstance(geometry);
+                isInstanced = true;
+            }
+        }
+    }
+}
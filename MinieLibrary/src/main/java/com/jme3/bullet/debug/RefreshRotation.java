@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.debug;
+
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Choose which culled objects to refresh during each update, so that a limited
+ * per-update budget eventually refreshes every culled object. For internal
+ * use only.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class RefreshRotation {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(RefreshRotation.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * index of the next culled object to refresh
+     */
+    private int cursor = 0;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Select the culled objects to refresh during the current update and
+     * advance the rotation. The selected objects are those with indices
+     * first, first+1, ... modulo numCulled.
+     *
+     * @param numCulled the number of objects culled during the current update
+     * (&ge;0)
+     * @param numRefresh the number of objects to refresh (&ge;0,
+     * &le;numCulled)
+     * @return the index of the first object to refresh (&ge;0, &lt;numCulled)
+     * or 0 if none are culled
+     */
+    public int advance(int numCulled, int numRefresh) {
+        Validate.nonNegative(numCulled, "number culled");
+        Validate.inRange(numRefresh, "number to refresh", 0, numCulled);
+
+        int result;
+        if (numCulled == 0) {
+            cursor = 0;
+            result = 0;
+        } else {
+            result = cursor % numCulled;
+            cursor = (result + numRefresh) % numCulled;
+        }
+
+        return result;
+    }
+
+    /**
+     * Determine the index of the next culled object to refresh.
+     *
+     * @return the index (&ge;0)
+     */
+    public int getCursor() {
+        assert cursor >= 0 : cursor;
+        return cursor;
+    }
+}
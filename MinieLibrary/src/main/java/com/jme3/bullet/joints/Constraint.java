@@ -231,6 +231,20 @@ abstract public class Constraint extends PhysicsJoint {
         return result;
     }
 
+    /**
+     * Read the applied impulse without verifying that feedback is enabled.
+     * For use by JointMonitor, which enables feedback itself.
+     *
+     * @return the signed impulse (negative if the constraint pushed in the
+     * opposite direction)
+     */
+    float appliedImpulseUnchecked() {
+        long constraintId = nativeId();
+        float result = getAppliedImpulse(constraintId);
+
+        return result;
+    }
+
     /**
      * Determine the breaking impulse threshold.
      *
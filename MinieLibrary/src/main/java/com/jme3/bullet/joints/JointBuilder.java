@@ -0,0 +1,512 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.joints;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.RotationOrder;
+import com.jme3.bullet.joints.motors.MotorParam;
+import com.jme3.bullet.joints.motors.TranslationMotor;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Matrix3f;
+import com.jme3.math.Vector3f;
+import java.nio.FloatBuffer;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Create and configure many constraints of the same type from parallel arrays
+ * of bodies and buffers of pivots, frames, and limits, then optionally add
+ * them all to a PhysicsSpace.
+ * <p>
+ * Settings that match Bullet's defaults are skipped, and limits are applied
+ * as whole vectors wherever the constraint type allows, so building a large
+ * constraint graph makes far fewer native calls than configuring each
+ * constraint individually.
+ * <p>
+ * Buffers are read using absolute indexing, so their positions and limits are
+ * ignored and left unchanged. Each joint uses:
+ * <ul>
+ * <li>3 floats from each pivot buffer,</li>
+ * <li>9 floats (a row-major rotation matrix) from each rotation buffer,
+ * and</li>
+ * <li>6 floats (X, Y, and Z translation followed by X, Y, and Z rotation)
+ * from each limit buffer.</li>
+ * </ul>
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class JointBuilder {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of degrees of freedom in a 6-DOF constraint
+     */
+    final private static int numDofs = 6;
+    /**
+     * number of axes in a vector
+     */
+    final private static int numAxes = 3;
+    /**
+     * number of elements in a rotation matrix
+     */
+    final private static int numMatrixElements = 9;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(JointBuilder.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * true to handle collisions between the ends of each joint
+     */
+    private boolean allowCollisions = true;
+    /**
+     * true to enable feedback for each joint
+     */
+    private boolean feedback = false;
+    /**
+     * true to use body A as the linear reference frame of each
+     * SixDofSpringJoint, false to use body B
+     */
+    private boolean useLinearReferenceFrameA = true;
+    /**
+     * lower limits (6 floats per joint) or null to leave them unchanged
+     */
+    private FloatBuffer lowerLimits = null;
+    /**
+     * joint orientations in A's local coordinates (9 floats per joint) or null
+     * for identity
+     */
+    private FloatBuffer rotationsInA = null;
+    /**
+     * joint orientations in B's local coordinates (9 floats per joint) or null
+     * for identity
+     */
+    private FloatBuffer rotationsInB = null;
+    /**
+     * upper limits (6 floats per joint) or null to leave them unchanged
+     */
+    private FloatBuffer upperLimits = null;
+    /**
+     * breaking impulse threshold for each joint, or null to leave it unchanged
+     */
+    private Float breakingImpulseThreshold = null;
+    /**
+     * pivot locations in A's scaled local coordinates (3 floats per joint)
+     */
+    final private FloatBuffer pivotsInA;
+    /**
+     * pivot locations in B's scaled local coordinates (3 floats per joint)
+     */
+    final private FloatBuffer pivotsInB;
+    /**
+     * number of joints to build
+     */
+    final private int numJoints;
+    /**
+     * bodies for the A ends
+     */
+    final private PhysicsRigidBody[] bodiesA;
+    /**
+     * bodies for the B ends
+     */
+    final private PhysicsRigidBody[] bodiesB;
+    /**
+     * order in which to apply axis rotations in each New6Dof
+     */
+    private RotationOrder rotationOrder = RotationOrder.XYZ;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a builder for double-ended joints with the specified ends
+     * and pivots.
+     *
+     * @param bodiesA the body for the A end of each joint (not null, all
+     * elements non-null, alias created)
+     * @param bodiesB the body for the B end of each joint (not null, all
+     * elements non-null and distinct from the corresponding element of
+     * bodiesA, same length as bodiesA, alias created)
+     * @param pivotsInA the pivot location of each joint in A's scaled local
+     * coordinates (not null, capacity&ge;3*numJoints, alias created)
+     * @param pivotsInB the pivot location of each joint in B's scaled local
+     * coordinates (not null, capacity&ge;3*numJoints, alias created)
+     */
+    public JointBuilder(PhysicsRigidBody[] bodiesA, PhysicsRigidBody[] bodiesB,
+            FloatBuffer pivotsInA, FloatBuffer pivotsInB) {
+        Validate.nonNullArray(bodiesA, "bodies A");
+        Validate.nonNullArray(bodiesB, "bodies B");
+        Validate.require(bodiesA.length == bodiesB.length,
+                "equal numbers of A and B bodies");
+        numJoints = bodiesA.length;
+        for (int jointIndex = 0; jointIndex < numJoints; ++jointIndex) {
+            if (bodiesA[jointIndex] == bodiesB[jointIndex]) {
+                String message = String.format(
+                        "The jointed bodies of joint %d must be distinct.",
+                        jointIndex);
+                throw new IllegalArgumentException(message);
+            }
+        }
+        validateBuffer(pivotsInA, "pivots in A", numAxes);
+        validateBuffer(pivotsInB, "pivots in B", numAxes);
+
+        this.bodiesA = bodiesA;
+        this.bodiesB = bodiesB;
+        this.pivotsInA = pivotsInA;
+        this.pivotsInB = pivotsInB;
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Create a New6Dof for each body pair and optionally add them all to the
+     * specified space.
+     *
+     * @param space the space to add the joints to, or null to not add them
+     * @return a new array of new joints, in body-pair order
+     */
+    public New6Dof[] buildNew6Dof(PhysicsSpace space) {
+        New6Dof[] result = new New6Dof[numJoints];
+
+        Vector3f pivotA = new Vector3f();
+        Vector3f pivotB = new Vector3f();
+        Matrix3f rotA = new Matrix3f();
+        Matrix3f rotB = new Matrix3f();
+        Vector3f tmpVector = new Vector3f();
+        for (int jointIndex = 0; jointIndex < numJoints; ++jointIndex) {
+            readVector(pivotsInA, numAxes, jointIndex, 0, pivotA);
+            readVector(pivotsInB, numAxes, jointIndex, 0, pivotB);
+            readMatrix(rotationsInA, jointIndex, rotA);
+            readMatrix(rotationsInB, jointIndex, rotB);
+            New6Dof joint = new New6Dof(bodiesA[jointIndex],
+                    bodiesB[jointIndex], pivotA, pivotB, rotA, rotB,
+                    rotationOrder);
+            configure(joint);
+
+            TranslationMotor motor = joint.getTranslationMotor();
+            if (lowerLimits != null) {
+                readVector(lowerLimits, numDofs, jointIndex, 0, tmpVector);
+                motor.set(MotorParam.LowerLimit, tmpVector);
+                readVector(lowerLimits, numDofs, jointIndex, numAxes,
+                        tmpVector);
+                for (int axisIndex = 0; axisIndex < numAxes; ++axisIndex) {
+                    joint.set(MotorParam.LowerLimit, numAxes + axisIndex,
+                            tmpVector.get(axisIndex));
+                }
+            }
+            if (upperLimits != null) {
+                readVector(upperLimits, numDofs, jointIndex, 0, tmpVector);
+                motor.set(MotorParam.UpperLimit, tmpVector);
+                readVector(upperLimits, numDofs, jointIndex, numAxes,
+                        tmpVector);
+                for (int axisIndex = 0; axisIndex < numAxes; ++axisIndex) {
+                    joint.set(MotorParam.UpperLimit, numAxes + axisIndex,
+                            tmpVector.get(axisIndex));
+                }
+            }
+
+            result[jointIndex] = joint;
+        }
+        addAll(result, space);
+
+        return result;
+    }
+
+    /**
+     * Create a Point2PointJoint for each body pair and optionally add them all
+     * to the specified space. Rotations and limits are ignored.
+     *
+     * @param space the space to add the joints to, or null to not add them
+     * @return a new array of new joints, in body-pair order
+     */
+    public Point2PointJoint[] buildPoint2Point(PhysicsSpace space) {
+        Point2PointJoint[] result = new Point2PointJoint[numJoints];
+
+        Vector3f pivotA = new Vector3f();
+        Vector3f pivotB = new Vector3f();
+        for (int jointIndex = 0; jointIndex < numJoints; ++jointIndex) {
+            readVector(pivotsInA, numAxes, jointIndex, 0, pivotA);
+            readVector(pivotsInB, numAxes, jointIndex, 0, pivotB);
+            Point2PointJoint joint = new Point2PointJoint(bodiesA[jointIndex],
+                    bodiesB[jointIndex], pivotA, pivotB);
+            configure(joint);
+            result[jointIndex] = joint;
+        }
+        addAll(result, space);
+
+        return result;
+    }
+
+    /**
+     * Create a SixDofSpringJoint for each body pair and optionally add them
+     * all to the specified space.
+     *
+     * @param space the space to add the joints to, or null to not add them
+     * @return a new array of new joints, in body-pair order
+     */
+    public SixDofSpringJoint[] buildSixDofSpring(PhysicsSpace space) {
+        SixDofSpringJoint[] result = new SixDofSpringJoint[numJoints];
+
+        Vector3f pivotA = new Vector3f();
+        Vector3f pivotB = new Vector3f();
+        Matrix3f rotA = new Matrix3f();
+        Matrix3f rotB = new Matrix3f();
+        Vector3f tmpVector = new Vector3f();
+        for (int jointIndex = 0; jointIndex < numJoints; ++jointIndex) {
+            readVector(pivotsInA, numAxes, jointIndex, 0, pivotA);
+            readVector(pivotsInB, numAxes, jointIndex, 0, pivotB);
+            readMatrix(rotationsInA, jointIndex, rotA);
+            readMatrix(rotationsInB, jointIndex, rotB);
+            SixDofSpringJoint joint = new SixDofSpringJoint(
+                    bodiesA[jointIndex], bodiesB[jointIndex], pivotA, pivotB,
+                    rotA, rotB, useLinearReferenceFrameA);
+            configure(joint);
+
+            if (lowerLimits != null) {
+                readVector(lowerLimits, numDofs, jointIndex, 0, tmpVector);
+                joint.setLinearLowerLimit(tmpVector);
+                readVector(lowerLimits, numDofs, jointIndex, numAxes,
+                        tmpVector);
+                joint.setAngularLowerLimit(tmpVector);
+            }
+            if (upperLimits != null) {
+                readVector(upperLimits, numDofs, jointIndex, 0, tmpVector);
+                joint.setLinearUpperLimit(tmpVector);
+                readVector(upperLimits, numDofs, jointIndex, numAxes,
+                        tmpVector);
+                joint.setAngularUpperLimit(tmpVector);
+            }
+
+            result[jointIndex] = joint;
+        }
+        addAll(result, space);
+
+        return result;
+    }
+
+    /**
+     * Count the joints this builder creates per build.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countJoints() {
+        return numJoints;
+    }
+
+    /**
+     * Alter the breaking impulse threshold of the joints built.
+     *
+     * @param threshold the desired threshold, or null to leave Bullet's
+     * default (default=null)
+     */
+    public void setBreakingImpulseThreshold(Float threshold) {
+        breakingImpulseThreshold = threshold;
+    }
+
+    /**
+     * Alter whether collisions are handled between the ends of each joint
+     * built.
+     *
+     * @param allow true to handle collisions, false to ignore them
+     * (default=true)
+     */
+    public void setCollisionBetweenLinkedBodies(boolean allow) {
+        allowCollisions = allow;
+    }
+
+    /**
+     * Alter whether feedback is enabled for the joints built.
+     *
+     * @param enable true to enable, false to disable (default=false)
+     */
+    public void setFeedback(boolean enable) {
+        feedback = enable;
+    }
+
+    /**
+     * Alter the limits of the 6-DOF joints built. Point2PointJoint ignores
+     * limits.
+     *
+     * @param lower the lower limits (capacity&ge;6*numJoints, alias created)
+     * or null to leave them unchanged (default=null)
+     * @param upper the upper limits (capacity&ge;6*numJoints, alias created)
+     * or null to leave them unchanged (default=null)
+     */
+    public void setLimits(FloatBuffer lower, FloatBuffer upper) {
+        if (lower != null) {
+            validateBuffer(lower, "lower limits", numDofs);
+        }
+        if (upper != null) {
+            validateBuffer(upper, "upper limits", numDofs);
+        }
+
+        lowerLimits = lower;
+        upperLimits = upper;
+    }
+
+    /**
+     * Alter whether each SixDofSpringJoint built uses body A as its linear
+     * reference frame.
+     *
+     * @param useA true&rarr;use body A, false&rarr;use body B (default=true)
+     */
+    public void setLinearReferenceFrameA(boolean useA) {
+        useLinearReferenceFrameA = useA;
+    }
+
+    /**
+     * Alter the orientations of the 6-DOF joints built. Point2PointJoint
+     * ignores rotations.
+     *
+     * @param inA the orientation of each joint in A's local coordinates
+     * (row-major rotation matrices, capacity&ge;9*numJoints, alias created) or
+     * null for identity (default=null)
+     * @param inB the orientation of each joint in B's local coordinates
+     * (row-major rotation matrices, capacity&ge;9*numJoints, alias created) or
+     * null for identity (default=null)
+     */
+    public void setRotations(FloatBuffer inA, FloatBuffer inB) {
+        if (inA != null) {
+            validateBuffer(inA, "rotations in A", numMatrixElements);
+        }
+        if (inB != null) {
+            validateBuffer(inB, "rotations in B", numMatrixElements);
+        }
+
+        rotationsInA = inA;
+        rotationsInB = inB;
+    }
+
+    /**
+     * Alter the order in which to apply axis rotations in each New6Dof built.
+     *
+     * @param order the desired order (not null, default=XYZ)
+     */
+    public void setRotationOrder(RotationOrder order) {
+        Validate.nonNull(order, "order");
+        rotationOrder = order;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Add the specified joints to the specified space.
+     *
+     * @param joints the joints to add (not null, unaffected)
+     * @param space the space to add them to, or null to skip
+     */
+    private static void addAll(Constraint[] joints, PhysicsSpace space) {
+        if (space != null) {
+            for (Constraint joint : joints) {
+                space.addJoint(joint);
+            }
+        }
+    }
+
+    /**
+     * Apply the settings common to all joint types, skipping any that match
+     * Bullet's defaults.
+     *
+     * @param joint the joint to configure (not null, modified)
+     */
+    private void configure(Constraint joint) {
+        if (!allowCollisions) {
+            joint.setCollisionBetweenLinkedBodies(false);
+        }
+        if (feedback) {
+            joint.setFeedback(true);
+        }
+        if (breakingImpulseThreshold != null) {
+            joint.setBreakingImpulseThreshold(breakingImpulseThreshold);
+        }
+    }
+
+    /**
+     * Read the rotation matrix of the indexed joint.
+     *
+     * @param buffer the buffer to read (may be null, unaffected)
+     * @param jointIndex the index of the joint (&ge;0)
+     * @param storeResult storage for the result (not null, modified)
+     */
+    private static void readMatrix(FloatBuffer buffer, int jointIndex,
+            Matrix3f storeResult) {
+        if (buffer == null) {
+            storeResult.loadIdentity();
+        } else {
+            int start = numMatrixElements * jointIndex;
+            for (int row = 0; row < numAxes; ++row) {
+                for (int column = 0; column < numAxes; ++column) {
+                    float value = buffer.get(start + numAxes * row + column);
+                    storeResult.set(row, column, value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Read a vector belonging to the indexed joint.
+     *
+     * @param buffer the buffer to read (not null, unaffected)
+     * @param stride the number of floats per joint (&gt;0)
+     * @param jointIndex the index of the joint (&ge;0)
+     * @param offset the offset of the vector within the joint's data (&ge;0)
+     * @param storeResult storage for the result (not null, modified)
+     */
+    private static void readVector(FloatBuffer buffer, int stride,
+            int jointIndex, int offset, Vector3f storeResult) {
+        int start = stride * jointIndex + offset;
+        storeResult.x = buffer.get(start);
+        storeResult.y = buffer.get(start + 1);
+        storeResult.z = buffer.get(start + 2);
+    }
+
+    /**
+     * Verify that the specified buffer holds enough data for all joints.
+     *
+     * @param buffer the buffer to test (not null, unaffected)
+     * @param description a description of the buffer (not null)
+     * @param floatsPerJoint the number of floats per joint (&gt;0)
+     */
+    private void validateBuffer(FloatBuffer buffer, String description,
+            int floatsPerJoint) {
+        Validate.nonNull(buffer, description);
+        if (buffer.capacity() < floatsPerJoint * numJoints) {
+            String message = String.format(
+                    "The %s buffer must hold at least %d floats.",
+                    description, floatsPerJoint * numJoints);
+            throw new IllegalArgumentException(message);
+        }
+    }
+}
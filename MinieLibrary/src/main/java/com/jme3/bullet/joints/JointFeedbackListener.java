@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.joints;
+
+import com.jme3.bullet.PhysicsSpace;
+
+/**
+ * Callback interface for bulk joint feedback gathered by a JointMonitor.
+ * Callbacks are invoked on the physics thread, after each simulation step that
+ * produced at least one event. The arrays are re-used by the monitor and are
+ * valid only for the duration of the callback.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public interface JointFeedbackListener {
+    /**
+     * Callback invoked after monitored joints are broken by the simulation.
+     *
+     * @param space the space that was stepped (not null)
+     * @param count the number of joints broken during the step (&gt;0)
+     * @param jointIds the native IDs of the broken joints (not null, length
+     * &ge;count)
+     * @param impulses the (signed) impulses that broke them (not null,
+     * length &ge;count)
+     */
+    void jointsBroken(PhysicsSpace space, int count, long[] jointIds,
+            float[] impulses);
+
+    /**
+     * Callback invoked after the magnitudes of the applied impulses of
+     * monitored joints rise above their thresholds. Each joint is reported
+     * once per excursion: it won't be reported again until its impulse
+     * magnitude has fallen back to or below the threshold.
+     *
+     * @param space the space that was stepped (not null)
+     * @param count the number of joints that exceeded their thresholds
+     * (&gt;0)
+     * @param jointIds the native IDs of those joints (not null, length
+     * &ge;count)
+     * @param impulses their (signed) applied impulses (not null, length
+     * &ge;count)
+     */
+    void impulseThresholdExceeded(PhysicsSpace space, int count,
+            long[] jointIds, float[] impulses);
+}
@@ -0,0 +1,349 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.joints;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.PhysicsTickListener;
+import com.jme3.util.SafeArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Watch many constraints for breakage and excessive impulses, and report
+ * events to listeners in bulk after each simulation step.
+ * <p>
+ * Each monitored constraint costs one native call per step to test whether
+ * it's still enabled, plus one more if it has a finite impulse threshold.
+ * Constraints that have been disabled (by breaking or otherwise) are no longer
+ * polled; re-add a constraint to resume monitoring it.
+ * <p>
+ * To gather events automatically, add the monitor to a PhysicsSpace as a tick
+ * listener. Only constraints in the stepped space are polled.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class JointMonitor implements PhysicsTickListener {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(JointMonitor.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * true for each constraint that's been disabled and is no longer polled
+     */
+    private boolean[] isDisabled = new boolean[0];
+    /**
+     * true for each constraint whose impulse exceeded its threshold during the
+     * most recent step
+     */
+    private boolean[] isOverloaded = new boolean[0];
+    /**
+     * monitored constraints
+     */
+    private Constraint[] joints = new Constraint[0];
+    /**
+     * impulse that broke each constraint reported in the current step
+     */
+    private float[] brokenImpulses = new float[0];
+    /**
+     * impulse threshold of each constraint (+Infinity if only breakage is
+     * monitored)
+     */
+    private float[] impulseThresholds = new float[0];
+    /**
+     * applied impulse of each constraint reported as overloaded in the
+     * current step
+     */
+    private float[] overloadImpulses = new float[0];
+    /**
+     * number of constraints monitored
+     */
+    private int numJoints = 0;
+    /**
+     * native IDs of the constraints broken during the current step
+     */
+    private long[] brokenIds = new long[0];
+    /**
+     * native IDs of the constraints overloaded during the current step
+     */
+    private long[] overloadIds = new long[0];
+    /**
+     * map native IDs to indices in the parallel arrays
+     */
+    final private Map<Long, Integer> indexMap = new HashMap<>(64);
+    /**
+     * listeners to notify
+     */
+    final private SafeArrayList<JointFeedbackListener> listeners
+            = new SafeArrayList<>(JointFeedbackListener.class);
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Monitor the specified constraint for breakage only. If it's already
+     * monitored, resume polling it.
+     *
+     * @param joint the constraint to monitor (not null)
+     */
+    public void add(Constraint joint) {
+        add(joint, Float.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Monitor the specified constraint for breakage and for applied impulses
+     * above the specified threshold. If it's already monitored, alter its
+     * threshold and resume polling it. Feedback is enabled for the constraint.
+     *
+     * @param joint the constraint to monitor (not null)
+     * @param impulseThreshold the impulse magnitude above which to report the
+     * constraint (&ge;0) or +Infinity to monitor breakage only
+     */
+    public void add(Constraint joint, float impulseThreshold) {
+        Validate.nonNull(joint, "joint");
+        Validate.nonNegative(impulseThreshold, "impulse threshold");
+
+        long jointId = joint.nativeId();
+        Integer index = indexMap.get(jointId);
+        int i;
+        if (index == null) {
+            ensureCapacity(numJoints + 1);
+            i = numJoints;
+            ++numJoints;
+            joints[i] = joint;
+            indexMap.put(jointId, i);
+        } else {
+            i = index;
+        }
+        impulseThresholds[i] = impulseThreshold;
+        isDisabled[i] = false;
+        isOverloaded[i] = false;
+
+        joint.setFeedback(true);
+    }
+
+    /**
+     * Register the specified listener.
+     *
+     * @param listener the listener to register (not null, not already
+     * registered, alias created)
+     */
+    public void addListener(JointFeedbackListener listener) {
+        Validate.nonNull(listener, "listener");
+        assert !listeners.contains(listener);
+
+        listeners.add(listener);
+    }
+
+    /**
+     * Count the monitored constraints.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countJoints() {
+        return numJoints;
+    }
+
+    /**
+     * Find a monitored constraint by its native ID, for instance to resolve
+     * an ID delivered to a listener.
+     *
+     * @param jointId the native ID of the constraint
+     * @return the pre-existing instance, or null if not monitored
+     */
+    public Constraint findJoint(long jointId) {
+        Integer index = indexMap.get(jointId);
+        Constraint result = (index == null) ? null : joints[index];
+
+        return result;
+    }
+
+    /**
+     * Stop monitoring the specified constraint. Feedback remains enabled.
+     *
+     * @param joint the constraint to stop monitoring (not null)
+     * @return true if it was monitored, otherwise false
+     */
+    public boolean remove(Constraint joint) {
+        Validate.nonNull(joint, "joint");
+
+        Integer index = indexMap.remove(joint.nativeId());
+        if (index == null) {
+            return false;
+        }
+        /*
+         * Move the last constraint into the vacated slot.
+         */
+        int i = index;
+        int last = numJoints - 1;
+        if (i != last) {
+            joints[i] = joints[last];
+            impulseThresholds[i] = impulseThresholds[last];
+            isDisabled[i] = isDisabled[last];
+            isOverloaded[i] = isOverloaded[last];
+            indexMap.put(joints[i].nativeId(), i);
+        }
+        joints[last] = null;
+        numJoints = last;
+
+        return true;
+    }
+
+    /**
+     * De-register the specified listener.
+     *
+     * @param listener the listener to de-register (not null)
+     */
+    public void removeListener(JointFeedbackListener listener) {
+        Validate.nonNull(listener, "listener");
+        listeners.remove(listener);
+    }
+    // *************************************************************************
+    // PhysicsTickListener methods
+
+    /**
+     * Callback from Bullet, invoked just before the physics is stepped.
+     *
+     * @param space the space that's about to be stepped (not null)
+     * @param timeStep the time per physics step (in seconds, &ge;0)
+     */
+    @Override
+    public void prePhysicsTick(PhysicsSpace space, float timeStep) {
+        // do nothing
+    }
+
+    /**
+     * Callback from Bullet, invoked just after the physics has been stepped.
+     * Poll the monitored constraints and notify listeners.
+     *
+     * @param space the space that was just stepped (not null)
+     * @param timeStep the time per physics step (in seconds, &ge;0)
+     */
+    @Override
+    public void physicsTick(PhysicsSpace space, float timeStep) {
+        int numBroken = 0;
+        int numOverloaded = 0;
+
+        for (int i = 0; i < numJoints; ++i) {
+            Constraint joint = joints[i];
+            if (isDisabled[i] || joint.getPhysicsSpace() != space) {
+                continue;
+            }
+
+            float threshold = impulseThresholds[i];
+            if (!joint.isEnabled()) {
+                isDisabled[i] = true;
+                /*
+                 * The solver disables a constraint when the magnitude of its
+                 * impulse reaches the breaking threshold. Anything else was
+                 * disabled deliberately, so don't report it.
+                 */
+                float impulse = joint.appliedImpulseUnchecked();
+                float magnitude = Math.abs(impulse);
+                if (magnitude >= joint.getBreakingImpulseThreshold()) {
+                    brokenIds[numBroken] = joint.nativeId();
+                    brokenImpulses[numBroken] = impulse;
+                    ++numBroken;
+                }
+
+            } else if (threshold < Float.POSITIVE_INFINITY) {
+                float impulse = joint.appliedImpulseUnchecked();
+                boolean overloaded = Math.abs(impulse) > threshold;
+                if (overloaded && !isOverloaded[i]) {
+                    overloadIds[numOverloaded] = joint.nativeId();
+                    overloadImpulses[numOverloaded] = impulse;
+                    ++numOverloaded;
+                }
+                isOverloaded[i] = overloaded;
+            }
+        }
+
+        if (numBroken > 0) {
+            for (JointFeedbackListener listener : listeners.getArray()) {
+                listener.jointsBroken(space, numBroken, brokenIds,
+                        brokenImpulses);
+            }
+        }
+        if (numOverloaded > 0) {
+            for (JointFeedbackListener listener : listeners.getArray()) {
+                listener.impulseThresholdExceeded(space, numOverloaded,
+                        overloadIds, overloadImpulses);
+            }
+        }
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Grow the parallel arrays, if necessary, to hold the specified number of
+     * constraints.
+     *
+     * @param minJoints the minimum capacity (&ge;0)
+     */
+    private void ensureCapacity(int minJoints) {
+        int oldCapacity = joints.length;
+        if (minJoints <= oldCapacity) {
+            return;
+        }
+
+        int newCapacity = Math.max(minJoints, 2 * oldCapacity);
+        Constraint[] newJoints = new Constraint[newCapacity];
+        System.arraycopy(joints, 0, newJoints, 0, numJoints);
+        joints = newJoints;
+
+        float[] newThresholds = new float[newCapacity];
+        System.arraycopy(impulseThresholds, 0, newThresholds, 0, numJoints);
+        impulseThresholds = newThresholds;
+
+        boolean[] newDisabled = new boolean[newCapacity];
+        System.arraycopy(isDisabled, 0, newDisabled, 0, numJoints);
+        isDisabled = newDisabled;
+
+        boolean[] newOverloaded = new boolean[newCapacity];
+        System.arraycopy(isOverloaded, 0, newOverloaded, 0, numJoints);
+        isOverloaded = newOverloaded;
+        /*
+         * The event buffers needn't preserve their contents.
+         */
+        brokenIds = new long[newCapacity];
+        brokenImpulses = new float[newCapacity];
+        overloadIds = new long[newCapacity];
+        overloadImpulses = new float[newCapacity];
+    }
+}
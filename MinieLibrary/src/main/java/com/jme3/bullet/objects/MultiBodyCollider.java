@@ -169,6 +169,7 @@ public class MultiBodyCollider extends PhysicsCollisionObject {
     public void setPhysicsLocation(Vector3f location) {
         long objectId = nativeId();
         setPhysicsLocation(objectId, location);
+        discardMirroredTransform();
     }
 
     /**
@@ -180,6 +181,7 @@ public class MultiBodyCollider extends PhysicsCollisionObject {
     public void setPhysicsRotation(Matrix3f rotation) {
         long objectId = nativeId();
         setPhysicsRotation(objectId, rotation);
+        discardMirroredTransform();
     }
     // *************************************************************************
     // PhysicsCollisionObject methods
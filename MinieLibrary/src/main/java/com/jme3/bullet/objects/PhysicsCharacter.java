@@ -490,6 +490,7 @@ public class PhysicsCharacter extends PhysicsCollisionObject {
     public void setPhysicsLocation(Vector3f location) {
         Validate.nonNull(location, "location");
         controller.warp(location);
+        discardMirroredTransform();
     }
 
     /**
@@ -544,6 +545,7 @@ public class PhysicsCharacter extends PhysicsCollisionObject {
     public void warp(Vector3f location) {
         Validate.nonNull(location, "location");
         controller.warp(location);
+        discardMirroredTransform();
     }
     // *************************************************************************
     // PhysicsCollisionObject methods
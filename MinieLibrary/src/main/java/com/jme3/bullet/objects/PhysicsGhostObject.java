@@ -155,6 +155,7 @@ public class PhysicsGhostObject extends PhysicsCollisionObject {
     public void setPhysicsLocation(Vector3f location) {
         long objectId = nativeId();
         setPhysicsLocation(objectId, location);
+        discardMirroredTransform();
     }
 
     /**
@@ -166,6 +167,7 @@ public class PhysicsGhostObject extends PhysicsCollisionObject {
     public void setPhysicsRotation(Matrix3f rotation) {
         long objectId = nativeId();
         setPhysicsRotation(objectId, rotation);
+        discardMirroredTransform();
     }
 
     /**
@@ -177,6 +179,7 @@ public class PhysicsGhostObject extends PhysicsCollisionObject {
     public void setPhysicsRotation(Quaternion rotation) {
         long objectId = nativeId();
         setPhysicsRotation(objectId, rotation);
+        discardMirroredTransform();
     }
     // *************************************************************************
     // PhysicsCollisionObject methods
@@ -845,6 +845,7 @@ public class PhysicsRigidBody extends PhysicsBody {
 
         long objectId = nativeId();
         setPhysicsRotation(objectId, orientation);
+        discardMirroredTransform();
     }
 
     /**
@@ -858,6 +859,7 @@ public class PhysicsRigidBody extends PhysicsBody {
 
         long objectId = nativeId();
         setPhysicsRotation(objectId, orientation);
+        discardMirroredTransform();
     }
 
     /**
@@ -1232,6 +1234,7 @@ public class PhysicsRigidBody extends PhysicsBody {
 
         long objectId = nativeId();
         setPhysicsLocation(objectId, location);
+        discardMirroredTransform();
     }
 
     /**
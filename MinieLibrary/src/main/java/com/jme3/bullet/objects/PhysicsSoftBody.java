@@ -39,6 +39,7 @@ import com.jme3.bullet.collision.shapes.infos.DebugMeshNormals;
 import com.jme3.bullet.objects.infos.Cluster;
 import com.jme3.bullet.objects.infos.SoftBodyConfig;
 import com.jme3.bullet.objects.infos.SoftBodyMaterial;
+import com.jme3.bullet.objects.infos.SoftBodySnapshot;
 import com.jme3.export.InputCapsule;
 import com.jme3.export.JmeExporter;
 import com.jme3.export.JmeImporter;
@@ -124,6 +125,15 @@ public class PhysicsSoftBody extends PhysicsBody {
      * material properties of this soft body, allocated lazily
      */
     private SoftBodyMaterial material = null;
+    /**
+     * double-buffered copy of node data for reading from other threads, or
+     * null if disabled
+     */
+    private SoftBodySnapshot snapshot = null;
+    /**
+     * temporary storage for bulk node and cluster accessors, allocated lazily
+     */
+    private FloatBuffer scratch = null;
     /**
      * properties (including gravity) that may be replaced when this body gets
      * added to a PhysicsSoftSpace
@@ -325,6 +335,34 @@ public class PhysicsSoftBody extends PhysicsBody {
         addForce(objectId, force, nodeIndex);
     }
 
+    /**
+     * Apply forces to the listed nodes of this body.
+     * <p>
+     * Bullet provides no bulk setter for node forces, so this costs one native
+     * call per listed node, but it skips the per-node argument validation
+     * performed by {@link #applyForce(com.jme3.math.Vector3f, int)}.
+     *
+     * @param nodeIndices the indices of the nodes to apply forces to (not
+     * null, all elements &ge;0 and &lt;numNodes, unaffected)
+     * @param forces a buffer containing 3 floats per listed node (in
+     * physics-space coordinates, not null, unaffected)
+     */
+    public void applyForces(IntBuffer nodeIndices, FloatBuffer forces) {
+        int numListed = validateIndices(nodeIndices, countNodes(),
+                "node index");
+        validateValues(forces, numAxes * numListed);
+
+        long objectId = nativeId();
+        Vector3f force = new Vector3f();
+        for (int i = 0; i < numListed; ++i) {
+            int nodeIndex = nodeIndices.get(i);
+            force.x = forces.get(numAxes * i);
+            force.y = forces.get(numAxes * i + 1);
+            force.z = forces.get(numAxes * i + 2);
+            addForce(objectId, force, nodeIndex);
+        }
+    }
+
     /**
      * Rotate this body.
      *
@@ -416,6 +454,26 @@ public class PhysicsSoftBody extends PhysicsBody {
         return result;
     }
 
+    /**
+     * Copy the center-of-mass locations of the listed clusters, using a single
+     * native call.
+     *
+     * @param clusterIndices the indices of the clusters to copy (not null, all
+     * elements &ge;0 and &lt;numClusters, unaffected)
+     * @param storeResult storage for the result (direct, modified) or null
+     * @return a direct buffer containing 3 floats per listed cluster (in
+     * physics-space coordinates, either storeResult or a new buffer)
+     */
+    public FloatBuffer copyClusterCenters(IntBuffer clusterIndices,
+            FloatBuffer storeResult) {
+        validateIndices(clusterIndices, countClusters(), "cluster index");
+        scratch = copyClusterCenters(scratch);
+        FloatBuffer result = gather(scratch, numAxes, clusterIndices,
+                storeResult);
+
+        return result;
+    }
+
     /**
      * Copy the masses of all clusters in this body.
      *
@@ -438,6 +496,24 @@ public class PhysicsSoftBody extends PhysicsBody {
         return result;
     }
 
+    /**
+     * Copy the masses of the listed clusters, using a single native call.
+     *
+     * @param clusterIndices the indices of the clusters to copy (not null, all
+     * elements &ge;0 and &lt;numClusters, unaffected)
+     * @param storeResult storage for the result (direct, modified) or null
+     * @return a direct buffer containing a float value per listed cluster
+     * (either storeResult or a new buffer)
+     */
+    public FloatBuffer copyClusterMasses(IntBuffer clusterIndices,
+            FloatBuffer storeResult) {
+        validateIndices(clusterIndices, countClusters(), "cluster index");
+        scratch = copyClusterMasses(scratch);
+        FloatBuffer result = gather(scratch, 1, clusterIndices, storeResult);
+
+        return result;
+    }
+
     /**
      * Copy the (linear) velocities of all clusters in this body.
      *
@@ -460,6 +536,26 @@ public class PhysicsSoftBody extends PhysicsBody {
         return result;
     }
 
+    /**
+     * Copy the (linear) velocities of the listed clusters, using a single
+     * native call.
+     *
+     * @param clusterIndices the indices of the clusters to copy (not null, all
+     * elements &ge;0 and &lt;numClusters, unaffected)
+     * @param storeResult storage for the result (direct, modified) or null
+     * @return a direct buffer containing 3 floats per listed cluster (in
+     * physics-space coordinates, either storeResult or a new buffer)
+     */
+    public FloatBuffer copyClusterVelocities(IntBuffer clusterIndices,
+            FloatBuffer storeResult) {
+        validateIndices(clusterIndices, countClusters(), "cluster index");
+        scratch = copyClusterVelocities(scratch);
+        FloatBuffer result = gather(scratch, numAxes, clusterIndices,
+                storeResult);
+
+        return result;
+    }
+
     /**
      * Copy the node indices of all faces in this body.
      *
@@ -534,6 +630,45 @@ public class PhysicsSoftBody extends PhysicsBody {
         return result;
     }
 
+    /**
+     * Copy the locations of a contiguous range of nodes, using a single native
+     * call.
+     *
+     * @param startIndex the index of the first node to copy (&ge;0)
+     * @param count the number of nodes to copy (&ge;0, startIndex+count
+     * &le;numNodes)
+     * @param storeResult storage for the result (direct, modified) or null
+     * @return a direct buffer containing 3 floats per copied node (in
+     * physics-space coordinates, either storeResult or a new buffer)
+     */
+    public FloatBuffer copyLocations(int startIndex, int count,
+            FloatBuffer storeResult) {
+        validateRange(startIndex, count, countNodes());
+        scratch = copyLocations(scratch);
+        FloatBuffer result
+                = gather(scratch, numAxes, startIndex, count, storeResult);
+
+        return result;
+    }
+
+    /**
+     * Copy the locations of the listed nodes, using a single native call.
+     *
+     * @param nodeIndices the indices of the nodes to copy (not null, all
+     * elements &ge;0 and &lt;numNodes, unaffected)
+     * @param storeResult storage for the result (direct, modified) or null
+     * @return a direct buffer containing 3 floats per listed node (in
+     * physics-space coordinates, either storeResult or a new buffer)
+     */
+    public FloatBuffer copyLocations(IntBuffer nodeIndices,
+            FloatBuffer storeResult) {
+        validateIndices(nodeIndices, countNodes(), "node index");
+        scratch = copyLocations(scratch);
+        FloatBuffer result = gather(scratch, numAxes, nodeIndices, storeResult);
+
+        return result;
+    }
+
     /**
      * Copy the masses of all nodes in this body.
      *
@@ -556,6 +691,45 @@ public class PhysicsSoftBody extends PhysicsBody {
         return result;
     }
 
+    /**
+     * Copy the masses of a contiguous range of nodes, using a single native
+     * call. Pinned nodes have mass=0.
+     *
+     * @param startIndex the index of the first node to copy (&ge;0)
+     * @param count the number of nodes to copy (&ge;0, startIndex+count
+     * &le;numNodes)
+     * @param storeResult storage for the result (direct, modified) or null
+     * @return a direct buffer containing a float value per copied node (either
+     * storeResult or a new buffer)
+     */
+    public FloatBuffer copyMasses(int startIndex, int count,
+            FloatBuffer storeResult) {
+        validateRange(startIndex, count, countNodes());
+        scratch = copyMasses(scratch);
+        FloatBuffer result = gather(scratch, 1, startIndex, count, storeResult);
+
+        return result;
+    }
+
+    /**
+     * Copy the masses of the listed nodes, using a single native call. Pinned
+     * nodes have mass=0.
+     *
+     * @param nodeIndices the indices of the nodes to copy (not null, all
+     * elements &ge;0 and &lt;numNodes, unaffected)
+     * @param storeResult storage for the result (direct, modified) or null
+     * @return a direct buffer containing a float value per listed node (either
+     * storeResult or a new buffer)
+     */
+    public FloatBuffer copyMasses(IntBuffer nodeIndices,
+            FloatBuffer storeResult) {
+        validateIndices(nodeIndices, countNodes(), "node index");
+        scratch = copyMasses(scratch);
+        FloatBuffer result = gather(scratch, 1, nodeIndices, storeResult);
+
+        return result;
+    }
+
     /**
      * Copy the normal vectors of all nodes in this body.
      *
@@ -626,6 +800,46 @@ public class PhysicsSoftBody extends PhysicsBody {
         return result;
     }
 
+    /**
+     * Copy the (linear) velocities of a contiguous range of nodes, using a
+     * single native call.
+     *
+     * @param startIndex the index of the first node to copy (&ge;0)
+     * @param count the number of nodes to copy (&ge;0, startIndex+count
+     * &le;numNodes)
+     * @param storeResult storage for the result (direct, modified) or null
+     * @return a direct buffer containing 3 floats per copied node (in
+     * physics-space coordinates, either storeResult or a new buffer)
+     */
+    public FloatBuffer copyVelocities(int startIndex, int count,
+            FloatBuffer storeResult) {
+        validateRange(startIndex, count, countNodes());
+        scratch = copyVelocities(scratch);
+        FloatBuffer result
+                = gather(scratch, numAxes, startIndex, count, storeResult);
+
+        return result;
+    }
+
+    /**
+     * Copy the (linear) velocities of the listed nodes, using a single native
+     * call.
+     *
+     * @param nodeIndices the indices of the nodes to copy (not null, all
+     * elements &ge;0 and &lt;numNodes, unaffected)
+     * @param storeResult storage for the result (direct, modified) or null
+     * @return a direct buffer containing 3 floats per listed node (in
+     * physics-space coordinates, either storeResult or a new buffer)
+     */
+    public FloatBuffer copyVelocities(IntBuffer nodeIndices,
+            FloatBuffer storeResult) {
+        validateIndices(nodeIndices, countNodes(), "node index");
+        scratch = copyVelocities(scratch);
+        FloatBuffer result = gather(scratch, numAxes, nodeIndices, storeResult);
+
+        return result;
+    }
+
     /**
      * Count the clusters in this body.
      *
@@ -786,34 +1000,51 @@ public class PhysicsSoftBody extends PhysicsBody {
         int numClusters = countClusters();
         Validate.inRange(clusterIndex, "cluster index", 0, numClusters - 1);
 
-        float result;
         long objectId = nativeId();
-        switch (parameter) {
-            case AngularDamping:
-                result = getClusterAngularDamping(objectId, clusterIndex);
-                break;
-            case LinearDamping:
-                result = getClusterLinearDamping(objectId, clusterIndex);
-                break;
-            case Matching:
-                result = getClusterMatching(objectId, clusterIndex);
-                break;
-            case MaxSelfImpulse:
-                result = getClusterMaxSelfImpulse(objectId, clusterIndex);
-                break;
-            case NodeDamping:
-                result = getClusterNodeDamping(objectId, clusterIndex);
-                break;
-            case SelfImpulse:
-                result = getClusterSelfImpulse(objectId, clusterIndex);
-                break;
-            default:
-                throw new IllegalArgumentException(parameter.toString());
+        float result = getClusterParameter(objectId, parameter, clusterIndex);
+
+        return result;
+    }
+
+    /**
+     * Read the specified parameter of the listed clusters.
+     *
+     * @param parameter which parameter to read (not null)
+     * @param clusterIndices the indices of the clusters to read (not null, all
+     * elements &ge;0 and &lt;numClusters, unaffected)
+     * @param storeResult storage for the result (direct, modified) or null
+     * @return a direct buffer containing a float value per listed cluster
+     * (either storeResult or a new buffer)
+     */
+    public FloatBuffer get(Cluster parameter, IntBuffer clusterIndices,
+            FloatBuffer storeResult) {
+        Validate.nonNull(parameter, "parameter");
+        int numListed = validateIndices(clusterIndices, countClusters(),
+                "cluster index");
+        FloatBuffer result = ensureStorage(numListed, storeResult);
+
+        long objectId = nativeId();
+        for (int i = 0; i < numListed; ++i) {
+            int clusterIndex = clusterIndices.get(i);
+            float value = getClusterParameter(objectId, parameter,
+                    clusterIndex);
+            result.put(i, value);
         }
 
         return result;
     }
 
+    /**
+     * Access the double-buffered snapshot of this body's nodes, which a
+     * PhysicsSoftSpace updates at the end of each update.
+     *
+     * @return the pre-existing instance, or null if snapshots are disabled
+     * @see #setSnapshotEnabled(boolean)
+     */
+    public SoftBodySnapshot getSnapshot() {
+        return snapshot;
+    }
+
     /**
      * Access the SoftBodyConfig of this body.
      *
@@ -918,6 +1149,47 @@ public class PhysicsSoftBody extends PhysicsBody {
         return resultBuffer;
     }
 
+    /**
+     * List all pinned nodes in this body, using a single native call. A pinned
+     * node is one with mass=0.
+     *
+     * @param storeResult storage for the result (direct, modified) or null
+     * @return a direct buffer containing node indices, in ascending order,
+     * with its limit set to the number of pinned nodes (either storeResult or
+     * a new buffer)
+     */
+    public IntBuffer listPinnedNodes(IntBuffer storeResult) {
+        if (storeResult != null && !storeResult.isDirect()) {
+            throw new IllegalArgumentException("The buffer must be direct.");
+        }
+        scratch = copyMasses(scratch);
+        int numNodes = countNodes();
+
+        int numPinned = 0;
+        for (int nodeIndex = 0; nodeIndex < numNodes; ++nodeIndex) {
+            if (scratch.get(nodeIndex) == 0f) {
+                ++numPinned;
+            }
+        }
+        IntBuffer result;
+        if (storeResult == null || storeResult.capacity() < numPinned) {
+            result = BufferUtils.createIntBuffer(numPinned);
+        } else {
+            result = storeResult;
+        }
+
+        int i = 0;
+        for (int nodeIndex = 0; nodeIndex < numNodes; ++nodeIndex) {
+            if (scratch.get(nodeIndex) == 0f) {
+                result.put(i, nodeIndex);
+                ++i;
+            }
+        }
+        result.limit(numPinned);
+
+        return result;
+    }
+
     /**
      * Read the collision margin of this body.
      *
@@ -1003,6 +1275,25 @@ public class PhysicsSoftBody extends PhysicsBody {
         return result;
     }
 
+    /**
+     * Pin the listed nodes in place by zeroing their masses, using 2 native
+     * calls. To unpin a node, give it a positive mass.
+     *
+     * @param nodeIndices the indices of the nodes to pin (not null, all
+     * elements &ge;0 and &lt;numNodes, unaffected)
+     */
+    public void pinNodes(IntBuffer nodeIndices) {
+        int numListed = validateIndices(nodeIndices, countNodes(),
+                "node index");
+
+        scratch = copyMasses(scratch);
+        for (int i = 0; i < numListed; ++i) {
+            int nodeIndex = nodeIndices.get(i);
+            scratch.put(nodeIndex, 0f);
+        }
+        setMasses(scratch);
+    }
+
     /**
      * Randomize constraints to reduce solver bias.
      */
@@ -1062,27 +1353,30 @@ public class PhysicsSoftBody extends PhysicsBody {
         Validate.inRange(clusterIndex, "cluster index", 0, numClusters - 1);
 
         long objectId = nativeId();
-        switch (parameter) {
-            case AngularDamping:
-                setClusterAngularDamping(objectId, clusterIndex, value);
-                break;
-            case LinearDamping:
-                setClusterLinearDamping(objectId, clusterIndex, value);
-                break;
-            case Matching:
-                setClusterMatching(objectId, clusterIndex, value);
-                break;
-            case MaxSelfImpulse:
-                setClusterMaxSelfImpulse(objectId, clusterIndex, value);
-                break;
-            case NodeDamping:
-                setClusterNodeDamping(objectId, clusterIndex, value);
-                break;
-            case SelfImpulse:
-                setClusterSelfImpulse(objectId, clusterIndex, value);
-                break;
-            default:
-                throw new IllegalArgumentException(parameter.toString());
+        setClusterParameter(objectId, parameter, clusterIndex, value);
+    }
+
+    /**
+     * Alter the specified parameter of the listed clusters.
+     *
+     * @param parameter which parameter to alter (not null)
+     * @param clusterIndices the indices of the clusters to alter (not null,
+     * all elements &ge;0 and &lt;numClusters, unaffected)
+     * @param values a buffer containing the desired value for each listed
+     * cluster (not null, unaffected)
+     */
+    public void set(Cluster parameter, IntBuffer clusterIndices,
+            FloatBuffer values) {
+        Validate.nonNull(parameter, "parameter");
+        int numListed = validateIndices(clusterIndices, countClusters(),
+                "cluster index");
+        validateValues(values, numListed);
+
+        long objectId = nativeId();
+        for (int i = 0; i < numListed; ++i) {
+            int clusterIndex = clusterIndices.get(i);
+            float value = values.get(i);
+            setClusterParameter(objectId, parameter, clusterIndex, value);
         }
     }
 
@@ -1140,6 +1434,42 @@ public class PhysicsSoftBody extends PhysicsBody {
         setMasses(objectId, masses);
     }
 
+    /**
+     * Alter the masses of a contiguous range of nodes, using 2 native calls.
+     *
+     * @param startIndex the index of the first node to alter (&ge;0)
+     * @param count the number of nodes to alter (&ge;0, startIndex+count
+     * &le;numNodes)
+     * @param masses a buffer containing the desired mass for each node in the
+     * range (not null, all elements &ge;0, unaffected)
+     */
+    public void setMasses(int startIndex, int count, FloatBuffer masses) {
+        validateRange(startIndex, count, countNodes());
+        validateValues(masses, count);
+
+        scratch = copyMasses(scratch);
+        scatter(masses, 1, startIndex, count, scratch);
+        setMasses(scratch);
+    }
+
+    /**
+     * Alter the masses of the listed nodes, using 2 native calls.
+     *
+     * @param nodeIndices the indices of the nodes to alter (not null, all
+     * elements &ge;0 and &lt;numNodes, unaffected)
+     * @param masses a buffer containing the desired mass for each listed node
+     * (not null, all elements &ge;0, unaffected)
+     */
+    public void setMasses(IntBuffer nodeIndices, FloatBuffer masses) {
+        int numListed = validateIndices(nodeIndices, countNodes(),
+                "node index");
+        validateValues(masses, numListed);
+
+        scratch = copyMasses(scratch);
+        scatter(masses, 1, nodeIndices, scratch);
+        setMasses(scratch);
+    }
+
     /**
      * Alter the total mass of this body, weighted by volume.
      *
@@ -1233,6 +1563,24 @@ public class PhysicsSoftBody extends PhysicsBody {
         setRestLengthScale(objectId, scale);
     }
 
+    /**
+     * Enable or disable the double-buffered node snapshot. While enabled, the
+     * snapshot gets captured at the end of each update of the PhysicsSoftSpace
+     * this body is added to. This allows other threads to read node data
+     * without waiting for the physics thread.
+     *
+     * @param enable true to enable snapshots, false to disable them
+     * (default=false)
+     */
+    public void setSnapshotEnabled(boolean enable) {
+        if (enable && snapshot == null) {
+            snapshot = new SoftBodySnapshot(this);
+            snapshot.capture();
+        } else if (!enable) {
+            snapshot = null;
+        }
+    }
+
     /**
      * Alter the velocities of all nodes.
      *
@@ -1249,6 +1597,44 @@ public class PhysicsSoftBody extends PhysicsBody {
         setVelocities(objectId, velocities);
     }
 
+    /**
+     * Alter the velocities of a contiguous range of nodes, using 2 native
+     * calls.
+     *
+     * @param startIndex the index of the first node to alter (&ge;0)
+     * @param count the number of nodes to alter (&ge;0, startIndex+count
+     * &le;numNodes)
+     * @param velocities a buffer containing 3 floats per node in the range (in
+     * physics-space coordinates, not null, unaffected)
+     */
+    public void setVelocities(int startIndex, int count,
+            FloatBuffer velocities) {
+        validateRange(startIndex, count, countNodes());
+        validateValues(velocities, numAxes * count);
+
+        scratch = copyVelocities(scratch);
+        scatter(velocities, numAxes, startIndex, count, scratch);
+        setVelocities(scratch);
+    }
+
+    /**
+     * Alter the velocities of the listed nodes, using 2 native calls.
+     *
+     * @param nodeIndices the indices of the nodes to alter (not null, all
+     * elements &ge;0 and &lt;numNodes, unaffected)
+     * @param velocities a buffer containing 3 floats per listed node (in
+     * physics-space coordinates, not null, unaffected)
+     */
+    public void setVelocities(IntBuffer nodeIndices, FloatBuffer velocities) {
+        int numListed = validateIndices(nodeIndices, countNodes(),
+                "node index");
+        validateValues(velocities, numAxes * numListed);
+
+        scratch = copyVelocities(scratch);
+        scatter(velocities, numAxes, nodeIndices, scratch);
+        setVelocities(scratch);
+    }
+
     /**
      * Alter the velocities of all nodes to make them identical.
      *
@@ -1433,6 +1819,8 @@ public class PhysicsSoftBody extends PhysicsBody {
         copyPcoProperties(old);
         config.copyAll(old.config);
         material = cloner.clone(old.material);
+        scratch = null;
+        snapshot = null;
 
         FloatBuffer floats = old.copyLocations(null);
         appendNodes(floats);
@@ -1475,6 +1863,8 @@ public class PhysicsSoftBody extends PhysicsBody {
          * Soft joints require clusters; clone them after appending clusters.
          */
         cloneJoints(cloner);
+
+        setSnapshotEnabled(old.snapshot != null);
     }
 
     /**
@@ -1804,6 +2194,239 @@ public class PhysicsSoftBody extends PhysicsBody {
         writeJoints(capsule);
     }
     // *************************************************************************
+    // Java private methods
+
+    /**
+     * Ensure that the specified storage can hold the specified number of
+     * floats.
+     *
+     * @param numFloats the number of floats required (&ge;0)
+     * @param storeResult storage for the result (direct, modified) or null
+     * @return a direct buffer (either storeResult or a new buffer)
+     */
+    private static FloatBuffer ensureStorage(int numFloats,
+            FloatBuffer storeResult) {
+        if (storeResult != null && !storeResult.isDirect()) {
+            throw new IllegalArgumentException("The buffer must be direct.");
+        }
+        FloatBuffer result = MyBuffer.ensureCapacity(numFloats, storeResult);
+
+        return result;
+    }
+
+    /**
+     * Gather per-element vectors for a contiguous range of elements.
+     *
+     * @param source the per-element data for all elements (not null,
+     * unaffected)
+     * @param stride the number of floats per element (&gt;0)
+     * @param startIndex the index of the first element to gather (&ge;0)
+     * @param count the number of elements to gather (&ge;0)
+     * @param storeResult storage for the result (direct, modified) or null
+     * @return a direct buffer (either storeResult or a new buffer)
+     */
+    private static FloatBuffer gather(FloatBuffer source, int stride,
+            int startIndex, int count, FloatBuffer storeResult) {
+        int numFloats = stride * count;
+        FloatBuffer result = ensureStorage(numFloats, storeResult);
+
+        int sourceOffset = stride * startIndex;
+        for (int i = 0; i < numFloats; ++i) {
+            float value = source.get(sourceOffset + i);
+            result.put(i, value);
+        }
+
+        return result;
+    }
+
+    /**
+     * Gather per-element vectors for the listed elements.
+     *
+     * @param source the per-element data for all elements (not null,
+     * unaffected)
+     * @param stride the number of floats per element (&gt;0)
+     * @param indices the indices of the elements to gather (not null,
+     * unaffected)
+     * @param storeResult storage for the result (direct, modified) or null
+     * @return a direct buffer (either storeResult or a new buffer)
+     */
+    private static FloatBuffer gather(FloatBuffer source, int stride,
+            IntBuffer indices, FloatBuffer storeResult) {
+        int numListed = indices.limit();
+        FloatBuffer result = ensureStorage(stride * numListed, storeResult);
+
+        for (int i = 0; i < numListed; ++i) {
+            int sourceOffset = stride * indices.get(i);
+            for (int j = 0; j < stride; ++j) {
+                float value = source.get(sourceOffset + j);
+                result.put(stride * i + j, value);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Read the specified parameter of the indexed cluster, without validating
+     * the index.
+     *
+     * @param objectId the ID of the btSoftBody (not zero)
+     * @param parameter which parameter to read (not null)
+     * @param clusterIndex which cluster (&ge;0, &lt;numClusters)
+     * @return the coefficient value
+     */
+    private static float getClusterParameter(long objectId, Cluster parameter,
+            int clusterIndex) {
+        float result;
+        switch (parameter) {
+            case AngularDamping:
+                result = getClusterAngularDamping(objectId, clusterIndex);
+                break;
+            case LinearDamping:
+                result = getClusterLinearDamping(objectId, clusterIndex);
+                break;
+            case Matching:
+                result = getClusterMatching(objectId, clusterIndex);
+                break;
+            case MaxSelfImpulse:
+                result = getClusterMaxSelfImpulse(objectId, clusterIndex);
+                break;
+            case NodeDamping:
+                result = getClusterNodeDamping(objectId, clusterIndex);
+                break;
+            case SelfImpulse:
+                result = getClusterSelfImpulse(objectId, clusterIndex);
+                break;
+            default:
+                throw new IllegalArgumentException(parameter.toString());
+        }
+
+        return result;
+    }
+
+    /**
+     * Scatter per-element vectors into a contiguous range of elements.
+     *
+     * @param values the vectors to scatter (not null, unaffected)
+     * @param stride the number of floats per element (&gt;0)
+     * @param startIndex the index of the first element to modify (&ge;0)
+     * @param count the number of elements to modify (&ge;0)
+     * @param destination the per-element data for all elements (not null,
+     * modified)
+     */
+    private static void scatter(FloatBuffer values, int stride,
+            int startIndex, int count, FloatBuffer destination) {
+        int numFloats = stride * count;
+        int destinationOffset = stride * startIndex;
+        for (int i = 0; i < numFloats; ++i) {
+            float value = values.get(i);
+            destination.put(destinationOffset + i, value);
+        }
+    }
+
+    /**
+     * Scatter per-element vectors into the listed elements.
+     *
+     * @param values the vectors to scatter (not null, unaffected)
+     * @param stride the number of floats per element (&gt;0)
+     * @param indices the indices of the elements to modify (not null,
+     * unaffected)
+     * @param destination the per-element data for all elements (not null,
+     * modified)
+     */
+    private static void scatter(FloatBuffer values, int stride,
+            IntBuffer indices, FloatBuffer destination) {
+        int numListed = indices.limit();
+        for (int i = 0; i < numListed; ++i) {
+            int destinationOffset = stride * indices.get(i);
+            for (int j = 0; j < stride; ++j) {
+                float value = values.get(stride * i + j);
+                destination.put(destinationOffset + j, value);
+            }
+        }
+    }
+
+    /**
+     * Alter the specified parameter of the indexed cluster, without validating
+     * the index.
+     *
+     * @param objectId the ID of the btSoftBody (not zero)
+     * @param parameter which parameter to alter (not null)
+     * @param clusterIndex which cluster (&ge;0, &lt;numClusters)
+     * @param value the desired value
+     */
+    private static void setClusterParameter(long objectId, Cluster parameter,
+            int clusterIndex, float value) {
+        switch (parameter) {
+            case AngularDamping:
+                setClusterAngularDamping(objectId, clusterIndex, value);
+                break;
+            case LinearDamping:
+                setClusterLinearDamping(objectId, clusterIndex, value);
+                break;
+            case Matching:
+                setClusterMatching(objectId, clusterIndex, value);
+                break;
+            case MaxSelfImpulse:
+                setClusterMaxSelfImpulse(objectId, clusterIndex, value);
+                break;
+            case NodeDamping:
+                setClusterNodeDamping(objectId, clusterIndex, value);
+                break;
+            case SelfImpulse:
+                setClusterSelfImpulse(objectId, clusterIndex, value);
+                break;
+            default:
+                throw new IllegalArgumentException(parameter.toString());
+        }
+    }
+
+    /**
+     * Validate a list of element indices.
+     *
+     * @param indices the indices to validate (not null, unaffected)
+     * @param numElements the number of elements in the body (&ge;0)
+     * @param description a description of the indices (not null)
+     * @return the number of indices in the list (&ge;0)
+     */
+    private static int validateIndices(IntBuffer indices, int numElements,
+            String description) {
+        Validate.nonNull(indices, "indices");
+
+        int numListed = indices.limit();
+        for (int i = 0; i < numListed; ++i) {
+            int index = indices.get(i);
+            Validate.inRange(index, description, 0, numElements - 1);
+        }
+
+        return numListed;
+    }
+
+    /**
+     * Validate a contiguous range of element indices.
+     *
+     * @param startIndex the index of the first element in the range
+     * @param count the number of elements in the range
+     * @param numElements the number of elements in the body (&ge;0)
+     */
+    private static void validateRange(int startIndex, int count,
+            int numElements) {
+        Validate.inRange(startIndex, "start index", 0, numElements);
+        Validate.inRange(count, "count", 0, numElements - startIndex);
+    }
+
+    /**
+     * Validate a buffer of input values.
+     *
+     * @param values the buffer to validate (not null, unaffected)
+     * @param numFloats the number of floats required (&ge;0)
+     */
+    private static void validateValues(FloatBuffer values, int numFloats) {
+        Validate.nonNull(values, "values");
+        Validate.require(values.limit() >= numFloats,
+                "limit >= " + numFloats);
+    }
+    // *************************************************************************
     // native private methods
 
     native private static void addForce(long bodyId, Vector3f forceVector);
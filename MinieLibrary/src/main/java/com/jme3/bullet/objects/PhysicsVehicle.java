@@ -90,6 +90,10 @@ public class PhysicsVehicle extends PhysicsRigidBody {
      * list of wheels
      */
     private ArrayList<VehicleWheel> wheels = new ArrayList<>(6);
+    /**
+     * true if a VehicleManager reads back the wheels, otherwise false
+     */
+    private boolean isManaged = false;
     /**
      * controller or "action" for this vehicle
      */
@@ -471,6 +475,15 @@ public class PhysicsVehicle extends PhysicsRigidBody {
         return result;
     }
 
+    /**
+     * Test whether a VehicleManager reads back this vehicle's wheels.
+     *
+     * @return true if managed, otherwise false
+     */
+    public boolean isManaged() {
+        return isManaged;
+    }
+
     /**
      * Remove a wheel. TODO test this---with joints!
      *
@@ -528,6 +541,18 @@ public class PhysicsVehicle extends PhysicsRigidBody {
         wheel.setFrictionSlip(frictionSlip);
     }
 
+    /**
+     * Alter whether a VehicleManager reads back this vehicle's wheels. While
+     * managed, {@link #updateWheels()} does nothing, so the manager is the
+     * only readback path. Invoked only by VehicleManager.
+     *
+     * @param setting true if managed, false to update wheels from the motion
+     * state (default=false)
+     */
+    void setManaged(boolean setting) {
+        this.isManaged = setting;
+    }
+
     /**
      * Alter the initial maximum suspension force for new wheels. Effective only
      * before adding wheels. After adding a wheel, use
@@ -747,10 +772,10 @@ public class PhysicsVehicle extends PhysicsRigidBody {
     }
 
     /**
-     * used internally
+     * used internally. Does nothing while the vehicle is managed.
      */
     public void updateWheels() {
-        if (controller != null) {
+        if (controller != null && !isManaged) {
             for (VehicleWheel wheel : wheels) {
                 controller.updateWheelTransform(wheel);
             }
@@ -777,6 +802,7 @@ public class PhysicsVehicle extends PhysicsRigidBody {
         wheels = cloner.clone(wheels);
         controller = cloner.clone(controller); // probably null
         tuning = cloner.clone(tuning);
+        isManaged = false;
     }
 
     /**
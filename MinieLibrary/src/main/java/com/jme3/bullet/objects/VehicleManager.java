@@ -0,0 +1,386 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.objects;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.PhysicsTickListener;
+import com.jme3.bullet.objects.infos.VehicleController;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.util.BufferUtils;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Gather the wheel states of many vehicles into a single shared buffer, once
+ * per physics step, so that traffic simulations can read suspension lengths,
+ * contact points, skid info, and wheel transforms without making JNI calls.
+ * <p>
+ * The buffer holds {@link #stride} floats per wheel. The wheels of each
+ * vehicle occupy consecutive rows, starting at {@link #firstRow(
+ * com.jme3.bullet.objects.PhysicsVehicle)}.
+ * <p>
+ * While a vehicle is managed, the manager is the only path that reads its
+ * wheels back from native code: the vehicle's motion state no longer updates
+ * the wheels each frame, so wheel transforms change only when the manager
+ * refreshes.
+ * <p>
+ * To refresh the buffer automatically, add the manager to a PhysicsSpace as a
+ * tick listener. Not thread-safe: with BulletAppState.ThreadingType.PARALLEL,
+ * read the buffer only while the physics thread is idle.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class VehicleManager implements PhysicsTickListener {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * offset of the wheel's location (3 floats, in physics-space coordinates)
+     */
+    final public static int wheelLocationOffset = 0;
+    /**
+     * offset of the wheel's orientation (4 floats: x, y, z, w)
+     */
+    final public static int wheelRotationOffset = 3;
+    /**
+     * offset of the suspension length (1 float, in physics-space units)
+     */
+    final public static int suspensionLengthOffset = 7;
+    /**
+     * offset of the ground-contact location (3 floats, in physics-space
+     * coordinates)
+     */
+    final public static int contactLocationOffset = 8;
+    /**
+     * offset of the ground-contact normal (3 floats, in physics-space
+     * coordinates)
+     */
+    final public static int contactNormalOffset = 11;
+    /**
+     * offset of the skid info (1 float: 0&rarr;sliding, 1&rarr;full traction)
+     */
+    final public static int skidInfoOffset = 14;
+    /**
+     * offset of the total rotation angle (1 float, in radians)
+     */
+    final public static int rotationAngleOffset = 15;
+    /**
+     * offset of the rotation since the previous step (1 float, in radians)
+     */
+    final public static int deltaRotationOffset = 16;
+    /**
+     * offset of the steering angle (1 float, in radians)
+     */
+    final public static int steerAngleOffset = 17;
+    /**
+     * number of floats per wheel
+     */
+    final public static int stride = 18;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(VehicleManager.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * true if the buffer layout must be recomputed before the next refresh
+     */
+    private boolean layoutDirty = true;
+    /**
+     * states of all managed wheels ({@link #stride} floats per wheel)
+     */
+    private FloatBuffer wheelStates = BufferUtils.createFloatBuffer(0);
+    /**
+     * first buffer row of each managed vehicle, in the order added
+     */
+    private int[] firstRows = new int[0];
+    /**
+     * total number of managed wheels
+     */
+    private int numWheels = 0;
+    /**
+     * managed vehicles, in the order added
+     */
+    final private List<PhysicsVehicle> vehicles = new ArrayList<>(16);
+    /**
+     * temporary storage for a wheel orientation
+     */
+    final private Quaternion tmpRotation = new Quaternion();
+    /**
+     * temporary storage for a vector
+     */
+    final private Vector3f tmpVector = new Vector3f();
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Add the specified vehicle to this manager.
+     *
+     * @param vehicle the vehicle to add (not null, not already managed by any
+     * manager, alias created)
+     */
+    public void add(PhysicsVehicle vehicle) {
+        Validate.nonNull(vehicle, "vehicle");
+        Validate.require(!vehicle.isManaged(), "an unmanaged vehicle");
+
+        vehicle.setManaged(true);
+        vehicles.add(vehicle);
+        layoutDirty = true;
+    }
+
+    /**
+     * Apply the most recently gathered wheel transforms to the wheels'
+     * associated spatials. Makes no JNI calls.
+     */
+    public void applyWheelTransforms() {
+        for (PhysicsVehicle vehicle : vehicles) {
+            vehicle.applyWheelTransforms();
+        }
+    }
+
+    /**
+     * Count the managed vehicles.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countVehicles() {
+        int result = vehicles.size();
+        return result;
+    }
+
+    /**
+     * Count the managed wheels, as of the most recent refresh.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countWheels() {
+        return numWheels;
+    }
+
+    /**
+     * Determine which buffer row holds the first wheel of the specified
+     * vehicle, as of the most recent refresh.
+     *
+     * @param vehicle the vehicle to find (not null, managed)
+     * @return the row index (&ge;0)
+     */
+    public int firstRow(PhysicsVehicle vehicle) {
+        int vehicleIndex = vehicles.indexOf(vehicle);
+        Validate.require(vehicleIndex >= 0, "a managed vehicle");
+        Validate.require(vehicleIndex < firstRows.length, "a prior refresh");
+
+        int result = firstRows[vehicleIndex];
+        return result;
+    }
+
+    /**
+     * Access the shared buffer of wheel states. The buffer is replaced when
+     * vehicles or wheels are added or removed, so re-access it after each
+     * refresh.
+     *
+     * @return the pre-existing direct buffer (not null, limit =
+     * stride*numWheels, do not modify)
+     */
+    public FloatBuffer getWheelStates() {
+        return wheelStates;
+    }
+
+    /**
+     * Gather the current state of every managed wheel into the shared buffer.
+     * Vehicles that aren't in a PhysicsSpace are skipped, leaving their rows
+     * unchanged.
+     */
+    public void refresh() {
+        if (!layoutDirty) {
+            int vehicleIndex = 0;
+            for (PhysicsVehicle vehicle : vehicles) {
+                int rowCount = nextRow(vehicleIndex) - firstRows[vehicleIndex];
+                if (vehicle.getNumWheels() != rowCount) {
+                    layoutDirty = true;
+                    break;
+                }
+                ++vehicleIndex;
+            }
+        }
+        if (layoutDirty) {
+            updateLayout();
+        }
+
+        int vehicleIndex = 0;
+        for (PhysicsVehicle vehicle : vehicles) {
+            VehicleController controller = vehicle.getController();
+            if (controller != null && vehicle.isInWorld()) {
+                int row = firstRows[vehicleIndex];
+                int numVehicleWheels = vehicle.getNumWheels();
+                for (int wheelIndex = 0; wheelIndex < numVehicleWheels;
+                        ++wheelIndex) {
+                    VehicleWheel wheel = vehicle.getWheel(wheelIndex);
+                    controller.updateWheelTransform(wheel);
+                    gatherWheel(wheel, stride * (row + wheelIndex));
+                }
+            }
+            ++vehicleIndex;
+        }
+    }
+
+    /**
+     * Remove the specified vehicle from this manager.
+     *
+     * @param vehicle the vehicle to remove (not null)
+     * @return true if the vehicle was managed, otherwise false
+     */
+    public boolean remove(PhysicsVehicle vehicle) {
+        boolean result = vehicles.remove(vehicle);
+        if (result) {
+            vehicle.setManaged(false);
+            layoutDirty = true;
+        }
+
+        return result;
+    }
+    // *************************************************************************
+    // PhysicsTickListener methods
+
+    /**
+     * Callback from Bullet, invoked just before the physics is stepped.
+     *
+     * @param space the space that is about to be stepped (not null)
+     * @param timeStep the time per physics step (in seconds, &ge;0)
+     */
+    @Override
+    public void prePhysicsTick(PhysicsSpace space, float timeStep) {
+        // do nothing
+    }
+
+    /**
+     * Callback from Bullet, invoked just after the physics has been stepped.
+     *
+     * @param space the space that was just stepped (not null)
+     * @param timeStep the time per physics step (in seconds, &ge;0)
+     */
+    @Override
+    public void physicsTick(PhysicsSpace space, float timeStep) {
+        refresh();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Copy the state of the specified wheel into the shared buffer.
+     *
+     * @param wheel the wheel to read (not null, unaffected)
+     * @param floatOffset the buffer offset of the wheel's row (&ge;0)
+     */
+    private void gatherWheel(VehicleWheel wheel, int floatOffset) {
+        wheel.getWheelWorldLocation(tmpVector);
+        putVector(floatOffset + wheelLocationOffset, tmpVector);
+
+        wheel.getWheelWorldRotation(tmpRotation);
+        int rotationOffset = floatOffset + wheelRotationOffset;
+        wheelStates.put(rotationOffset, tmpRotation.getX());
+        wheelStates.put(rotationOffset + 1, tmpRotation.getY());
+        wheelStates.put(rotationOffset + 2, tmpRotation.getZ());
+        wheelStates.put(rotationOffset + 3, tmpRotation.getW());
+
+        wheelStates.put(floatOffset + suspensionLengthOffset,
+                wheel.getSuspensionLength());
+
+        wheel.getCollisionLocation(tmpVector);
+        putVector(floatOffset + contactLocationOffset, tmpVector);
+        wheel.getCollisionNormal(tmpVector);
+        putVector(floatOffset + contactNormalOffset, tmpVector);
+
+        wheelStates.put(floatOffset + skidInfoOffset, wheel.getSkidInfo());
+        wheelStates.put(floatOffset + rotationAngleOffset,
+                wheel.getRotationAngle());
+        wheelStates.put(floatOffset + deltaRotationOffset,
+                wheel.getDeltaRotation());
+        wheelStates.put(floatOffset + steerAngleOffset, wheel.getSteerAngle());
+    }
+
+    /**
+     * Determine the buffer row that follows the wheels of the indexed vehicle.
+     *
+     * @param vehicleIndex the index of the vehicle (&ge;0)
+     * @return the row index (&ge;0)
+     */
+    private int nextRow(int vehicleIndex) {
+        int result;
+        if (vehicleIndex + 1 < firstRows.length) {
+            result = firstRows[vehicleIndex + 1];
+        } else {
+            result = numWheels;
+        }
+
+        return result;
+    }
+
+    /**
+     * Write a vector to the shared buffer.
+     *
+     * @param floatOffset the buffer offset of the vector's X component (&ge;0)
+     * @param vector the vector to write (not null, unaffected)
+     */
+    private void putVector(int floatOffset, Vector3f vector) {
+        wheelStates.put(floatOffset, vector.x);
+        wheelStates.put(floatOffset + 1, vector.y);
+        wheelStates.put(floatOffset + 2, vector.z);
+    }
+
+    /**
+     * Recompute the buffer layout after vehicles or wheels have been added or
+     * removed.
+     */
+    private void updateLayout() {
+        int numVehicles = vehicles.size();
+        firstRows = new int[numVehicles];
+        numWheels = 0;
+        for (int vehicleIndex = 0; vehicleIndex < numVehicles;
+                ++vehicleIndex) {
+            firstRows[vehicleIndex] = numWheels;
+            numWheels += vehicles.get(vehicleIndex).getNumWheels();
+        }
+
+        int numFloats = stride * numWheels;
+        if (wheelStates.capacity() < numFloats) {
+            wheelStates = BufferUtils.createFloatBuffer(numFloats);
+        }
+        wheelStates.limit(numFloats);
+        layoutDirty = false;
+    }
+}
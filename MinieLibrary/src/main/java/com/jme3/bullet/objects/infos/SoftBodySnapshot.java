@@ -0,0 +1,396 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.objects.infos;
+
+import com.jme3.bullet.objects.PhysicsSoftBody;
+import com.jme3.util.BufferUtils;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+import jme3utilities.math.MyBuffer;
+
+/**
+ * A double-buffered copy of the node locations, normals, and velocities of a
+ * PhysicsSoftBody, for use with BulletAppState.ThreadingType.PARALLEL.
+ * <p>
+ * The physics thread invokes {@link #capture()} after each update of the
+ * PhysicsSoftSpace. Other threads may read the most recent capture at any time
+ * without locking. A reader pins the front buffer set with a reference count
+ * and then checks that it's still the front; if a capture completed in the
+ * meantime, the reader unpins it and tries again. The physics thread never
+ * waits: it captures into a buffer set that's neither the front nor pinned,
+ * allocating another set if every spare one is still being read.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class SoftBodySnapshot {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of axes in the coordinate system
+     */
+    final private static int numAxes = 3;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(SoftBodySnapshot.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * number of captures completed so far
+     */
+    private volatile long captureCount = 0L;
+    /**
+     * every buffer set allocated so far, accessed only by the capturing thread
+     */
+    final private List<Slot> slots = new ArrayList<>(2);
+    /**
+     * body being captured (not null)
+     */
+    final private PhysicsSoftBody body;
+    /**
+     * buffer set that holds the most recent capture (not null)
+     */
+    private volatile Slot front;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an empty snapshot for the specified body.
+     *
+     * @param body the body to capture (not null, alias created)
+     */
+    public SoftBodySnapshot(PhysicsSoftBody body) {
+        Validate.nonNull(body, "body");
+        this.body = body;
+
+        front = new Slot();
+        slots.add(front);
+        slots.add(new Slot());
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Capture the current state of the body into a spare buffer set and then
+     * make it the front. Should be invoked only on the physics thread, while
+     * the space isn't being stepped. Never waits for readers.
+     */
+    public void capture() {
+        Slot back = null;
+        for (Slot slot : slots) {
+            if (slot != front && slot.numReaders.get() == 0) {
+                back = slot;
+                break;
+            }
+        }
+        if (back == null) { // every spare set is pinned by a reader
+            back = new Slot();
+            slots.add(back);
+        }
+
+        int numNodes = body.countNodes();
+        int numFloats = numAxes * numNodes;
+        if (back.locations.capacity() < numFloats) {
+            back.locations = BufferUtils.createFloatBuffer(numFloats);
+            back.normals = BufferUtils.createFloatBuffer(numFloats);
+            back.velocities = BufferUtils.createFloatBuffer(numFloats);
+        }
+        body.copyLocations(back.locations);
+        body.copyNormals(back.normals);
+        body.copyVelocities(back.velocities);
+        back.numNodes = numNodes;
+        back.captureNumber = captureCount + 1;
+
+        front = back;
+        captureCount = back.captureNumber;
+    }
+
+    /**
+     * Count how many captures have completed.
+     *
+     * @return the count (&ge;0)
+     */
+    public long countCaptures() {
+        return captureCount;
+    }
+
+    /**
+     * Copy the node locations, normals, and velocities from a single capture.
+     * May be invoked from any thread. If any of the buffers is too small to
+     * hold the capture, nothing is copied: the caller can compare the
+     * returned count with its buffers, enlarge them, and try again.
+     *
+     * @param storeLocations storage for locations (direct, modified) or null
+     * @param storeNormals storage for normals (direct, modified) or null
+     * @param storeVelocities storage for velocities (direct, modified) or null
+     * @return the number of nodes in the capture (&ge;0)
+     */
+    public int copyAll(FloatBuffer storeLocations, FloatBuffer storeNormals,
+            FloatBuffer storeVelocities) {
+        validateStorage(storeLocations);
+        validateStorage(storeNormals);
+        validateStorage(storeVelocities);
+
+        Slot slot = pinFront();
+        try {
+            int result = slot.numNodes;
+            int numFloats = numAxes * result;
+            if (fits(storeLocations, numFloats)
+                    && fits(storeNormals, numFloats)
+                    && fits(storeVelocities, numFloats)) {
+                if (storeLocations != null) {
+                    copyFloats(slot.locations, numFloats, storeLocations);
+                }
+                if (storeNormals != null) {
+                    copyFloats(slot.normals, numFloats, storeNormals);
+                }
+                if (storeVelocities != null) {
+                    copyFloats(slot.velocities, numFloats, storeVelocities);
+                }
+            }
+
+            return result;
+        } finally {
+            slot.numReaders.decrementAndGet();
+        }
+    }
+
+    /**
+     * Copy the node locations from the most recent capture. May be invoked from
+     * any thread.
+     *
+     * @param storeResult storage for the result (direct, modified) or null
+     * @return a direct buffer containing 3 floats per node (in physics-space
+     * coordinates, either storeResult or a new buffer)
+     */
+    public FloatBuffer copyLocations(FloatBuffer storeResult) {
+        validateStorage(storeResult);
+
+        Slot slot = pinFront();
+        try {
+            FloatBuffer result = copyVectors(slot.locations, slot.numNodes,
+                    storeResult);
+            return result;
+        } finally {
+            slot.numReaders.decrementAndGet();
+        }
+    }
+
+    /**
+     * Copy the node normals from the most recent capture. May be invoked from
+     * any thread.
+     *
+     * @param storeResult storage for the result (direct, modified) or null
+     * @return a direct buffer containing 3 floats per node (in physics-space
+     * coordinates, either storeResult or a new buffer)
+     */
+    public FloatBuffer copyNormals(FloatBuffer storeResult) {
+        validateStorage(storeResult);
+
+        Slot slot = pinFront();
+        try {
+            FloatBuffer result = copyVectors(slot.normals, slot.numNodes,
+                    storeResult);
+            return result;
+        } finally {
+            slot.numReaders.decrementAndGet();
+        }
+    }
+
+    /**
+     * Copy the node velocities from the most recent capture. May be invoked
+     * from any thread.
+     *
+     * @param storeResult storage for the result (direct, modified) or null
+     * @return a direct buffer containing 3 floats per node (in physics-space
+     * coordinates, either storeResult or a new buffer)
+     */
+    public FloatBuffer copyVelocities(FloatBuffer storeResult) {
+        validateStorage(storeResult);
+
+        Slot slot = pinFront();
+        try {
+            FloatBuffer result = copyVectors(slot.velocities, slot.numNodes,
+                    storeResult);
+            return result;
+        } finally {
+            slot.numReaders.decrementAndGet();
+        }
+    }
+
+    /**
+     * Count the nodes in the most recent capture. A capture may complete at
+     * any time, so use the count returned by
+     * {@link #copyAll(java.nio.FloatBuffer, java.nio.FloatBuffer,
+     * java.nio.FloatBuffer)} to interpret copied data.
+     *
+     * @return the number of nodes (&ge;0)
+     */
+    public int countNodes() {
+        int result = front.numNodes;
+        return result;
+    }
+
+    /**
+     * Access the body being captured.
+     *
+     * @return the pre-existing instance (not null)
+     */
+    public PhysicsSoftBody getBody() {
+        return body;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Copy floats from one buffer to another without altering either buffer's
+     * position or limit.
+     *
+     * @param source the buffer to copy from (not null, capacity&ge;numFloats,
+     * unaffected)
+     * @param numFloats the number of floats to copy (&ge;0)
+     * @param destination the buffer to copy to (not null,
+     * capacity&ge;numFloats, modified)
+     */
+    private static void copyFloats(FloatBuffer source, int numFloats,
+            FloatBuffer destination) {
+        assert destination.capacity() >= numFloats : destination.capacity();
+
+        for (int floatIndex = 0; floatIndex < numFloats; ++floatIndex) {
+            float value = source.get(floatIndex);
+            destination.put(floatIndex, value);
+        }
+    }
+
+    /**
+     * Copy per-node vectors from a pinned buffer set, enlarging the storage
+     * if necessary.
+     *
+     * @param source the buffer to copy from (not null, unaffected)
+     * @param numNodes the number of nodes captured (&ge;0)
+     * @param storeResult storage for the result (direct, modified) or null
+     * @return a direct buffer (either storeResult or a new buffer)
+     */
+    private static FloatBuffer copyVectors(FloatBuffer source, int numNodes,
+            FloatBuffer storeResult) {
+        int numFloats = numAxes * numNodes;
+        FloatBuffer result = MyBuffer.ensureCapacity(numFloats, storeResult);
+        copyFloats(source, numFloats, result);
+
+        return result;
+    }
+
+    /**
+     * Test whether the specified storage can hold the specified number of
+     * floats.
+     *
+     * @param storeResult the buffer to test (may be null, unaffected)
+     * @param numFloats the number of floats (&ge;0)
+     * @return true if null or large enough, otherwise false
+     */
+    private static boolean fits(FloatBuffer storeResult, int numFloats) {
+        boolean result = storeResult == null
+                || storeResult.capacity() >= numFloats;
+        return result;
+    }
+
+    /**
+     * Pin the front buffer set so that no capture can overwrite it. The
+     * caller must decrement the set's reader count when it's done reading.
+     *
+     * @return the pinned set (not null)
+     */
+    private Slot pinFront() {
+        while (true) {
+            Slot slot = front;
+            slot.numReaders.incrementAndGet();
+            if (slot == front) {
+                /*
+                 * The set was still the front after it was pinned,
+                 * so no capture will select it until it's unpinned.
+                 */
+                return slot;
+            }
+            slot.numReaders.decrementAndGet();
+        }
+    }
+
+    /**
+     * Verify that the specified storage is either null or direct.
+     *
+     * @param storeResult the buffer to test (may be null, unaffected)
+     */
+    private static void validateStorage(FloatBuffer storeResult) {
+        if (storeResult != null && !storeResult.isDirect()) {
+            throw new IllegalArgumentException("The buffer must be direct.");
+        }
+    }
+    // *************************************************************************
+    // Slot
+
+    /**
+     * One set of capture buffers, with a count of the readers pinning it.
+     */
+    private static class Slot {
+        /**
+         * number of readers currently pinning this set
+         */
+        final AtomicInteger numReaders = new AtomicInteger(0);
+        /**
+         * node locations (3 floats per node)
+         */
+        FloatBuffer locations = BufferUtils.createFloatBuffer(0);
+        /**
+         * node normals (3 floats per node)
+         */
+        FloatBuffer normals = BufferUtils.createFloatBuffer(0);
+        /**
+         * node velocities (3 floats per node)
+         */
+        FloatBuffer velocities = BufferUtils.createFloatBuffer(0);
+        /**
+         * number of nodes captured
+         */
+        int numNodes = 0;
+        /**
+         * sequence number of the capture, or 0 if none
+         */
+        long captureNumber = 0L;
+    }
+}
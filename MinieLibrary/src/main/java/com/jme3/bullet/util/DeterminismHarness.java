@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.util;
+
+import com.jme3.bullet.PhysicsSpace;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Run a physics scenario twice in deterministic mode and report the first
+ * simulation step at which the two runs diverge.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ * @see StateHashRecorder
+ */
+public class DeterminismHarness {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(DeterminismHarness.class.getName());
+    // *************************************************************************
+    // constructors
+
+    /**
+     * A private constructor to inhibit instantiation of this class.
+     */
+    private DeterminismHarness() {
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Run the specified scenario twice, each time in a new deterministic
+     * PhysicsSpace, and compare the state hashes after every step.
+     * <p>
+     * Creating a PhysicsSpace replaces the calling thread's current space, so
+     * the runs execute on a dedicated thread and the caller's space is left
+     * untouched. The scenario's methods are invoked on that thread, and this
+     * method blocks until both runs are complete.
+     *
+     * @param scenario the scenario to run (not null)
+     * @param numSteps the number of steps per run (&ge;0)
+     * @param timeStep the duration of each step (in seconds, &gt;0)
+     * @return the index of the first step at which the runs diverged (&ge;0)
+     * or -1 if they never diverged
+     */
+    public static int findDivergence(final Scenario scenario,
+            final int numSteps, final float timeStep) {
+        Validate.nonNull(scenario, "scenario");
+        Validate.nonNegative(numSteps, "number of steps");
+        Validate.positive(timeStep, "time step");
+
+        final StateHashRecorder[] recorders = new StateHashRecorder[2];
+        final Throwable[] failure = new Throwable[1];
+        Runnable runnable = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    recorders[0] = runOnce(scenario, numSteps, timeStep);
+                    recorders[1] = runOnce(scenario, numSteps, timeStep);
+                } catch (Throwable throwable) {
+                    failure[0] = throwable;
+                }
+            }
+        };
+        Thread thread = new Thread(runnable, "DeterminismHarness");
+        thread.start();
+        try {
+            thread.join();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(exception);
+        }
+
+        if (failure[0] instanceof RuntimeException) {
+            throw (RuntimeException) failure[0];
+        } else if (failure[0] instanceof Error) {
+            throw (Error) failure[0];
+        } else if (failure[0] != null) {
+            throw new RuntimeException(failure[0]);
+        }
+        int result = recorders[0].findDivergence(recorders[1]);
+
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Run the specified scenario once, in a new deterministic PhysicsSpace.
+     *
+     * @param scenario the scenario to run (not null)
+     * @param numSteps the number of steps (&ge;0)
+     * @param timeStep the duration of each step (in seconds, &gt;0)
+     * @return a new recorder containing the hash after each step
+     */
+    private static StateHashRecorder runOnce(Scenario scenario, int numSteps,
+            float timeStep) {
+        PhysicsSpace space = scenario.createSpace();
+        space.setAccuracy(timeStep);
+        space.setDeterministic(true);
+        scenario.setUp(space);
+
+        StateHashRecorder result = new StateHashRecorder();
+        space.addTickListener(result);
+        for (int stepIndex = 0; stepIndex < numSteps; ++stepIndex) {
+            scenario.applyInputs(space, stepIndex);
+            space.update(timeStep, 1);
+        }
+        space.removeTickListener(result);
+
+        return result;
+    }
+    // *************************************************************************
+    // Scenario
+
+    /**
+     * A reproducible physics scenario: how to build it and what inputs to
+     * apply before each step.
+     */
+    public interface Scenario {
+        /**
+         * Apply the inputs for the indexed step, for example forces or
+         * kinematic motions.
+         *
+         * @param space the space to be stepped (not null)
+         * @param stepIndex the index of the upcoming step (&ge;0)
+         */
+        void applyInputs(PhysicsSpace space, int stepIndex);
+
+        /**
+         * Create an empty space for a single run.
+         *
+         * @return a new space (not null)
+         */
+        PhysicsSpace createSpace();
+
+        /**
+         * Populate the specified space with bodies and joints, always in the
+         * same order.
+         *
+         * @param space the space to populate (not null, modified)
+         */
+        void setUp(PhysicsSpace space);
+    }
+}
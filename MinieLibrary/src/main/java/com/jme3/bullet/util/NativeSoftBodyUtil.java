@@ -33,6 +33,7 @@ package com.jme3.bullet.util;
 
 import com.jme3.bullet.collision.shapes.infos.IndexedMesh;
 import com.jme3.bullet.objects.PhysicsSoftBody;
+import com.jme3.math.FastMath;
 import com.jme3.math.Transform;
 import com.jme3.math.Vector3f;
 import com.jme3.scene.Mesh;
@@ -41,8 +42,11 @@ import com.jme3.scene.mesh.IndexBuffer;
 import com.jme3.util.BufferUtils;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
@@ -74,6 +78,14 @@ public class NativeSoftBodyUtil {
      * number of vertices per triangle
      */
     final private static int vpt = 3;
+    /**
+     * maximum number of nodes influencing each vertex of a decimated mesh
+     */
+    final private static int maxInfluences = 4;
+    /**
+     * number of bisection steps used to fit a decimated mesh to its node budget
+     */
+    final private static int numBisections = 20;
     /**
      * message logger for this class
      */
@@ -137,7 +149,7 @@ public class NativeSoftBodyUtil {
          * Enumerate all unique edges among the triangles.
          */
         int size = triangleIndices.capacity();
-        Set<IntPair> uniqueEdges = new HashSet<>(vpt * size);
+        Set<IntPair> uniqueEdges = new HashSet<>(size);
         for (int intOffset = 0; intOffset < size; intOffset += vpt) {
             int ti0 = triangleIndices.get(intOffset);
             int ti1 = triangleIndices.get(intOffset + 1);
@@ -186,7 +198,7 @@ public class NativeSoftBodyUtil {
          * Enumerate all unique edges among the triangles.
          */
         int size = triangleIndices.size();
-        Set<IntPair> uniqueEdges = new HashSet<>(vpt * size);
+        Set<IntPair> uniqueEdges = new HashSet<>(size);
         for (int intOffset = 0; intOffset < size; intOffset += vpt) {
             int ti0 = triangleIndices.get(intOffset);
             int ti1 = triangleIndices.get(intOffset + 1);
@@ -211,6 +223,203 @@ public class NativeSoftBodyUtil {
         softBody.appendLinks(links);
     }
 
+    /**
+     * Add a decimated copy of the specified JME mesh to the specified soft
+     * body, and generate a map for driving the original mesh from the new
+     * nodes. Mesh vertices are merged by clustering them in a uniform grid,
+     * using the finest grid that doesn't exceed the node budget. Triangles that
+     * collapse are discarded.
+     *
+     * @param mesh the input JME mesh (not null, unaffected, mode=Triangles,
+     * must have an index buffer)
+     * @param softBody the soft body to which nodes, faces, and links will be
+     * added (not null, modified)
+     * @param maxNodes the maximum number of nodes to add (&ge;1)
+     * @return a new map for use with
+     * {@link #updateMesh(com.jme3.bullet.objects.PhysicsSoftBody,
+     * com.jme3.bullet.util.NodeSkinningMap, com.jme3.scene.Mesh, boolean,
+     * boolean, com.jme3.math.Transform)}
+     */
+    public static NodeSkinningMap appendFromTriMesh(Mesh mesh,
+            PhysicsSoftBody softBody, int maxNodes) {
+        Mesh.Mode mode = mesh.getMode();
+        assert mode == Mesh.Mode.Triangles : mode;
+        Validate.nonNull(softBody, "soft body");
+        Validate.positive(maxNodes, "maximum number of nodes");
+
+        FloatBuffer positions = mesh.getFloatBuffer(VertexBuffer.Type.Position);
+        IndexBuffer triangleIndices = mesh.getIndexBuffer();
+        Validate.nonNull(triangleIndices, "index buffer");
+        int numVertices = positions.limit() / numAxes;
+        /*
+         * Choose the smallest grid cell that satisfies the budget.
+         */
+        Vector3f min = new Vector3f();
+        Vector3f max = new Vector3f();
+        MyBuffer.maxMin(positions, 0, numAxes * numVertices, max, min);
+        Vector3f extent = max.subtract(min);
+        float maxExtent = Math.max(extent.x, Math.max(extent.y, extent.z));
+        int[] vertexToCell = new int[numVertices];
+
+        float cellSize = maxExtent / maxNodes;
+        int numCells = clusterVertices(positions, min, cellSize, vertexToCell);
+        if (numCells > maxNodes) {
+            float tooSmall = cellSize;
+            float bigEnough = 2f * maxExtent + Float.MIN_NORMAL;
+            for (int step = 0; step < numBisections; ++step) {
+                float trySize = (tooSmall + bigEnough) / 2f;
+                numCells = clusterVertices(positions, min, trySize,
+                        vertexToCell);
+                if (numCells > maxNodes) {
+                    tooSmall = trySize;
+                } else {
+                    bigEnough = trySize;
+                }
+            }
+            cellSize = bigEnough;
+            numCells = clusterVertices(positions, min, cellSize, vertexToCell);
+        }
+        assert numCells <= maxNodes : numCells;
+        /*
+         * Locate each node at the centroid of its cell's vertices.
+         */
+        float[] restLocations = new float[numAxes * numCells];
+        int[] cellPopulation = new int[numCells];
+        for (int vertexIndex = 0; vertexIndex < numVertices; ++vertexIndex) {
+            int cellIndex = vertexToCell[vertexIndex];
+            ++cellPopulation[cellIndex];
+            for (int axis = 0; axis < numAxes; ++axis) {
+                restLocations[numAxes * cellIndex + axis]
+                        += positions.get(numAxes * vertexIndex + axis);
+            }
+        }
+        FloatBuffer nodeLocations
+                = BufferUtils.createFloatBuffer(numAxes * numCells);
+        for (int cellIndex = 0; cellIndex < numCells; ++cellIndex) {
+            for (int axis = 0; axis < numAxes; ++axis) {
+                int floatIndex = numAxes * cellIndex + axis;
+                restLocations[floatIndex] /= cellPopulation[cellIndex];
+                nodeLocations.put(floatIndex, restLocations[floatIndex]);
+            }
+        }
+        /*
+         * Remap the triangles, discarding any that collapse, and enumerate
+         * the unique edges.
+         */
+        int size = triangleIndices.size();
+        Set<IntPair> uniqueEdges = new HashSet<>(size);
+        List<Integer> faces = new ArrayList<>(size);
+        Set<List<Integer>> uniqueFaces = new HashSet<>(size / vpt);
+        for (int intOffset = 0; intOffset < size; intOffset += vpt) {
+            int ci0 = vertexToCell[triangleIndices.get(intOffset)];
+            int ci1 = vertexToCell[triangleIndices.get(intOffset + 1)];
+            int ci2 = vertexToCell[triangleIndices.get(intOffset + 2)];
+
+            if (ci0 != ci1) {
+                uniqueEdges.add(new IntPair(ci0, ci1));
+            }
+            if (ci1 != ci2) {
+                uniqueEdges.add(new IntPair(ci1, ci2));
+            }
+            if (ci0 != ci2) {
+                uniqueEdges.add(new IntPair(ci0, ci2));
+            }
+            if (ci0 != ci1 && ci1 != ci2 && ci0 != ci2) {
+                List<Integer> key = new ArrayList<>(vpt);
+                key.add(ci0);
+                key.add(ci1);
+                key.add(ci2);
+                Collections.sort(key);
+                if (uniqueFaces.add(key)) {
+                    faces.add(ci0);
+                    faces.add(ci1);
+                    faces.add(ci2);
+                }
+            }
+        }
+        /*
+         * Append nodes, faces, and links to the body.
+         */
+        int firstNode = softBody.countNodes();
+        softBody.appendNodes(nodeLocations);
+        int numNodes = firstNode + numCells;
+
+        int numFaceIndices = faces.size();
+        if (numFaceIndices > 0) {
+            IndexBuffer faceBuffer
+                    = IndexBuffer.createIndexBuffer(numNodes, numFaceIndices);
+            for (int i = 0; i < numFaceIndices; ++i) {
+                faceBuffer.put(i, firstNode + faces.get(i));
+            }
+            softBody.appendFaces(faceBuffer);
+        }
+
+        int numUniqueEdges = uniqueEdges.size();
+        List<List<Integer>> neighbors = new ArrayList<>(numCells);
+        for (int cellIndex = 0; cellIndex < numCells; ++cellIndex) {
+            neighbors.add(new ArrayList<Integer>(6));
+        }
+        if (numUniqueEdges > 0) {
+            IndexBuffer links = IndexBuffer.createIndexBuffer(numNodes,
+                    vpe * numUniqueEdges);
+            int edgeIndex = 0;
+            for (IntPair edge : uniqueEdges) {
+                int smaller = edge.smaller();
+                int larger = edge.larger();
+                links.put(edgeIndex, firstNode + smaller);
+                links.put(edgeIndex + 1, firstNode + larger);
+                edgeIndex += vpe;
+                neighbors.get(smaller).add(larger);
+                neighbors.get(larger).add(smaller);
+            }
+            softBody.appendLinks(links);
+        }
+        /*
+         * Skin each vertex to the nearest nodes among its own cell's node and
+         * that node's linked neighbors, using inverse-distance weights.
+         */
+        NodeSkinningMap result
+                = new NodeSkinningMap(numVertices, maxInfluences, numNodes);
+        FloatBuffer bodyLocations = softBody.copyLocations(null);
+        float epsilon = 0.01f * cellSize + 1e-6f;
+        Vector3f vertex = new Vector3f();
+        Vector3f average = new Vector3f();
+        int[] bestCells = new int[maxInfluences];
+        float[] bestDistances = new float[maxInfluences];
+        for (int vertexIndex = 0; vertexIndex < numVertices; ++vertexIndex) {
+            MyBuffer.get(positions, numAxes * vertexIndex, vertex);
+            int homeCell = vertexToCell[vertexIndex];
+            int numBest = 0;
+            numBest = insertCandidate(homeCell, vertex, restLocations,
+                    bestCells, bestDistances, numBest);
+            for (int neighbor : neighbors.get(homeCell)) {
+                numBest = insertCandidate(neighbor, vertex, restLocations,
+                        bestCells, bestDistances, numBest);
+            }
+
+            float totalWeight = 0f;
+            for (int i = 0; i < numBest; ++i) {
+                bestDistances[i] = 1f / (bestDistances[i] + epsilon);
+                totalWeight += bestDistances[i];
+            }
+            average.zero();
+            for (int i = 0; i < maxInfluences; ++i) {
+                int cellIndex = (i < numBest) ? bestCells[i] : homeCell;
+                float weight
+                        = (i < numBest) ? bestDistances[i] / totalWeight : 0f;
+                result.setInfluence(vertexIndex, i, firstNode + cellIndex,
+                        weight);
+                average.x += weight * restLocations[numAxes * cellIndex];
+                average.y += weight * restLocations[numAxes * cellIndex + 1];
+                average.z += weight * restLocations[numAxes * cellIndex + 2];
+            }
+            vertex.subtractLocal(average);
+            result.setOffset(vertexIndex, vertex, bodyLocations);
+        }
+
+        return result;
+    }
+
     /**
      * Append tetrahedra to the specified soft body, one per face, connecting
      * its faces with the center of its axis-aligned bounding box.
@@ -433,42 +642,55 @@ public class NativeSoftBodyUtil {
         }
 
         if (physicsToMesh != null) {
-            Vector3f tempVector = new Vector3f();
-            /*
-             * Transform physics locations to mesh positions.
-             */
-            positionBuffer.rewind();
-            while (positionBuffer.hasRemaining()) {
-                positionBuffer.mark();
-                tempVector.x = positionBuffer.get();
-                tempVector.y = positionBuffer.get();
-                tempVector.z = positionBuffer.get();
-                physicsToMesh.transformVector(tempVector, tempVector);
-
-                positionBuffer.reset();
-                positionBuffer.put(tempVector.x);
-                positionBuffer.put(tempVector.y);
-                positionBuffer.put(tempVector.z);
-            }
+            transformBuffers(physicsToMesh, positionBuffer, normalBuffer);
+        }
 
-            if (normalBuffer != null) {
-                /*
-                 * Rotate the normals.
-                 */
-                normalBuffer.rewind();
-                while (normalBuffer.hasRemaining()) {
-                    normalBuffer.mark();
-                    tempVector.x = normalBuffer.get();
-                    tempVector.y = normalBuffer.get();
-                    tempVector.z = normalBuffer.get();
-                    physicsToMesh.getRotation().mult(tempVector, tempVector);
-
-                    normalBuffer.reset();
-                    normalBuffer.put(tempVector.x);
-                    normalBuffer.put(tempVector.y);
-                    normalBuffer.put(tempVector.z);
-                }
-            }
+        store.getBuffer(VertexBuffer.Type.Position).setUpdateNeeded();
+        if (normalBuffer != null) {
+            store.getBuffer(VertexBuffer.Type.Normal).setUpdateNeeded();
+        }
+    }
+
+    /**
+     * Update the position/normal buffers of a Mesh from the nodes in the
+     * specified soft body, using a skinning map to drive a detailed mesh from
+     * a decimated body. Physics-space locations may be transformed into mesh
+     * positions.
+     *
+     * @param body the soft body to provide locations and normals (not null,
+     * unaffected)
+     * @param skinningMap the map generated when the body was decimated (not
+     * null)
+     * @param store the Mesh to update (not null, vertex count must match the
+     * map, modified)
+     * @param meshInLocalSpace if true, transform node locations into the body's
+     * local coordinates (relative to its bounding-box center), otherwise use
+     * physics-space coordinates
+     * @param updateNormals if true, update the normal buffer, otherwise ignore
+     * the normal buffer
+     * @param physicsToMesh the coordinate transform to apply, or null for
+     * identity (unaffected)
+     */
+    public static void updateMesh(PhysicsSoftBody body,
+            NodeSkinningMap skinningMap, Mesh store, boolean meshInLocalSpace,
+            boolean updateNormals, Transform physicsToMesh) {
+        Validate.nonNull(skinningMap, "skinning map");
+        FloatBuffer positionBuffer
+                = store.getFloatBuffer(VertexBuffer.Type.Position);
+        assert positionBuffer != null;
+        assert positionBuffer.capacity()
+                >= numAxes * skinningMap.countVertices();
+
+        FloatBuffer normalBuffer = null;
+        if (updateNormals) {
+            normalBuffer = store.getFloatBuffer(VertexBuffer.Type.Normal);
+            assert normalBuffer != null;
+        }
+
+        skinningMap.apply(body, positionBuffer, normalBuffer,
+                meshInLocalSpace);
+        if (physicsToMesh != null) {
+            transformBuffers(physicsToMesh, positionBuffer, normalBuffer);
         }
 
         store.getBuffer(VertexBuffer.Type.Position).setUpdateNeeded();
@@ -499,6 +721,130 @@ public class NativeSoftBodyUtil {
         store.getBuffer(VertexBuffer.Type.Position).setUpdateNeeded();
     }
     // *************************************************************************
+    // Java private methods
+
+    /**
+     * Cluster mesh vertices in a uniform grid.
+     *
+     * @param positions the vertex positions (not null, unaffected)
+     * @param min the minimum coordinates of the vertices (not null,
+     * unaffected)
+     * @param cellSize the size of each grid cell (&ge;0)
+     * @param storeCells storage for the cell index of each vertex (not null,
+     * modified)
+     * @return the number of occupied cells (&ge;0)
+     */
+    private static int clusterVertices(FloatBuffer positions, Vector3f min,
+            float cellSize, int[] storeCells) {
+        int numVertices = storeCells.length;
+        Map<Vector3f, Integer> cellMap = new HashMap<>(numVertices);
+        Vector3f key = new Vector3f();
+        for (int vertexIndex = 0; vertexIndex < numVertices; ++vertexIndex) {
+            MyBuffer.get(positions, numAxes * vertexIndex, key);
+            if (cellSize > 0f) {
+                key.subtractLocal(min).divideLocal(cellSize);
+                key.set(FastMath.floor(key.x), FastMath.floor(key.y),
+                        FastMath.floor(key.z));
+            }
+            MyVector3f.standardize(key, key);
+
+            Integer cellIndex = cellMap.get(key);
+            if (cellIndex == null) {
+                cellIndex = cellMap.size();
+                cellMap.put(key.clone(), cellIndex);
+            }
+            storeCells[vertexIndex] = cellIndex;
+        }
+
+        return cellMap.size();
+    }
+
+    /**
+     * Consider a node for inclusion among the nodes nearest to a vertex.
+     *
+     * @param cellIndex the cell index of the candidate node
+     * @param vertex the vertex position (not null, unaffected)
+     * @param restLocations the rest locations of all candidate nodes (not
+     * null, unaffected)
+     * @param bestCells the cell indices of the nearest nodes so far, sorted by
+     * increasing distance (not null, modified)
+     * @param bestDistances the distances of the nearest nodes so far (not
+     * null, modified)
+     * @param numBest the number of nearest nodes so far (&ge;0)
+     * @return the new number of nearest nodes
+     */
+    private static int insertCandidate(int cellIndex, Vector3f vertex,
+            float[] restLocations, int[] bestCells, float[] bestDistances,
+            int numBest) {
+        float dx = restLocations[numAxes * cellIndex] - vertex.x;
+        float dy = restLocations[numAxes * cellIndex + 1] - vertex.y;
+        float dz = restLocations[numAxes * cellIndex + 2] - vertex.z;
+        float distance = FastMath.sqrt(dx * dx + dy * dy + dz * dz);
+
+        int capacity = bestCells.length;
+        int i = Math.min(numBest, capacity - 1);
+        if (numBest == capacity && distance >= bestDistances[i]) {
+            return numBest;
+        }
+        while (i > 0 && bestDistances[i - 1] > distance) {
+            bestCells[i] = bestCells[i - 1];
+            bestDistances[i] = bestDistances[i - 1];
+            --i;
+        }
+        bestCells[i] = cellIndex;
+        bestDistances[i] = distance;
+
+        return Math.min(numBest + 1, capacity);
+    }
+
+    /**
+     * Transform physics-space locations and normals into mesh coordinates.
+     *
+     * @param physicsToMesh the coordinate transform to apply (not null,
+     * unaffected)
+     * @param positionBuffer the locations to transform (not null, modified)
+     * @param normalBuffer the normals to rotate (modified) or null for none
+     */
+    private static void transformBuffers(Transform physicsToMesh,
+            FloatBuffer positionBuffer, FloatBuffer normalBuffer) {
+        Vector3f tempVector = new Vector3f();
+        /*
+         * Transform physics locations to mesh positions.
+         */
+        positionBuffer.rewind();
+        while (positionBuffer.hasRemaining()) {
+            positionBuffer.mark();
+            tempVector.x = positionBuffer.get();
+            tempVector.y = positionBuffer.get();
+            tempVector.z = positionBuffer.get();
+            physicsToMesh.transformVector(tempVector, tempVector);
+
+            positionBuffer.reset();
+            positionBuffer.put(tempVector.x);
+            positionBuffer.put(tempVector.y);
+            positionBuffer.put(tempVector.z);
+        }
+
+        if (normalBuffer != null) {
+            /*
+             * Rotate the normals.
+             */
+            normalBuffer.rewind();
+            while (normalBuffer.hasRemaining()) {
+                normalBuffer.mark();
+                tempVector.x = normalBuffer.get();
+                tempVector.y = normalBuffer.get();
+                tempVector.z = normalBuffer.get();
+                physicsToMesh.getRotation().mult(tempVector, tempVector);
+
+                normalBuffer.reset();
+                normalBuffer.put(tempVector.x);
+                normalBuffer.put(tempVector.y);
+                normalBuffer.put(tempVector.z);
+            }
+        }
+    }
+    // *************************************************************************
     // native private methods
 
     native private static void updateClusterMesh(long softBodyId,
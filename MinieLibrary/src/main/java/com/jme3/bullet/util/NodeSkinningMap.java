@@ -0,0 +1,393 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.util;
+
+import com.jme3.bullet.objects.PhysicsSoftBody;
+import com.jme3.math.Vector3f;
+import com.jme3.util.BufferUtils;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+import jme3utilities.math.MyBuffer;
+
+/**
+ * Weights that drive the vertices of a detailed render mesh from the nodes of
+ * a coarse (decimated) soft body.
+ * <p>
+ * Each vertex is skinned to a fixed number of nodes. Its position is the
+ * weighted average of those node locations plus a rest-pose offset. The offset
+ * is stored in a local frame spanned by the vertex's 3 strongest distinct
+ * influences, so it follows the body as it rotates and deforms. A vertex whose
+ * influences don't span a frame keeps its offset in physics-space
+ * coordinates, so the offset translates with the body but doesn't rotate.
+ * Each vertex normal is the normalized weighted average of the node normals.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ * @see NativeSoftBodyUtil#appendFromTriMesh(com.jme3.scene.Mesh,
+ * com.jme3.bullet.objects.PhysicsSoftBody, int)
+ */
+public class NodeSkinningMap {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of axes in a vector
+     */
+    final private static int numAxes = 3;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(NodeSkinningMap.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * true for each vertex whose offset is stored in its local frame, false
+     * for each vertex whose offset is in physics-space coordinates
+     */
+    final private boolean[] isFrameOffset;
+    /**
+     * temporary storage for node locations
+     */
+    private FloatBuffer tmpLocations = null;
+    /**
+     * temporary storage for node normals
+     */
+    private FloatBuffer tmpNormals = null;
+    /**
+     * rest-pose offset of each vertex from its weighted node average (3 floats
+     * per vertex, in the vertex's local frame if it has one, otherwise in
+     * physics-space coordinates)
+     */
+    final private FloatBuffer offsets;
+    /**
+     * weight of each vertex-node influence (weightsPerVertex floats per
+     * vertex, each vertex summing to 1)
+     */
+    final private FloatBuffer weights;
+    /**
+     * number of influences per vertex (&gt;0)
+     */
+    final private int weightsPerVertex;
+    /**
+     * node index of each vertex-node influence (weightsPerVertex ints per
+     * vertex)
+     */
+    final private IntBuffer nodeIndices;
+    /**
+     * minimum number of nodes the body must have (1 + the largest node index)
+     */
+    final private int minNodes;
+    /**
+     * number of mesh vertices
+     */
+    final private int numVertices;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an empty map with the specified dimensions.
+     *
+     * @param numVertices the number of mesh vertices (&ge;0)
+     * @param weightsPerVertex the number of influences per vertex (&gt;0)
+     * @param minNodes the minimum number of nodes the body must have (&ge;0)
+     */
+    NodeSkinningMap(int numVertices, int weightsPerVertex, int minNodes) {
+        Validate.nonNegative(numVertices, "number of vertices");
+        Validate.positive(weightsPerVertex, "weights per vertex");
+        Validate.nonNegative(minNodes, "minimum number of nodes");
+
+        this.numVertices = numVertices;
+        this.weightsPerVertex = weightsPerVertex;
+        this.minNodes = minNodes;
+
+        int numInfluences = numVertices * weightsPerVertex;
+        nodeIndices = BufferUtils.createIntBuffer(numInfluences);
+        weights = BufferUtils.createFloatBuffer(numInfluences);
+        offsets = BufferUtils.createFloatBuffer(numAxes * numVertices);
+        isFrameOffset = new boolean[numVertices];
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Count the mesh vertices in this map.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countVertices() {
+        return numVertices;
+    }
+
+    /**
+     * Count the influences per vertex.
+     *
+     * @return the count (&gt;0)
+     */
+    public int countWeightsPerVertex() {
+        return weightsPerVertex;
+    }
+
+    /**
+     * Read the node index of the specified influence.
+     *
+     * @param vertexIndex which mesh vertex (&ge;0, &lt;numVertices)
+     * @param influenceIndex which influence (&ge;0, &lt;weightsPerVertex)
+     * @return the node index (&ge;0)
+     */
+    public int nodeIndex(int vertexIndex, int influenceIndex) {
+        Validate.inRange(vertexIndex, "vertex index", 0, numVertices - 1);
+        Validate.inRange(influenceIndex, "influence index", 0,
+                weightsPerVertex - 1);
+
+        int result = nodeIndices.get(
+                weightsPerVertex * vertexIndex + influenceIndex);
+        return result;
+    }
+
+    /**
+     * Read the weight of the specified influence.
+     *
+     * @param vertexIndex which mesh vertex (&ge;0, &lt;numVertices)
+     * @param influenceIndex which influence (&ge;0, &lt;weightsPerVertex)
+     * @return the weight (&ge;0, &le;1)
+     */
+    public float weight(int vertexIndex, int influenceIndex) {
+        Validate.inRange(vertexIndex, "vertex index", 0, numVertices - 1);
+        Validate.inRange(influenceIndex, "influence index", 0,
+                weightsPerVertex - 1);
+
+        float result
+                = weights.get(weightsPerVertex * vertexIndex + influenceIndex);
+        return result;
+    }
+    // *************************************************************************
+    // new package-private methods
+
+    /**
+     * Calculate mesh-vertex positions (and optionally normals) from the nodes
+     * of the specified body.
+     *
+     * @param body the soft body to provide locations and normals (not null,
+     * unaffected)
+     * @param storePositions storage for vertex positions (not null, capacity
+     * &ge;3*numVertices, modified)
+     * @param storeNormals storage for vertex normals (modified) or null to
+     * skip normals
+     * @param meshInLocalSpace if true, make positions relative to the center
+     * of the body's bounding box, otherwise use physics-space coordinates
+     */
+    void apply(PhysicsSoftBody body, FloatBuffer storePositions,
+            FloatBuffer storeNormals, boolean meshInLocalSpace) {
+        int numNodes = body.countNodes();
+        Validate.require(numNodes >= minNodes, "at least " + minNodes
+                + " nodes");
+
+        tmpLocations = body.copyLocations(tmpLocations);
+        Vector3f center = new Vector3f();
+        if (meshInLocalSpace) {
+            body.getPhysicsLocation(center);
+        }
+        if (storeNormals != null) {
+            tmpNormals = body.copyNormals(tmpNormals);
+        }
+
+        Vector3f sum = new Vector3f();
+        Vector3f frameX = new Vector3f();
+        Vector3f frameY = new Vector3f();
+        Vector3f frameZ = new Vector3f();
+        for (int vertexIndex = 0; vertexIndex < numVertices; ++vertexIndex) {
+            int influenceOffset = weightsPerVertex * vertexIndex;
+            int floatOffset = numAxes * vertexIndex;
+            /*
+             * Blend the node locations.
+             */
+            sum.set(center).negateLocal();
+            for (int i = 0; i < weightsPerVertex; ++i) {
+                int nodeOffset = numAxes * nodeIndices.get(influenceOffset + i);
+                float weight = weights.get(influenceOffset + i);
+                sum.x += weight * tmpLocations.get(nodeOffset);
+                sum.y += weight * tmpLocations.get(nodeOffset + 1);
+                sum.z += weight * tmpLocations.get(nodeOffset + 2);
+            }
+            /*
+             * Add the offset, rotated into the vertex's current frame
+             * if it has one.
+             */
+            float ox = offsets.get(floatOffset);
+            float oy = offsets.get(floatOffset + 1);
+            float oz = offsets.get(floatOffset + 2);
+            if (!isFrameOffset[vertexIndex]) {
+                sum.addLocal(ox, oy, oz);
+            } else if (buildFrame(tmpLocations, vertexIndex, frameX, frameY,
+                    frameZ)) {
+                sum.addLocal(frameX.multLocal(ox));
+                sum.addLocal(frameY.multLocal(oy));
+                sum.addLocal(frameZ.multLocal(oz));
+            }
+            storePositions.put(floatOffset, sum.x);
+            storePositions.put(floatOffset + 1, sum.y);
+            storePositions.put(floatOffset + 2, sum.z);
+
+            if (storeNormals != null) {
+                /*
+                 * Blend the node normals.
+                 */
+                sum.zero();
+                for (int i = 0; i < weightsPerVertex; ++i) {
+                    int nodeOffset
+                            = numAxes * nodeIndices.get(influenceOffset + i);
+                    float weight = weights.get(influenceOffset + i);
+                    sum.x += weight * tmpNormals.get(nodeOffset);
+                    sum.y += weight * tmpNormals.get(nodeOffset + 1);
+                    sum.z += weight * tmpNormals.get(nodeOffset + 2);
+                }
+                sum.normalizeLocal();
+                storeNormals.put(floatOffset, sum.x);
+                storeNormals.put(floatOffset + 1, sum.y);
+                storeNormals.put(floatOffset + 2, sum.z);
+            }
+        }
+    }
+
+    /**
+     * Alter the specified influence.
+     *
+     * @param vertexIndex which mesh vertex (&ge;0, &lt;numVertices)
+     * @param influenceIndex which influence (&ge;0, &lt;weightsPerVertex)
+     * @param nodeIndex the index of the influencing node (&ge;0,
+     * &lt;minNodes)
+     * @param weight the weight of the influence (&ge;0, &le;1)
+     */
+    void setInfluence(int vertexIndex, int influenceIndex, int nodeIndex,
+            float weight) {
+        assert nodeIndex >= 0 && nodeIndex < minNodes : nodeIndex;
+        assert weight >= 0f && weight <= 1f : weight;
+
+        int index = weightsPerVertex * vertexIndex + influenceIndex;
+        nodeIndices.put(index, nodeIndex);
+        weights.put(index, weight);
+    }
+
+    /**
+     * Alter the rest-pose offset of the specified vertex. Must be invoked
+     * after the vertex's influences are set. If its influences don't span a
+     * frame, the offset is stored in physics-space coordinates.
+     *
+     * @param vertexIndex which mesh vertex (&ge;0, &lt;numVertices)
+     * @param offset the desired offset (in physics-space coordinates, not
+     * null, unaffected)
+     * @param restLocations the rest-pose location of every node (3 floats per
+     * node, in physics-space coordinates, not null, unaffected)
+     */
+    void setOffset(int vertexIndex, Vector3f offset,
+            FloatBuffer restLocations) {
+        Vector3f frameX = new Vector3f();
+        Vector3f frameY = new Vector3f();
+        Vector3f frameZ = new Vector3f();
+        int floatOffset = numAxes * vertexIndex;
+        isFrameOffset[vertexIndex] = buildFrame(restLocations, vertexIndex,
+                frameX, frameY, frameZ);
+        if (isFrameOffset[vertexIndex]) {
+            offsets.put(floatOffset, offset.dot(frameX));
+            offsets.put(floatOffset + 1, offset.dot(frameY));
+            offsets.put(floatOffset + 2, offset.dot(frameZ));
+        } else {
+            offsets.put(floatOffset, offset.x);
+            offsets.put(floatOffset + 1, offset.y);
+            offsets.put(floatOffset + 2, offset.z);
+        }
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Construct an orthonormal frame from the first 3 distinct influences of
+     * the specified vertex that have positive weight: X points from the first
+     * node toward the 2nd, and Z is normal to the plane of all 3 nodes.
+     *
+     * @param locations the location of every node (3 floats per node, not
+     * null, unaffected)
+     * @param vertexIndex which mesh vertex (&ge;0, &lt;numVertices)
+     * @param storeX storage for the X axis (not null, modified)
+     * @param storeY storage for the Y axis (not null, modified)
+     * @param storeZ storage for the Z axis (not null, modified)
+     * @return true if the nodes span a frame, false if they're too close to
+     * collinear (or there are fewer than 3 distinct influences)
+     */
+    private boolean buildFrame(FloatBuffer locations, int vertexIndex,
+            Vector3f storeX, Vector3f storeY, Vector3f storeZ) {
+        int influenceOffset = weightsPerVertex * vertexIndex;
+        int node0 = -1;
+        int node1 = -1;
+        int node2 = -1;
+        for (int i = 0; i < weightsPerVertex && node2 == -1; ++i) {
+            int nodeIndex = nodeIndices.get(influenceOffset + i);
+            float weight = weights.get(influenceOffset + i);
+            if (weight <= 0f || nodeIndex == node0 || nodeIndex == node1) {
+                continue;
+            }
+            if (node0 == -1) {
+                node0 = nodeIndex;
+            } else if (node1 == -1) {
+                node1 = nodeIndex;
+            } else {
+                node2 = nodeIndex;
+            }
+        }
+        if (node2 == -1) {
+            return false;
+        }
+
+        MyBuffer.get(locations, numAxes * node0, storeZ);
+        MyBuffer.get(locations, numAxes * node1, storeX);
+        MyBuffer.get(locations, numAxes * node2, storeY);
+        storeX.subtractLocal(storeZ);
+        storeY.subtractLocal(storeZ);
+        storeX.cross(storeY, storeZ);
+
+        float lengthX = storeX.length();
+        float lengthY = storeY.length();
+        float lengthZ = storeZ.length();
+        if (!(lengthZ > 1e-3f * lengthX * lengthY)) {
+            return false;
+        }
+
+        storeX.divideLocal(lengthX);
+        storeZ.divideLocal(lengthZ);
+        storeZ.cross(storeX, storeY);
+
+        return true;
+    }
+}
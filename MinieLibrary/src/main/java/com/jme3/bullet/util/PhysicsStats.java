@@ -0,0 +1,326 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.util;
+
+import com.jme3.bullet.NativePhysicsObject;
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.PhysicsSpaceMetrics;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import jme3utilities.Validate;
+
+/**
+ * Sample object counts, native-object trackers, and step timings for a
+ * PhysicsSpace, and publish them as an MXBean or to a pluggable MetricsSink.
+ * <p>
+ * Sampling reads only Java-side collections and volatile metrics, so it's
+ * safe from any thread and never calls into native code. Step timings are
+ * available only if the space has a PhysicsSpaceMetrics attached.
+ * <p>
+ * The JMX classes are referenced only by {@link #register(java.lang.String)}
+ * and {@link #unregister()}, so platforms without JMX (such as Android) can
+ * still use {@link #publish(com.jme3.bullet.util.MetricsSink)}.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class PhysicsStats implements PhysicsStatsMXBean {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * JMX domain for registered instances
+     */
+    final public static String jmxDomain = "com.jme3.bullet";
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(PhysicsStats.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * space being monitored (not null)
+     */
+    final private PhysicsSpace space;
+    /**
+     * JMX name under which this instance is registered, or null if not
+     * registered
+     */
+    private String registeredName = null;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a sampler for the specified space.
+     *
+     * @param space the space to monitor (not null, alias created)
+     */
+    public PhysicsStats(PhysicsSpace space) {
+        Validate.nonNull(space, "space");
+        this.space = space;
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Access the monitored space.
+     *
+     * @return the pre-existing instance (not null)
+     */
+    public PhysicsSpace getSpace() {
+        return space;
+    }
+
+    /**
+     * Sample every metric and send it to the specified sink. The per-type
+     * tracker counts are sent as "trackers.&lt;type&gt;".
+     *
+     * @param sink the sink to receive the metrics (not null)
+     */
+    public void publish(MetricsSink sink) {
+        Validate.nonNull(sink, "sink");
+
+        sink.gauge("cachedDebugMeshes", getCachedDebugMeshCount());
+        sink.gauge("characters", getCharacterCount());
+        sink.gauge("ghosts", getGhostCount());
+        sink.gauge("joints", getJointCount());
+        sink.gauge("lastStepNativeNanos", getLastStepNativeNanos());
+        sink.gauge("lastUpdateNanos", getLastUpdateNanos());
+        sink.gauge("lastUpdateSteps", getLastUpdateSteps());
+        sink.gauge("rigidBodies", getRigidBodyCount());
+        sink.gauge("totalSteps", getTotalSteps());
+        sink.gauge("trackers", getTrackerCount());
+        sink.gauge("vehicles", getVehicleCount());
+
+        Map<String, Integer> countsByType = getTrackerCountsByType();
+        for (Map.Entry<String, Integer> entry : countsByType.entrySet()) {
+            sink.gauge("trackers." + entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Register this instance with the platform MBean server.
+     *
+     * @param name the value for the "name" key of the ObjectName (not null,
+     * not empty)
+     * @return true if successful, otherwise false
+     */
+    public boolean register(String name) {
+        Validate.nonEmpty(name, "name");
+        if (registeredName != null) {
+            throw new IllegalStateException("Already registered as "
+                    + registeredName);
+        }
+
+        String objectName = jmxDomain + ":type=PhysicsSpace,name="
+                + ObjectName.quote(name);
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(this, new ObjectName(objectName));
+        } catch (JMException exception) {
+            logger.log(Level.WARNING, "Failed to register " + objectName,
+                    exception);
+            return false;
+        }
+
+        registeredName = objectName;
+        return true;
+    }
+
+    /**
+     * Unregister this instance from the platform MBean server, if it's
+     * registered.
+     */
+    public void unregister() {
+        if (registeredName != null) {
+            try {
+                MBeanServer server
+                        = ManagementFactory.getPlatformMBeanServer();
+                server.unregisterMBean(new ObjectName(registeredName));
+            } catch (JMException exception) {
+                logger.log(Level.WARNING,
+                        "Failed to unregister " + registeredName, exception);
+            }
+            registeredName = null;
+        }
+    }
+    // *************************************************************************
+    // PhysicsStatsMXBean methods
+
+    /**
+     * Count the debug meshes cached by DebugShapeFactory.
+     *
+     * @return the count (&ge;0)
+     */
+    @Override
+    public int getCachedDebugMeshCount() {
+        int result = DebugShapeFactory.countCachedMeshes();
+        return result;
+    }
+
+    /**
+     * Count the characters in the monitored space.
+     *
+     * @return the count (&ge;0)
+     */
+    @Override
+    public int getCharacterCount() {
+        int result = space.getCharacterList().size();
+        return result;
+    }
+
+    /**
+     * Count the ghost objects in the monitored space.
+     *
+     * @return the count (&ge;0)
+     */
+    @Override
+    public int getGhostCount() {
+        int result = space.getGhostObjectList().size();
+        return result;
+    }
+
+    /**
+     * Count the joints in the monitored space.
+     *
+     * @return the count (&ge;0)
+     */
+    @Override
+    public int getJointCount() {
+        int result = space.getJointList().size();
+        return result;
+    }
+
+    /**
+     * Read the native duration of the most recent step.
+     *
+     * @return the duration (in nanoseconds, &ge;0) or 0 if the space has no
+     * metrics
+     */
+    @Override
+    public long getLastStepNativeNanos() {
+        PhysicsSpaceMetrics metrics = space.getMetrics();
+        long result = (metrics == null) ? 0L : metrics.stepNativeNanos();
+
+        return result;
+    }
+
+    /**
+     * Read the duration of the most recent update.
+     *
+     * @return the duration (in nanoseconds, &ge;0) or 0 if the space has no
+     * metrics
+     */
+    @Override
+    public long getLastUpdateNanos() {
+        PhysicsSpaceMetrics metrics = space.getMetrics();
+        long result = (metrics == null) ? 0L : metrics.updateNanos();
+
+        return result;
+    }
+
+    /**
+     * Count the steps in the most recent update.
+     *
+     * @return the count (&ge;0) or 0 if the space has no metrics
+     */
+    @Override
+    public int getLastUpdateSteps() {
+        PhysicsSpaceMetrics metrics = space.getMetrics();
+        int result = (metrics == null) ? 0 : metrics.updateSteps();
+
+        return result;
+    }
+
+    /**
+     * Count the rigid bodies in the monitored space, including vehicles.
+     *
+     * @return the count (&ge;0)
+     */
+    @Override
+    public int getRigidBodyCount() {
+        int result = space.countRigidBodies();
+        return result;
+    }
+
+    /**
+     * Count the steps simulated since the metrics were last reset.
+     *
+     * @return the count (&ge;0) or 0 if the space has no metrics
+     */
+    @Override
+    public long getTotalSteps() {
+        PhysicsSpaceMetrics metrics = space.getMetrics();
+        long result = (metrics == null) ? 0L : metrics.totalSteps();
+
+        return result;
+    }
+
+    /**
+     * Count the tracked native objects.
+     *
+     * @return the count (&ge;0)
+     */
+    @Override
+    public int getTrackerCount() {
+        int result = NativePhysicsObject.countTrackers();
+        return result;
+    }
+
+    /**
+     * Count the tracked native objects of each type.
+     *
+     * @return a new map from simple class names to counts
+     */
+    @Override
+    public Map<String, Integer> getTrackerCountsByType() {
+        Map<String, Integer> result = NativePhysicsObject.countTrackersByType();
+        return result;
+    }
+
+    /**
+     * Count the vehicles in the monitored space.
+     *
+     * @return the count (&ge;0)
+     */
+    @Override
+    public int getVehicleCount() {
+        int result = space.getVehicleList().size();
+        return result;
+    }
+}
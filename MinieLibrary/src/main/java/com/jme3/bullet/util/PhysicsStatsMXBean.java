@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.util;
+
+import java.util.Map;
+
+/**
+ * Management interface for publishing physics metrics via JMX.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ * @see PhysicsStats
+ */
+public interface PhysicsStatsMXBean {
+    /**
+     * Count the debug meshes cached by DebugShapeFactory.
+     *
+     * @return the count (&ge;0)
+     */
+    int getCachedDebugMeshCount();
+
+    /**
+     * Count the characters in the monitored space.
+     *
+     * @return the count (&ge;0)
+     */
+    int getCharacterCount();
+
+    /**
+     * Count the ghost objects in the monitored space.
+     *
+     * @return the count (&ge;0)
+     */
+    int getGhostCount();
+
+    /**
+     * Count the joints in the monitored space.
+     *
+     * @return the count (&ge;0)
+     */
+    int getJointCount();
+
+    /**
+     * Read the native duration of the most recent step.
+     *
+     * @return the duration (in nanoseconds, &ge;0) or 0 if the space has no
+     * metrics
+     */
+    long getLastStepNativeNanos();
+
+    /**
+     * Read the duration of the most recent update.
+     *
+     * @return the duration (in nanoseconds, &ge;0) or 0 if the space has no
+     * metrics
+     */
+    long getLastUpdateNanos();
+
+    /**
+     * Count the steps in the most recent update.
+     *
+     * @return the count (&ge;0) or 0 if the space has no metrics
+     */
+    int getLastUpdateSteps();
+
+    /**
+     * Count the rigid bodies in the monitored space, including vehicles.
+     *
+     * @return the count (&ge;0)
+     */
+    int getRigidBodyCount();
+
+    /**
+     * Count the steps simulated since the metrics were last reset.
+     *
+     * @return the count (&ge;0) or 0 if the space has no metrics
+     */
+    long getTotalSteps();
+
+    /**
+     * Count the tracked native objects.
+     *
+     * @return the count (&ge;0)
+     */
+    int getTrackerCount();
+
+    /**
+     * Count the tracked native objects of each type.
+     *
+     * @return a new map from simple class names to counts
+     */
+    Map<String, Integer> getTrackerCountsByType();
+
+    /**
+     * Count the vehicles in the monitored space.
+     *
+     * @return the count (&ge;0)
+     */
+    int getVehicleCount();
+}
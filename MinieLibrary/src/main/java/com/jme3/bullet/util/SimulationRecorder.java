@@ -0,0 +1,550 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.util;
+
+import com.jme3.bullet.CollisionSpace;
+import com.jme3.bullet.CollisionSpaceListener;
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.PhysicsTickListener;
+import com.jme3.bullet.collision.PhysicsCollisionObject;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.export.binary.BinaryExporter;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.util.BufferUtils;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Record the evolution of a PhysicsSpace to a compact, append-only file, for
+ * offline reproduction with a SimulationReplayer.
+ * <p>
+ * The file contains each collision object (in J3O format) as it's added, each
+ * removal, the duration of each step, and periodic keyframes holding the state
+ * of every rigid body. Inputs are detected rather than intercepted: any rigid
+ * body whose transform or velocities changed between the end of one step and
+ * the start of the next (due to impulses, kinematic motion, warping, and so
+ * on) has its new state recorded before the step. Likewise, the total force
+ * and torque on each dynamic body are recorded whenever they change.
+ * <p>
+ * Limitations:
+ * <ul>
+ * <li>Changes to other parameters, such as mass or friction, aren't
+ * recorded.</li>
+ * <li>Joints aren't recorded.</li>
+ * <li>Inputs are sampled when the recorder's prePhysicsTick() runs, so changes
+ * made by tick listeners that run after it (those registered later) aren't
+ * seen until the following step.</li>
+ * <li>Forces and torques replay exactly only for bodies whose linear and
+ * angular factors are all 0 or 1.</li>
+ * </ul>
+ * <p>
+ * Records are buffered and written using NIO, in big-endian byte order
+ * regardless of platform. Invoke {@link #close()} to flush the buffer and
+ * stop recording.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ * @see SimulationReplayer
+ */
+public class SimulationRecorder
+        implements CollisionSpaceListener, PhysicsTickListener {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * identifies a recording file
+     */
+    final static int magic = 0x4d524543;
+    /**
+     * file-format version
+     */
+    final static int version = 2;
+    /**
+     * record type of an added collision object
+     */
+    final static byte tagAdd = 1;
+    /**
+     * record type of a removed collision object
+     */
+    final static byte tagRemove = 2;
+    /**
+     * record type of a body's state before a step
+     */
+    final static byte tagInput = 3;
+    /**
+     * record type of a simulation step
+     */
+    final static byte tagStep = 4;
+    /**
+     * record type of a keyframe
+     */
+    final static byte tagKeyframe = 5;
+    /**
+     * record type of a body's total force and torque before a step
+     */
+    final static byte tagForce = 6;
+    /**
+     * number of floats in a body's total force and torque
+     */
+    final static int forceFloats = 6;
+    /**
+     * number of floats in a body's state: location, orientation, linear
+     * velocity, and angular velocity
+     */
+    final static int stateFloats = 13;
+    /**
+     * size of the write buffer (in bytes)
+     */
+    final private static int bufferBytes = 1 << 16;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(SimulationRecorder.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * write buffer (direct)
+     */
+    final private ByteBuffer buffer = BufferUtils.createByteBuffer(bufferBytes)
+            .order(ByteOrder.BIG_ENDIAN);
+    /**
+     * destination file
+     */
+    final private FileChannel channel;
+    /**
+     * reusable force storage
+     */
+    final private float[] tmpForces = new float[forceFloats];
+    /**
+     * reusable state storage
+     */
+    final private float[] tmpState = new float[stateFloats];
+    /**
+     * reusable rotation
+     */
+    final private Quaternion tmpRotation = new Quaternion();
+    /**
+     * reusable vector
+     */
+    final private Vector3f tmpVector = new Vector3f();
+    /**
+     * number of steps between keyframes (&gt;0)
+     */
+    final private int keyframeInterval;
+    /**
+     * index to assign to the next added object
+     */
+    private int nextIndex = 0;
+    /**
+     * number of steps recorded
+     */
+    private int numSteps = 0;
+    /**
+     * map each recorded object to its index
+     */
+    final private Map<PhysicsCollisionObject, Integer> indexMap
+            = new IdentityHashMap<>(64);
+    /**
+     * map each recorded dynamic body to its most recently recorded total
+     * force and torque
+     */
+    final private Map<PhysicsRigidBody, float[]> forceMap
+            = new IdentityHashMap<>(64);
+    /**
+     * map each recorded rigid body to its state after the previous step
+     */
+    final private Map<PhysicsRigidBody, float[]> stateMap
+            = new IdentityHashMap<>(64);
+    /**
+     * space being recorded (not null)
+     */
+    final private PhysicsSpace space;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Start recording the specified space to the specified file, replacing any
+     * existing file. The space's current objects are recorded immediately.
+     * Must be invoked on the physics thread, while the space isn't being
+     * stepped.
+     *
+     * @param space the space to record (not null, alias created)
+     * @param file the path to the file (not null)
+     * @param keyframeInterval the number of steps between keyframes (&gt;0)
+     * @throws IOException if the file can't be opened or written
+     */
+    public SimulationRecorder(PhysicsSpace space, Path file,
+            int keyframeInterval) throws IOException {
+        Validate.nonNull(space, "space");
+        Validate.nonNull(file, "file");
+        Validate.positive(keyframeInterval, "keyframe interval");
+
+        this.space = space;
+        this.keyframeInterval = keyframeInterval;
+        channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+
+        buffer.putInt(magic).putInt(version);
+        for (PhysicsCollisionObject pco : space.getPcoList()) {
+            recordAdd(pco);
+        }
+        space.addMembershipListener(this);
+        space.addTickListener(this);
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Stop recording, flush the buffer, and close the file.
+     *
+     * @throws IOException if the file can't be written or closed
+     */
+    public void close() throws IOException {
+        space.removeMembershipListener(this);
+        space.removeTickListener(this);
+        flush();
+        channel.close();
+    }
+
+    /**
+     * Count the steps recorded.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countSteps() {
+        return numSteps;
+    }
+
+    /**
+     * Copy the total force and torque applied to the specified body.
+     *
+     * @param body the body to read (not null, unaffected)
+     * @param storeForces storage for the force and torque (not null,
+     * length&ge;6, modified)
+     * @param vector temporary storage (not null, modified)
+     */
+    static void readForces(PhysicsRigidBody body, float[] storeForces,
+            Vector3f vector) {
+        body.totalAppliedForce(vector);
+        storeForces[0] = vector.x;
+        storeForces[1] = vector.y;
+        storeForces[2] = vector.z;
+        body.totalAppliedTorque(vector);
+        storeForces[3] = vector.x;
+        storeForces[4] = vector.y;
+        storeForces[5] = vector.z;
+    }
+
+    /**
+     * Copy the dynamic state of the specified body.
+     *
+     * @param body the body to read (not null, unaffected)
+     * @param storeState storage for the state (not null, length&ge;13,
+     * modified)
+     * @param vector temporary storage (not null, modified)
+     * @param rotation temporary storage (not null, modified)
+     */
+    static void readState(PhysicsRigidBody body, float[] storeState,
+            Vector3f vector, Quaternion rotation) {
+        body.getPhysicsLocation(vector);
+        storeState[0] = vector.x;
+        storeState[1] = vector.y;
+        storeState[2] = vector.z;
+        body.getPhysicsRotation(rotation);
+        storeState[3] = rotation.getX();
+        storeState[4] = rotation.getY();
+        storeState[5] = rotation.getZ();
+        storeState[6] = rotation.getW();
+
+        if (body.isDynamic()) {
+            body.getLinearVelocity(vector);
+            storeState[7] = vector.x;
+            storeState[8] = vector.y;
+            storeState[9] = vector.z;
+            body.getAngularVelocity(vector);
+            storeState[10] = vector.x;
+            storeState[11] = vector.y;
+            storeState[12] = vector.z;
+        } else {
+            for (int i = 7; i < stateFloats; ++i) {
+                storeState[i] = 0f;
+            }
+        }
+    }
+
+    /**
+     * Apply the specified dynamic state to the specified body.
+     *
+     * @param state the state to apply (not null, length&ge;13, unaffected)
+     * @param body the body to modify (not null)
+     * @param vector temporary storage (not null, modified)
+     * @param rotation temporary storage (not null, modified)
+     */
+    static void writeState(float[] state, PhysicsRigidBody body,
+            Vector3f vector, Quaternion rotation) {
+        vector.set(state[0], state[1], state[2]);
+        body.setPhysicsLocation(vector);
+        rotation.set(state[3], state[4], state[5], state[6]);
+        body.setPhysicsRotation(rotation);
+        if (body.isDynamic()) {
+            vector.set(state[7], state[8], state[9]);
+            body.setLinearVelocity(vector);
+            vector.set(state[10], state[11], state[12]);
+            body.setAngularVelocity(vector);
+        }
+    }
+    // *************************************************************************
+    // CollisionSpaceListener methods
+
+    /**
+     * Record an object added to the space.
+     *
+     * @param space the space that was modified (not null)
+     * @param pco the object that was added (not null)
+     */
+    @Override
+    public void objectAdded(CollisionSpace space, PhysicsCollisionObject pco) {
+        try {
+            recordAdd(pco);
+        } catch (IOException exception) {
+            throw new RuntimeException(exception);
+        }
+    }
+
+    /**
+     * Record an object removed from the space.
+     *
+     * @param space the space that was modified (not null)
+     * @param pco the object that was removed (not null)
+     */
+    @Override
+    public void objectRemoved(CollisionSpace space,
+            PhysicsCollisionObject pco) {
+        Integer index = indexMap.remove(pco);
+        if (index != null) {
+            forceMap.remove(pco);
+            stateMap.remove(pco);
+            try {
+                reserve(5);
+                buffer.put(tagRemove).putInt(index);
+            } catch (IOException exception) {
+                throw new RuntimeException(exception);
+            }
+        }
+    }
+    // *************************************************************************
+    // PhysicsTickListener methods
+
+    /**
+     * Record the state of each rigid body that changed since the previous
+     * step and the forces on each dynamic body whose forces changed, followed
+     * by the step itself.
+     *
+     * @param space the space that is about to be stepped (not null)
+     * @param timeStep the time per physics step (in seconds, &ge;0)
+     */
+    @Override
+    public void prePhysicsTick(PhysicsSpace space, float timeStep) {
+        try {
+            for (Map.Entry<PhysicsRigidBody, float[]> entry
+                    : stateMap.entrySet()) {
+                PhysicsRigidBody body = entry.getKey();
+                float[] previous = entry.getValue();
+                readState(body, tmpState, tmpVector, tmpRotation);
+                if (!sameBits(tmpState, previous)) {
+                    reserve(5 + 4 * stateFloats);
+                    buffer.put(tagInput).putInt(indexMap.get(body));
+                    putFloats(tmpState);
+                }
+
+                float[] previousForces = forceMap.get(body);
+                if (previousForces != null) {
+                    readForces(body, tmpForces, tmpVector);
+                    if (!sameBits(tmpForces, previousForces)) {
+                        reserve(5 + 4 * forceFloats);
+                        buffer.put(tagForce).putInt(indexMap.get(body));
+                        putFloats(tmpForces);
+                        System.arraycopy(tmpForces, 0, previousForces, 0,
+                                forceFloats);
+                    }
+                }
+            }
+
+            reserve(5);
+            buffer.put(tagStep).putFloat(timeStep);
+        } catch (IOException exception) {
+            throw new RuntimeException(exception);
+        }
+    }
+
+    /**
+     * Update the state of each rigid body, and record a keyframe if one is
+     * due.
+     *
+     * @param space the space that was just stepped (not null)
+     * @param timeStep the time per physics step (in seconds, &ge;0)
+     */
+    @Override
+    public void physicsTick(PhysicsSpace space, float timeStep) {
+        ++numSteps;
+        for (Map.Entry<PhysicsRigidBody, float[]> entry
+                : stateMap.entrySet()) {
+            readState(entry.getKey(), entry.getValue(), tmpVector,
+                    tmpRotation);
+        }
+
+        if (numSteps % keyframeInterval == 0) {
+            try {
+                reserve(5);
+                buffer.put(tagKeyframe).putInt(stateMap.size());
+                for (Map.Entry<PhysicsRigidBody, float[]> entry
+                        : stateMap.entrySet()) {
+                    reserve(4 + 4 * stateFloats);
+                    buffer.putInt(indexMap.get(entry.getKey()));
+                    putFloats(entry.getValue());
+                }
+            } catch (IOException exception) {
+                throw new RuntimeException(exception);
+            }
+        }
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Write the buffered records to the file.
+     *
+     * @throws IOException if the file can't be written
+     */
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Write the specified floats to the buffer.
+     *
+     * @param array the floats to write (not null, unaffected)
+     */
+    private void putFloats(float[] array) {
+        for (float value : array) {
+            buffer.putFloat(value);
+        }
+    }
+
+    /**
+     * Record an added object, in J3O format.
+     *
+     * @param pco the object that was added (not null, unaffected)
+     * @throws IOException if the object can't be saved or written
+     */
+    private void recordAdd(PhysicsCollisionObject pco) throws IOException {
+        int index = nextIndex;
+        ++nextIndex;
+        indexMap.put(pco, index);
+        if (pco instanceof PhysicsRigidBody) {
+            PhysicsRigidBody body = (PhysicsRigidBody) pco;
+            float[] state = new float[stateFloats];
+            readState(body, state, tmpVector, tmpRotation);
+            stateMap.put(body, state);
+            if (body.isDynamic()) {
+                /*
+                 * NaN never matches, so the forces get recorded before the
+                 * body's first step.
+                 */
+                float[] forces = new float[forceFloats];
+                Arrays.fill(forces, Float.NaN);
+                forceMap.put(body, forces);
+            }
+        }
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream(1024);
+        BinaryExporter.getInstance().save(pco, stream);
+        byte[] bytes = stream.toByteArray();
+
+        reserve(9);
+        buffer.put(tagAdd).putInt(index).putInt(bytes.length);
+        flush();
+        ByteBuffer wrapped = ByteBuffer.wrap(bytes);
+        while (wrapped.hasRemaining()) {
+            channel.write(wrapped);
+        }
+    }
+
+    /**
+     * Ensure that the buffer has room for the specified number of bytes,
+     * flushing it if necessary.
+     *
+     * @param numBytes the number of bytes needed (&ge;0, &le;bufferBytes)
+     * @throws IOException if the file can't be written
+     */
+    private void reserve(int numBytes) throws IOException {
+        if (buffer.remaining() < numBytes) {
+            flush();
+        }
+    }
+
+    /**
+     * Test whether 2 arrays of the same length are bitwise identical.
+     *
+     * @param array1 the first array (not null, unaffected)
+     * @param array2 the 2nd array (not null, unaffected)
+     * @return true if identical, otherwise false
+     */
+    private static boolean sameBits(float[] array1, float[] array2) {
+        assert array1.length == array2.length;
+        for (int i = 0; i < array1.length; ++i) {
+            if (Float.floatToIntBits(array1[i])
+                    != Float.floatToIntBits(array2[i])) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,426 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.util;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.PhysicsTickListener;
+import com.jme3.bullet.collision.PhysicsCollisionObject;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.export.binary.BinaryImporter;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Replay a file written by a SimulationRecorder, reconstructing the recorded
+ * objects in a PhysicsSpace and stepping it as fast as possible.
+ * <p>
+ * The file is memory-mapped, so replay involves no copying beyond the J3O
+ * data of added objects. Keyframes can be used to verify that the replay
+ * matches the recording: in a deterministic space (see
+ * {@link PhysicsSpace#setDeterministic(boolean)}) the first mismatch, if any,
+ * identifies the step where the replay diverged.
+ * <p>
+ * Each recorded step is replayed as a single step of size accuracy, so replay
+ * works in deterministic mode. Recorded forces and torques are re-applied
+ * just before each step, replacing whatever forces the bodies had.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ * @see SimulationRecorder
+ */
+public class SimulationReplayer {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(SimulationReplayer.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * asset manager for importing objects, or null if none
+     */
+    final private AssetManager assetManager;
+    /**
+     * recorded data (big-endian), positioned at the next unread record
+     */
+    final private ByteBuffer data;
+    /**
+     * reusable state storage
+     */
+    final private float[] recordedState
+            = new float[SimulationRecorder.stateFloats];
+    /**
+     * reusable state storage
+     */
+    final private float[] replayedState
+            = new float[SimulationRecorder.stateFloats];
+    /**
+     * index of the first step whose keyframe didn't match, or -1 if none
+     */
+    private int firstMismatch = -1;
+    /**
+     * number of steps replayed
+     */
+    private int numSteps = 0;
+    /**
+     * map each reconstructed dynamic body to its most recently recorded total
+     * force and torque
+     */
+    final private Map<PhysicsRigidBody, float[]> forceMap
+            = new IdentityHashMap<>(64);
+    /**
+     * map recorded indices to reconstructed objects
+     */
+    final private Map<Integer, PhysicsCollisionObject> objectMap
+            = new HashMap<>(64);
+    /**
+     * tick listener that re-applies the recorded forces before each step
+     */
+    final private PhysicsTickListener forceApplier = new PhysicsTickListener() {
+        @Override
+        public void prePhysicsTick(PhysicsSpace space, float timeStep) {
+            applyForces();
+        }
+
+        @Override
+        public void physicsTick(PhysicsSpace space, float timeStep) {
+            // do nothing
+        }
+    };
+    /**
+     * reusable rotation
+     */
+    final private Quaternion tmpRotation = new Quaternion();
+    /**
+     * reusable vector
+     */
+    final private Vector3f tmpVector = new Vector3f();
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a replayer for the specified file.
+     *
+     * @param file the path to the file (not null)
+     * @param assetManager the asset manager for importing objects (may be
+     * null)
+     * @throws IOException if the file can't be read or isn't a recording
+     */
+    public SimulationReplayer(Path file, AssetManager assetManager)
+            throws IOException {
+        Validate.nonNull(file, "file");
+
+        this.assetManager = assetManager;
+        try (FileChannel channel
+                = FileChannel.open(file, StandardOpenOption.READ)) {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0L,
+                    channel.size());
+        }
+        data.order(ByteOrder.BIG_ENDIAN);
+
+        if (data.remaining() < 8
+                || data.getInt() != SimulationRecorder.magic) {
+            throw new IOException("not a simulation recording: " + file);
+        }
+        int fileVersion = data.getInt();
+        if (fileVersion != SimulationRecorder.version) {
+            throw new IOException(
+                    "unsupported recording version: " + fileVersion);
+        }
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Count the steps replayed so far.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countSteps() {
+        return numSteps;
+    }
+
+    /**
+     * Access the object reconstructed for the specified recorded index.
+     *
+     * @param index the index assigned by the recorder (&ge;0)
+     * @return the pre-existing object, or null if not added yet or since
+     * removed
+     */
+    public PhysicsCollisionObject findObject(int index) {
+        Validate.nonNegative(index, "index");
+        PhysicsCollisionObject result = objectMap.get(index);
+        return result;
+    }
+
+    /**
+     * Determine the first step whose keyframe didn't match the replay.
+     *
+     * @return the number of steps replayed when the mismatch was detected
+     * (&gt;0) or -1 if none was detected
+     */
+    public int firstMismatch() {
+        return firstMismatch;
+    }
+
+    /**
+     * Test whether the recording has been fully replayed.
+     *
+     * @return true if finished, otherwise false
+     */
+    public boolean isFinished() {
+        boolean result = !data.hasRemaining();
+        return result;
+    }
+
+    /**
+     * Replay the remainder of the recording into the specified space.
+     *
+     * @param space the space to reconstruct into (not null, normally empty at
+     * the start of the replay)
+     * @param verify true to compare each keyframe against the replay, false to
+     * skip keyframes
+     * @return the number of steps replayed by this invocation (&ge;0)
+     * @throws IOException if an object can't be imported or the file is
+     * truncated
+     */
+    public int replay(PhysicsSpace space, boolean verify) throws IOException {
+        int result = replay(space, Integer.MAX_VALUE, verify);
+        return result;
+    }
+
+    /**
+     * Replay up to the specified number of steps into the specified space.
+     *
+     * @param space the space to reconstruct into (not null, normally empty at
+     * the start of the replay)
+     * @param maxSteps the maximum number of steps to replay (&ge;0)
+     * @param verify true to compare each keyframe against the replay, false to
+     * skip keyframes
+     * @return the number of steps replayed by this invocation (&ge;0)
+     * @throws IOException if an object can't be imported or the file is
+     * truncated
+     */
+    public int replay(PhysicsSpace space, int maxSteps, boolean verify)
+            throws IOException {
+        Validate.nonNull(space, "space");
+        Validate.nonNegative(maxSteps, "maximum number of steps");
+
+        space.addTickListener(forceApplier);
+        try {
+            int result = replaySteps(space, maxSteps, verify);
+            return result;
+        } finally {
+            space.removeTickListener(forceApplier);
+        }
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Re-apply the most recently recorded force and torque to each dynamic
+     * body, without altering its activation.
+     */
+    private void applyForces() {
+        for (Map.Entry<PhysicsRigidBody, float[]> entry
+                : forceMap.entrySet()) {
+            PhysicsRigidBody body = entry.getKey();
+            float[] forces = entry.getValue();
+            int activationState = body.getActivationState();
+            float deactivationTime = body.getDeactivationTime();
+
+            body.clearForces();
+            tmpVector.set(forces[0], forces[1], forces[2]);
+            body.applyCentralForce(tmpVector);
+            tmpVector.set(forces[3], forces[4], forces[5]);
+            body.applyTorque(tmpVector);
+
+            body.setActivationState(activationState);
+            body.setDeactivationTime(deactivationTime);
+        }
+    }
+
+    /**
+     * Read floats from the recorded data.
+     *
+     * @param storeArray storage for the floats (not null, modified)
+     */
+    private void getFloats(float[] storeArray) {
+        for (int i = 0; i < storeArray.length; ++i) {
+            storeArray[i] = data.getFloat();
+        }
+    }
+
+    /**
+     * Replay up to the specified number of steps into the specified space.
+     *
+     * @param space the space to reconstruct into (not null)
+     * @param maxSteps the maximum number of steps to replay (&ge;0)
+     * @param verify true to compare each keyframe against the replay, false to
+     * skip keyframes
+     * @return the number of steps replayed (&ge;0)
+     * @throws IOException if an object can't be imported or the file is
+     * corrupt
+     */
+    private int replaySteps(PhysicsSpace space, int maxSteps, boolean verify)
+            throws IOException {
+        int result = 0;
+        while (data.hasRemaining() && result < maxSteps) {
+            byte tag = data.get();
+            switch (tag) {
+                case SimulationRecorder.tagAdd:
+                    replayAdd(space);
+                    break;
+
+                case SimulationRecorder.tagRemove:
+                    PhysicsCollisionObject pco
+                            = objectMap.remove(data.getInt());
+                    if (pco != null) {
+                        forceMap.remove(pco);
+                        space.removeCollisionObject(pco);
+                    }
+                    break;
+
+                case SimulationRecorder.tagInput:
+                    PhysicsRigidBody body
+                            = (PhysicsRigidBody) objectMap.get(data.getInt());
+                    getFloats(recordedState);
+                    SimulationRecorder.writeState(recordedState, body,
+                            tmpVector, tmpRotation);
+                    break;
+
+                case SimulationRecorder.tagForce:
+                    body = (PhysicsRigidBody) objectMap.get(data.getInt());
+                    float[] forces = forceMap.get(body);
+                    if (forces == null) {
+                        forces = new float[SimulationRecorder.forceFloats];
+                        forceMap.put(body, forces);
+                    }
+                    getFloats(forces);
+                    break;
+
+                case SimulationRecorder.tagStep:
+                    float timeStep = data.getFloat();
+                    if (space.getAccuracy() != timeStep) {
+                        space.setAccuracy(timeStep);
+                    }
+                    space.update(timeStep, 1);
+                    ++numSteps;
+                    ++result;
+                    break;
+
+                case SimulationRecorder.tagKeyframe:
+                    replayKeyframe(verify);
+                    break;
+
+                default:
+                    String message = "unknown record type: " + tag;
+                    throw new IOException(message);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Import an added object and add it to the specified space.
+     *
+     * @param space the space to add to (not null)
+     * @throws IOException if the object can't be imported
+     */
+    private void replayAdd(PhysicsSpace space) throws IOException {
+        int index = data.getInt();
+        int length = data.getInt();
+        byte[] bytes = new byte[length];
+        data.get(bytes);
+
+        BinaryImporter importer = BinaryImporter.getInstance();
+        importer.setAssetManager(assetManager);
+        PhysicsCollisionObject pco = (PhysicsCollisionObject) importer.load(
+                new ByteArrayInputStream(bytes));
+        objectMap.put(index, pco);
+        space.addCollisionObject(pco);
+    }
+
+    /**
+     * Read a keyframe and optionally compare it against the replay.
+     *
+     * @param verify true to compare, false to skip
+     */
+    private void replayKeyframe(boolean verify) {
+        int numBodies = data.getInt();
+        int recordBytes = 4 + 4 * SimulationRecorder.stateFloats;
+        if (!verify || firstMismatch >= 0) {
+            data.position(data.position() + numBodies * recordBytes);
+            return;
+        }
+
+        for (int i = 0; i < numBodies; ++i) {
+            PhysicsRigidBody body
+                    = (PhysicsRigidBody) objectMap.get(data.getInt());
+            getFloats(recordedState);
+            if (firstMismatch >= 0) {
+                continue;
+            }
+            SimulationRecorder.readState(body, replayedState, tmpVector,
+                    tmpRotation);
+            for (int j = 0; j < SimulationRecorder.stateFloats; ++j) {
+                if (Float.floatToIntBits(recordedState[j])
+                        != Float.floatToIntBits(replayedState[j])) {
+                    firstMismatch = numSteps;
+                    if (logger.isLoggable(Level.WARNING)) {
+                        logger.log(Level.WARNING,
+                                "replay diverged by step {0}", numSteps);
+                    }
+                    break;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.util;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.PhysicsTickListener;
+import com.jme3.bullet.objects.PhysicsCharacter;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import java.util.Arrays;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Hash the dynamic state of a PhysicsSpace after each simulation step, so that
+ * divergence between runs (or between lockstep peers) is detected at the step
+ * where it occurs.
+ * <p>
+ * The hash covers the locations, orientations, and velocities of all rigid
+ * bodies, plus the locations of all characters. It's computed from exact
+ * float bits and combined commutatively, so it doesn't depend on the order in
+ * which Java iterates the space's collections.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ * @see PhysicsSpace#setDeterministic(boolean)
+ */
+public class StateHashRecorder implements PhysicsTickListener {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(StateHashRecorder.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * number of steps recorded
+     */
+    private int numSteps = 0;
+    /**
+     * recorded hash of each step
+     */
+    private long[] hashes = new long[64];
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Discard all recorded hashes.
+     */
+    public void clear() {
+        numSteps = 0;
+    }
+
+    /**
+     * Count the steps recorded.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countSteps() {
+        return numSteps;
+    }
+
+    /**
+     * Find the first step whose hash differs from that of another recorder.
+     *
+     * @param other the recorder to compare with (not null, unaffected)
+     * @return the index of the first differing step (&ge;0), or -1 if the
+     * recordings are identical, or the length of the shorter recording if one
+     * is a prefix of the other
+     */
+    public int findDivergence(StateHashRecorder other) {
+        Validate.nonNull(other, "other");
+
+        int commonSteps = Math.min(numSteps, other.numSteps);
+        for (int stepIndex = 0; stepIndex < commonSteps; ++stepIndex) {
+            if (hashes[stepIndex] != other.hashes[stepIndex]) {
+                return stepIndex;
+            }
+        }
+
+        int result = (numSteps == other.numSteps) ? -1 : commonSteps;
+        return result;
+    }
+
+    /**
+     * Read the hash of the indexed step.
+     *
+     * @param stepIndex which step (&ge;0, &lt;numSteps)
+     * @return the hash value
+     */
+    public long getHash(int stepIndex) {
+        Validate.inRange(stepIndex, "step index", 0, numSteps - 1);
+        long result = hashes[stepIndex];
+
+        return result;
+    }
+
+    /**
+     * Calculate a hash of the current dynamic state of the specified space.
+     *
+     * @param space the space to hash (not null, unaffected)
+     * @return the hash value
+     */
+    public static long hash(PhysicsSpace space) {
+        Vector3f tmpVector = new Vector3f();
+        Quaternion tmpRotation = new Quaternion();
+        long result = 0L;
+
+        for (PhysicsRigidBody body : space.getRigidBodyList()) {
+            long bodyHash = 17L;
+            body.getPhysicsLocation(tmpVector);
+            bodyHash = mix(bodyHash, tmpVector);
+            body.getPhysicsRotation(tmpRotation);
+            bodyHash = mix(bodyHash, tmpRotation.getX());
+            bodyHash = mix(bodyHash, tmpRotation.getY());
+            bodyHash = mix(bodyHash, tmpRotation.getZ());
+            bodyHash = mix(bodyHash, tmpRotation.getW());
+            if (body.isDynamic()) {
+                body.getLinearVelocity(tmpVector);
+                bodyHash = mix(bodyHash, tmpVector);
+                body.getAngularVelocity(tmpVector);
+                bodyHash = mix(bodyHash, tmpVector);
+            }
+            result += finish(bodyHash);
+        }
+
+        for (PhysicsCharacter character : space.getCharacterList()) {
+            long characterHash = 31L;
+            character.getPhysicsLocation(tmpVector);
+            characterHash = mix(characterHash, tmpVector);
+            result += finish(characterHash);
+        }
+
+        return result;
+    }
+    // *************************************************************************
+    // PhysicsTickListener methods
+
+    /**
+     * Callback from Bullet, invoked just before the physics is stepped.
+     *
+     * @param space the space that is about to be stepped (not null)
+     * @param timeStep the time per physics step (in seconds, &ge;0)
+     */
+    @Override
+    public void prePhysicsTick(PhysicsSpace space, float timeStep) {
+        // do nothing
+    }
+
+    /**
+     * Callback from Bullet, invoked just after the physics has been stepped.
+     * Records the hash of the space's state.
+     *
+     * @param space the space that was just stepped (not null)
+     * @param timeStep the time per physics step (in seconds, &ge;0)
+     */
+    @Override
+    public void physicsTick(PhysicsSpace space, float timeStep) {
+        if (numSteps == hashes.length) {
+            hashes = Arrays.copyOf(hashes, 2 * numSteps);
+        }
+        hashes[numSteps] = hash(space);
+        ++numSteps;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Scramble the bits of a partial hash (SplitMix64 finalizer).
+     *
+     * @param hash the input value
+     * @return the scrambled value
+     */
+    private static long finish(long hash) {
+        long result = hash;
+        result = (result ^ (result >>> 30)) * 0xbf58476d1ce4e5b9L;
+        result = (result ^ (result >>> 27)) * 0x94d049bb133111ebL;
+        result ^= result >>> 31;
+
+        return result;
+    }
+
+    /**
+     * Mix the exact bits of a float into a partial hash.
+     *
+     * @param hash the partial hash
+     * @param value the value to mix in
+     * @return the new partial hash
+     */
+    private static long mix(long hash, float value) {
+        int bits = Float.floatToIntBits(value);
+        long result = (hash ^ bits) * 0x100000001b3L;
+
+        return result;
+    }
+
+    /**
+     * Mix the exact bits of a vector into a partial hash.
+     *
+     * @param hash the partial hash
+     * @param vector the vector to mix in (not null, unaffected)
+     * @return the new partial hash
+     */
+    private static long mix(long hash, Vector3f vector) {
+        long result = mix(hash, vector.x);
+        result = mix(result, vector.y);
+        result = mix(result, vector.z);
+
+        return result;
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.bullet.CharacterCrowd;
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.collision.shapes.BoxCollisionShape;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Vector3f;
+import com.jme3.system.NativeLibraryLoader;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test walking, falling, and jumping with a CharacterCrowd.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestCharacterCrowd {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Walk one character across a floor while another falls onto it, then
+     * jump, verifying the ground probe and the bulk readback at each stage.
+     */
+    @Test
+    public void testCharacterCrowd() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        PhysicsSpace space = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+        BoxCollisionShape floorShape
+                = new BoxCollisionShape(new Vector3f(20f, 0.5f, 20f));
+        PhysicsRigidBody floor = new PhysicsRigidBody(floorShape,
+                PhysicsRigidBody.massForStatic);
+        floor.setPhysicsLocation(new Vector3f(0f, -0.5f, 0f));
+        space.addCollisionObject(floor);
+
+        CharacterCrowd crowd = new CharacterCrowd(0.5f, 2f, 1f, 1);
+        int walker = crowd.add(new Vector3f(0f, 0f, 0f));
+        int faller = crowd.add(new Vector3f(5f, 3f, 0f));
+        Assert.assertEquals(0, walker);
+        Assert.assertEquals(1, faller);
+        Assert.assertEquals(2, crowd.countCharacters());
+        crowd.setPhysicsSpace(space);
+        /*
+         * After one step, only the walker stands on the floor.
+         */
+        step(space);
+        Assert.assertTrue(crowd.isOnGround(walker));
+        Assert.assertFalse(crowd.isOnGround(faller));
+        Assert.assertEquals(1, crowd.countOnGround());
+        ByteBuffer flags = crowd.copyGroundFlags(null);
+        Assert.assertEquals(1, flags.get(walker));
+        Assert.assertEquals(0, flags.get(faller));
+        /*
+         * Walk for one second, during which the faller lands.
+         */
+        crowd.setWalkDirection(walker, new Vector3f(2f, 0f, 0f));
+        for (int i = 0; i < 60; ++i) {
+            step(space);
+        }
+        Assert.assertTrue(crowd.isOnGround(walker));
+        Assert.assertTrue(crowd.isOnGround(faller));
+        Assert.assertEquals(2, crowd.countOnGround());
+
+        FloatBuffer locations = crowd.copyLocations(null);
+        Assert.assertTrue(locations.get(0) > 1.5f);
+        Assert.assertEquals(0f, locations.get(1), 0.05f);
+        Assert.assertEquals(0f, locations.get(2), 0.01f);
+        Assert.assertEquals(5f, locations.get(3), 0.01f);
+        Assert.assertEquals(0f, locations.get(4), 0.05f);
+
+        FloatBuffer velocities = crowd.copyVelocities(null);
+        Assert.assertEquals(2f, velocities.get(0), 0.2f);
+        /*
+         * The readback matches the bodies.
+         */
+        Vector3f location = crowd.getBody(walker).getPhysicsLocation(null);
+        Assert.assertEquals(location.x, locations.get(0), 0f);
+        Assert.assertEquals(location.y, locations.get(1), 0f);
+        /*
+         * Stop walking and jump: the walker leaves the ground.
+         */
+        crowd.setWalkDirection(walker, new Vector3f(0f, 0f, 0f));
+        crowd.jump(walker);
+        for (int i = 0; i < 10; ++i) {
+            step(space);
+        }
+        Assert.assertFalse(crowd.isOnGround(walker));
+        Assert.assertTrue(crowd.isOnGround(faller));
+        locations = crowd.copyLocations(locations);
+        Assert.assertTrue(locations.get(1) > 0.3f);
+
+        crowd.setPhysicsSpace(null);
+        Assert.assertEquals(1, space.countRigidBodies());
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Simulate a single step.
+     *
+     * @param space the space to step (not null)
+     */
+    private static void step(PhysicsSpace space) {
+        space.update(space.getAccuracy(), 1);
+    }
+}
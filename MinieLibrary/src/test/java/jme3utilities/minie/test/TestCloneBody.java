@@ -30,6 +30,7 @@ import com.jme3.asset.AssetManager;
 import com.jme3.asset.DesktopAssetManager;
 import com.jme3.bullet.SoftBodyWorldInfo;
 import com.jme3.bullet.collision.AfMode;
+import com.jme3.bullet.collision.PhysicsCollisionObject;
 import com.jme3.bullet.collision.shapes.CollisionShape;
 import com.jme3.bullet.collision.shapes.SphereCollisionShape;
 import com.jme3.bullet.control.RigidBodyControl;
@@ -128,6 +129,23 @@ public class TestCloneBody {
         verifyParameters(body, 0f);
         PhysicsRigidBody bodyClone = (PhysicsRigidBody) Heart.deepCopy(body);
         cloneTest(body, bodyClone);
+        /*
+         * dynamic with mirrored properties, verified against native state
+         */
+        boolean wasStrict = PhysicsCollisionObject.isStrictMirroring();
+        PhysicsCollisionObject.setStrictMirroring(true);
+        try {
+            PhysicsRigidBody mirrored = new PhysicsRigidBody(shape, 1f);
+            mirrored.setMirroring(true);
+            setParameters(mirrored, 0f);
+            verifyParameters(mirrored, 0f);
+            PhysicsRigidBody mirroredClone
+                    = (PhysicsRigidBody) Heart.deepCopy(mirrored);
+            Assert.assertTrue(mirroredClone.isMirroring());
+            cloneTest(mirrored, mirroredClone);
+        } finally {
+            PhysicsCollisionObject.setStrictMirroring(wasStrict);
+        }
     }
 
     /**
@@ -0,0 +1,151 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.bullet.ContactManifoldDump;
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.collision.shapes.BoxCollisionShape;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Vector3f;
+import com.jme3.system.NativeLibraryLoader;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test capturing contact manifolds into direct buffers.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestContactManifoldDump {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Rest 2 boxes on a floor and verify the captured point counts and body
+     * IDs, both with and without a filter.
+     */
+    @Test
+    public void testContactManifoldDump() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        PhysicsSpace space = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+        BoxCollisionShape floorShape
+                = new BoxCollisionShape(new Vector3f(10f, 0.5f, 10f));
+        PhysicsRigidBody floor = new PhysicsRigidBody(floorShape,
+                PhysicsRigidBody.massForStatic);
+        floor.setPhysicsLocation(new Vector3f(0f, -0.5f, 0f));
+        space.addCollisionObject(floor);
+
+        BoxCollisionShape boxShape = new BoxCollisionShape(0.5f);
+        PhysicsRigidBody box1 = new PhysicsRigidBody(boxShape, 1f);
+        box1.setPhysicsLocation(new Vector3f(-3f, 0.5f, 0f));
+        space.addCollisionObject(box1);
+        PhysicsRigidBody box2 = new PhysicsRigidBody(boxShape, 1f);
+        box2.setPhysicsLocation(new Vector3f(3f, 0.5f, 0f));
+        space.addCollisionObject(box2);
+
+        ContactManifoldDump dump = new ContactManifoldDump(space);
+        Assert.assertEquals(0, dump.countManifolds());
+        Assert.assertEquals(0, dump.countPoints());
+        /*
+         * Let the boxes settle, then capture a single step.
+         */
+        for (int i = 0; i < 30; ++i) {
+            step(space);
+        }
+        dump.capture();
+        step(space);
+        Assert.assertEquals(2, dump.capture());
+        Assert.assertEquals(2, dump.countManifolds());
+
+        IntBuffer pointCounts = dump.getPointCounts();
+        LongBuffer bodyIds = dump.getBodyIds();
+        Assert.assertEquals(2, pointCounts.limit());
+        Assert.assertEquals(4, bodyIds.limit());
+        boolean found1 = false;
+        boolean found2 = false;
+        int totalPoints = 0;
+        for (int i = 0; i < 2; ++i) {
+            int count = pointCounts.get(i);
+            Assert.assertTrue(count >= 1 && count <= 4);
+            totalPoints += count;
+
+            long idA = bodyIds.get(2 * i);
+            long idB = bodyIds.get(2 * i + 1);
+            long other;
+            if (idA == floor.nativeId()) {
+                other = idB;
+            } else {
+                Assert.assertEquals(floor.nativeId(), idB);
+                other = idA;
+            }
+            if (other == box1.nativeId()) {
+                found1 = true;
+            } else {
+                Assert.assertEquals(box2.nativeId(), other);
+                found2 = true;
+            }
+        }
+        Assert.assertTrue(found1);
+        Assert.assertTrue(found2);
+        Assert.assertEquals(totalPoints, dump.countPoints());
+        Assert.assertEquals(totalPoints, dump.getImpulses().limit());
+        Assert.assertEquals(3 * totalPoints, dump.getPositions().limit());
+        /*
+         * With a filter, only the manifold of the filtered box is captured.
+         */
+        dump.setFilter(box2);
+        step(space);
+        Assert.assertEquals(1, dump.capture());
+        pointCounts = dump.getPointCounts();
+        bodyIds = dump.getBodyIds();
+        Assert.assertEquals(dump.countPoints(), pointCounts.get(0));
+        Assert.assertTrue(bodyIds.get(0) == box2.nativeId()
+                || bodyIds.get(1) == box2.nativeId());
+        /*
+         * After destroy(), nothing more is gathered.
+         */
+        dump.destroy();
+        step(space);
+        Assert.assertEquals(0, dump.capture());
+        Assert.assertEquals(0, dump.countPoints());
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Simulate a single step and distribute the resulting events.
+     *
+     * @param space the space to step (not null)
+     */
+    private static void step(PhysicsSpace space) {
+        space.update(space.getAccuracy(), 1);
+        space.distributeEvents();
+    }
+}
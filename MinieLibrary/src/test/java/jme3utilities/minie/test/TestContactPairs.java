@@ -0,0 +1,144 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.collision.ContactPairListener;
+import com.jme3.bullet.collision.PhysicsCollisionObject;
+import com.jme3.bullet.collision.shapes.BoxCollisionShape;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Vector3f;
+import com.jme3.system.NativeLibraryLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test pair-level contact notifications, including pairs that fall asleep.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestContactPairs {
+    // *************************************************************************
+    // fields
+
+    /**
+     * number of pairBegan() notifications
+     */
+    private int numBegan;
+    /**
+     * number of pairEnded() notifications
+     */
+    private int numEnded;
+    /**
+     * number of pairPersisted() notifications
+     */
+    private int numPersisted;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Rest a box on a floor until it falls asleep, verify that the pair
+     * persists while asleep, then lift the box away and verify that the pair
+     * ends.
+     */
+    @Test
+    public void testContactPairs() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        PhysicsSpace space = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+        BoxCollisionShape floorShape
+                = new BoxCollisionShape(new Vector3f(10f, 0.5f, 10f));
+        PhysicsRigidBody floor = new PhysicsRigidBody(floorShape,
+                PhysicsRigidBody.massForStatic);
+        floor.setPhysicsLocation(new Vector3f(0f, -0.5f, 0f));
+        space.addCollisionObject(floor);
+
+        BoxCollisionShape boxShape = new BoxCollisionShape(0.5f);
+        PhysicsRigidBody box = new PhysicsRigidBody(boxShape, 1f);
+        box.setPhysicsLocation(new Vector3f(0f, 0.5f, 0f));
+        space.addCollisionObject(box);
+
+        space.addContactPairListener(new ContactPairListener() {
+            @Override
+            public void pairBegan(PhysicsCollisionObject pcoA,
+                    PhysicsCollisionObject pcoB) {
+                ++numBegan;
+            }
+
+            @Override
+            public void pairEnded(PhysicsCollisionObject pcoA,
+                    PhysicsCollisionObject pcoB) {
+                ++numEnded;
+            }
+
+            @Override
+            public void pairPersisted(PhysicsCollisionObject pcoA,
+                    PhysicsCollisionObject pcoB) {
+                ++numPersisted;
+            }
+        });
+        /*
+         * Step until the box falls asleep.
+         */
+        for (int i = 0; i < 600 && box.isActive(); ++i) {
+            step(space);
+        }
+        Assert.assertFalse(box.isActive());
+        Assert.assertTrue(numBegan > 0);
+        Assert.assertEquals(numBegan, numEnded + 1);
+        /*
+         * While asleep, the pair persists on every step.
+         */
+        int endedAtSleep = numEnded;
+        int persistedAtSleep = numPersisted;
+        for (int i = 0; i < 60; ++i) {
+            step(space);
+        }
+        Assert.assertFalse(box.isActive());
+        Assert.assertEquals(endedAtSleep, numEnded);
+        Assert.assertEquals(persistedAtSleep + 60, numPersisted);
+        /*
+         * Wake the box and lift it away: the pair ends.
+         */
+        box.activate();
+        box.setPhysicsLocation(new Vector3f(0f, 10f, 0f));
+        step(space);
+        Assert.assertEquals(endedAtSleep + 1, numEnded);
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Simulate a single step and distribute the resulting events.
+     *
+     * @param space the space to step (not null)
+     */
+    private static void step(PhysicsSpace space) {
+        space.update(space.getAccuracy(), 1);
+        space.distributeEvents();
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.SolverInfo;
+import com.jme3.bullet.SolverMode;
+import com.jme3.bullet.collision.shapes.BoxCollisionShape;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.bullet.util.DeterminismHarness;
+import com.jme3.bullet.util.StateHashRecorder;
+import com.jme3.math.Vector3f;
+import com.jme3.system.NativeLibraryLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test deterministic mode, state hashes, and DeterminismHarness.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestDeterminism {
+    // *************************************************************************
+    // fields
+
+    /**
+     * number of spaces created by the current scenario
+     */
+    private int numRuns;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Verify that enabling and disabling deterministic mode saves and
+     * restores the affected settings, and that variable time steps are
+     * rejected while it's enabled.
+     */
+    @Test
+    public void testDeterministicMode() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        PhysicsSpace space = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+        SolverInfo info = space.getSolverInfo();
+        info.setMode(info.mode() | SolverMode.RandomOrder);
+        space.setMaxSubSteps(0);
+
+        space.setDeterministic(true);
+        Assert.assertTrue(space.isDeterministic());
+        Assert.assertEquals(0, info.mode() & SolverMode.RandomOrder);
+        Assert.assertTrue(space.maxSubSteps() > 0);
+        try {
+            space.update(space.getAccuracy(), 0);
+            Assert.fail("expected an IllegalStateException");
+        } catch (IllegalStateException exception) {
+            // expected
+        }
+
+        space.setDeterministic(false);
+        Assert.assertFalse(space.isDeterministic());
+        Assert.assertNotEquals(0, info.mode() & SolverMode.RandomOrder);
+        Assert.assertEquals(0, space.maxSubSteps());
+    }
+
+    /**
+     * Verify that the harness detects divergence at the correct step and
+     * leaves the caller's thread-local space alone.
+     */
+    @Test
+    public void testHarness() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+        PhysicsSpace callerSpace
+                = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+        /*
+         * identical runs
+         */
+        numRuns = 0;
+        int divergence = DeterminismHarness.findDivergence(
+                new Stack(-1), 60, 1f / 60f);
+        Assert.assertEquals(-1, divergence);
+        Assert.assertEquals(2, numRuns);
+        Assert.assertSame(callerSpace, PhysicsSpace.getPhysicsSpace());
+        /*
+         * runs that differ starting at step 20
+         */
+        numRuns = 0;
+        divergence = DeterminismHarness.findDivergence(
+                new Stack(20), 60, 1f / 60f);
+        Assert.assertEquals(20, divergence);
+        Assert.assertSame(callerSpace, PhysicsSpace.getPhysicsSpace());
+    }
+
+    /**
+     * Verify that the state hash tracks changes to a body's state.
+     */
+    @Test
+    public void testStateHash() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        PhysicsSpace space = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+        BoxCollisionShape shape = new BoxCollisionShape(0.5f);
+        PhysicsRigidBody body = new PhysicsRigidBody(shape, 1f);
+        space.addCollisionObject(body);
+
+        long hash0 = StateHashRecorder.hash(space);
+        body.setPhysicsLocation(new Vector3f(0f, 1f, 0f));
+        long hash1 = StateHashRecorder.hash(space);
+        Assert.assertNotEquals(hash0, hash1);
+
+        body.setPhysicsLocation(new Vector3f(0f, 0f, 0f));
+        Assert.assertEquals(hash0, StateHashRecorder.hash(space));
+
+        StateHashRecorder recorder = new StateHashRecorder();
+        space.addTickListener(recorder);
+        space.update(space.getAccuracy(), 1);
+        space.update(space.getAccuracy(), 1);
+        Assert.assertEquals(2, recorder.countSteps());
+        Assert.assertEquals(StateHashRecorder.hash(space),
+                recorder.getHash(1));
+        Assert.assertNotEquals(recorder.getHash(0), recorder.getHash(1));
+    }
+    // *************************************************************************
+    // Stack
+
+    /**
+     * A scenario that drops a stack of boxes onto a floor, optionally nudging
+     * the top box during the 2nd run only.
+     */
+    private class Stack implements DeterminismHarness.Scenario {
+        /**
+         * index of the step before which the 2nd run is nudged, or -1 for
+         * identical runs
+         */
+        final private int nudgeStep;
+        /**
+         * top box of the current run
+         */
+        private PhysicsRigidBody top;
+
+        /**
+         * Instantiate a scenario.
+         *
+         * @param nudgeStep the index of the step before which to nudge the
+         * 2nd run, or -1 for identical runs
+         */
+        Stack(int nudgeStep) {
+            this.nudgeStep = nudgeStep;
+        }
+
+        @Override
+        public void applyInputs(PhysicsSpace space, int stepIndex) {
+            if (numRuns == 2 && stepIndex == nudgeStep) {
+                top.applyCentralImpulse(new Vector3f(0.1f, 0f, 0f));
+            }
+        }
+
+        @Override
+        public PhysicsSpace createSpace() {
+            ++numRuns;
+            PhysicsSpace result
+                    = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+            return result;
+        }
+
+        @Override
+        public void setUp(PhysicsSpace space) {
+            BoxCollisionShape floorShape
+                    = new BoxCollisionShape(new Vector3f(10f, 0.5f, 10f));
+            PhysicsRigidBody floor = new PhysicsRigidBody(floorShape,
+                    PhysicsRigidBody.massForStatic);
+            floor.setPhysicsLocation(new Vector3f(0f, -0.5f, 0f));
+            space.addCollisionObject(floor);
+
+            BoxCollisionShape boxShape = new BoxCollisionShape(0.5f);
+            for (int i = 0; i < 3; ++i) {
+                top = new PhysicsRigidBody(boxShape, 1f);
+                top.setPhysicsLocation(new Vector3f(0f, 0.6f + 1.1f * i, 0f));
+                space.addCollisionObject(top);
+            }
+        }
+    }
+}
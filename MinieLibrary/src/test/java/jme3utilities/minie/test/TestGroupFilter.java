@@ -0,0 +1,185 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.collision.GroupFilter;
+import com.jme3.bullet.collision.PhysicsCollisionEvent;
+import com.jme3.bullet.collision.PhysicsCollisionGroupListener;
+import com.jme3.bullet.collision.PhysicsCollisionListener;
+import com.jme3.bullet.collision.PhysicsCollisionObject;
+import com.jme3.bullet.collision.shapes.SphereCollisionShape;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Vector3f;
+import com.jme3.system.NativeLibraryLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test the collision-group filter table and the registration of
+ * collision-group listeners.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestGroupFilter {
+    // *************************************************************************
+    // constants
+
+    /**
+     * collision group of the first body
+     */
+    final private static int groupA = PhysicsCollisionObject.COLLISION_GROUP_01;
+    /**
+     * collision group of the 2nd body
+     */
+    final private static int groupB = PhysicsCollisionObject.COLLISION_GROUP_02;
+    // *************************************************************************
+    // fields
+
+    /**
+     * number of times the group listener was invoked
+     */
+    private int numCallbacks;
+    /**
+     * number of ongoing contacts reported
+     */
+    private int numContacts;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Verify that each filter action determines whether the group listener is
+     * consulted and whether the bodies collide.
+     */
+    @Test
+    public void testGroupFilter() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        PhysicsSpace space = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+        Assert.assertEquals(GroupFilter.callback,
+                space.getGroupFilter(groupA, groupB));
+        space.setGroupFilter(groupA, groupB, GroupFilter.ignore);
+        Assert.assertEquals(GroupFilter.ignore,
+                space.getGroupFilter(groupB, groupA));
+
+        simulate(GroupFilter.callback, true);
+        Assert.assertTrue(numCallbacks > 0);
+        Assert.assertTrue(numContacts > 0);
+
+        simulate(GroupFilter.callback, false);
+        Assert.assertTrue(numCallbacks > 0);
+        Assert.assertEquals(0, numContacts);
+
+        simulate(GroupFilter.collide, false);
+        Assert.assertEquals(0, numCallbacks);
+        Assert.assertTrue(numContacts > 0);
+
+        simulate(GroupFilter.ignore, true);
+        Assert.assertEquals(0, numCallbacks);
+        Assert.assertEquals(0, numContacts);
+    }
+
+    /**
+     * Verify the count of registered collision-group listeners.
+     */
+    @Test
+    public void testListenerCount() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        PhysicsSpace space = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+        PhysicsCollisionGroupListener listener
+                = new PhysicsCollisionGroupListener() {
+            @Override
+            public boolean collide(PhysicsCollisionObject pcoA,
+                    PhysicsCollisionObject pcoB) {
+                return true;
+            }
+        };
+        Assert.assertEquals(0, space.countCollisionGroupListeners());
+
+        space.addCollisionGroupListener(listener, groupA);
+        space.addCollisionGroupListener(listener, groupB);
+        Assert.assertEquals(2, space.countCollisionGroupListeners());
+
+        space.removeCollisionGroupListener(groupA);
+        Assert.assertEquals(1, space.countCollisionGroupListeners());
+
+        space.addCollisionGroupListener(listener, groupA);
+        Assert.assertEquals(2, space.countCollisionGroupListeners());
+
+        space.removeCollisionGroupListener(groupA);
+        space.removeCollisionGroupListener(groupB);
+        Assert.assertEquals(0, space.countCollisionGroupListeners());
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Step a new space containing 2 overlapping bodies in different groups
+     * and count the group-listener callbacks and ongoing contacts.
+     *
+     * @param action the filter action for the pair of groups
+     * @param allow the value the group listener should return
+     */
+    private void simulate(int action, final boolean allow) {
+        PhysicsSpace space = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+        space.setGravity(new Vector3f(0f, 0f, 0f));
+        space.setGroupFilter(groupA, groupB, action);
+
+        SphereCollisionShape shape = new SphereCollisionShape(1f);
+        PhysicsRigidBody bodyA = new PhysicsRigidBody(shape, 1f);
+        bodyA.setCollisionGroup(groupA);
+        bodyA.setCollideWithGroups(groupA | groupB);
+        space.addCollisionObject(bodyA);
+
+        PhysicsRigidBody bodyB = new PhysicsRigidBody(shape, 1f);
+        bodyB.setCollisionGroup(groupB);
+        bodyB.setCollideWithGroups(groupA | groupB);
+        bodyB.setPhysicsLocation(new Vector3f(1.5f, 0f, 0f));
+        space.addCollisionObject(bodyB);
+
+        numCallbacks = 0;
+        numContacts = 0;
+        space.addCollisionGroupListener(new PhysicsCollisionGroupListener() {
+            @Override
+            public boolean collide(PhysicsCollisionObject pcoA,
+                    PhysicsCollisionObject pcoB) {
+                ++numCallbacks;
+                return allow;
+            }
+        }, groupA);
+        space.addOngoingCollisionListener(new PhysicsCollisionListener() {
+            @Override
+            public void collision(PhysicsCollisionEvent event) {
+                ++numContacts;
+            }
+        });
+
+        space.update(1f / 60f, 1);
+        space.distributeEvents();
+    }
+}
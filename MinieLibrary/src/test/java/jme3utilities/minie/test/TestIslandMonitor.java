@@ -0,0 +1,154 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.bullet.IslandMonitor;
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.collision.shapes.BoxCollisionShape;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Vector3f;
+import com.jme3.system.NativeLibraryLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test IslandMonitor on a stack of boxes that falls asleep.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestIslandMonitor {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Rest a stack of boxes on a floor until it falls asleep, then verify that
+     * the stack remains a single sleeping island.
+     */
+    @Test
+    public void testIslandMonitor() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        PhysicsSpace space = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+        BoxCollisionShape floorShape
+                = new BoxCollisionShape(new Vector3f(10f, 0.5f, 10f));
+        PhysicsRigidBody floor = new PhysicsRigidBody(floorShape,
+                PhysicsRigidBody.massForStatic);
+        floor.setPhysicsLocation(new Vector3f(0f, -0.5f, 0f));
+        space.addCollisionObject(floor);
+
+        int numBoxes = 3;
+        BoxCollisionShape boxShape = new BoxCollisionShape(0.5f);
+        PhysicsRigidBody[] boxes = new PhysicsRigidBody[numBoxes];
+        for (int i = 0; i < numBoxes; ++i) {
+            boxes[i] = new PhysicsRigidBody(boxShape, 1f);
+            boxes[i].setPhysicsLocation(new Vector3f(0f, 0.5f + i, 0f));
+            space.addCollisionObject(boxes[i]);
+        }
+        /*
+         * A separate box, resting far away, forms its own island.
+         */
+        PhysicsRigidBody loner = new PhysicsRigidBody(boxShape, 1f);
+        loner.setPhysicsLocation(new Vector3f(5f, 0.5f, 5f));
+        space.addCollisionObject(loner);
+
+        IslandMonitor monitor = new IslandMonitor(space);
+        /*
+         * Step and analyze until every box falls asleep.
+         */
+        for (int i = 0; i < 600 && isAnyActive(boxes); ++i) {
+            step(space, monitor);
+        }
+        Assert.assertFalse(isAnyActive(boxes));
+        /*
+         * The sleeping stack stays a single island, even though Bullet
+         * no longer reports its contacts.
+         */
+        for (int i = 0; i < 60; ++i) {
+            step(space, monitor);
+
+            Assert.assertEquals(2, monitor.countIslands());
+            int stackIsland = monitor.findIsland(boxes[0]);
+            Assert.assertNotEquals(-1, stackIsland);
+            for (PhysicsRigidBody box : boxes) {
+                Assert.assertEquals(stackIsland, monitor.findIsland(box));
+            }
+            Assert.assertEquals(numBoxes, monitor.countBodies(stackIsland));
+            Assert.assertTrue(monitor.isSleeping(stackIsland));
+
+            int lonerIsland = monitor.findIsland(loner);
+            Assert.assertNotEquals(stackIsland, lonerIsland);
+            Assert.assertEquals(1, monitor.countBodies(lonerIsland));
+            Assert.assertEquals(-1, monitor.findIsland(floor));
+        }
+        Assert.assertEquals(2, monitor.countSleepingIslands());
+        /*
+         * Remove the bottom box and wake the others: the stack splits.
+         */
+        space.removeCollisionObject(boxes[0]);
+        boxes[1].activate();
+        boxes[2].setPhysicsLocation(new Vector3f(-5f, 0.5f, -5f));
+        boxes[2].activate();
+        step(space, monitor);
+        Assert.assertEquals(3, monitor.countIslands());
+        Assert.assertEquals(-1, monitor.findIsland(boxes[0]));
+        Assert.assertNotEquals(monitor.findIsland(boxes[1]),
+                monitor.findIsland(boxes[2]));
+
+        monitor.destroy();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Test whether any of the specified bodies is active.
+     *
+     * @param bodies the bodies to test (not null, unaffected)
+     * @return true if any is active, otherwise false
+     */
+    private static boolean isAnyActive(PhysicsRigidBody[] bodies) {
+        for (PhysicsRigidBody body : bodies) {
+            if (body.isActive()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Simulate a single step, distribute the resulting events, and analyze
+     * the islands.
+     *
+     * @param space the space to step (not null)
+     * @param monitor the monitor to update (not null)
+     */
+    private static void step(PhysicsSpace space, IslandMonitor monitor) {
+        space.update(space.getAccuracy(), 1);
+        space.distributeEvents();
+        monitor.analyze();
+    }
+}
@@ -0,0 +1,324 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.collision.shapes.BoxCollisionShape;
+import com.jme3.bullet.joints.JointBuilder;
+import com.jme3.bullet.joints.JointEnd;
+import com.jme3.bullet.joints.New6Dof;
+import com.jme3.bullet.joints.Point2PointJoint;
+import com.jme3.bullet.joints.SixDofSpringJoint;
+import com.jme3.bullet.joints.motors.MotorParam;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Transform;
+import com.jme3.math.Vector3f;
+import com.jme3.system.NativeLibraryLoader;
+import com.jme3.util.BufferUtils;
+import java.nio.FloatBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test building constraints in bulk with a JointBuilder.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestJointBuilder {
+    // *************************************************************************
+    // constants
+
+    /**
+     * number of joints in each test
+     */
+    final private static int numJoints = 3;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Verify that the constructor rejects null elements and joints whose ends
+     * are the same body.
+     */
+    @Test
+    public void testBadBodies() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        PhysicsRigidBody[] bodiesA = createBodies(0f);
+        PhysicsRigidBody[] bodiesB = createBodies(1f);
+        FloatBuffer pivots = BufferUtils.createFloatBuffer(3 * numJoints);
+
+        PhysicsRigidBody[] withNull = bodiesB.clone();
+        withNull[1] = null;
+        assertRejected(bodiesA, withNull, pivots);
+        assertRejected(withNull, bodiesA, pivots);
+
+        PhysicsRigidBody[] withSame = bodiesB.clone();
+        withSame[2] = bodiesA[2];
+        assertRejected(bodiesA, withSame, pivots);
+    }
+
+    /**
+     * Build New6Dof joints and verify their bodies, pivots, frame rotations,
+     * and limits.
+     */
+    @Test
+    public void testBuildNew6Dof() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        PhysicsSpace space = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+        JointBuilder builder = createBuilder();
+        New6Dof[] joints = builder.buildNew6Dof(space);
+        Assert.assertEquals(numJoints, joints.length);
+        Assert.assertEquals(numJoints, space.countJoints());
+
+        for (int jointIndex = 0; jointIndex < numJoints; ++jointIndex) {
+            New6Dof joint = joints[jointIndex];
+            verifyCommon(builder, joint.getBodyA(), joint.getBodyB(),
+                    joint.getPivotA(null), joint.getPivotB(null),
+                    jointIndex);
+            verifyFrame(joint.getFrameTransform(JointEnd.A, null), 1f);
+            verifyFrame(joint.getFrameTransform(JointEnd.B, null), -1f);
+            Assert.assertFalse(joint.isCollisionBetweenLinkedBodies());
+            Assert.assertTrue(joint.isFeedback());
+            Assert.assertEquals(9f, joint.getBreakingImpulseThreshold(), 0f);
+
+            for (int dofIndex = 0; dofIndex < 6; ++dofIndex) {
+                Assert.assertEquals(lowerLimit(jointIndex, dofIndex),
+                        joint.get(MotorParam.LowerLimit, dofIndex), 1e-6f);
+                Assert.assertEquals(upperLimit(jointIndex, dofIndex),
+                        joint.get(MotorParam.UpperLimit, dofIndex), 1e-6f);
+            }
+        }
+    }
+
+    /**
+     * Build Point2PointJoint joints and verify their bodies and pivots.
+     */
+    @Test
+    public void testBuildPoint2Point() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        JointBuilder builder = createBuilder();
+        Point2PointJoint[] joints = builder.buildPoint2Point(null);
+        Assert.assertEquals(numJoints, joints.length);
+
+        for (int jointIndex = 0; jointIndex < numJoints; ++jointIndex) {
+            Point2PointJoint joint = joints[jointIndex];
+            Assert.assertNull(joint.getPhysicsSpace());
+            verifyCommon(builder, joint.getBodyA(), joint.getBodyB(),
+                    joint.getPivotA(null), joint.getPivotB(null),
+                    jointIndex);
+            Assert.assertFalse(joint.isCollisionBetweenLinkedBodies());
+            Assert.assertTrue(joint.isFeedback());
+            Assert.assertEquals(9f, joint.getBreakingImpulseThreshold(), 0f);
+        }
+    }
+
+    /**
+     * Build SixDofSpringJoint joints and verify their bodies, pivots, frame
+     * rotations, and limits.
+     */
+    @Test
+    public void testBuildSixDofSpring() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        PhysicsSpace space = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+        JointBuilder builder = createBuilder();
+        SixDofSpringJoint[] joints = builder.buildSixDofSpring(space);
+        Assert.assertEquals(numJoints, joints.length);
+        Assert.assertEquals(numJoints, space.countJoints());
+
+        Vector3f lower = new Vector3f();
+        Vector3f upper = new Vector3f();
+        for (int jointIndex = 0; jointIndex < numJoints; ++jointIndex) {
+            SixDofSpringJoint joint = joints[jointIndex];
+            verifyCommon(builder, joint.getBodyA(), joint.getBodyB(),
+                    joint.getPivotA(null), joint.getPivotB(null),
+                    jointIndex);
+            verifyFrame(joint.getFrameTransform(JointEnd.A, null), 1f);
+            verifyFrame(joint.getFrameTransform(JointEnd.B, null), -1f);
+
+            joint.getLinearLowerLimit(lower);
+            joint.getLinearUpperLimit(upper);
+            for (int axisIndex = 0; axisIndex < 3; ++axisIndex) {
+                Assert.assertEquals(lowerLimit(jointIndex, axisIndex),
+                        lower.get(axisIndex), 1e-6f);
+                Assert.assertEquals(upperLimit(jointIndex, axisIndex),
+                        upper.get(axisIndex), 1e-6f);
+            }
+            joint.getAngularLowerLimit(lower);
+            joint.getAngularUpperLimit(upper);
+            for (int axisIndex = 0; axisIndex < 3; ++axisIndex) {
+                Assert.assertEquals(lowerLimit(jointIndex, 3 + axisIndex),
+                        lower.get(axisIndex), 1e-6f);
+                Assert.assertEquals(upperLimit(jointIndex, 3 + axisIndex),
+                        upper.get(axisIndex), 1e-6f);
+            }
+        }
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Verify that the JointBuilder constructor rejects the specified bodies.
+     *
+     * @param bodiesA the bodies for the A ends (not null)
+     * @param bodiesB the bodies for the B ends (not null)
+     * @param pivots the pivots for both ends (not null)
+     */
+    private static void assertRejected(PhysicsRigidBody[] bodiesA,
+            PhysicsRigidBody[] bodiesB, FloatBuffer pivots) {
+        try {
+            new JointBuilder(bodiesA, bodiesB, pivots, pivots);
+            Assert.fail("Expected an exception.");
+        } catch (IllegalArgumentException | NullPointerException exception) {
+            // expected
+        }
+    }
+
+    /**
+     * Create dynamic boxes in a row.
+     *
+     * @param y the Y coordinate of the row
+     * @return a new array of new bodies
+     */
+    private static PhysicsRigidBody[] createBodies(float y) {
+        BoxCollisionShape shape = new BoxCollisionShape(0.1f);
+        PhysicsRigidBody[] result = new PhysicsRigidBody[numJoints];
+        for (int i = 0; i < numJoints; ++i) {
+            result[i] = new PhysicsRigidBody(shape, 1f);
+            result[i].setPhysicsLocation(new Vector3f(i, y, 0f));
+        }
+
+        return result;
+    }
+
+    /**
+     * Create a builder with distinct pivots, rotations, and limits for each
+     * joint. The rotations in A turn X into +Y, those in B turn X into -Y.
+     *
+     * @return a new builder
+     */
+    private static JointBuilder createBuilder() {
+        FloatBuffer pivotsInA = BufferUtils.createFloatBuffer(3 * numJoints);
+        FloatBuffer pivotsInB = BufferUtils.createFloatBuffer(3 * numJoints);
+        FloatBuffer rotationsInA
+                = BufferUtils.createFloatBuffer(9 * numJoints);
+        FloatBuffer rotationsInB
+                = BufferUtils.createFloatBuffer(9 * numJoints);
+        FloatBuffer lower = BufferUtils.createFloatBuffer(6 * numJoints);
+        FloatBuffer upper = BufferUtils.createFloatBuffer(6 * numJoints);
+        for (int jointIndex = 0; jointIndex < numJoints; ++jointIndex) {
+            pivotsInA.put(jointIndex).put(0.5f).put(0f);
+            pivotsInB.put(0f).put(-0.5f).put(jointIndex);
+            rotationsInA.put(new float[]{0f, -1f, 0f, 1f, 0f, 0f, 0f, 0f, 1f});
+            rotationsInB.put(new float[]{0f, 1f, 0f, -1f, 0f, 0f, 0f, 0f, 1f});
+            for (int dofIndex = 0; dofIndex < 6; ++dofIndex) {
+                lower.put(lowerLimit(jointIndex, dofIndex));
+                upper.put(upperLimit(jointIndex, dofIndex));
+            }
+        }
+        /*
+         * The builder reads absolutely, so leave the positions at the end.
+         */
+        JointBuilder result = new JointBuilder(createBodies(0f),
+                createBodies(1f), pivotsInA, pivotsInB);
+        result.setRotations(rotationsInA, rotationsInB);
+        result.setLimits(lower, upper);
+        result.setCollisionBetweenLinkedBodies(false);
+        result.setFeedback(true);
+        result.setBreakingImpulseThreshold(9f);
+
+        return result;
+    }
+
+    /**
+     * Generate the lower limit for the indexed degree of freedom of the
+     * indexed joint.
+     *
+     * @param jointIndex the index of the joint (&ge;0)
+     * @param dofIndex the index of the degree of freedom (&ge;0, &lt;6)
+     * @return the limit (negative)
+     */
+    private static float lowerLimit(int jointIndex, int dofIndex) {
+        float result = -0.1f * (dofIndex + 1) - 0.01f * jointIndex;
+        return result;
+    }
+
+    /**
+     * Generate the upper limit for the indexed degree of freedom of the
+     * indexed joint.
+     *
+     * @param jointIndex the index of the joint (&ge;0)
+     * @param dofIndex the index of the degree of freedom (&ge;0, &lt;6)
+     * @return the limit (positive)
+     */
+    private static float upperLimit(int jointIndex, int dofIndex) {
+        float result = 0.1f * (dofIndex + 1) + 0.01f * jointIndex;
+        return result;
+    }
+
+    /**
+     * Verify the bodies and pivots of the indexed joint.
+     *
+     * @param builder the builder that created the joint (not null)
+     * @param bodyA the joint's A body (not null)
+     * @param bodyB the joint's B body (not null)
+     * @param pivotA the joint's pivot in A (not null)
+     * @param pivotB the joint's pivot in B (not null)
+     * @param jointIndex the index of the joint (&ge;0)
+     */
+    private static void verifyCommon(JointBuilder builder,
+            PhysicsRigidBody bodyA, PhysicsRigidBody bodyB, Vector3f pivotA,
+            Vector3f pivotB, int jointIndex) {
+        Assert.assertEquals(numJoints, builder.countJoints());
+        Assert.assertNotSame(bodyA, bodyB);
+        Assert.assertEquals(jointIndex, bodyA.getPhysicsLocation(null).x,
+                0f);
+        Assert.assertEquals(0f, bodyA.getPhysicsLocation(null).y, 0f);
+        Assert.assertEquals(jointIndex, bodyB.getPhysicsLocation(null).x,
+                0f);
+        Assert.assertEquals(1f, bodyB.getPhysicsLocation(null).y, 0f);
+
+        Assert.assertEquals(new Vector3f(jointIndex, 0.5f, 0f), pivotA);
+        Assert.assertEquals(new Vector3f(0f, -0.5f, jointIndex), pivotB);
+    }
+
+    /**
+     * Verify that the specified joint frame maps the X axis to +Y or -Y,
+     * which distinguishes row-major from column-major reads.
+     *
+     * @param frame the frame to test (not null, unaffected)
+     * @param sign the expected sign of the Y component (+1 or -1)
+     */
+    private static void verifyFrame(Transform frame, float sign) {
+        Vector3f xAxis = frame.getRotation().mult(Vector3f.UNIT_X);
+        Assert.assertEquals(0f, xAxis.x, 1e-5f);
+        Assert.assertEquals(sign, xAxis.y, 1e-5f);
+        Assert.assertEquals(0f, xAxis.z, 1e-5f);
+    }
+}
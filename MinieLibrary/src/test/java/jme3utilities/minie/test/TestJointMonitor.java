@@ -0,0 +1,133 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.collision.shapes.SphereCollisionShape;
+import com.jme3.bullet.joints.JointFeedbackListener;
+import com.jme3.bullet.joints.JointMonitor;
+import com.jme3.bullet.joints.Point2PointJoint;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Vector3f;
+import com.jme3.system.NativeLibraryLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test JointMonitor with loads in both directions.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestJointMonitor {
+    // *************************************************************************
+    // fields
+
+    /**
+     * number of breakage events reported
+     */
+    private int numBroken;
+    /**
+     * number of overload events reported
+     */
+    private int numOverloaded;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Hang a body from a single-ended joint, with gravity first in one
+     * direction and then in the other, and verify that the monitor reports
+     * both breakage and overloads regardless of the impulse's sign.
+     */
+    @Test
+    public void testJointMonitor() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        for (float sign = -1f; sign <= 1f; sign += 2f) {
+            hang(sign, false);
+            Assert.assertEquals(0, numBroken);
+            Assert.assertEquals(1, numOverloaded);
+
+            hang(sign, true);
+            Assert.assertEquals(1, numBroken);
+            Assert.assertEquals(0, numOverloaded);
+        }
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Simulate a body hanging from a single-ended joint and count the events
+     * reported by a JointMonitor.
+     *
+     * @param sign the sign of the gravity vector's Z component (&plusmn;1)
+     * @param breakable true to give the joint a low breaking threshold, false
+     * to give it a low impulse threshold instead
+     */
+    private void hang(float sign, boolean breakable) {
+        PhysicsSpace space = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+        /*
+         * Gravity acts along Z, the last of the joint's 3 solver rows,
+         * because Bullet reports the impulse of the last row.
+         */
+        space.setGravity(new Vector3f(0f, 0f, 9.81f * sign));
+
+        SphereCollisionShape shape = new SphereCollisionShape(0.5f);
+        PhysicsRigidBody body = new PhysicsRigidBody(shape, 1f);
+        space.addCollisionObject(body);
+        Point2PointJoint joint = new Point2PointJoint(body, new Vector3f(),
+                new Vector3f());
+        space.addJoint(joint);
+
+        JointMonitor monitor = new JointMonitor();
+        if (breakable) {
+            joint.setBreakingImpulseThreshold(0.01f);
+            monitor.add(joint);
+        } else {
+            monitor.add(joint, 0.01f);
+        }
+        numBroken = 0;
+        numOverloaded = 0;
+        monitor.addListener(new JointFeedbackListener() {
+            @Override
+            public void jointsBroken(PhysicsSpace space, int count,
+                    long[] jointIds, float[] impulses) {
+                numBroken += count;
+            }
+
+            @Override
+            public void impulseThresholdExceeded(PhysicsSpace space,
+                    int count, long[] jointIds, float[] impulses) {
+                numOverloaded += count;
+            }
+        });
+        space.addTickListener(monitor);
+
+        for (int step = 0; step < 10; ++step) {
+            space.update(1f / 60f, 1);
+        }
+    }
+}
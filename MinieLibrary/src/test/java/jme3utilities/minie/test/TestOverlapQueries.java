@@ -0,0 +1,137 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.collision.PhysicsCollisionObject;
+import com.jme3.bullet.collision.shapes.BoxCollisionShape;
+import com.jme3.bullet.collision.shapes.SphereCollisionShape;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Transform;
+import com.jme3.math.Vector3f;
+import com.jme3.system.NativeLibraryLoader;
+import com.jme3.util.BufferUtils;
+import java.nio.LongBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test the immediate overlap queries of CollisionSpace.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestOverlapQueries {
+    // *************************************************************************
+    // constants
+
+    /**
+     * both collision groups used in this test
+     */
+    final private static int bothGroups
+            = PhysicsCollisionObject.COLLISION_GROUP_01
+            | PhysicsCollisionObject.COLLISION_GROUP_02;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Query a space containing a box and 2 spheres.
+     */
+    @Test
+    public void testOverlapQueries() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        PhysicsSpace space = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+        float mass = PhysicsRigidBody.massForStatic;
+        BoxCollisionShape boxShape = new BoxCollisionShape(1f);
+        PhysicsRigidBody box = new PhysicsRigidBody(boxShape, mass);
+        space.addCollisionObject(box);
+
+        SphereCollisionShape ballShape = new SphereCollisionShape(0.5f);
+        PhysicsRigidBody ball1 = new PhysicsRigidBody(ballShape, mass);
+        ball1.setPhysicsLocation(new Vector3f(5f, 0f, 0f));
+        space.addCollisionObject(ball1);
+
+        PhysicsRigidBody ball2 = new PhysicsRigidBody(ballShape, mass);
+        ball2.setCollisionGroup(PhysicsCollisionObject.COLLISION_GROUP_02);
+        ball2.setPhysicsLocation(new Vector3f(0f, 5f, 0f));
+        space.addCollisionObject(ball2);
+
+        LongBuffer ids = BufferUtils.createByteBuffer(8 * 3).asLongBuffer();
+        /*
+         * overlapAabb()
+         */
+        int count = space.overlapAabb(new Vector3f(-0.5f, -0.5f, -0.5f),
+                new Vector3f(0.5f, 0.5f, 0.5f), bothGroups, ids);
+        Assert.assertEquals(1, count);
+        Assert.assertEquals(box.nativeId(), ids.get(0));
+
+        count = space.overlapAabb(new Vector3f(-10f, -10f, -10f),
+                new Vector3f(10f, 10f, 10f), bothGroups, null);
+        Assert.assertEquals(3, count);
+        /*
+         * overlapSphere()
+         */
+        count = space.overlapSphere(new Vector3f(5f, 0f, 0f), 0.1f,
+                bothGroups, ids);
+        Assert.assertEquals(1, count);
+        Assert.assertEquals(ball1.nativeId(), ids.get(0));
+
+        count = space.overlapSphere(new Vector3f(), 10f,
+                PhysicsCollisionObject.COLLISION_GROUP_01, null);
+        Assert.assertEquals(2, count);
+
+        LongBuffer oneId = BufferUtils.createByteBuffer(8).asLongBuffer();
+        count = space.overlapSphere(new Vector3f(), 10f, bothGroups, oneId);
+        Assert.assertEquals(3, count);
+        /*
+         * overlapShape(), with a box touching the box body at many points:
+         * each object must be reported only once
+         */
+        Transform transform = new Transform(new Vector3f(0f, 1.5f, 0f),
+                new Quaternion());
+        count = space.overlapShape(boxShape, transform, bothGroups, ids);
+        Assert.assertEquals(1, count);
+        Assert.assertEquals(box.nativeId(), ids.get(0));
+
+        transform.setTranslation(5f, 0.8f, 0f);
+        count = space.overlapShape(ballShape, transform, bothGroups, ids);
+        Assert.assertEquals(1, count);
+        Assert.assertEquals(ball1.nativeId(), ids.get(0));
+
+        transform.setTranslation(3f, 0f, 0f);
+        count = space.overlapShape(ballShape, transform, bothGroups, ids);
+        Assert.assertEquals(0, count);
+        /*
+         * the collisionGroups argument applies to overlapShape() too
+         */
+        transform.setTranslation(5f, 0.8f, 0f);
+        count = space.overlapShape(ballShape, transform,
+                PhysicsCollisionObject.COLLISION_GROUP_02, ids);
+        Assert.assertEquals(0, count);
+    }
+}
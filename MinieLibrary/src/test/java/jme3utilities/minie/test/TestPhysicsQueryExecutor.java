@@ -0,0 +1,99 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.bullet.PhysicsQueryExecutor;
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.collision.PhysicsCollisionObject;
+import com.jme3.bullet.collision.shapes.SphereCollisionShape;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Vector3f;
+import com.jme3.system.NativeLibraryLoader;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test PhysicsQueryExecutor.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestPhysicsQueryExecutor {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Verify that pending queries are answered by updates that simulate no
+     * steps as well as by updates that do.
+     *
+     * @throws ExecutionException if a query fails
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Test
+    public void testPhysicsQueryExecutor()
+            throws ExecutionException, InterruptedException {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        PhysicsSpace space = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+        SphereCollisionShape shape = new SphereCollisionShape(1f);
+        PhysicsRigidBody body
+                = new PhysicsRigidBody(shape, PhysicsRigidBody.massForStatic);
+        space.addCollisionObject(body);
+
+        PhysicsQueryExecutor executor = new PhysicsQueryExecutor(space);
+        int groups = PhysicsCollisionObject.COLLISION_GROUP_01;
+        /*
+         * an update that simulates no steps
+         */
+        Future<long[]> future
+                = executor.overlapSphere(new Vector3f(), 0.5f, groups);
+        Assert.assertEquals(1, executor.countPending());
+        space.update(0f);
+        Assert.assertEquals(0L, executor.countSteps());
+        Assert.assertTrue(future.isDone());
+        Assert.assertArrayEquals(new long[]{body.nativeId()}, future.get());
+        /*
+         * an update that simulates a step
+         */
+        future = executor.overlapSphere(new Vector3f(5f, 0f, 0f), 0.5f,
+                groups);
+        space.update(space.getAccuracy(), 1);
+        Assert.assertEquals(1L, executor.countSteps());
+        Assert.assertTrue(future.isDone());
+        Assert.assertEquals(0, future.get().length);
+        Assert.assertEquals(2L, executor.countExecuted());
+        /*
+         * After destruction, pending queries are cancelled.
+         */
+        future = executor.overlapSphere(new Vector3f(), 0.5f, groups);
+        executor.destroy();
+        Assert.assertTrue(future.isCancelled());
+        space.update(0f);
+        Assert.assertEquals(2L, executor.countExecuted());
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.PhysicsSnapshot;
+import com.jme3.bullet.collision.shapes.BoxCollisionShape;
+import com.jme3.bullet.collision.shapes.SphereCollisionShape;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Vector3f;
+import com.jme3.system.NativeLibraryLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test full and delta snapshots of a PhysicsSpace.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestPhysicsSnapshot {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Capture a full snapshot and a delta, then roll back to each.
+     */
+    @Test
+    public void testPhysicsSnapshot() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        PhysicsSpace space = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+        /*
+         * a static floor (never captured)
+         */
+        BoxCollisionShape floorShape = new BoxCollisionShape(1f);
+        PhysicsRigidBody floor = new PhysicsRigidBody(floorShape,
+                PhysicsRigidBody.massForStatic);
+        floor.setPhysicsLocation(new Vector3f(0f, -100f, 0f));
+        space.addCollisionObject(floor);
+        /*
+         * a falling ball
+         */
+        SphereCollisionShape ballShape = new SphereCollisionShape(0.5f);
+        PhysicsRigidBody falling = new PhysicsRigidBody(ballShape, 1f);
+        Vector3f startLocation = new Vector3f(0f, 10f, 0f);
+        falling.setPhysicsLocation(startLocation);
+        space.addCollisionObject(falling);
+        /*
+         * a weightless ball that never moves (so it's omitted from deltas)
+         */
+        PhysicsRigidBody floating = new PhysicsRigidBody(ballShape, 1f);
+        floating.setPhysicsLocation(new Vector3f(20f, 0f, 0f));
+        space.addCollisionObject(floating);
+        floating.setGravity(new Vector3f(0f, 0f, 0f));
+        floating.setEnableSleep(false);
+
+        PhysicsSnapshot full = new PhysicsSnapshot(0);
+        full.capture(space);
+        Assert.assertNull(full.getBase());
+        Assert.assertEquals(2, full.countBodies());
+
+        step(space, 10);
+        Vector3f location10 = falling.getPhysicsLocation(null);
+        Vector3f velocity10 = falling.getLinearVelocity(null);
+        Assert.assertTrue(location10.y < startLocation.y);
+
+        PhysicsSnapshot delta = new PhysicsSnapshot(1);
+        delta.captureDelta(space, full);
+        Assert.assertSame(full, delta.getBase());
+        Assert.assertEquals(1, delta.countBodies());
+        Assert.assertTrue(delta.sizeInBytes() < full.sizeInBytes());
+        /*
+         * Roll back to the delta.
+         */
+        step(space, 10);
+        delta.restore();
+        Assert.assertEquals(location10, falling.getPhysicsLocation(null));
+        Assert.assertEquals(velocity10, falling.getLinearVelocity(null));
+        /*
+         * Roll back to the full snapshot and re-simulate.
+         */
+        full.restore();
+        Assert.assertEquals(startLocation, falling.getPhysicsLocation(null));
+        Assert.assertEquals(new Vector3f(0f, 0f, 0f),
+                falling.getLinearVelocity(null));
+
+        step(space, 10);
+        Assert.assertEquals(location10, falling.getPhysicsLocation(null));
+        Assert.assertEquals(velocity10, falling.getLinearVelocity(null));
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Step the specified space the specified number of times.
+     *
+     * @param space the space to step (not null)
+     * @param numSteps the number of steps (&ge;0)
+     */
+    private static void step(PhysicsSpace space, int numSteps) {
+        for (int i = 0; i < numSteps; ++i) {
+            space.update(space.getAccuracy(), 1);
+        }
+    }
+}
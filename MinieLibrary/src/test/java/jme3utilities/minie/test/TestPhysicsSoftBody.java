@@ -27,12 +27,21 @@
 package jme3utilities.minie.test;
 
 import com.jme3.bullet.objects.PhysicsSoftBody;
+import com.jme3.bullet.objects.infos.SoftBodySnapshot;
+import com.jme3.bullet.util.NativeSoftBodyUtil;
+import com.jme3.bullet.util.NodeSkinningMap;
 import com.jme3.math.FastMath;
+import com.jme3.math.Quaternion;
 import com.jme3.math.Transform;
 import com.jme3.math.Vector3f;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.scene.shape.Sphere;
 import com.jme3.system.NativeLibraryLoader;
 import com.jme3.util.BufferUtils;
 import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import org.junit.Assert;
 import org.junit.Test;
 
 /**
@@ -44,6 +53,50 @@ public class TestPhysicsSoftBody {
     // *************************************************************************
     // new methods exposed
 
+    /**
+     * Test decimated construction from a triangle mesh and skinning of the
+     * original mesh, before and after rotating the body.
+     */
+    @Test
+    public void testDecimation() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        Mesh mesh = new Sphere(16, 16, 1f);
+        int numVertices = mesh.getVertexCount();
+        PhysicsSoftBody psb = new PhysicsSoftBody();
+        int maxNodes = 40;
+        NodeSkinningMap map
+                = NativeSoftBodyUtil.appendFromTriMesh(mesh, psb, maxNodes);
+
+        int numNodes = psb.countNodes();
+        Assert.assertTrue(numNodes > 3);
+        Assert.assertTrue(numNodes <= maxNodes);
+        Assert.assertTrue(psb.countFaces() > 0);
+        Assert.assertEquals(numVertices, map.countVertices());
+        for (int vertexIndex = 0; vertexIndex < numVertices; ++vertexIndex) {
+            float totalWeight = 0f;
+            for (int i = 0; i < map.countWeightsPerVertex(); ++i) {
+                Assert.assertTrue(map.nodeIndex(vertexIndex, i) < numNodes);
+                totalWeight += map.weight(vertexIndex, i);
+            }
+            Assert.assertEquals(1f, totalWeight, 1e-4f);
+        }
+        /*
+         * In the rest pose, skinning should reproduce the original mesh.
+         */
+        FloatBuffer original = mesh.getFloatBuffer(VertexBuffer.Type.Position);
+        Mesh skinned = mesh.deepClone();
+        NativeSoftBodyUtil.updateMesh(psb, map, skinned, false, false, null);
+        assertPositions(original, null, skinned, 1e-3f);
+        /*
+         * After a rotation, the skinned mesh should rotate with the body.
+         */
+        Quaternion rotation = new Quaternion().fromAngles(0.3f, 1.1f, -0.7f);
+        psb.applyRotation(rotation);
+        NativeSoftBodyUtil.updateMesh(psb, map, skinned, false, false, null);
+        assertPositions(original, rotation, skinned, 1e-3f);
+    }
+
     @Test
     public void testPhysicsSoftBody() {
         NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
@@ -64,5 +117,81 @@ public class TestPhysicsSoftBody {
         assert FastMath.approximateEquals(location.x, 9.5f);
         assert FastMath.approximateEquals(location.y, 1.4f);
         assert FastMath.approximateEquals(location.z, -1.7f);
+        /*
+         * Enabling the snapshot should capture the current node locations.
+         */
+        psb.setSnapshotEnabled(true);
+        SoftBodySnapshot snapshot = psb.getSnapshot();
+        assert snapshot.countCaptures() == 1L;
+        assert snapshot.countNodes() == 1;
+
+        FloatBuffer captured = snapshot.copyLocations(null);
+        assert FastMath.approximateEquals(captured.get(0), 9.5f);
+        assert FastMath.approximateEquals(captured.get(1), 1.4f);
+        assert FastMath.approximateEquals(captured.get(2), -1.7f);
+        /*
+         * Later changes should be invisible until the next capture.
+         */
+        psb.applyTranslation(new Vector3f(1f, 0f, 0f));
+        snapshot.copyLocations(captured);
+        assert FastMath.approximateEquals(captured.get(0), 9.5f);
+
+        snapshot.capture();
+        assert snapshot.countCaptures() == 2L;
+        snapshot.copyLocations(captured);
+        assert FastMath.approximateEquals(captured.get(0), 10.5f);
+        /*
+         * copyAll() reports the node count and skips undersized storage.
+         */
+        FloatBuffer tooSmall = BufferUtils.createFloatBuffer(2);
+        assert snapshot.copyAll(captured, null, null) == 1;
+        assert snapshot.copyAll(tooSmall, null, null) == 1;
+        assert tooSmall.get(0) == 0f;
+        /*
+         * Bulk node accessors.
+         */
+        IntBuffer indices = BufferUtils.createIntBuffer(0);
+        FloatBuffer selected = psb.copyLocations(indices, null);
+        assert selected.capacity() == 0;
+        selected = psb.copyLocations(0, 1, null);
+        assert FastMath.approximateEquals(selected.get(0), 10.5f);
+
+        psb.setMasses(0, 1, BufferUtils.createFloatBuffer(2f));
+        assert FastMath.approximateEquals(psb.nodeMass(0), 2f);
+        assert psb.listPinnedNodes(null).limit() == 0;
+
+        indices = BufferUtils.createIntBuffer(new int[]{0});
+        psb.pinNodes(indices);
+        assert psb.listPinnedNodes(null).limit() == 1;
+        assert psb.nodeMass(0) == 0f;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Verify that a mesh's positions match a rotated copy of the specified
+     * positions.
+     *
+     * @param expected the unrotated positions (not null, unaffected)
+     * @param rotation the rotation to apply (unaffected) or null for none
+     * @param mesh the mesh to verify (not null, unaffected)
+     * @param tolerance the allowed error on each axis (&ge;0)
+     */
+    private static void assertPositions(FloatBuffer expected,
+            Quaternion rotation, Mesh mesh, float tolerance) {
+        FloatBuffer actual = mesh.getFloatBuffer(VertexBuffer.Type.Position);
+        int numVertices = mesh.getVertexCount();
+        Vector3f vector = new Vector3f();
+        for (int vertexIndex = 0; vertexIndex < numVertices; ++vertexIndex) {
+            int offset = 3 * vertexIndex;
+            vector.set(expected.get(offset), expected.get(offset + 1),
+                    expected.get(offset + 2));
+            if (rotation != null) {
+                rotation.mult(vector, vector);
+            }
+            Assert.assertEquals(vector.x, actual.get(offset), tolerance);
+            Assert.assertEquals(vector.y, actual.get(offset + 1), tolerance);
+            Assert.assertEquals(vector.z, actual.get(offset + 2), tolerance);
+        }
     }
 }
@@ -0,0 +1,143 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.PhysicsSpaceMetrics;
+import com.jme3.bullet.collision.PhysicsCollisionEvent;
+import com.jme3.bullet.collision.PhysicsCollisionListener;
+import com.jme3.bullet.collision.shapes.BoxCollisionShape;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Vector3f;
+import com.jme3.system.NativeLibraryLoader;
+import java.util.concurrent.Callable;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test the step and update metrics of a PhysicsSpace.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestPhysicsSpaceMetrics {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Drop a box onto a floor and verify the counts recorded for steps,
+     * updates, tasks, contacts, and event distribution.
+     */
+    @Test
+    public void testPhysicsSpaceMetrics() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        PhysicsSpace space = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+        BoxCollisionShape floorShape
+                = new BoxCollisionShape(new Vector3f(10f, 0.5f, 10f));
+        PhysicsRigidBody floor = new PhysicsRigidBody(floorShape,
+                PhysicsRigidBody.massForStatic);
+        floor.setPhysicsLocation(new Vector3f(0f, -0.5f, 0f));
+        space.addCollisionObject(floor);
+
+        BoxCollisionShape boxShape = new BoxCollisionShape(0.5f);
+        PhysicsRigidBody box = new PhysicsRigidBody(boxShape, 1f);
+        box.setPhysicsLocation(new Vector3f(0f, 0.6f, 0f));
+        space.addCollisionObject(box);
+
+        space.addCollisionListener(new PhysicsCollisionListener() {
+            @Override
+            public void collision(PhysicsCollisionEvent event) {
+                // do nothing
+            }
+        });
+
+        PhysicsSpaceMetrics metrics = new PhysicsSpaceMetrics();
+        space.setMetrics(metrics);
+        Assert.assertSame(metrics, space.getMetrics());
+        Assert.assertEquals(0L, metrics.totalSteps());
+        /*
+         * A single-step update with 2 queued tasks
+         */
+        for (int i = 0; i < 2; ++i) {
+            space.enqueue(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    return null;
+                }
+            });
+        }
+        float timeStep = space.getAccuracy();
+        space.update(timeStep, 1);
+        Assert.assertEquals(1L, metrics.totalSteps());
+        Assert.assertEquals(1L, metrics.totalUpdates());
+        Assert.assertEquals(1, metrics.updateSteps());
+        Assert.assertEquals(2, metrics.stepTasksDrained());
+        Assert.assertTrue(metrics.updateNanos() > 0L);
+        Assert.assertTrue(metrics.totalNativeNanos() > 0L);
+        Assert.assertTrue(
+                metrics.totalNativeNanos() >= metrics.stepNativeNanos());
+        /*
+         * A multi-step update while the box lands on the floor
+         */
+        space.update(3.5f * timeStep, 4);
+        int numSteps = metrics.updateSteps();
+        Assert.assertTrue(numSteps >= 3 && numSteps <= 4);
+        Assert.assertEquals(1L + numSteps, metrics.totalSteps());
+        Assert.assertEquals(2L, metrics.totalUpdates());
+        Assert.assertEquals(0, metrics.stepTasksDrained());
+
+        int numProcessed = 0;
+        for (int i = 0; i < 30; ++i) {
+            space.update(timeStep, 1);
+            numProcessed += metrics.stepContactsProcessed();
+        }
+        Assert.assertTrue(numProcessed > 0);
+        /*
+         * Event distribution counts the queued events.
+         */
+        space.distributeEvents();
+        Assert.assertTrue(metrics.eventsDistributed() > 0);
+        Assert.assertTrue(metrics.distributeNanos() >= 0L);
+        /*
+         * reset() zeroes everything.
+         */
+        metrics.reset();
+        Assert.assertEquals(0L, metrics.totalSteps());
+        Assert.assertEquals(0L, metrics.totalUpdates());
+        Assert.assertEquals(0L, metrics.totalNativeNanos());
+        Assert.assertEquals(0, metrics.updateSteps());
+        Assert.assertEquals(0, metrics.eventsDistributed());
+        Assert.assertEquals(0, metrics.stepContactsProcessed());
+        /*
+         * Once detached, the metrics stop changing.
+         */
+        space.setMetrics(null);
+        space.update(timeStep, 1);
+        Assert.assertEquals(0L, metrics.totalSteps());
+        Assert.assertEquals(0L, metrics.totalUpdates());
+    }
+}
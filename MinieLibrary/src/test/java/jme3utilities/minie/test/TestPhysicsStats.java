@@ -0,0 +1,192 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.PhysicsSpaceMetrics;
+import com.jme3.bullet.collision.shapes.BoxCollisionShape;
+import com.jme3.bullet.collision.shapes.SphereCollisionShape;
+import com.jme3.bullet.objects.PhysicsGhostObject;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.bullet.util.MetricsSink;
+import com.jme3.bullet.util.PhysicsStats;
+import com.jme3.math.Vector3f;
+import com.jme3.system.NativeLibraryLoader;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test publishing physics metrics with PhysicsStats, both to a MetricsSink
+ * and through the platform MBean server.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestPhysicsStats {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Register a PhysicsStats, read its attributes back through the MBean
+     * server, and unregister it.
+     *
+     * @throws JMException if an attribute can't be read
+     */
+    @Test
+    public void testMXBean() throws JMException {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        PhysicsSpace space = createSpace();
+        PhysicsStats stats = new PhysicsStats(space);
+        String name = "TestPhysicsStats";
+        ObjectName objectName = new ObjectName(PhysicsStats.jmxDomain
+                + ":type=PhysicsSpace,name=" + ObjectName.quote(name));
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        Assert.assertTrue(stats.register(name));
+        try {
+            Assert.assertTrue(server.isRegistered(objectName));
+            Assert.assertEquals(2,
+                    server.getAttribute(objectName, "RigidBodyCount"));
+            Assert.assertEquals(1,
+                    server.getAttribute(objectName, "GhostCount"));
+            Assert.assertEquals(0,
+                    server.getAttribute(objectName, "JointCount"));
+            Assert.assertEquals(2L,
+                    server.getAttribute(objectName, "TotalSteps"));
+            Assert.assertEquals(1,
+                    server.getAttribute(objectName, "LastUpdateSteps"));
+            Object byType
+                    = server.getAttribute(objectName, "TrackerCountsByType");
+            Assert.assertTrue(byType instanceof TabularData);
+            Assert.assertFalse(((TabularData) byType).isEmpty());
+
+            try {
+                stats.register(name);
+                Assert.fail("Expected an IllegalStateException.");
+            } catch (IllegalStateException exception) {
+                // expected
+            }
+        } finally {
+            stats.unregister();
+        }
+        Assert.assertFalse(server.isRegistered(objectName));
+    }
+
+    /**
+     * Publish to a sink and verify the gauges received.
+     */
+    @Test
+    public void testSink() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        PhysicsSpace space = createSpace();
+        PhysicsStats stats = new PhysicsStats(space);
+        Assert.assertSame(space, stats.getSpace());
+
+        final Map<String, Long> gauges = new HashMap<>(32);
+        stats.publish(new MetricsSink() {
+            @Override
+            public void gauge(String name, long value) {
+                Long oldValue = gauges.put(name, value);
+                Assert.assertNull(oldValue);
+            }
+        });
+
+        Assert.assertEquals(Long.valueOf(2L), gauges.get("rigidBodies"));
+        Assert.assertEquals(Long.valueOf(1L), gauges.get("ghosts"));
+        Assert.assertEquals(Long.valueOf(0L), gauges.get("characters"));
+        Assert.assertEquals(Long.valueOf(0L), gauges.get("joints"));
+        Assert.assertEquals(Long.valueOf(0L), gauges.get("vehicles"));
+        Assert.assertEquals(Long.valueOf(2L), gauges.get("totalSteps"));
+        Assert.assertEquals(Long.valueOf(1L), gauges.get("lastUpdateSteps"));
+        Assert.assertTrue(gauges.get("lastUpdateNanos") > 0L);
+        Assert.assertTrue(gauges.containsKey("lastStepNativeNanos"));
+        Assert.assertTrue(gauges.containsKey("cachedDebugMeshes"));
+        /*
+         * The tracker counts cover at least the live bodies and ghost.
+         * Garbage from other tests may be freed concurrently, so the counts
+         * are only bounded below.
+         */
+        Assert.assertTrue(gauges.get("trackers") >= 3L);
+        Assert.assertTrue(gauges.get("trackers.PhysicsRigidBody") >= 2L);
+        Assert.assertTrue(gauges.get("trackers.PhysicsGhostObject") >= 1L);
+        /*
+         * Without metrics, the timing gauges read 0.
+         */
+        space.setMetrics(null);
+        gauges.clear();
+        stats.publish(new MetricsSink() {
+            @Override
+            public void gauge(String name, long value) {
+                gauges.put(name, value);
+            }
+        });
+        Assert.assertEquals(Long.valueOf(0L), gauges.get("totalSteps"));
+        Assert.assertEquals(Long.valueOf(0L), gauges.get("lastUpdateNanos"));
+        Assert.assertEquals(Long.valueOf(2L), gauges.get("rigidBodies"));
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Create a space with 2 rigid bodies, a ghost, and metrics, then step it
+     * twice.
+     *
+     * @return a new space
+     */
+    private static PhysicsSpace createSpace() {
+        PhysicsSpace result
+                = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+        result.setMetrics(new PhysicsSpaceMetrics());
+
+        BoxCollisionShape boxShape = new BoxCollisionShape(0.5f);
+        PhysicsRigidBody floor = new PhysicsRigidBody(boxShape,
+                PhysicsRigidBody.massForStatic);
+        result.addCollisionObject(floor);
+        PhysicsRigidBody box = new PhysicsRigidBody(boxShape, 1f);
+        box.setPhysicsLocation(new Vector3f(0f, 3f, 0f));
+        result.addCollisionObject(box);
+
+        SphereCollisionShape ghostShape = new SphereCollisionShape(1f);
+        PhysicsGhostObject ghost = new PhysicsGhostObject(ghostShape);
+        ghost.setPhysicsLocation(new Vector3f(5f, 0f, 0f));
+        result.addCollisionObject(ghost);
+
+        float timeStep = result.getAccuracy();
+        result.update(timeStep, 1);
+        result.update(timeStep, 1);
+
+        return result;
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.bullet.collision.shapes.BoxCollisionShape;
+import com.jme3.bullet.collision.shapes.CollisionShape;
+import com.jme3.bullet.control.GhostControl;
+import com.jme3.bullet.control.RigidBodyControl;
+import com.jme3.math.FastMath;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Node;
+import com.jme3.system.NativeLibraryLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test that GhostControl and kinematic RigidBodyControl push the spatial's
+ * transform only when it changes or when the object was moved directly.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestPushSpatialTransform {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test the dirty check of GhostControl.
+     */
+    @Test
+    public void testGhostControl() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        BoxCollisionShape shape = new BoxCollisionShape(1f);
+        CountingGhost control = new CountingGhost(shape);
+        Node node = createNode();
+        node.addControl(control);
+        control.update(0f);
+        /*
+         * An unchanged spatial makes no pushes.
+         */
+        control.numLocations = 0;
+        control.numRotations = 0;
+        for (int i = 0; i < 3; ++i) {
+            control.update(0f);
+        }
+        Assert.assertEquals(0, control.numLocations);
+        Assert.assertEquals(0, control.numRotations);
+        /*
+         * A translated spatial pushes only its location.
+         */
+        node.move(1f, 0f, 0f);
+        node.updateGeometricState();
+        control.update(0f);
+        Assert.assertEquals(1, control.numLocations);
+        Assert.assertEquals(0, control.numRotations);
+        Assert.assertEquals(new Vector3f(2f, 2f, 3f),
+                control.getPhysicsLocation(null));
+        /*
+         * Moving the ghost directly forces a resync of the unchanged spatial.
+         */
+        control.setPhysicsLocation(new Vector3f(10f, 10f, 10f));
+        control.numLocations = 0;
+        control.numRotations = 0;
+        control.update(0f);
+        Assert.assertEquals(1, control.numLocations);
+        Assert.assertEquals(1, control.numRotations);
+        Assert.assertEquals(new Vector3f(2f, 2f, 3f),
+                control.getPhysicsLocation(null));
+
+        control.update(0f);
+        Assert.assertEquals(1, control.numLocations);
+        Assert.assertEquals(1, control.numRotations);
+    }
+
+    /**
+     * Test the dirty check of a kinematic RigidBodyControl.
+     */
+    @Test
+    public void testRigidBodyControl() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        BoxCollisionShape shape = new BoxCollisionShape(1f);
+        CountingBody control = new CountingBody(shape);
+        control.setKinematic(true);
+        Node node = createNode();
+        node.addControl(control);
+        control.update(0f);
+        /*
+         * An unchanged spatial makes no pushes.
+         */
+        control.numLocations = 0;
+        control.numRotations = 0;
+        for (int i = 0; i < 3; ++i) {
+            control.update(0f);
+        }
+        Assert.assertEquals(0, control.numLocations);
+        Assert.assertEquals(0, control.numRotations);
+        /*
+         * A rotated spatial pushes only its rotation.
+         */
+        Quaternion rotation = new Quaternion()
+                .fromAngles(0f, FastMath.HALF_PI, 0f);
+        node.setLocalRotation(rotation);
+        node.updateGeometricState();
+        control.update(0f);
+        Assert.assertEquals(0, control.numLocations);
+        Assert.assertEquals(1, control.numRotations);
+        Quaternion bodyRotation = control.getPhysicsRotation(null);
+        Assert.assertEquals(1f, Math.abs(bodyRotation.dot(rotation)), 1e-4f);
+        /*
+         * Moving the body directly forces a resync of the unchanged spatial.
+         */
+        control.setPhysicsLocation(new Vector3f(10f, 10f, 10f));
+        control.numLocations = 0;
+        control.numRotations = 0;
+        control.update(0f);
+        Assert.assertEquals(1, control.numLocations);
+        Assert.assertEquals(1, control.numRotations);
+        Assert.assertEquals(new Vector3f(1f, 2f, 3f),
+                control.getPhysicsLocation(null));
+
+        control.update(0f);
+        Assert.assertEquals(1, control.numLocations);
+        Assert.assertEquals(1, control.numRotations);
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Create a parentless node at (1,2,3) with its world transform updated.
+     *
+     * @return a new node
+     */
+    private static Node createNode() {
+        Node result = new Node("node");
+        result.setLocalTranslation(1f, 2f, 3f);
+        result.updateGeometricState();
+
+        return result;
+    }
+    // *************************************************************************
+    // CountingBody
+
+    /**
+     * RigidBodyControl that counts the transform pushes it receives.
+     */
+    private static class CountingBody extends RigidBodyControl {
+        /**
+         * number of setPhysicsLocation() invocations
+         */
+        int numLocations = 0;
+        /**
+         * number of setPhysicsRotation() invocations
+         */
+        int numRotations = 0;
+
+        /**
+         * Instantiate a dynamic control with the specified shape.
+         *
+         * @param shape the desired shape (not null, alias created)
+         */
+        CountingBody(CollisionShape shape) {
+            super(shape, 1f);
+        }
+
+        @Override
+        public void setPhysicsLocation(Vector3f location) {
+            super.setPhysicsLocation(location);
+            ++numLocations;
+        }
+
+        @Override
+        public void setPhysicsRotation(Quaternion orientation) {
+            super.setPhysicsRotation(orientation);
+            ++numRotations;
+        }
+    }
+    // *************************************************************************
+    // CountingGhost
+
+    /**
+     * GhostControl that counts the transform pushes it receives.
+     */
+    private static class CountingGhost extends GhostControl {
+        /**
+         * number of setPhysicsLocation() invocations
+         */
+        int numLocations = 0;
+        /**
+         * number of setPhysicsRotation() invocations
+         */
+        int numRotations = 0;
+
+        /**
+         * Instantiate a control with the specified shape.
+         *
+         * @param shape the desired shape (not null, alias created)
+         */
+        CountingGhost(CollisionShape shape) {
+            super(shape);
+        }
+
+        @Override
+        public void setPhysicsLocation(Vector3f location) {
+            super.setPhysicsLocation(location);
+            ++numLocations;
+        }
+
+        @Override
+        public void setPhysicsRotation(Quaternion rotation) {
+            super.setPhysicsRotation(rotation);
+            ++numRotations;
+        }
+    }
+}
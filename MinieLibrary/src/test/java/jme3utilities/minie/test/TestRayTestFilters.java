@@ -0,0 +1,158 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.collision.PhysicsCollisionObject;
+import com.jme3.bullet.collision.PhysicsRayTestResult;
+import com.jme3.bullet.collision.shapes.BoxCollisionShape;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Vector3f;
+import com.jme3.system.NativeLibraryLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test the filtered raycasts of CollisionSpace: rayTestAny() and
+ * rayTestClosest().
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestRayTestFilters {
+    // *************************************************************************
+    // constants
+
+    /**
+     * all collision groups
+     */
+    final private static int allGroups = 0xffff;
+    /**
+     * collision group of the first and last boxes
+     */
+    final private static int group1 = PhysicsCollisionObject.COLLISION_GROUP_01;
+    /**
+     * collision group of the middle box
+     */
+    final private static int group2 = PhysicsCollisionObject.COLLISION_GROUP_02;
+    /**
+     * collision group used by no box
+     */
+    final private static int group3 = PhysicsCollisionObject.COLLISION_GROUP_03;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Cast rays through a row of 3 boxes and verify the group mask, the
+     * ignored object, and the choice of the closest hit.
+     */
+    @Test
+    public void testRayTestFilters() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        PhysicsSpace space = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+        /*
+         * Add the boxes farthest-first, so insertion order can't produce the
+         * expected results by accident.
+         */
+        PhysicsRigidBody far = addBox(space, 6f, group1);
+        PhysicsRigidBody middle = addBox(space, 4f, group2);
+        PhysicsRigidBody near = addBox(space, 2f, group1);
+
+        Vector3f from = new Vector3f(0f, 0f, 0f);
+        Vector3f to = new Vector3f(10f, 0f, 0f);
+        /*
+         * rayTestClosest(): closest-hit ordering
+         */
+        PhysicsRayTestResult hit
+                = space.rayTestClosest(from, to, allGroups, null);
+        Assert.assertSame(near, hit.getCollisionObject());
+        Assert.assertEquals(0.15f, hit.getHitFraction(), 0.01f);
+
+        hit = space.rayTestClosest(to, from, allGroups, null);
+        Assert.assertSame(far, hit.getCollisionObject());
+        Assert.assertEquals(0.35f, hit.getHitFraction(), 0.01f);
+        /*
+         * rayTestClosest(): group mask
+         */
+        hit = space.rayTestClosest(from, to, group2, null);
+        Assert.assertSame(middle, hit.getCollisionObject());
+        Assert.assertEquals(0.35f, hit.getHitFraction(), 0.01f);
+
+        hit = space.rayTestClosest(to, from, group1, null);
+        Assert.assertSame(far, hit.getCollisionObject());
+
+        Assert.assertNull(space.rayTestClosest(from, to, group3, null));
+        /*
+         * rayTestClosest(): ignored object
+         */
+        hit = space.rayTestClosest(from, to, allGroups, near);
+        Assert.assertSame(middle, hit.getCollisionObject());
+
+        hit = space.rayTestClosest(from, to, group1, near);
+        Assert.assertSame(far, hit.getCollisionObject());
+
+        Assert.assertNull(space.rayTestClosest(from, to, group2, middle));
+        /*
+         * rayTestAny()
+         */
+        Assert.assertTrue(space.rayTestAny(from, to, allGroups, null));
+        Assert.assertTrue(space.rayTestAny(from, to, group2, null));
+        Assert.assertTrue(space.rayTestAny(from, to, group1, near));
+        Assert.assertFalse(space.rayTestAny(from, to, group3, null));
+        Assert.assertFalse(space.rayTestAny(from, to, group2, middle));
+        /*
+         * A ray that misses every box
+         */
+        Vector3f missFrom = new Vector3f(0f, 5f, 0f);
+        Vector3f missTo = new Vector3f(10f, 5f, 0f);
+        Assert.assertNull(
+                space.rayTestClosest(missFrom, missTo, allGroups, null));
+        Assert.assertFalse(space.rayTestAny(missFrom, missTo, allGroups, null));
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Add a static box on the X axis.
+     *
+     * @param space the space to add to (not null, modified)
+     * @param x the X coordinate of the box's center
+     * @param group the box's collision group
+     * @return the new body
+     */
+    private static PhysicsRigidBody addBox(PhysicsSpace space, float x,
+            int group) {
+        BoxCollisionShape shape = new BoxCollisionShape(0.5f);
+        PhysicsRigidBody result = new PhysicsRigidBody(shape,
+                PhysicsRigidBody.massForStatic);
+        result.setCollisionGroup(group);
+        result.setPhysicsLocation(new Vector3f(x, 0f, 0f));
+        space.addCollisionObject(result);
+
+        return result;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.bullet.debug.RefreshRotation;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test the rotation that refreshes culled debug visualizations within a
+ * per-update budget.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestRefreshRotation {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Verify that a budget smaller than the number of culled objects
+     * eventually refreshes each object, and does so evenly.
+     */
+    @Test
+    public void testRefreshRotation() {
+        RefreshRotation rotation = new RefreshRotation();
+        /*
+         * 5 culled objects with a budget of 2: the starting indices
+         * wrap around, and each object is refreshed once every 2.5 updates.
+         */
+        int numCulled = 5;
+        int numRefresh = 2;
+        int[] expectedFirst = {0, 2, 4, 1, 3, 0};
+        int[] refreshCounts = new int[numCulled];
+        for (int expected : expectedFirst) {
+            int first = rotation.advance(numCulled, numRefresh);
+            Assert.assertEquals(expected, first);
+            for (int i = 0; i < numRefresh; ++i) {
+                ++refreshCounts[(first + i) % numCulled];
+            }
+        }
+        for (int count : refreshCounts) {
+            Assert.assertTrue(count == 2 || count == 3);
+        }
+        /*
+         * A budget of zero refreshes nothing and leaves the cursor alone.
+         */
+        int cursor = rotation.getCursor();
+        Assert.assertEquals(cursor, rotation.advance(numCulled, 0));
+        Assert.assertEquals(cursor, rotation.getCursor());
+        /*
+         * If fewer objects are culled than before, the cursor stays in range.
+         */
+        rotation.advance(numCulled, 1);
+        int first = rotation.advance(2, 1);
+        Assert.assertTrue(first >= 0 && first < 2);
+        /*
+         * If nothing is culled, the rotation starts over.
+         */
+        Assert.assertEquals(0, rotation.advance(0, 0));
+        Assert.assertEquals(0, rotation.getCursor());
+        /*
+         * A budget covering every culled object refreshes them all.
+         */
+        Assert.assertEquals(0, rotation.advance(3, 3));
+        Assert.assertEquals(0, rotation.getCursor());
+    }
+
+    /**
+     * Verify that an excessive refresh count is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testExcessiveRefresh() {
+        RefreshRotation rotation = new RefreshRotation();
+        rotation.advance(2, 3);
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.collision.shapes.BoxCollisionShape;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.bullet.util.SimulationRecorder;
+import com.jme3.bullet.util.SimulationReplayer;
+import com.jme3.math.Vector3f;
+import com.jme3.system.NativeLibraryLoader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test recording a simulation and replaying it.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestSimulationRecorder {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Record a simulation with impulses, forces, additions, and removals,
+     * then replay it and verify that the replay matches bit for bit.
+     *
+     * @throws IOException if the temporary file can't be written or read
+     */
+    @Test
+    public void testRoundTrip() throws IOException {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        Path file = Files.createTempFile("TestSimulationRecorder", ".bin");
+        try {
+            roundTrip(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Create an empty space in deterministic mode.
+     *
+     * @return a new space
+     */
+    private static PhysicsSpace createSpace() {
+        PhysicsSpace result
+                = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+        result.setDeterministic(true);
+
+        return result;
+    }
+
+    /**
+     * Create a dynamic box at the specified location.
+     *
+     * @param x the X coordinate of the location
+     * @param y the Y coordinate of the location
+     * @return a new body
+     */
+    private static PhysicsRigidBody createBox(float x, float y) {
+        BoxCollisionShape shape = new BoxCollisionShape(0.5f);
+        PhysicsRigidBody result = new PhysicsRigidBody(shape, 1f);
+        result.setPhysicsLocation(new Vector3f(x, y, 0f));
+
+        return result;
+    }
+
+    /**
+     * Record and replay a simulation using the specified file.
+     *
+     * @param file the path to the file (not null)
+     * @throws IOException if the file can't be written or read
+     */
+    private static void roundTrip(Path file) throws IOException {
+        PhysicsSpace space = createSpace();
+        SimulationRecorder recorder = new SimulationRecorder(space, file, 5);
+
+        BoxCollisionShape floorShape
+                = new BoxCollisionShape(new Vector3f(10f, 0.5f, 10f));
+        PhysicsRigidBody floor = new PhysicsRigidBody(floorShape,
+                PhysicsRigidBody.massForStatic);
+        floor.setPhysicsLocation(new Vector3f(0f, -0.5f, 0f));
+        space.addCollisionObject(floor); // index 0
+        PhysicsRigidBody boxA = createBox(0f, 2f);
+        space.addCollisionObject(boxA); // index 1
+        PhysicsRigidBody boxB = createBox(3f, 2f);
+        space.addCollisionObject(boxB); // index 2
+        PhysicsRigidBody boxC = createBox(-3f, 2f);
+
+        int numSteps = 30;
+        float timeStep = space.getAccuracy();
+        for (int stepIndex = 0; stepIndex < numSteps; ++stepIndex) {
+            if (stepIndex == 5) {
+                boxA.applyCentralImpulse(new Vector3f(0f, 3f, 1f));
+            }
+            if (stepIndex < 10) {
+                boxB.applyCentralForce(new Vector3f(2f, 0f, 0f));
+                boxB.applyTorque(new Vector3f(0f, 1f, 0f));
+            }
+            if (stepIndex == 12) {
+                space.addCollisionObject(boxC); // index 3
+            }
+            if (stepIndex == 18) {
+                space.removeCollisionObject(boxB);
+            }
+            space.update(timeStep, 1);
+        }
+        recorder.close();
+        Assert.assertEquals(numSteps, recorder.countSteps());
+        /*
+         * Replay into a new space.
+         */
+        PhysicsSpace replaySpace = createSpace();
+        SimulationReplayer replayer = new SimulationReplayer(file, null);
+        int numReplayed = replayer.replay(replaySpace, true);
+        Assert.assertEquals(numSteps, numReplayed);
+        Assert.assertEquals(numSteps, replayer.countSteps());
+        Assert.assertTrue(replayer.isFinished());
+        Assert.assertEquals(-1, replayer.firstMismatch());
+
+        Assert.assertNull(replayer.findObject(2));
+        PhysicsRigidBody replayA = (PhysicsRigidBody) replayer.findObject(1);
+        Assert.assertEquals(boxA.getPhysicsLocation(null),
+                replayA.getPhysicsLocation(null));
+        PhysicsRigidBody replayC = (PhysicsRigidBody) replayer.findObject(3);
+        Assert.assertEquals(boxC.getPhysicsLocation(null),
+                replayC.getPhysicsLocation(null));
+    }
+}
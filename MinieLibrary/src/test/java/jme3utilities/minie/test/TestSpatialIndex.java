@@ -0,0 +1,223 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.SpatialIndex;
+import com.jme3.bullet.collision.PcoType;
+import com.jme3.bullet.collision.PhysicsCollisionObject;
+import com.jme3.bullet.collision.shapes.SphereCollisionShape;
+import com.jme3.bullet.objects.PhysicsGhostObject;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Vector3f;
+import com.jme3.system.NativeLibraryLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test SpatialIndex queries against brute-force searches.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestSpatialIndex {
+    // *************************************************************************
+    // constants
+
+    /**
+     * both collision groups used in this test
+     */
+    final private static int bothGroups
+            = PhysicsCollisionObject.COLLISION_GROUP_01
+            | PhysicsCollisionObject.COLLISION_GROUP_02;
+    /**
+     * both object types used in this test
+     */
+    final private static int bothTypes = PcoType.ghost | PcoType.rigid;
+    // *************************************************************************
+    // fields
+
+    /**
+     * objects added to the space, in the order added
+     */
+    final private List<PhysicsCollisionObject> allObjects = new ArrayList<>();
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Compare nearest-neighbor and radius queries with brute-force results,
+     * using query locations both inside and far outside the populated region.
+     */
+    @Test
+    public void testSpatialIndex() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        PhysicsSpace space = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+        SphereCollisionShape shape = new SphereCollisionShape(0.1f);
+        Random generator = new Random(7L);
+        allObjects.clear();
+        for (int i = 0; i < 200; ++i) {
+            PhysicsCollisionObject pco;
+            if (i % 2 == 0) {
+                pco = new PhysicsGhostObject(shape);
+            } else {
+                pco = new PhysicsRigidBody(shape,
+                        PhysicsRigidBody.massForStatic);
+            }
+            if (i % 3 == 0) {
+                pco.setCollisionGroup(
+                        PhysicsCollisionObject.COLLISION_GROUP_02);
+            }
+            Vector3f location = new Vector3f(nextCoordinate(generator),
+                    nextCoordinate(generator), nextCoordinate(generator));
+            if (pco instanceof PhysicsGhostObject) {
+                ((PhysicsGhostObject) pco).setPhysicsLocation(location);
+            } else {
+                ((PhysicsRigidBody) pco).setPhysicsLocation(location);
+            }
+            space.addCollisionObject(pco);
+            allObjects.add(pco);
+        }
+
+        SpatialIndex index = new SpatialIndex(space, 2f);
+        Assert.assertEquals(200, index.countObjects());
+
+        List<PhysicsCollisionObject> found = new ArrayList<>();
+        for (int trial = 0; trial < 50; ++trial) {
+            /*
+             * Every 5th query location lies far outside the populated
+             * region, so many empty rings must be skipped.
+             */
+            float scale = (trial % 5 == 0) ? 20f : 1f;
+            Vector3f query = new Vector3f(scale * nextCoordinate(generator),
+                    scale * nextCoordinate(generator),
+                    scale * nextCoordinate(generator));
+
+            for (int k : new int[]{1, 5, 17}) {
+                index.findNearest(query, k, bothTypes, bothGroups, found);
+                assertNearest(query, k, bothTypes, bothGroups, found);
+
+                index.findNearest(query, k, PcoType.ghost, bothGroups, found);
+                assertNearest(query, k, PcoType.ghost, bothGroups, found);
+
+                index.findNearest(query, k, bothTypes,
+                        PhysicsCollisionObject.COLLISION_GROUP_02, found);
+                assertNearest(query, k, bothTypes,
+                        PhysicsCollisionObject.COLLISION_GROUP_02, found);
+            }
+
+            float radius = 3f;
+            index.findWithinRadius(query, radius, bothTypes, bothGroups,
+                    found);
+            int expected = 0;
+            for (PhysicsCollisionObject pco : allObjects) {
+                if (distanceSquared(pco, query) <= radius * radius) {
+                    ++expected;
+                    Assert.assertTrue(found.contains(pco));
+                }
+            }
+            Assert.assertEquals(expected, found.size());
+        }
+        /*
+         * The index tracks removals.
+         */
+        PhysicsCollisionObject removed = allObjects.remove(0);
+        space.removeCollisionObject(removed);
+        Assert.assertEquals(199, index.countObjects());
+        Vector3f location = removed.getPhysicsLocation(null);
+        index.findNearest(location, 1, bothTypes, bothGroups, found);
+        Assert.assertNotSame(removed, found.get(0));
+
+        index.destroy();
+        Assert.assertEquals(0, index.countObjects());
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Verify the result of a nearest-neighbor query against a brute-force
+     * search. Ties are allowed to be broken either way, so only the distances
+     * are compared.
+     *
+     * @param query the query location (not null, unaffected)
+     * @param maxResults the maximum number of results requested (&ge;1)
+     * @param types the PcoType bitmask of the query
+     * @param groups the collision-group bitmask of the query
+     * @param found the objects found by the index (not null, unaffected)
+     */
+    private void assertNearest(Vector3f query, int maxResults, int types,
+            int groups, List<PhysicsCollisionObject> found) {
+        List<Float> expected = new ArrayList<>();
+        for (PhysicsCollisionObject pco : allObjects) {
+            boolean typeOk = (pco instanceof PhysicsGhostObject)
+                    ? (types & PcoType.ghost) != 0
+                    : (types & PcoType.rigid) != 0;
+            if (typeOk && (pco.getCollisionGroup() & groups) != 0) {
+                expected.add(distanceSquared(pco, query));
+            }
+        }
+        Float[] sorted = expected.toArray(new Float[expected.size()]);
+        Arrays.sort(sorted);
+
+        int numExpected = Math.min(maxResults, sorted.length);
+        Assert.assertEquals(numExpected, found.size());
+        for (int i = 0; i < numExpected; ++i) {
+            float actual = distanceSquared(found.get(i), query);
+            Assert.assertEquals(sorted[i], actual, 1e-4f);
+        }
+    }
+
+    /**
+     * Calculate the squared distance from an object's location to the
+     * specified location.
+     *
+     * @param pco the object (not null, unaffected)
+     * @param location the location (not null, unaffected)
+     * @return the squared distance (&ge;0)
+     */
+    private static float distanceSquared(PhysicsCollisionObject pco,
+            Vector3f location) {
+        Vector3f pcoLocation = pco.getPhysicsLocation(null);
+        float result = pcoLocation.distanceSquared(location);
+
+        return result;
+    }
+
+    /**
+     * Generate a pseudo-random coordinate in the populated region.
+     *
+     * @param generator the generator to use (not null)
+     * @return a coordinate value (&ge;-10, &lt;10)
+     */
+    private static float nextCoordinate(Random generator) {
+        float result = 20f * generator.nextFloat() - 10f;
+        return result;
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.collision.shapes.BoxCollisionShape;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.bullet.objects.PhysicsVehicle;
+import com.jme3.bullet.objects.VehicleManager;
+import com.jme3.bullet.objects.VehicleWheel;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.system.NativeLibraryLoader;
+import java.nio.FloatBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test VehicleManager against the per-wheel accessors of PhysicsVehicle.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestVehicleManager {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Drive 2 managed vehicles on a floor and verify that each buffer row
+     * matches the corresponding wheel after a step.
+     */
+    @Test
+    public void testVehicleManager() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        PhysicsSpace space = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+        BoxCollisionShape floorShape
+                = new BoxCollisionShape(new Vector3f(50f, 0.5f, 50f));
+        PhysicsRigidBody floor = new PhysicsRigidBody(floorShape,
+                PhysicsRigidBody.massForStatic);
+        floor.setPhysicsLocation(new Vector3f(0f, -0.5f, 0f));
+        space.addCollisionObject(floor);
+
+        VehicleManager manager = new VehicleManager();
+        PhysicsVehicle car = addVehicle(space, new Vector3f(0f, 1f, 0f), 4);
+        PhysicsVehicle trike = addVehicle(space, new Vector3f(10f, 1f, 0f), 3);
+        manager.add(car);
+        manager.add(trike);
+        Assert.assertTrue(car.isManaged());
+        Assert.assertTrue(trike.isManaged());
+        space.addTickListener(manager);
+
+        car.accelerate(500f);
+        car.steer(0.2f);
+        trike.accelerate(300f);
+        for (int i = 0; i < 30; ++i) {
+            space.update(space.getAccuracy(), 1);
+        }
+
+        Assert.assertEquals(2, manager.countVehicles());
+        Assert.assertEquals(7, manager.countWheels());
+        Assert.assertEquals(0, manager.firstRow(car));
+        Assert.assertEquals(4, manager.firstRow(trike));
+        FloatBuffer states = manager.getWheelStates();
+        Assert.assertEquals(VehicleManager.stride * 7, states.limit());
+        assertRows(states, manager.firstRow(car), car);
+        assertRows(states, manager.firstRow(trike), trike);
+        /*
+         * Removing a vehicle unmanages it and compacts the buffer.
+         */
+        Assert.assertTrue(manager.remove(car));
+        Assert.assertFalse(car.isManaged());
+        space.update(space.getAccuracy(), 1);
+        Assert.assertEquals(3, manager.countWheels());
+        Assert.assertEquals(0, manager.firstRow(trike));
+        assertRows(manager.getWheelStates(), 0, trike);
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Create a vehicle with the specified number of wheels and add it to the
+     * specified space.
+     *
+     * @param space the space to add to (not null)
+     * @param location the initial location of the chassis (not null)
+     * @param numWheels the number of wheels (3 or 4)
+     * @return a new vehicle
+     */
+    private static PhysicsVehicle addVehicle(PhysicsSpace space,
+            Vector3f location, int numWheels) {
+        BoxCollisionShape chassisShape
+                = new BoxCollisionShape(new Vector3f(1f, 0.25f, 2f));
+        PhysicsVehicle result = new PhysicsVehicle(chassisShape, 400f);
+        result.setPhysicsLocation(location);
+
+        Vector3f direction = new Vector3f(0f, -1f, 0f);
+        Vector3f axle = new Vector3f(-1f, 0f, 0f);
+        float restLength = 0.3f;
+        float radius = 0.4f;
+        if (numWheels == 3) {
+            result.addWheel(new Vector3f(0f, 0f, 1.6f), direction, axle,
+                    restLength, radius, true);
+        } else {
+            result.addWheel(new Vector3f(-1f, 0f, 1.6f), direction, axle,
+                    restLength, radius, true);
+            result.addWheel(new Vector3f(1f, 0f, 1.6f), direction, axle,
+                    restLength, radius, true);
+        }
+        result.addWheel(new Vector3f(-1f, 0f, -1.6f), direction, axle,
+                restLength, radius, false);
+        result.addWheel(new Vector3f(1f, 0f, -1.6f), direction, axle,
+                restLength, radius, false);
+        space.addCollisionObject(result);
+
+        return result;
+    }
+
+    /**
+     * Verify that the buffer rows of the specified vehicle match its wheels.
+     *
+     * @param states the shared buffer (not null, unaffected)
+     * @param firstRow the row of the vehicle's first wheel (&ge;0)
+     * @param vehicle the vehicle to compare (not null, unaffected)
+     */
+    private static void assertRows(FloatBuffer states, int firstRow,
+            PhysicsVehicle vehicle) {
+        Vector3f vector = new Vector3f();
+        Quaternion rotation = new Quaternion();
+        int numWheels = vehicle.getNumWheels();
+        for (int wheelIndex = 0; wheelIndex < numWheels; ++wheelIndex) {
+            VehicleWheel wheel = vehicle.getWheel(wheelIndex);
+            int offset = VehicleManager.stride * (firstRow + wheelIndex);
+
+            wheel.getWheelWorldLocation(vector);
+            assertVector(states, offset + VehicleManager.wheelLocationOffset,
+                    vector);
+
+            wheel.getWheelWorldRotation(rotation);
+            int rotationOffset = offset + VehicleManager.wheelRotationOffset;
+            Assert.assertEquals(rotation.getX(), states.get(rotationOffset),
+                    0f);
+            Assert.assertEquals(rotation.getY(),
+                    states.get(rotationOffset + 1), 0f);
+            Assert.assertEquals(rotation.getZ(),
+                    states.get(rotationOffset + 2), 0f);
+            Assert.assertEquals(rotation.getW(),
+                    states.get(rotationOffset + 3), 0f);
+
+            Assert.assertEquals(wheel.getSuspensionLength(), states.get(
+                    offset + VehicleManager.suspensionLengthOffset), 0f);
+            wheel.getCollisionLocation(vector);
+            assertVector(states, offset + VehicleManager.contactLocationOffset,
+                    vector);
+            wheel.getCollisionNormal(vector);
+            assertVector(states, offset + VehicleManager.contactNormalOffset,
+                    vector);
+            Assert.assertEquals(wheel.getSkidInfo(),
+                    states.get(offset + VehicleManager.skidInfoOffset), 0f);
+            Assert.assertEquals(wheel.getRotationAngle(),
+                    states.get(offset + VehicleManager.rotationAngleOffset),
+                    0f);
+            Assert.assertEquals(wheel.getDeltaRotation(),
+                    states.get(offset + VehicleManager.deltaRotationOffset),
+                    0f);
+            Assert.assertEquals(wheel.getSteerAngle(),
+                    states.get(offset + VehicleManager.steerAngleOffset), 0f);
+        }
+    }
+
+    /**
+     * Verify that 3 buffer elements match the specified vector.
+     *
+     * @param states the shared buffer (not null, unaffected)
+     * @param floatOffset the offset of the X component (&ge;0)
+     * @param expected the expected values (not null, unaffected)
+     */
+    private static void assertVector(FloatBuffer states, int floatOffset,
+            Vector3f expected) {
+        Assert.assertEquals(expected.x, states.get(floatOffset), 0f);
+        Assert.assertEquals(expected.y, states.get(floatOffset + 1), 0f);
+        Assert.assertEquals(expected.z, states.get(floatOffset + 2), 0f);
+    }
+}